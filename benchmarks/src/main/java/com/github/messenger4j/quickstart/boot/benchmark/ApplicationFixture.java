@@ -0,0 +1,85 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import static java.util.Optional.of;
+
+import com.github.messenger4j.Messenger;
+import com.github.messenger4j.quickstart.boot.MessengerPlatformCallbackHandler;
+import com.github.messenger4j.quickstart.boot.attachment.AttachmentFetcher;
+import com.github.messenger4j.quickstart.boot.attachment.AttachmentProcessor;
+import com.github.messenger4j.quickstart.boot.cluster.ClusterNode;
+import com.github.messenger4j.quickstart.boot.command.CommandRouter;
+import com.github.messenger4j.quickstart.boot.dedup.EventDeduplicator;
+import com.github.messenger4j.quickstart.boot.dispatch.EventDispatcher;
+import com.github.messenger4j.quickstart.boot.dispatch.EventMetrics;
+import com.github.messenger4j.quickstart.boot.ingest.CallbackReader;
+import com.github.messenger4j.quickstart.boot.journal.EventJournal;
+import com.github.messenger4j.quickstart.boot.logging.EventLog;
+import com.github.messenger4j.quickstart.boot.media.MediaAssetManager;
+import com.github.messenger4j.quickstart.boot.send.GraphApiUsage;
+import com.github.messenger4j.quickstart.boot.send.OutboundScheduler;
+import com.github.messenger4j.quickstart.boot.send.OutboundSender;
+import com.github.messenger4j.quickstart.boot.send.SendMetrics;
+import com.github.messenger4j.quickstart.boot.session.SessionStore;
+import com.github.messenger4j.quickstart.boot.template.MessageTemplateRegistry;
+import com.github.messenger4j.quickstart.boot.userprofile.UserProfileCache;
+import com.github.messenger4j.quickstart.boot.watermark.WatermarkStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.io.IOException;
+
+/**
+ * Wires the callback handler and its collaborators the way the Spring context does, but against a {@link StubGraphApi}.
+ */
+public final class ApplicationFixture {
+
+    public final StubGraphApi graphApi;
+    public final MeterRegistry meterRegistry;
+    public final Messenger messenger;
+    public final CallbackReader callbackReader;
+    public final EventDispatcher eventDispatcher;
+    public final OutboundSender outboundSender;
+    public final MessageTemplateRegistry messageTemplates;
+    public final MediaAssetManager mediaAssets;
+    public final AttachmentFetcher attachmentFetcher;
+    public final MessengerPlatformCallbackHandler callbackHandler;
+
+    public ApplicationFixture(long graphApiLatencyMicros, int workers, boolean virtualThreads) throws IOException {
+        this(graphApiLatencyMicros, workers, virtualThreads, false);
+    }
+
+    /**
+     * @param fetchAttachments whether the content of attachments is downloaded and hashed, without being cached on disk
+     */
+    public ApplicationFixture(long graphApiLatencyMicros, int workers, boolean virtualThreads, boolean fetchAttachments) throws IOException {
+        this.graphApi = new StubGraphApi(graphApiLatencyMicros);
+        this.meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        this.messenger = Messenger.create(CallbackPayloads.PAGE_ACCESS_TOKEN, CallbackPayloads.APP_SECRET, CallbackPayloads.VERIFY_TOKEN,
+                of(this.graphApi));
+        this.callbackReader = new CallbackReader(this.messenger, CallbackPayloads.APP_SECRET);
+        this.eventDispatcher = new EventDispatcher(workers, 100_000, virtualThreads);
+        // the stub Graph API has no rate limits, so the scheduler must not hold the replies back
+        final OutboundScheduler scheduler = new OutboundScheduler(new GraphApiUsage(), workers, 1e9, 1_000_000, 1e9, 1_000_000, 0, 100, 100, 100);
+        final SendMetrics sendMetrics = new SendMetrics(this.meterRegistry);
+        this.outboundSender = new OutboundSender(this.messenger, this.graphApi, scheduler, sendMetrics, workers, 100_000, virtualThreads);
+        this.messageTemplates = new MessageTemplateRegistry(CallbackPayloads.PAGE_ACCESS_TOKEN, CallbackPayloads.APP_SECRET,
+                CallbackPayloads.VERIFY_TOKEN);
+        this.mediaAssets = new MediaAssetManager(this.messageTemplates, this.outboundSender, CallbackPayloads.PAGE_ACCESS_TOKEN, false, "");
+        this.attachmentFetcher = new AttachmentFetcher(8, 1000, 10, 26_214_400, "", 100_000);
+        // the benchmarks post the same payload over and over again, so de-duplication is disabled, and so is the journal
+        this.callbackHandler = new MessengerPlatformCallbackHandler(this.messenger, this.callbackReader,
+                new EventDeduplicator(0, 1), new EventJournal("", 0, false), this.eventDispatcher, this.outboundSender,
+                new UserProfileCache(this.messenger, 3600, 100_000), this.messageTemplates, this.mediaAssets,
+                new AttachmentProcessor(this.attachmentFetcher, fetchAttachments, 10), new CommandRouter(), new EventMetrics(this.meterRegistry), sendMetrics,
+                new EventLog(true, new String[]{"echo", "delivered", "read"}, 100), new WatermarkStore(100_000),
+                new SessionStore(100_000, 10_000, 1800, 256, ""),
+                new ClusterNode("", "", "", 5, 512, 1000, 5000, 60000, 256, CallbackPayloads.APP_SECRET, this.meterRegistry), false);
+    }
+
+    public void shutdown() throws InterruptedException {
+        this.eventDispatcher.shutdown();
+        this.outboundSender.shutdown();
+        this.mediaAssets.shutdown();
+        this.attachmentFetcher.shutdown();
+    }
+}
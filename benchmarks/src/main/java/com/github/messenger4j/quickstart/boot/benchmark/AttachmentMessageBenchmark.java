@@ -0,0 +1,103 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of acknowledging a message with 1 to 10 image attachments, from the callback until the reply has been sent
+ * to a stub Graph API with a realistic round trip time.
+ *
+ * <p>
+ * With {@code fetch} the images are downloaded and hashed from a local media server with a latency of its own before
+ * the reply is sent. Every invocation uses new image URLs, so each image is actually downloaded.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AttachmentMessageBenchmark {
+
+    private static final byte[] IMAGE = new byte[100 * 1024];
+
+    @Param({"1", "2", "5", "10"})
+    public int attachments;
+
+    @Param({"false", "true"})
+    public boolean fetch;
+
+    @Param({"50000"})
+    public long graphApiLatencyMicros;
+
+    @Param({"20"})
+    public long mediaLatencyMillis;
+
+    private ApplicationFixture application;
+    private HttpServer mediaServer;
+    private ExecutorService mediaExecutor;
+    private String mediaUrl;
+    private long invocation;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.application = new ApplicationFixture(this.graphApiLatencyMicros, 8, false, this.fetch);
+        this.mediaExecutor = Executors.newCachedThreadPool();
+        this.mediaServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.mediaServer.createContext("/", exchange -> {
+            try {
+                Thread.sleep(this.mediaLatencyMillis);
+                exchange.sendResponseHeaders(200, IMAGE.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(IMAGE);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        this.mediaServer.setExecutor(this.mediaExecutor);
+        this.mediaServer.start();
+        this.mediaUrl = "http://localhost:" + this.mediaServer.getAddress().getPort() + "/images";
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        this.application.shutdown();
+        this.mediaServer.stop(0);
+        this.mediaExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public Object acknowledged() throws InterruptedException {
+        final String payload = CallbackPayloads.attachmentMessage(this.attachments, this.mediaUrl + "/" + this.invocation++);
+        final long expectedSent = this.application.outboundSender.sent() + 1;
+        final Object response = this.application.callbackHandler.handleCallback(
+                new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)), CallbackPayloads.signature(payload));
+        while (this.application.outboundSender.sent() < expectedSent) {
+            Thread.sleep(0L, 100_000);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Entry point of the benchmarks JAR. Passes the command line on to JMH, but writes the results as JSON to
+ * {@code jmh-result.json} unless a result format is given with {@code -rf}, so that the results of different releases
+ * can be compared by tools.
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        final boolean resultFormatGiven = Arrays.stream(args).anyMatch(arg -> arg.startsWith("-rf") && !arg.startsWith("-rff"));
+        if (resultFormatGiven) {
+            org.openjdk.jmh.Main.main(args);
+        } else {
+            final String[] jsonArgs = new String[args.length + 2];
+            jsonArgs[0] = "-rf";
+            jsonArgs[1] = "json";
+            System.arraycopy(args, 0, jsonArgs, 2, args.length);
+            org.openjdk.jmh.Main.main(jsonArgs);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import com.github.messenger4j.quickstart.boot.broadcast.Broadcast;
+import com.github.messenger4j.quickstart.boot.broadcast.BroadcastEngine;
+import com.github.messenger4j.quickstart.boot.template.PrecompiledMessage;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sends per second of a broadcast of the generic template against a stub Graph API with a realistic round trip time.
+ *
+ * <p>
+ * Each invocation broadcasts the precompiled template to {@value #RECIPIENTS} users, whose IDs are generated while the
+ * broadcast goes on, and waits until it is complete. The broadcasts are not checkpointed and not rate limited, so the
+ * result is bound by the number of workers and the latency of the Send API.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BroadcastThroughputBenchmark {
+
+    private static final int RECIPIENTS = 2000;
+    private static final long FIRST_RECIPIENT_ID = 1254477777772919L;
+
+    @Param({"64", "512"})
+    public int concurrency;
+
+    @Param({"50000"})
+    public long graphApiLatencyMicros;
+
+    private ApplicationFixture application;
+    private BroadcastEngine broadcastEngine;
+    private PrecompiledMessage message;
+    private int broadcasts;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.application = new ApplicationFixture(this.graphApiLatencyMicros, this.concurrency, false);
+        this.broadcastEngine = new BroadcastEngine(this.application.outboundSender, this.application.messageTemplates,
+                this.concurrency, 1e9, "", 5, false);
+        this.message = this.application.messageTemplates.generic();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        this.broadcastEngine.shutdown();
+        this.application.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECIPIENTS)
+    public Broadcast broadcast() throws IOException, InterruptedException, ExecutionException {
+        final Iterator<String> recipientIds = LongStream.range(0, RECIPIENTS)
+                .mapToObj(i -> String.valueOf(FIRST_RECIPIENT_ID + i))
+                .iterator();
+        return this.broadcastEngine.start("benchmark-" + this.broadcasts++, this.message, recipientIds).completion().get();
+    }
+}
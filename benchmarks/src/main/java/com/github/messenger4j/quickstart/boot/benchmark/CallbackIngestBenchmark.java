@@ -0,0 +1,96 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import static java.util.Optional.of;
+
+import com.github.messenger4j.Messenger;
+import com.github.messenger4j.exception.MessengerVerificationException;
+import com.github.messenger4j.quickstart.boot.ingest.CallbackReader;
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import com.github.messenger4j.webhook.Event;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning a callback body into verified events: binding the body to a {@code String} and handing it to
+ * {@link Messenger#onReceiveEvents}, as the handler used to do, versus reading it as a stream with the
+ * {@link CallbackReader}.
+ *
+ * <p>
+ * Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} to get the bytes allocated per callback. The
+ * payloads contain up to several thousand messaging events with long texts, which is far more than the Messenger
+ * Platform batches in practice.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallbackIngestBenchmark {
+
+    @Param({"1", "100", "5000"})
+    public int events;
+
+    private Messenger messenger;
+    private CallbackReader callbackReader;
+    private byte[] payload;
+    private String signature;
+
+    @Setup
+    public void setUp() {
+        this.messenger = Messenger.create(CallbackPayloads.PAGE_ACCESS_TOKEN, CallbackPayloads.APP_SECRET, CallbackPayloads.VERIFY_TOKEN,
+                of(new StubGraphApi(0)));
+        this.callbackReader = new CallbackReader(this.messenger, CallbackPayloads.APP_SECRET);
+        final StringBuilder text = new StringBuilder();
+        while (text.length() < 1024) {
+            text.append("hello, world! ");
+        }
+        final String payload = CallbackPayloads.textMessages(this.events, text.toString());
+        this.payload = payload.getBytes(StandardCharsets.UTF_8);
+        this.signature = CallbackPayloads.signature(payload);
+    }
+
+    @Benchmark
+    public List<Event> stringBody() throws IOException, MessengerVerificationException {
+        final String body = readFully(new ByteArrayInputStream(this.payload));
+        final List<Event> events = new ArrayList<>();
+        this.messenger.onReceiveEvents(body, of(this.signature), events::add);
+        return events;
+    }
+
+    @Benchmark
+    public List<ReceivedEvent> streamingBody() throws IOException, MessengerVerificationException {
+        return this.callbackReader.read(new ByteArrayInputStream(this.payload), this.signature);
+    }
+
+    /**
+     * What the {@code StringHttpMessageConverter} does for a {@code @RequestBody String}.
+     */
+    private static String readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Builds callback payloads as the Messenger Platform would send them, including the {@code X-Hub-Signature}.
+ */
+public final class CallbackPayloads {
+
+    public static final String APP_SECRET = "benchmark-app-secret";
+    public static final String PAGE_ACCESS_TOKEN = "benchmark-page-access-token";
+    public static final String VERIFY_TOKEN = "benchmark-verify-token";
+    public static final String PAGE_ID = "1717527131834678";
+
+    private CallbackPayloads() {
+    }
+
+    /**
+     * A single entry with one text message from each of {@code senders} distinct users.
+     */
+    public static String textMessages(int senders, String text) {
+        final StringBuilder payload = new StringBuilder("{\"object\":\"page\",\"entry\":[{\"id\":\"").append(PAGE_ID)
+                .append("\",\"time\":1458692752478,\"messaging\":[");
+        for (int i = 0; i < senders; i++) {
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append("{\"sender\":{\"id\":\"").append(senderId(i)).append("\"},\"recipient\":{\"id\":\"").append(PAGE_ID)
+                    .append("\"},\"timestamp\":").append(1458692752478L + i).append(",\"message\":{\"mid\":\"mid.1457764197618:41d102a3e1ae2")
+                    .append(i).append("\",\"seq\":").append(i).append(",\"text\":\"").append(text).append("\"}}");
+        }
+        return payload.append("]}]}").toString();
+    }
+
+    /**
+     * A single entry with {@code batchSize} messaging events, taken in turn from {@code callbacks/recorded-events.json}:
+     * text messages, a quick reply, a postback, image and location attachments, a delivery, a read and an echo. Every
+     * event of the batch is from a distinct user and has a distinct message ID.
+     */
+    public static String recordedEvents(int batchSize) {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final JsonNode recordedEvents;
+        try (InputStream in = CallbackPayloads.class.getResourceAsStream("/callbacks/recorded-events.json")) {
+            recordedEvents = objectMapper.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final ObjectNode payload = objectMapper.createObjectNode().put("object", "page");
+        final ObjectNode entry = payload.putArray("entry").addObject().put("id", PAGE_ID).put("time", 1458692752478L);
+        final ArrayNode messaging = entry.putArray("messaging");
+        for (int i = 0; i < batchSize; i++) {
+            final ObjectNode event = recordedEvents.get(i % recordedEvents.size()).deepCopy();
+            final boolean echo = event.path("message").path("is_echo").asBoolean();
+            ((ObjectNode) event.get(echo ? "recipient" : "sender")).put("id", senderId(i));
+            if (event.has("message")) {
+                final ObjectNode message = (ObjectNode) event.get("message");
+                message.put("mid", message.get("mid").asText() + i);
+            }
+            messaging.add(event);
+        }
+        return payload.toString();
+    }
+
+    /**
+     * A single message with {@code attachments} image attachments, whose URLs are numbered below {@code mediaUrl}.
+     */
+    public static String attachmentMessage(int attachments, String mediaUrl) {
+        final StringBuilder payload = new StringBuilder("{\"object\":\"page\",\"entry\":[{\"id\":\"").append(PAGE_ID)
+                .append("\",\"time\":1458692752478,\"messaging\":[{\"sender\":{\"id\":\"").append(senderId(0))
+                .append("\"},\"recipient\":{\"id\":\"").append(PAGE_ID)
+                .append("\"},\"timestamp\":1458692752834,\"message\":{\"mid\":\"mid.1457764197618:41d102a3e1ae206a41\",\"seq\":76,\"attachments\":[");
+        for (int i = 0; i < attachments; i++) {
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append("{\"type\":\"image\",\"payload\":{\"url\":\"").append(mediaUrl).append('/').append(i).append(".jpg\"}}");
+        }
+        return payload.append("]}}]}]}").toString();
+    }
+
+    public static String senderId(int i) {
+        return String.valueOf(1254477777772919L + i);
+    }
+
+    public static String signature(String payload) {
+        try {
+            final Mac mac = Mac.getInstance("HmacSHA1");
+            mac.init(new SecretKeySpec(APP_SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+            final byte[] digest = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder signature = new StringBuilder("sha1=");
+            for (byte b : digest) {
+                signature.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return signature.toString();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import static java.util.Optional.of;
+
+import com.github.messenger4j.Messenger;
+import com.github.messenger4j.exception.MessengerVerificationException;
+import com.github.messenger4j.quickstart.boot.cluster.ClusterNode;
+import com.github.messenger4j.quickstart.boot.ingest.CallbackReader;
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Round trip of forwarding 1, 10 and 100 events to the node that owns their senders, over loopback, with a peer that
+ * accepts the events as soon as it has read them. This is the latency that the cluster mode adds to a callback that
+ * arrives at the wrong node, on top of what the owner takes to journal and process the events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClusterForwardingBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int events;
+
+    private ClusterNode forwarding;
+    private ClusterNode owning;
+    private List<ReceivedEvent> foreignEvents;
+
+    @Setup
+    public void setUp() throws IOException, MessengerVerificationException {
+        final String members = "forwarding=localhost:" + freePort() + ",owning=localhost:" + freePort();
+        this.forwarding = node("forwarding", members);
+        this.owning = node("owning", members);
+        this.forwarding.start(payloads -> true);
+        this.owning.start(payloads -> true);
+
+        final Messenger messenger = Messenger.create(CallbackPayloads.PAGE_ACCESS_TOKEN, CallbackPayloads.APP_SECRET,
+                CallbackPayloads.VERIFY_TOKEN, of(new StubGraphApi(0)));
+        final CallbackReader callbackReader = new CallbackReader(messenger, CallbackPayloads.APP_SECRET);
+        final String payload = CallbackPayloads.textMessages(this.events * 4, "hello, world!");
+        this.foreignEvents = new ArrayList<>(this.events);
+        for (ReceivedEvent event : callbackReader.read(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)),
+                CallbackPayloads.signature(payload))) {
+            if (this.foreignEvents.size() < this.events && this.forwarding.ring().owner(event.senderId()).id().equals("owning")) {
+                this.foreignEvents.add(event);
+            }
+        }
+        if (this.foreignEvents.size() < this.events) {
+            throw new IllegalStateException("Too few senders of the callback belong to the owning node");
+        }
+    }
+
+    private static ClusterNode node(String nodeId, String members) throws IOException {
+        return new ClusterNode(nodeId, members, "", 5, 512, 1000, 5000, 60000, 256, CallbackPayloads.APP_SECRET, new SimpleMeterRegistry());
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.forwarding.shutdown();
+        this.owning.shutdown();
+    }
+
+    @Benchmark
+    public List<ReceivedEvent> forward() {
+        return this.forwarding.forward(this.foreignEvents);
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import com.github.messenger4j.quickstart.boot.command.CommandHandler;
+import com.github.messenger4j.quickstart.boot.command.CommandRouter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of routing the text of a message to its command: lowercasing the text and looking it up by hash, which is what
+ * the {@code switch} over the lowercased text compiled to, versus walking the trie of the {@link CommandRouter}.
+ *
+ * <p>
+ * Half of the messages are commands in mixed case, the other half are free text that matches none. Run with
+ * {@code -prof gc} and compare {@code gc.alloc.rate.norm} to get the bytes allocated per message.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandRoutingBenchmark {
+
+    private static final int MESSAGES = 64;
+    private static final CommandHandler HANDLER = (senderId, messageText) -> {
+    };
+
+    @Param({"10", "100", "1000"})
+    public int commands;
+
+    private final Map<String, CommandHandler> lowerCaseCommands = new HashMap<>();
+    private final CommandRouter router = new CommandRouter();
+    private final String[] messages = new String[MESSAGES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < this.commands; i++) {
+            this.lowerCaseCommands.put(command(i), HANDLER);
+            this.router.exact(command(i), HANDLER);
+        }
+        for (int i = 0; i < MESSAGES; i++) {
+            this.messages[i] = i % 2 == 0
+                    ? command(i * 7919 % this.commands).toUpperCase()
+                    : "Hello, what can you tell me about message number " + i + "?";
+        }
+    }
+
+    private static String command(int index) {
+        return "quick reply " + index;
+    }
+
+    private String nextMessage() {
+        final String message = this.messages[this.next];
+        this.next = (this.next + 1) % MESSAGES;
+        return message;
+    }
+
+    @Benchmark
+    public Object lowerCaseSwitch() {
+        return this.lowerCaseCommands.get(nextMessage().toLowerCase());
+    }
+
+    @Benchmark
+    public Optional<CommandHandler> commandRouter() {
+        return this.router.route(nextMessage());
+    }
+}
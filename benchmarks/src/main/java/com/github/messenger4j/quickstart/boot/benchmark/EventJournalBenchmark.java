@@ -0,0 +1,72 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import com.github.messenger4j.quickstart.boot.journal.EventJournal;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Events per second that the {@link EventJournal} accepts from concurrent callbacks, with and without waiting for the
+ * fsync. Every event is marked as processed right away, so the journal keeps rolling over and deleting segments.
+ *
+ * <p>
+ * The journal is written to the temporary directory, set {@code -Djava.io.tmpdir} to measure a particular disk.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class EventJournalBenchmark {
+
+    @Param({"false", "true"})
+    public boolean fsync;
+
+    private Path directory;
+    private EventJournal journal;
+    private List<ReceivedEvent> events;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("event-journal-benchmark");
+        this.journal = new EventJournal(this.directory.toString(), 16 * 1024 * 1024, this.fsync);
+        this.events = Collections.singletonList(new ReceivedEvent(CallbackPayloads.textMessages(1, "hello, world!"), null));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.journal.close();
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long appendAndMarkProcessed() throws IOException {
+        final long sequence = this.journal.append(this.events).get(0).journalSequence();
+        this.journal.markProcessed(sequence);
+        return sequence;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import com.github.messenger4j.quickstart.boot.dispatch.EventMetrics;
+import com.github.messenger4j.quickstart.boot.dispatch.EventType;
+import com.github.messenger4j.quickstart.boot.send.PayloadType;
+import com.github.messenger4j.quickstart.boot.send.SendMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Overhead that the meters add to every handled event and every Send API call, recorded into a Prometheus registry by
+ * as many threads as the default number of dispatcher workers.
+ *
+ * <p>
+ * {@code baseline} stands for the work that is measured, so the overhead is the difference to it. Compare it to the
+ * scores of the {@link WebhookHotPathBenchmark} to see its share of a callback.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class InstrumentationOverheadBenchmark {
+
+    private static final int WORK_TOKENS = 100;
+
+    private EventMetrics eventMetrics;
+    private SendMetrics sendMetrics;
+
+    @Setup
+    public void setUp() {
+        final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        this.eventMetrics = new EventMetrics(registry);
+        this.sendMetrics = new SendMetrics(registry);
+    }
+
+    @Benchmark
+    public void baseline() {
+        Blackhole.consumeCPU(WORK_TOKENS);
+    }
+
+    @Benchmark
+    public void timedEvent() {
+        final long startNanos = this.eventMetrics.started();
+        Blackhole.consumeCPU(WORK_TOKENS);
+        this.eventMetrics.finished(EventType.TEXT, startNanos);
+    }
+
+    @Benchmark
+    public void timedSendApiCall() {
+        final long startNanos = this.sendMetrics.started();
+        Blackhole.consumeCPU(WORK_TOKENS);
+        this.sendMetrics.finished(PayloadType.TEXT, startNanos, true);
+    }
+}
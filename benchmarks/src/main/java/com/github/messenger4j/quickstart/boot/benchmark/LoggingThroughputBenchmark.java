@@ -0,0 +1,122 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.github.messenger4j.quickstart.boot.dispatch.EventType;
+import com.github.messenger4j.quickstart.boot.logging.EventLog;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Throughput of the {@link EventLog} lines of text events, written by as many threads as the default number of
+ * dispatcher workers, through the console appender itself and through the asynchronous appender of
+ * {@code logback-spring.xml} in front of it.
+ *
+ * <p>
+ * The console writes to a stream that discards its bytes, so the scores are those of formatting and handing over the
+ * lines rather than those of a terminal. With {@code async} the threads wait for room once the queue is full, as they
+ * do by default, so its score is bounded by the single thread that formats and writes the lines; with
+ * {@code asyncNeverBlock} they drop the lines instead, so its score includes the lines that have been dropped.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class LoggingThroughputBenchmark {
+
+    private static final String PATTERN = "%d{yyyy-MM-dd HH:mm:ss.SSS} %5p --- [%t] %-40.40logger{39} : %m%n";
+    private static final String MESSAGE_ID = "mid.1457764197618:41d102a3e1ae206a38";
+    private static final String SENDER_ID = "1254477777772919";
+    private static final String TEXT = "hello, world!";
+    private static final Instant TIMESTAMP = Instant.ofEpochMilli(1458692752478L);
+
+    @Param({"sync", "async", "asyncNeverBlock"})
+    public String appender;
+
+    private LoggerContext loggerContext;
+    private EventLog eventLog;
+
+    @Setup
+    public void setUp() {
+        this.loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        this.loggerContext.reset();
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(this.loggerContext);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        final OutputStreamAppender<ILoggingEvent> console = new OutputStreamAppender<>();
+        console.setContext(this.loggerContext);
+        console.setEncoder(encoder);
+        console.setOutputStream(new DiscardingOutputStream());
+        console.start();
+
+        final Appender<ILoggingEvent> rootAppender;
+        if (this.appender.equals("sync")) {
+            rootAppender = console;
+        } else {
+            final AsyncAppender async = new AsyncAppender();
+            async.setContext(this.loggerContext);
+            async.setQueueSize(8192);
+            async.setIncludeCallerData(false);
+            async.setNeverBlock(this.appender.equals("asyncNeverBlock"));
+            async.addAppender(console);
+            async.start();
+            rootAppender = async;
+        }
+        final Logger root = this.loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(rootAppender);
+
+        this.eventLog = new EventLog(true, new String[] {"echo", "delivered", "read"}, 100);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.loggerContext.reset();
+    }
+
+    @Benchmark
+    public void textEvent() {
+        if (this.eventLog.isLogged(EventType.TEXT)) {
+            this.eventLog.log("event=text mid={} sender={} text={} timestamp={}", MESSAGE_ID, SENDER_ID, this.eventLog.content(TEXT),
+                    TIMESTAMP);
+        }
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
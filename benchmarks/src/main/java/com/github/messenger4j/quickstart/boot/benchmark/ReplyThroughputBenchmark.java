@@ -0,0 +1,79 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Replies per second of the callback endpoint against a stub Graph API with a realistic round trip time.
+ *
+ * <p>
+ * Each invocation posts one callback with {@value #SENDERS} text messages from distinct users and waits until all
+ * replies have been sent by the outbound pipeline. Platform threads with the default number of workers stand for the
+ * current thread-per-request model; virtual threads are only available on Java 21 or later and fall back to platform
+ * threads otherwise.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class ReplyThroughputBenchmark {
+
+    private static final int SENDERS = 100;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"8", "1024"})
+    public int workers;
+
+    @Param({"50000"})
+    public long graphApiLatencyMicros;
+
+    private ApplicationFixture application;
+    private byte[] payload;
+    private String signature;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.application = new ApplicationFixture(this.graphApiLatencyMicros, this.workers, this.virtualThreads);
+        final String payload = CallbackPayloads.textMessages(SENDERS, "hello, world!");
+        this.payload = payload.getBytes(StandardCharsets.UTF_8);
+        this.signature = CallbackPayloads.signature(payload);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        this.application.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SENDERS)
+    public Object replies() throws InterruptedException {
+        final long expectedSent = this.application.outboundSender.sent() + SENDERS;
+        final Object response = this.application.callbackHandler.handleCallback(new ByteArrayInputStream(this.payload), this.signature);
+        while (this.application.outboundSender.sent() < expectedSent) {
+            Thread.sleep(0L, 100_000);
+        }
+        return response;
+    }
+}
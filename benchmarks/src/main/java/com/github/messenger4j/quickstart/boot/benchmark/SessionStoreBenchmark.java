@@ -0,0 +1,83 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import com.github.messenger4j.quickstart.boot.session.Session;
+import com.github.messenger4j.quickstart.boot.session.SessionStore;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of the {@link SessionStore} filled with 1 million and 10 million sessions of the size the quick reply flow
+ * stores, in slots of 128 bytes: reading a session of the hot tier, reading a session picked at random, which is
+ * nearly always one of the cold tier, and updating a session picked at random.
+ *
+ * <p>
+ * The cold tier of 10 million sessions takes about 1.4 GB of direct memory, hence the larger limit of the fork.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+public class SessionStoreBenchmark {
+
+    private static final long FIRST_SENDER_ID = 1254459154682919L;
+    private static final int HOT_SIZE = 10_000;
+    private static final int HOT_SENDERS_MASK = (1 << 16) - 1;
+    private static final int RANDOM_SENDERS_MASK = (1 << 20) - 1;
+    private static final String PAYLOAD = "DEVELOPER_DEFINED_PAYLOAD_FOR_PICKING_COMEDY";
+
+    @Param({"1000000", "10000000"})
+    public int sessions;
+
+    private SessionStore store;
+    private String[] hotSenders;
+    private String[] randomSenders;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.store = new SessionStore(this.sessions, HOT_SIZE, TimeUnit.HOURS.toSeconds(1), 128, "");
+        for (int i = 0; i < this.sessions; i++) {
+            this.store.update(String.valueOf(FIRST_SENDER_ID + i), session -> session.with("lastQuickReply", PAYLOAD));
+        }
+        final Random random = new Random(42);
+        this.hotSenders = new String[HOT_SENDERS_MASK + 1];
+        for (int i = 0; i <= HOT_SENDERS_MASK; i++) {
+            this.hotSenders[i] = String.valueOf(FIRST_SENDER_ID + random.nextInt(HOT_SIZE / 2));
+        }
+        this.randomSenders = new String[RANDOM_SENDERS_MASK + 1];
+        for (int i = 0; i <= RANDOM_SENDERS_MASK; i++) {
+            this.randomSenders[i] = String.valueOf(FIRST_SENDER_ID + random.nextInt(this.sessions));
+        }
+    }
+
+    @Benchmark
+    public Session getHot() {
+        return this.store.get(this.hotSenders[this.next++ & HOT_SENDERS_MASK]);
+    }
+
+    @Benchmark
+    public Session getRandom() {
+        return this.store.get(this.randomSenders[this.next++ & RANDOM_SENDERS_MASK]);
+    }
+
+    @Benchmark
+    public Session updateRandom() {
+        final String payload = (this.next & 1) == 0 ? PAYLOAD : "DEVELOPER_DEFINED_PAYLOAD_FOR_PICKING_DRAMA";
+        return this.store.update(this.randomSenders[this.next++ & RANDOM_SENDERS_MASK], session -> session.with("lastQuickReply", payload));
+    }
+}
@@ -0,0 +1,341 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import static com.github.messenger4j.Messenger.CHALLENGE_REQUEST_PARAM_NAME;
+import static com.github.messenger4j.Messenger.MODE_REQUEST_PARAM_NAME;
+import static com.github.messenger4j.Messenger.SIGNATURE_HEADER_NAME;
+import static com.github.messenger4j.Messenger.VERIFY_TOKEN_REQUEST_PARAM_NAME;
+
+import com.github.messenger4j.spi.MessengerHttpClient.HttpMethod;
+import com.github.messenger4j.spi.MessengerHttpClient.HttpResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Cold start of the application JAR as a process of its own: the time from launching the JVM to the first {@code 200}
+ * of {@code verifyWebhook} and of {@code handleCallback}, and the resident memory of the process right after.
+ *
+ * <p>
+ * Each setup is started {@code runs} times and the medians are reported: the default setup, the {@code slim} profile,
+ * and on Java 13 or later the slim profile started from the exploded JAR with a class data sharing archive that is
+ * recorded by a training run first. The Send API calls of the replies go to a local stub, so the benchmark never
+ * reaches Facebook. The resident memory is read from {@code /proc} and is only reported on Linux.
+ * </p>
+ *
+ * <p>
+ * Not a JMH benchmark, as it measures whole JVMs; build the application and the benchmarks, then run
+ * {@code java -cp benchmarks/target/benchmarks.jar com.github.messenger4j.quickstart.boot.benchmark.StartupBenchmark target/<application>.jar [runs]}.
+ * </p>
+ */
+public final class StartupBenchmark {
+
+    private static final long STARTUP_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final String CHALLENGE = "startup-benchmark";
+
+    private final Path applicationJar;
+    private final Path workDirectory;
+    private final int graphApiPort;
+
+    private StartupBenchmark(Path applicationJar, Path workDirectory, int graphApiPort) {
+        this.applicationJar = applicationJar;
+        this.workDirectory = workDirectory;
+        this.graphApiPort = graphApiPort;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: StartupBenchmark <application JAR> [runs]");
+            System.exit(1);
+        }
+        final int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final HttpServer graphApi = stubGraphApi(new StubGraphApi(0));
+        try {
+            final StartupBenchmark benchmark = new StartupBenchmark(Paths.get(args[0]).toAbsolutePath(),
+                    Files.createTempDirectory("startup-benchmark"), graphApi.getAddress().getPort());
+            benchmark.run(runs);
+        } finally {
+            graphApi.stop(0);
+        }
+    }
+
+    private void run(int runs) throws IOException, InterruptedException {
+        System.out.printf("%-12s %18s %20s %10s%n", "Setup", "verifyWebhook (ms)", "handleCallback (ms)", "RSS (MB)");
+        final List<String> jar = Arrays.asList("-jar", this.applicationJar.toString());
+        report("default", runs, jar, Collections.<String>emptyList());
+        report("slim", runs, jar, Collections.singletonList("--spring.profiles.active=slim"));
+
+        if (javaVersion() < 13) {
+            System.out.println("slim+cds     skipped, recording a class data sharing archive at exit needs Java 13 or later");
+            return;
+        }
+        final List<String> exploded = Arrays.asList("-cp", explode(), "com.github.messenger4j.quickstart.boot.Application");
+        final Path archive = this.workDirectory.resolve("application.jsa");
+        final List<String> training = new ArrayList<>();
+        training.add("-XX:ArchiveClassesAtExit=" + archive);
+        training.addAll(exploded);
+        start("training", training, Collections.singletonList("--spring.profiles.active=slim"));
+        if (!Files.exists(archive)) {
+            System.out.println("slim+cds     skipped, the training run has not recorded " + archive);
+            return;
+        }
+        final List<String> shared = new ArrayList<>();
+        shared.add("-XX:SharedArchiveFile=" + archive);
+        shared.addAll(exploded);
+        report("slim+cds", runs, shared, Collections.singletonList("--spring.profiles.active=slim"));
+    }
+
+    private void report(String setup, int runs, List<String> jvmArgs, List<String> applicationArgs)
+            throws IOException, InterruptedException {
+        final long[] verifyMillis = new long[runs];
+        final long[] callbackMillis = new long[runs];
+        final long[] rssKilobytes = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            final Startup startup = start(setup + "-" + i, jvmArgs, applicationArgs);
+            verifyMillis[i] = startup.verifyMillis;
+            callbackMillis[i] = startup.callbackMillis;
+            rssKilobytes[i] = startup.rssKilobytes;
+        }
+        final long rss = median(rssKilobytes);
+        System.out.printf("%-12s %18d %20d %10s%n", setup, median(verifyMillis), median(callbackMillis),
+                rss < 0 ? "n/a" : String.valueOf(rss / 1024));
+    }
+
+    /**
+     * Starts the application, waits for the first {@code 200} of both endpoints, and stops it again.
+     */
+    private Startup start(String name, List<String> jvmArgs, List<String> applicationArgs) throws IOException, InterruptedException {
+        final int port = freePort();
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("--server.port=" + port);
+        command.add("--messenger4j.appSecret=" + CallbackPayloads.APP_SECRET);
+        command.add("--messenger4j.verifyToken=" + CallbackPayloads.VERIFY_TOKEN);
+        command.add("--messenger4j.pageAccessToken=" + CallbackPayloads.PAGE_ACCESS_TOKEN);
+        command.add("--messenger4j.graphApiUrl=http://localhost:" + this.graphApiPort);
+        command.add("--messenger4j.media.attachmentStore=");
+        command.addAll(applicationArgs);
+
+        final File log = this.workDirectory.resolve(name + ".log").toFile();
+        final long startNanos = System.nanoTime();
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+        try {
+            final String verifyUrl = "http://localhost:" + port + "/callback?" + MODE_REQUEST_PARAM_NAME + "=subscribe&"
+                    + VERIFY_TOKEN_REQUEST_PARAM_NAME + "=" + CallbackPayloads.VERIFY_TOKEN + "&" + CHALLENGE_REQUEST_PARAM_NAME + "=" + CHALLENGE;
+            awaitOk(process, log, startNanos, () -> get(verifyUrl));
+            final long verifyNanos = System.nanoTime() - startNanos;
+
+            final String payload = CallbackPayloads.textMessages(1, "hello, world!");
+            awaitOk(process, log, startNanos, () -> post("http://localhost:" + port + "/callback", payload, CallbackPayloads.signature(payload)));
+            final long callbackNanos = System.nanoTime() - startNanos;
+
+            return new Startup(TimeUnit.NANOSECONDS.toMillis(verifyNanos), TimeUnit.NANOSECONDS.toMillis(callbackNanos),
+                    rssKilobytes(process));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static void awaitOk(Process process, File log, long startNanos, Request request) throws InterruptedException {
+        while (true) {
+            try {
+                if (request.send() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application has exited with " + process.exitValue() + ", see " + log);
+            }
+            if (System.nanoTime() - startNanos > STARTUP_TIMEOUT_NANOS) {
+                throw new IllegalStateException("Application has not answered with 200 in time, see " + log);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static int get(String url) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static int post(String url, String payload, String signature) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty(SIGNATURE_HEADER_NAME, signature);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(payload.getBytes(StandardCharsets.UTF_8));
+            }
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Serves the Graph API calls of the application from the stub, over HTTP.
+     */
+    private static HttpServer stubGraphApi(StubGraphApi stubGraphApi) throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                final HttpResponse response = stubGraphApi.execute(HttpMethod.valueOf(exchange.getRequestMethod()),
+                        exchange.getRequestURI().toString(), read(exchange));
+                final byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(response.statusCode(), body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static String read(HttpExchange exchange) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Unpacks the application JAR, so that its classes are loaded from plain files by the application class loader,
+     * which class data sharing requires.
+     *
+     * @return the class path of the unpacked application
+     */
+    private String explode() throws IOException {
+        final Path directory = this.workDirectory.resolve("exploded");
+        try (JarFile jar = new JarFile(this.applicationJar.toFile())) {
+            final Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                final JarEntry entry = entries.nextElement();
+                final Path target = directory.resolve(entry.getName()).normalize();
+                if (!target.startsWith(directory)) {
+                    throw new IOException("Entry " + entry.getName() + " lies outside of the JAR");
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    try (InputStream in = jar.getInputStream(entry)) {
+                        Files.copy(in, target);
+                    }
+                }
+            }
+        }
+        return directory.resolve("BOOT-INF/classes") + File.pathSeparator + directory.resolve("BOOT-INF/lib") + File.separator + "*";
+    }
+
+    /**
+     * @return the resident set size of the process in kilobytes, or {@code -1} if it cannot be read
+     */
+    private static long rssKilobytes(Process process) {
+        final Path status = Paths.get("/proc", String.valueOf(pid(process)), "status");
+        try {
+            for (String line : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not on Linux
+        }
+        return -1;
+    }
+
+    private static long pid(Process process) {
+        try {
+            // Java 9 or later
+            return (Long) Process.class.getMethod("pid").invoke(process);
+        } catch (ReflectiveOperationException e) {
+            try {
+                final Field pid = process.getClass().getDeclaredField("pid");
+                pid.setAccessible(true);
+                return pid.getInt(process);
+            } catch (ReflectiveOperationException | RuntimeException e2) {
+                return -1;
+            }
+        }
+    }
+
+    private static int javaVersion() {
+        final String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    private static long median(long[] values) {
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request {
+
+        int send() throws IOException;
+    }
+
+    private static final class Startup {
+
+        final long verifyMillis;
+        final long callbackMillis;
+        final long rssKilobytes;
+
+        Startup(long verifyMillis, long callbackMillis, long rssKilobytes) {
+            this.verifyMillis = verifyMillis;
+            this.callbackMillis = callbackMillis;
+            this.rssKilobytes = rssKilobytes;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import com.github.messenger4j.spi.MessengerHttpClient;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Graph API that answers every request with a canned success response after a fixed latency.
+ */
+public class StubGraphApi implements MessengerHttpClient {
+
+    private static final String SEND_RESPONSE = "{\"recipient_id\":\"1008372609250235\",\"message_id\":\"mid.1456970487936:c34767dfe57ee6e339\"}";
+    private static final String USER_PROFILE_RESPONSE = "{\"first_name\":\"Peter\",\"last_name\":\"Chang\","
+            + "\"profile_pic\":\"https://example.com/profile.jpg\",\"locale\":\"en_US\",\"timezone\":-7,\"gender\":\"male\"}";
+
+    private final long latencyMicros;
+    private final AtomicLong requests = new AtomicLong();
+
+    public StubGraphApi(long latencyMicros) {
+        this.latencyMicros = latencyMicros;
+    }
+
+    @Override
+    public HttpResponse execute(HttpMethod httpMethod, String url, String jsonBody) {
+        this.requests.incrementAndGet();
+        if (this.latencyMicros > 0) {
+            try {
+                TimeUnit.MICROSECONDS.sleep(this.latencyMicros);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return new HttpResponse(200, httpMethod == HttpMethod.GET ? USER_PROFILE_RESPONSE : SEND_RESPONSE);
+    }
+
+    public long requests() {
+        return this.requests.get();
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import com.github.messenger4j.Messenger;
+import com.github.messenger4j.exception.MessengerApiException;
+import com.github.messenger4j.exception.MessengerIOException;
+import com.github.messenger4j.quickstart.boot.template.MessageTemplateRegistry;
+import com.github.messenger4j.quickstart.boot.template.PrecompiledMessage;
+import com.github.messenger4j.send.MessagePayload;
+import com.github.messenger4j.send.MessagingType;
+import com.github.messenger4j.send.message.TemplateMessage;
+import com.github.messenger4j.send.message.template.GenericTemplate;
+import com.github.messenger4j.send.message.template.button.Button;
+import com.github.messenger4j.send.message.template.button.PostbackButton;
+import com.github.messenger4j.send.message.template.button.UrlButton;
+import com.github.messenger4j.send.message.template.common.Element;
+import com.github.messenger4j.spi.MessengerHttpClient.HttpMethod;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of producing the Send API request for the generic template: rebuilding and serializing the message graph for
+ * every reply, as the handler used to do, versus splicing the recipient into the precompiled request.
+ *
+ * <p>
+ * Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} to get the bytes allocated per reply.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplatePayloadBenchmark {
+
+    private static final String RECIPIENT_ID = "1254477777772919";
+
+    private StubGraphApi graphApi;
+    private Messenger messenger;
+    private PrecompiledMessage precompiledGeneric;
+
+    @Setup
+    public void setUp() throws MalformedURLException {
+        this.graphApi = new StubGraphApi(0);
+        this.messenger = Messenger.create(CallbackPayloads.PAGE_ACCESS_TOKEN, CallbackPayloads.APP_SECRET, CallbackPayloads.VERIFY_TOKEN,
+                of(this.graphApi));
+        this.precompiledGeneric = new MessageTemplateRegistry(CallbackPayloads.PAGE_ACCESS_TOKEN, CallbackPayloads.APP_SECRET,
+                CallbackPayloads.VERIFY_TOKEN).generic();
+    }
+
+    @Benchmark
+    public Object rebuildGenericMessage() throws MalformedURLException, MessengerApiException, MessengerIOException {
+        List<Button> riftButtons = new ArrayList<>();
+        riftButtons.add(UrlButton.create("Open Web URL", new URL("https://www.oculus.com/en-us/rift/")));
+        riftButtons.add(PostbackButton.create("Call Postback", "Payload for first bubble"));
+
+        List<Button> touchButtons = new ArrayList<>();
+        touchButtons.add(UrlButton.create("Open Web URL", new URL("https://www.oculus.com/en-us/touch/")));
+        touchButtons.add(PostbackButton.create("Call Postback", "Payload for second bubble"));
+
+        final List<Element> elements = new ArrayList<>();
+
+        elements.add(
+                Element.create("rift", of("Next-generation virtual reality"), of(new URL("https://www.oculus.com/en-us/rift/")), empty(), of(riftButtons)));
+        elements.add(Element.create("touch", of("Your Hands, Now in VR"), of(new URL("https://www.oculus.com/en-us/touch/")), empty(), of(touchButtons)));
+
+        final GenericTemplate genericTemplate = GenericTemplate.create(elements);
+        final TemplateMessage templateMessage = TemplateMessage.create(genericTemplate);
+        final MessagePayload messagePayload = MessagePayload.create(RECIPIENT_ID, MessagingType.RESPONSE, templateMessage);
+        return this.messenger.send(messagePayload);
+    }
+
+    @Benchmark
+    public Object precompiledGenericMessage() {
+        return this.graphApi.execute(HttpMethod.POST, this.precompiledGeneric.url(), this.precompiledGeneric.json(RECIPIENT_ID).get());
+    }
+}
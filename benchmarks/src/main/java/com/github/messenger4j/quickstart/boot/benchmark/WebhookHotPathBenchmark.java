@@ -0,0 +1,145 @@
+package com.github.messenger4j.quickstart.boot.benchmark;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import com.github.messenger4j.exception.MessengerApiException;
+import com.github.messenger4j.exception.MessengerIOException;
+import com.github.messenger4j.exception.MessengerVerificationException;
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import com.github.messenger4j.send.MessagePayload;
+import com.github.messenger4j.send.MessageResponse;
+import com.github.messenger4j.send.MessagingType;
+import com.github.messenger4j.send.NotificationType;
+import com.github.messenger4j.send.message.TextMessage;
+import com.github.messenger4j.send.recipient.IdRecipient;
+import com.github.messenger4j.webhook.event.TextMessageEvent;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of every stage of the webhook hot path for a callback with {@link #batchSize} recorded messaging events.
+ *
+ * <p>
+ * The stages are measured one by one: verifying the {@code X-Hub-Signature} of the body, parsing the single-event
+ * payloads with {@code Messenger#onReceiveEvents}, reading a body with both of them, and building and serializing the
+ * text message replies as {@code sendTextMessage} does. {@link #handleCallback()} runs the whole path including the
+ * event-type dispatch and waits until all replies have been handed to the stub Graph API, which answers without
+ * latency. All scores are per callback, so the stages of a batch size add up to roughly its end-to-end score.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebhookHotPathBenchmark {
+
+    private static final String SIGNATURE_PREFIX = "sha1=";
+
+    @Param({"1", "10", "100"})
+    public int batchSize;
+
+    private ApplicationFixture application;
+    private byte[] payload;
+    private String signature;
+    private Mac mac;
+    private List<String> eventPayloads;
+    private List<TextMessageEvent> textMessageEvents;
+
+    @Setup
+    public void setUp() throws IOException, GeneralSecurityException, MessengerVerificationException {
+        this.application = new ApplicationFixture(0, 8, false);
+        final String payload = CallbackPayloads.recordedEvents(this.batchSize);
+        this.payload = payload.getBytes(StandardCharsets.UTF_8);
+        this.signature = CallbackPayloads.signature(payload);
+        this.mac = Mac.getInstance("HmacSHA1");
+        this.mac.init(new SecretKeySpec(CallbackPayloads.APP_SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+        this.eventPayloads = new ArrayList<>();
+        this.textMessageEvents = new ArrayList<>();
+        for (ReceivedEvent event : this.application.callbackReader.read(new ByteArrayInputStream(this.payload), this.signature)) {
+            this.eventPayloads.add(event.payload());
+            if (event.event().isTextMessageEvent()) {
+                this.textMessageEvents.add(event.event().asTextMessageEvent());
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        this.application.shutdown();
+    }
+
+    /**
+     * The HMAC and the constant-time comparison that the {@code CallbackReader} applies while it reads the body.
+     */
+    @Benchmark
+    public boolean verifySignature() {
+        final byte[] digest = this.mac.doFinal(this.payload);
+        final byte[] expected = new byte[SIGNATURE_PREFIX.length() + digest.length * 2];
+        for (int i = 0; i < SIGNATURE_PREFIX.length(); i++) {
+            expected[i] = (byte) SIGNATURE_PREFIX.charAt(i);
+        }
+        for (int i = 0; i < digest.length; i++) {
+            expected[SIGNATURE_PREFIX.length() + 2 * i] = (byte) Character.forDigit((digest[i] >> 4) & 0xF, 16);
+            expected[SIGNATURE_PREFIX.length() + 2 * i + 1] = (byte) Character.forDigit(digest[i] & 0xF, 16);
+        }
+        return MessageDigest.isEqual(expected, this.signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public List<ReceivedEvent> parseEvents() throws MessengerVerificationException {
+        final List<ReceivedEvent> events = new ArrayList<>(this.eventPayloads.size());
+        for (String eventPayload : this.eventPayloads) {
+            events.addAll(this.application.callbackReader.parse(eventPayload));
+        }
+        return events;
+    }
+
+    @Benchmark
+    public List<ReceivedEvent> readCallback() throws IOException, MessengerVerificationException {
+        return this.application.callbackReader.read(new ByteArrayInputStream(this.payload), this.signature);
+    }
+
+    @Benchmark
+    public List<MessageResponse> textMessageReplies() throws MessengerApiException, MessengerIOException {
+        final List<MessageResponse> responses = new ArrayList<>(this.textMessageEvents.size());
+        for (TextMessageEvent event : this.textMessageEvents) {
+            final TextMessage textMessage = TextMessage.create(event.text(), empty(), of("DEVELOPER_DEFINED_METADATA"));
+            final MessagePayload messagePayload = MessagePayload.create(IdRecipient.create(event.senderId()), MessagingType.RESPONSE, textMessage,
+                    of(NotificationType.REGULAR), empty());
+            responses.add(this.application.messenger.send(messagePayload));
+        }
+        return responses;
+    }
+
+    @Benchmark
+    public Object handleCallback() {
+        final Object response = this.application.callbackHandler.handleCallback(new ByteArrayInputStream(this.payload), this.signature);
+        while (this.application.outboundSender.pending() > 0) {
+            Thread.yield();
+        }
+        return response;
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.messenger4j.quickstart.boot.simulator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Builds callbacks as the Messenger Platform sends them to the webhook: one entry of the page with a batch of
+ * messaging events, signed with the app secret in the {@code X-Hub-Signature} header.
+ *
+ * <p>
+ * The type of each event is drawn from the mix by its weight, and its user from a population of a fixed size, so that
+ * the events of a user are handled in order, the replies to a user are sent one after the other, and the state that
+ * the application keeps per user stays as large as the population. Every event has a message ID of its own, so that
+ * the application does not drop it as a duplicate.
+ * </p>
+ */
+final class CallbackFactory {
+
+    static final String PAGE_ID = "1717527131834678";
+    private static final long FIRST_USER_ID = 1254477777772919L;
+    private static final String IMAGE_URL = "https://scontent.xx.fbcdn.net/v/t34.0-12/18675457_1379823865424452_1245353066_n.jpg";
+
+    enum EventType {
+
+        TEXT(true), ATTACHMENT(true), POSTBACK(true), ECHO(false), DELIVERY(false), READ(false);
+
+        /**
+         * Whether the application replies to the user that has sent the event.
+         */
+        final boolean replied;
+
+        EventType(boolean replied) {
+            this.replied = replied;
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Mac mac;
+    private final EventType[] types;
+    private final int[] cumulativeWeights;
+    private final int batchSize;
+    private final int users;
+    private final AtomicLong nextEvent = new AtomicLong();
+
+    CallbackFactory(String appSecret, Map<EventType, Integer> mix, int batchSize, int users) {
+        try {
+            this.mac = Mac.getInstance("HmacSHA1");
+            this.mac.init(new SecretKeySpec(appSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        this.types = mix.keySet().toArray(new EventType[0]);
+        this.cumulativeWeights = new int[this.types.length];
+        int total = 0;
+        for (int i = 0; i < this.types.length; i++) {
+            total += mix.get(this.types[i]);
+            this.cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Mix " + mix + " must have a positive weight");
+        }
+        if (users <= 0) {
+            throw new IllegalArgumentException("Population of " + users + " users must not be empty");
+        }
+        this.batchSize = batchSize;
+        this.users = users;
+    }
+
+    Callback next() {
+        final long now = System.currentTimeMillis();
+        final ObjectNode payload = this.objectMapper.createObjectNode().put("object", "page");
+        final ObjectNode entry = payload.putArray("entry").addObject().put("id", PAGE_ID).put("time", now);
+        final List<String> repliedUserIds = new ArrayList<>();
+        for (int i = 0; i < this.batchSize; i++) {
+            final long n = this.nextEvent.getAndIncrement();
+            final String userId = String.valueOf(FIRST_USER_ID + ThreadLocalRandom.current().nextInt(this.users));
+            final EventType type = nextType();
+            entry.withArray("messaging").add(event(type, userId, n, now));
+            if (type.replied) {
+                repliedUserIds.add(userId);
+            }
+        }
+        final String body = payload.toString();
+        return new Callback(body, signature(body), repliedUserIds);
+    }
+
+    private EventType nextType() {
+        final int draw = ThreadLocalRandom.current().nextInt(this.cumulativeWeights[this.cumulativeWeights.length - 1]);
+        int i = 0;
+        while (draw >= this.cumulativeWeights[i]) {
+            i++;
+        }
+        return this.types[i];
+    }
+
+    private ObjectNode event(EventType type, String userId, long n, long timestamp) {
+        final boolean echo = type == EventType.ECHO;
+        final ObjectNode event = this.objectMapper.createObjectNode();
+        event.putObject("sender").put("id", echo ? PAGE_ID : userId);
+        event.putObject("recipient").put("id", echo ? userId : PAGE_ID);
+        event.put("timestamp", timestamp);
+        final String mid = "mid.1457764197618:sim" + n;
+        switch (type) {
+            case TEXT:
+                event.putObject("message").put("mid", mid).put("seq", n).put("text", "hello, world!");
+                break;
+            case ATTACHMENT:
+                final ObjectNode message = event.putObject("message").put("mid", mid).put("seq", n);
+                if (n % 2 == 0) {
+                    message.putArray("attachments").addObject().put("type", "image").putObject("payload").put("url", IMAGE_URL);
+                } else {
+                    message.putArray("attachments").addObject().put("title", "Pinned Location").put("type", "location")
+                            .putObject("payload").putObject("coordinates").put("lat", 52.3765533).put("long", 9.7389123);
+                }
+                break;
+            case POSTBACK:
+                event.putObject("postback").put("title", "Call Postback").put("payload", "Payload for first bubble");
+                break;
+            case ECHO:
+                event.putObject("message").put("is_echo", true).put("app_id", 1517776481860111L)
+                        .put("metadata", "DEVELOPER_DEFINED_METADATA").put("mid", mid).put("seq", n).put("text", "hello, world!");
+                break;
+            case DELIVERY:
+                event.putObject("delivery").put("watermark", timestamp).put("seq", n).putArray("mids").add(mid);
+                break;
+            case READ:
+                event.putObject("read").put("watermark", timestamp).put("seq", n);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown event type " + type);
+        }
+        return event;
+    }
+
+    private String signature(String body) {
+        final byte[] digest;
+        synchronized (this.mac) {
+            digest = this.mac.doFinal(body.getBytes(StandardCharsets.UTF_8));
+        }
+        final StringBuilder signature = new StringBuilder("sha1=");
+        for (byte b : digest) {
+            signature.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return signature.toString();
+    }
+
+    static final class Callback {
+
+        final String body;
+        final String signature;
+        final List<String> repliedUserIds;
+
+        Callback(String body, String signature, List<String> repliedUserIds) {
+            this.body = body;
+            this.signature = signature;
+            this.repliedUserIds = repliedUserIds;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.messenger4j.quickstart.boot.simulator;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps every recorded latency, so that the percentiles of a run are exact rather than bucketed. A run of a few
+ * minutes at a few thousand events per second fits into a few megabytes.
+ */
+final class LatencyHistogram {
+
+    private long[] micros = new long[1024];
+    private int count;
+
+    synchronized void record(long nanos) {
+        if (this.count == this.micros.length) {
+            this.micros = Arrays.copyOf(this.micros, this.micros.length * 2);
+        }
+        this.micros[this.count++] = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+    }
+
+    synchronized int count() {
+        return this.count;
+    }
+
+    /**
+     * @return a line with the 50th, 90th, 99th and 99.9th percentile and the maximum in milliseconds
+     */
+    synchronized String summary() {
+        if (this.count == 0) {
+            return "no samples";
+        }
+        final long[] sorted = Arrays.copyOf(this.micros, this.count);
+        Arrays.sort(sorted);
+        return String.format("p50 %s  p90 %s  p99 %s  p99.9 %s  max %s  (%d samples)", millis(percentile(sorted, 50)),
+                millis(percentile(sorted, 90)), millis(percentile(sorted, 99)), millis(percentile(sorted, 99.9)),
+                millis(sorted[sorted.length - 1]), this.count);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        final int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.1f ms", micros / 1000.0);
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.messenger4j.quickstart.boot.simulator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fires callbacks at the webhook at a fixed rate, as the Messenger Platform does, regardless of how fast the webhook
+ * answers them.
+ *
+ * <p>
+ * Each callback has the time it is meant to be sent at, {@code i / rate} after the start. Both the latency of the
+ * acknowledgement and the latency of the replies are taken from that time, so a webhook that answers slowly, and holds
+ * up the connections of the simulator, shows up in the latencies instead of lowering the rate. Callbacks that cannot
+ * even be queued behind the busy connections are dropped and counted.
+ * </p>
+ */
+final class LoadGenerator {
+
+    private static final String SIGNATURE_HEADER_NAME = "X-Hub-Signature";
+    private static final int QUEUED_CALLBACKS_PER_CONNECTION = 64;
+
+    private final URL targetUrl;
+    private final CallbackFactory callbackFactory;
+    private final ReplyTracker replyTracker;
+    private final double rate;
+    private final ThreadPoolExecutor connections;
+    private final LatencyHistogram acknowledgements = new LatencyHistogram();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long measuredFromNanos;
+
+    LoadGenerator(URL targetUrl, CallbackFactory callbackFactory, ReplyTracker replyTracker, double rate, int connections) {
+        this.targetUrl = targetUrl;
+        this.callbackFactory = callbackFactory;
+        this.replyTracker = replyTracker;
+        this.rate = rate;
+        this.connections = new ThreadPoolExecutor(connections, connections, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(connections * QUEUED_CALLBACKS_PER_CONNECTION), StubGraphApiServer.daemon("callback-"));
+        // keep a connection per thread alive between callbacks
+        System.setProperty("http.maxConnections", String.valueOf(connections));
+    }
+
+    /**
+     * Sends callbacks for the duration and waits until all of them have been answered. The callbacks that are meant to
+     * be sent within the warmup are sent, but not measured.
+     */
+    void run(long warmupNanos, long durationNanos) throws InterruptedException {
+        final long periodNanos = (long) (1e9 / this.rate);
+        final long startNanos = System.nanoTime();
+        final long measuredFromNanos = startNanos + warmupNanos;
+        this.measuredFromNanos = measuredFromNanos;
+        this.replyTracker.measureFrom(measuredFromNanos);
+        for (long i = 0; ; i++) {
+            final long intendedNanos = startNanos + i * periodNanos;
+            if (intendedNanos - startNanos >= durationNanos) {
+                break;
+            }
+            final long delayNanos = intendedNanos - System.nanoTime();
+            if (delayNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            }
+            final boolean measured = intendedNanos >= measuredFromNanos;
+            try {
+                this.connections.execute(() -> send(intendedNanos, measured));
+            } catch (RejectedExecutionException e) {
+                this.dropped.incrementAndGet();
+            }
+        }
+        this.connections.shutdown();
+        this.connections.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void send(long intendedNanos, boolean measured) {
+        final CallbackFactory.Callback callback = this.callbackFactory.next();
+        for (String userId : callback.repliedUserIds) {
+            this.replyTracker.await(userId, intendedNanos);
+        }
+        this.sent.incrementAndGet();
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) this.targetUrl.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty(SIGNATURE_HEADER_NAME, callback.signature);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(callback.body.getBytes(StandardCharsets.UTF_8));
+            }
+            final int statusCode = connection.getResponseCode();
+            drain(statusCode < 400 ? connection.getInputStream() : connection.getErrorStream());
+            if (statusCode == 200) {
+                this.accepted.incrementAndGet();
+            } else {
+                this.rejected.incrementAndGet();
+                forgetReplies(callback, intendedNanos);
+            }
+            if (measured) {
+                this.acknowledgements.record(System.nanoTime() - intendedNanos);
+            }
+        } catch (IOException e) {
+            this.failed.incrementAndGet();
+            forgetReplies(callback, intendedNanos);
+        }
+    }
+
+    private void forgetReplies(CallbackFactory.Callback callback, long intendedNanos) {
+        for (String userId : callback.repliedUserIds) {
+            this.replyTracker.forget(userId, intendedNanos);
+        }
+    }
+
+    /**
+     * Reads the response to its end, so that the connection can be reused.
+     */
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try (InputStream body = in) {
+            final byte[] buffer = new byte[1024];
+            while (body.read(buffer) != -1) {
+                // discard
+            }
+        }
+    }
+
+    LatencyHistogram acknowledgements() {
+        return this.acknowledgements;
+    }
+
+    long sent() {
+        return this.sent.get();
+    }
+
+    long accepted() {
+        return this.accepted.get();
+    }
+
+    long rejected() {
+        return this.rejected.get();
+    }
+
+    long failed() {
+        return this.failed.get();
+    }
+
+    long dropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * The time from which callbacks are measured, once the warmup is over.
+     */
+    long measuredFromNanos() {
+        return this.measuredFromNanos;
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.messenger4j.quickstart.boot.simulator;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Matches the messages that the application sends to the events that they reply to, by the user they are sent to.
+ *
+ * <p>
+ * Every user has a queue of the times its awaited events have been meant to be sent at. The application replies to the
+ * events of a user in the order they have been received, with one message each, so every message to a user is the
+ * reply to its oldest awaited event. The queues are kept once they have run empty, as there are no more of them than
+ * users in the population.
+ * </p>
+ *
+ * <p>
+ * The latency of a reply is taken from the time the callback of its event was meant to be sent, not from the time it
+ * has actually been sent, so that a simulator that falls behind does not hide the delay. Replies to events meant to be
+ * sent before {@link #measureFrom} are matched, so that they are not taken for replies to later events of the same
+ * user, but not measured.
+ * </p>
+ */
+final class ReplyTracker {
+
+    private final ConcurrentHashMap<String, Queue<Long>> awaited = new ConcurrentHashMap<>();
+    private final AtomicInteger unanswered = new AtomicInteger();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong replies = new AtomicLong();
+    private volatile long measuredFromNanos = Long.MIN_VALUE;
+    private volatile long firstReplyNanos;
+    private volatile long lastReplyNanos;
+
+    /**
+     * Measures the replies to the events that are meant to be sent from {@code nanos} on.
+     */
+    void measureFrom(long nanos) {
+        this.measuredFromNanos = nanos;
+    }
+
+    /**
+     * Awaits a reply to the user, whose event has been meant to be sent at {@code intendedNanos}.
+     */
+    void await(String userId, long intendedNanos) {
+        this.awaited.computeIfAbsent(userId, id -> new ConcurrentLinkedQueue<>()).add(intendedNanos);
+        this.unanswered.incrementAndGet();
+    }
+
+    /**
+     * Stops awaiting a reply to the event of the user meant to be sent at {@code intendedNanos}, as its callback has
+     * not been accepted.
+     */
+    void forget(String userId, long intendedNanos) {
+        final Queue<Long> intended = this.awaited.get(userId);
+        if (intended != null && intended.remove(intendedNanos)) {
+            this.unanswered.decrementAndGet();
+        }
+    }
+
+    void sent(String recipientId, long nanos) {
+        final Queue<Long> intended = this.awaited.get(recipientId);
+        final Long intendedNanos = intended == null ? null : intended.poll();
+        if (intendedNanos == null) {
+            return;
+        }
+        this.unanswered.decrementAndGet();
+        if (intendedNanos < this.measuredFromNanos) {
+            return;
+        }
+        this.latencies.record(nanos - intendedNanos);
+        if (this.replies.getAndIncrement() == 0) {
+            this.firstReplyNanos = nanos;
+        }
+        this.lastReplyNanos = nanos;
+    }
+
+    LatencyHistogram latencies() {
+        return this.latencies;
+    }
+
+    long replies() {
+        return this.replies.get();
+    }
+
+    /**
+     * Number of events whose reply has not been sent yet.
+     */
+    int unanswered() {
+        return this.unanswered.get();
+    }
+
+    long firstReplyNanos() {
+        return this.firstReplyNanos;
+    }
+
+    long lastReplyNanos() {
+        return this.lastReplyNanos;
+    }
+}
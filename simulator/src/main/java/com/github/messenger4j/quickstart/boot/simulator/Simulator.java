@@ -0,0 +1,165 @@
+package com.github.messenger4j.quickstart.boot.simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates the Messenger Platform against a running application, to see how it holds up under load before it meets
+ * real users.
+ *
+ * <p>
+ * The simulator runs a {@link StubGraphApiServer stub Graph API} that the application sends its replies to and fires
+ * signed callbacks with a mix of events at its webhook at a fixed rate. It reports the latency of the webhook's
+ * acknowledgements and of the replies to the events, from the time each callback was meant to be sent until the
+ * reply has reached the stub, and the replies per second. The application is either started by the simulator from
+ * its JAR ({@code --application-jar}) or started beforehand with its {@code messenger4j.graphApiUrl} pointed at the
+ * stub ({@code --graph-port}) and the same secrets as the simulator.
+ * </p>
+ */
+public final class Simulator {
+
+    private static final long STARTUP_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private Simulator() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final SimulatorOptions options;
+        try {
+            options = SimulatorOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        final ReplyTracker replyTracker = new ReplyTracker();
+        final StubGraphApiServer graphApi = new StubGraphApiServer(options.integer("graph-port"), replyTracker,
+                options.integer("graph-latency-millis"), options.integer("graph-latency-jitter-millis"),
+                options.decimal("graph-error-rate"), options.decimal("graph-throttle-rate"));
+        System.out.println("Graph API stub listening on http://localhost:" + graphApi.port());
+
+        Process application = null;
+        try {
+            String targetUrl = options.string("target-url");
+            if (!options.string("application-jar").isEmpty()) {
+                final int port = freePort();
+                application = startApplication(options, port, graphApi.port());
+                targetUrl = "http://localhost:" + port + "/callback";
+            }
+            awaitVerified(targetUrl, options.string("verify-token"), application);
+
+            final CallbackFactory callbackFactory = new CallbackFactory(options.string("app-secret"), options.mix(),
+                    options.integer("batch-size"), options.integer("users"));
+            final LoadGenerator loadGenerator = new LoadGenerator(new URL(targetUrl), callbackFactory, replyTracker,
+                    options.decimal("rate"), options.integer("connections"));
+            System.out.printf("Sending %s callbacks/s of %d events (%s) of %d users to %s for %d s, the first %d s of them"
+                            + " as warmup%n", options.string("rate"), options.integer("batch-size"), options.string("mix"),
+                    options.integer("users"), targetUrl, options.integer("duration-seconds"), options.integer("warmup-seconds"));
+            loadGenerator.run(TimeUnit.SECONDS.toNanos(options.integer("warmup-seconds")),
+                    TimeUnit.SECONDS.toNanos(options.integer("duration-seconds")));
+            final long drainUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.integer("drain-seconds"));
+            while (replyTracker.unanswered() > 0 && System.nanoTime() < drainUntil) {
+                Thread.sleep(50);
+            }
+            report(loadGenerator, replyTracker, graphApi);
+        } finally {
+            if (application != null) {
+                application.destroy();
+                if (!application.waitFor(30, TimeUnit.SECONDS)) {
+                    application.destroyForcibly().waitFor();
+                }
+            }
+            graphApi.stop();
+        }
+    }
+
+    private static void report(LoadGenerator loadGenerator, ReplyTracker replyTracker, StubGraphApiServer graphApi) {
+        final double replySeconds = (replyTracker.lastReplyNanos() - loadGenerator.measuredFromNanos()) / 1e9;
+        System.out.println();
+        System.out.printf("Callbacks        %d sent, %d answered with 200, %d with an error, %d failed, %d dropped%n",
+                loadGenerator.sent(), loadGenerator.accepted(), loadGenerator.rejected(), loadGenerator.failed(),
+                loadGenerator.dropped());
+        System.out.println("Acknowledgement  " + loadGenerator.acknowledgements().summary());
+        System.out.println("Reply            " + replyTracker.latencies().summary());
+        System.out.printf("Reply throughput %.1f replies/s, %d events unanswered%n",
+                replyTracker.replies() == 0 ? 0 : replyTracker.replies() / Math.max(1e-9, replySeconds), replyTracker.unanswered());
+        System.out.printf("Graph API        %d messages, %d sender actions, %d uploads, %d user profiles, %d errors, %d throttles injected%n",
+                graphApi.messages(), graphApi.senderActions(), graphApi.uploads(), graphApi.userProfiles(), graphApi.errors(),
+                graphApi.throttles());
+    }
+
+    /**
+     * Starts the application from its JAR with the secrets of the simulator and its Graph API pointed at the stub.
+     */
+    private static Process startApplication(SimulatorOptions options, int port, int graphApiPort) throws IOException {
+        final Path workDirectory = Files.createTempDirectory("simulator");
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-jar");
+        command.add(options.string("application-jar"));
+        command.add("--server.port=" + port);
+        command.add("--messenger4j.appSecret=" + options.string("app-secret"));
+        command.add("--messenger4j.verifyToken=" + options.string("verify-token"));
+        command.add("--messenger4j.pageAccessToken=" + options.string("page-access-token"));
+        command.add("--messenger4j.graphApiUrl=http://localhost:" + graphApiPort);
+        command.add("--messenger4j.media.attachmentStore=");
+        command.addAll(options.applicationArgs());
+        final File log = workDirectory.resolve("application.log").toFile();
+        System.out.println("Starting " + options.string("application-jar") + " on port " + port + ", logging to " + log);
+        return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+    }
+
+    /**
+     * Waits until the webhook answers its verification with {@code 200}.
+     */
+    private static void awaitVerified(String targetUrl, String verifyToken, Process application) throws InterruptedException {
+        final String verifyUrl = targetUrl + "?hub.mode=subscribe&hub.verify_token=" + verifyToken + "&hub.challenge=simulator";
+        final long startNanos = System.nanoTime();
+        while (true) {
+            try {
+                final HttpURLConnection connection = (HttpURLConnection) new URL(verifyUrl).openConnection();
+                try {
+                    final int statusCode = connection.getResponseCode();
+                    if (statusCode == 200) {
+                        return;
+                    }
+                    if (application == null) {
+                        throw new IllegalStateException("Webhook " + targetUrl + " has answered its verification with " + statusCode
+                                + ", check --verify-token");
+                    }
+                } finally {
+                    connection.disconnect();
+                }
+            } catch (IOException e) {
+                if (application == null) {
+                    throw new IllegalStateException("Webhook " + targetUrl + " cannot be reached: " + e.getMessage(), e);
+                }
+            }
+            if (!application.isAlive()) {
+                throw new IllegalStateException("Application has exited with " + application.exitValue());
+            }
+            if (System.nanoTime() - startNanos > STARTUP_TIMEOUT_NANOS) {
+                throw new IllegalStateException("Application has not answered its verification in time");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.messenger4j.quickstart.boot.simulator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of the {@link Simulator}, given as {@code --name=value}. The arguments after {@code --} are passed on to
+ * the application, if the simulator starts it.
+ */
+final class SimulatorOptions {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("target-url", "http://localhost:8080/callback");
+        DEFAULTS.put("application-jar", "");
+        DEFAULTS.put("app-secret", "simulator-app-secret");
+        DEFAULTS.put("verify-token", "simulator-verify-token");
+        DEFAULTS.put("page-access-token", "simulator-page-access-token");
+        DEFAULTS.put("rate", "100");
+        DEFAULTS.put("batch-size", "1");
+        DEFAULTS.put("users", "1000");
+        DEFAULTS.put("mix", "text:50,attachment:15,postback:15,echo:10,delivery:10");
+        DEFAULTS.put("duration-seconds", "30");
+        DEFAULTS.put("warmup-seconds", "5");
+        DEFAULTS.put("drain-seconds", "10");
+        DEFAULTS.put("connections", "64");
+        DEFAULTS.put("graph-port", "0");
+        DEFAULTS.put("graph-latency-millis", "50");
+        DEFAULTS.put("graph-latency-jitter-millis", "0");
+        DEFAULTS.put("graph-error-rate", "0");
+        DEFAULTS.put("graph-throttle-rate", "0");
+    }
+
+    private final Map<String, String> values;
+    private final List<String> applicationArgs;
+
+    private SimulatorOptions(Map<String, String> values, List<String> applicationArgs) {
+        this.values = values;
+        this.applicationArgs = applicationArgs;
+    }
+
+    static SimulatorOptions parse(String[] args) {
+        final Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+        final List<String> applicationArgs = new ArrayList<>();
+        boolean passOn = false;
+        for (String arg : args) {
+            if (passOn) {
+                applicationArgs.add(arg);
+            } else if (arg.equals("--")) {
+                passOn = true;
+            } else {
+                final int separator = arg.indexOf('=');
+                final String name = arg.startsWith("--") && separator > 2 ? arg.substring(2, separator) : null;
+                if (name == null || !DEFAULTS.containsKey(name)) {
+                    throw new IllegalArgumentException("Unknown option '" + arg + "', options are " + usage());
+                }
+                values.put(name, arg.substring(separator + 1));
+            }
+        }
+        return new SimulatorOptions(values, Collections.unmodifiableList(applicationArgs));
+    }
+
+    static String usage() {
+        final StringBuilder usage = new StringBuilder();
+        DEFAULTS.forEach((name, value) -> usage.append(System.lineSeparator()).append("  --").append(name).append('=').append(value));
+        return usage.toString();
+    }
+
+    String string(String name) {
+        return this.values.get(name);
+    }
+
+    int integer(String name) {
+        return Integer.parseInt(string(name));
+    }
+
+    double decimal(String name) {
+        return Double.parseDouble(string(name));
+    }
+
+    /**
+     * The share of each event type of the mix, e.g. {@code text:50,postback:50}.
+     */
+    Map<CallbackFactory.EventType, Integer> mix() {
+        final Map<CallbackFactory.EventType, Integer> mix = new LinkedHashMap<>();
+        for (String part : string("mix").split(",")) {
+            final String[] typeAndWeight = part.trim().split(":");
+            if (typeAndWeight.length != 2) {
+                throw new IllegalArgumentException("Mix '" + string("mix") + "' must consist of type:weight pairs");
+            }
+            mix.put(CallbackFactory.EventType.valueOf(typeAndWeight[0].trim().toUpperCase()), Integer.parseInt(typeAndWeight[1].trim()));
+        }
+        return mix;
+    }
+
+    List<String> applicationArgs() {
+        return this.applicationArgs;
+    }
+}
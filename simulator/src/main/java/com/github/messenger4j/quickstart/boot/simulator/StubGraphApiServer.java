@@ -0,0 +1,185 @@
+package com.github.messenger4j.quickstart.boot.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Graph API that the application is pointed at by {@code messenger4j.graphApiUrl}. It answers
+ * the Send API, the attachment upload and the user profile API with canned responses.
+ *
+ * <p>
+ * Each response is delayed by the configured latency plus a random jitter. The delay is scheduled rather than slept,
+ * so that a slow Graph API does not limit the number of calls in flight. A share of the calls can be answered with a
+ * transient error ({@code 500}, code 2) or with the rate limit of the page ({@code 400}, code 613), to see how the
+ * application retries and holds back.
+ * </p>
+ */
+final class StubGraphApiServer {
+
+    private static final String USER_PROFILE_RESPONSE = "{\"first_name\":\"Peter\",\"last_name\":\"Chang\","
+            + "\"profile_pic\":\"https://example.com/profile.jpg\",\"locale\":\"en_US\",\"timezone\":-7,\"gender\":\"male\"}";
+    private static final String ATTACHMENT_RESPONSE = "{\"attachment_id\":\"1857777774821032\"}";
+    private static final String ERROR_RESPONSE = "{\"error\":{\"message\":\"An unexpected error has occurred. Please retry your request later.\","
+            + "\"type\":\"OAuthException\",\"code\":2,\"is_transient\":true}}";
+    private static final String THROTTLE_RESPONSE = "{\"error\":{\"message\":\"(#613) Calls to this api have exceeded the rate limit.\","
+            + "\"type\":\"OAuthException\",\"code\":613}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReplyTracker replyTracker;
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double errorRate;
+    private final double throttleRate;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor = Executors.newFixedThreadPool(8, daemon("graph-api-"));
+    private final ScheduledExecutorService responseExecutor = Executors.newScheduledThreadPool(4, daemon("graph-api-response-"));
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong senderActions = new AtomicLong();
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong userProfiles = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttles = new AtomicLong();
+
+    StubGraphApiServer(int port, ReplyTracker replyTracker, long latencyMillis, long jitterMillis, double errorRate,
+                       double throttleRate) throws IOException {
+        this.replyTracker = replyTracker;
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        this.jitterNanos = TimeUnit.MILLISECONDS.toNanos(jitterMillis);
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(this.requestExecutor);
+        this.server.start();
+    }
+
+    int port() {
+        return this.server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String body = read(exchange);
+        final String path = exchange.getRequestURI().getPath();
+        final double draw = ThreadLocalRandom.current().nextDouble();
+        final int statusCode;
+        final String response;
+        if (draw < this.errorRate) {
+            this.errors.incrementAndGet();
+            statusCode = 500;
+            response = ERROR_RESPONSE;
+        } else if (draw < this.errorRate + this.throttleRate) {
+            this.throttles.incrementAndGet();
+            statusCode = 400;
+            response = THROTTLE_RESPONSE;
+        } else if ("GET".equals(exchange.getRequestMethod())) {
+            this.userProfiles.incrementAndGet();
+            statusCode = 200;
+            response = USER_PROFILE_RESPONSE;
+        } else if (path.endsWith("/message_attachments")) {
+            this.uploads.incrementAndGet();
+            statusCode = 200;
+            response = ATTACHMENT_RESPONSE;
+        } else {
+            statusCode = 200;
+            response = send(body);
+        }
+        final long jitter = this.jitterNanos > 0 ? ThreadLocalRandom.current().nextLong(this.jitterNanos + 1) : 0;
+        this.responseExecutor.schedule(() -> respond(exchange, statusCode, response), this.latencyNanos + jitter, TimeUnit.NANOSECONDS);
+    }
+
+    private String send(String body) throws IOException {
+        final JsonNode request = this.objectMapper.readTree(body);
+        final String recipientId = request.path("recipient").path("id").asText();
+        if (request.has("message")) {
+            this.messages.incrementAndGet();
+            this.replyTracker.sent(recipientId, System.nanoTime());
+        } else {
+            this.senderActions.incrementAndGet();
+        }
+        return "{\"recipient_id\":\"" + recipientId + "\",\"message_id\":\"mid.1456970487936:c34767dfe57ee6e339\"}";
+    }
+
+    private static void respond(HttpExchange exchange, int statusCode, String response) {
+        try {
+            final byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(statusCode, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // the application has given up on the call
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String read(HttpExchange exchange) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Messages sent through the Send API that have been answered with success.
+     */
+    long messages() {
+        return this.messages.get();
+    }
+
+    long senderActions() {
+        return this.senderActions.get();
+    }
+
+    long uploads() {
+        return this.uploads.get();
+    }
+
+    long userProfiles() {
+        return this.userProfiles.get();
+    }
+
+    long errors() {
+        return this.errors.get();
+    }
+
+    long throttles() {
+        return this.throttles.get();
+    }
+
+    void stop() {
+        this.server.stop(0);
+        this.requestExecutor.shutdownNow();
+        this.responseExecutor.shutdownNow();
+    }
+
+    static ThreadFactory daemon(String prefix) {
+        final AtomicLong count = new AtomicLong();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.messenger4j.quickstart.boot.simulator;
+
+import static java.util.Optional.of;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.github.messenger4j.Messenger;
+import com.github.messenger4j.exception.MessengerVerificationException;
+import com.github.messenger4j.webhook.Event;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.junit.Test;
+
+public class CallbackFactoryTest {
+
+    private static final String APP_SECRET = "simulator-app-secret";
+
+    private final Messenger messenger = Messenger.create("simulator-page-access-token", APP_SECRET, "simulator-verify-token");
+
+    @Test
+    public void shouldSignCallbacksSoThatMessengerVerifiesThem() throws Exception {
+        final Map<CallbackFactory.EventType, Integer> mix = new EnumMap<>(CallbackFactory.EventType.class);
+        for (CallbackFactory.EventType type : CallbackFactory.EventType.values()) {
+            mix.put(type, 1);
+        }
+        final CallbackFactory callbackFactory = new CallbackFactory(APP_SECRET, mix, 20, 1000);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(20, receive(callbackFactory.next()).size());
+        }
+    }
+
+    @Test(expected = MessengerVerificationException.class)
+    public void shouldBeRejectedByMessengerOfAnotherAppSecret() throws Exception {
+        final CallbackFactory callbackFactory = new CallbackFactory("another-app-secret",
+                Collections.singletonMap(CallbackFactory.EventType.TEXT, 1), 1, 1000);
+
+        receive(callbackFactory.next());
+    }
+
+    @Test
+    public void shouldBuildEventsOfTheirType() throws Exception {
+        assertEventType(CallbackFactory.EventType.TEXT, Event::isTextMessageEvent);
+        assertEventType(CallbackFactory.EventType.ATTACHMENT, Event::isAttachmentMessageEvent);
+        assertEventType(CallbackFactory.EventType.POSTBACK, Event::isPostbackEvent);
+        assertEventType(CallbackFactory.EventType.ECHO, Event::isMessageEchoEvent);
+        assertEventType(CallbackFactory.EventType.DELIVERY, Event::isMessageDeliveredEvent);
+        assertEventType(CallbackFactory.EventType.READ, Event::isMessageReadEvent);
+    }
+
+    @Test
+    public void shouldDrawSendersFromThePopulation() throws Exception {
+        final CallbackFactory callbackFactory = new CallbackFactory(APP_SECRET,
+                Collections.singletonMap(CallbackFactory.EventType.TEXT, 1), 100, 3);
+
+        final CallbackFactory.Callback callback = callbackFactory.next();
+        final Set<String> senderIds = new HashSet<>();
+        for (Event event : receive(callback)) {
+            senderIds.add(event.senderId());
+        }
+
+        assertEquals(100, callback.repliedUserIds.size());
+        assertEquals(new HashSet<>(callback.repliedUserIds), senderIds);
+        assertTrue(senderIds.size() <= 3);
+    }
+
+    private void assertEventType(CallbackFactory.EventType type, Predicate<Event> isOfType) throws Exception {
+        final CallbackFactory callbackFactory = new CallbackFactory(APP_SECRET, Collections.singletonMap(type, 1), 2, 1000);
+
+        final CallbackFactory.Callback callback = callbackFactory.next();
+        final List<Event> events = receive(callback);
+
+        assertEquals(2, events.size());
+        for (Event event : events) {
+            assertTrue(type + " must be received as such", isOfType.test(event));
+        }
+        assertEquals(type.replied ? 2 : 0, callback.repliedUserIds.size());
+    }
+
+    private List<Event> receive(CallbackFactory.Callback callback) throws MessengerVerificationException {
+        final List<Event> events = new ArrayList<>();
+        this.messenger.onReceiveEvents(callback.body, of(callback.signature), events::add);
+        return events;
+    }
+}
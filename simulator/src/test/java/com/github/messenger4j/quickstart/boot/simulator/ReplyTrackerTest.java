@@ -0,0 +1,70 @@
+package com.github.messenger4j.quickstart.boot.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ReplyTrackerTest {
+
+    private static final String USER_ID = "1254477777772919";
+
+    private final ReplyTracker replyTracker = new ReplyTracker();
+
+    @Test
+    public void shouldMatchEveryReplyToTheOldestAwaitedEventOfTheUser() {
+        this.replyTracker.await(USER_ID, millis(100));
+        this.replyTracker.await(USER_ID, millis(200));
+
+        this.replyTracker.sent(USER_ID, millis(250));
+        assertEquals(1, this.replyTracker.unanswered());
+        this.replyTracker.sent(USER_ID, millis(300));
+
+        assertEquals(0, this.replyTracker.unanswered());
+        assertEquals(2, this.replyTracker.replies());
+        assertTrue(this.replyTracker.latencies().summary().startsWith(String.format("p50 %.1f ms", 100.0)));
+        assertTrue(this.replyTracker.latencies().summary().contains(String.format("max %.1f ms", 150.0)));
+    }
+
+    @Test
+    public void shouldMatchButNotMeasureRepliesToEventsOfTheWarmup() {
+        this.replyTracker.measureFrom(millis(150));
+        this.replyTracker.await(USER_ID, millis(100));
+        this.replyTracker.await(USER_ID, millis(200));
+
+        this.replyTracker.sent(USER_ID, millis(250));
+        assertEquals(0, this.replyTracker.replies());
+        this.replyTracker.sent(USER_ID, millis(300));
+
+        assertEquals(0, this.replyTracker.unanswered());
+        assertEquals(1, this.replyTracker.replies());
+        assertTrue(this.replyTracker.latencies().summary().startsWith(String.format("p50 %.1f ms", 100.0)));
+    }
+
+    @Test
+    public void shouldForgetOnlyTheEventWhoseCallbackHasNotBeenAccepted() {
+        this.replyTracker.await(USER_ID, millis(100));
+        this.replyTracker.await(USER_ID, millis(200));
+
+        this.replyTracker.forget(USER_ID, millis(100));
+        this.replyTracker.sent(USER_ID, millis(250));
+
+        assertEquals(0, this.replyTracker.unanswered());
+        assertTrue(this.replyTracker.latencies().summary().startsWith(String.format("p50 %.1f ms", 50.0)));
+    }
+
+    @Test
+    public void shouldIgnoreMessagesToUsersWithoutAwaitedEvents() {
+        this.replyTracker.await(USER_ID, millis(100));
+
+        this.replyTracker.sent(CallbackFactory.PAGE_ID, millis(150));
+
+        assertEquals(1, this.replyTracker.unanswered());
+        assertEquals(0, this.replyTracker.replies());
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
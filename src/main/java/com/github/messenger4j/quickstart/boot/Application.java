@@ -1,9 +1,13 @@
 package com.github.messenger4j.quickstart.boot;
 
+import static java.util.Optional.of;
+
 import com.github.messenger4j.Messenger;
+import com.github.messenger4j.quickstart.boot.send.GraphApiHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 
 /**
@@ -12,6 +16,12 @@ import org.springframework.context.annotation.Bean;
  * <p>
  * The Spring Context will be bootstrapped and the application will be configured properly.
  * In addition a {@code MessengerSendClient} will be exposed as a singleton Spring Bean, so it is injectable.
+ * All its Graph API calls go through the pooled {@link GraphApiHttpClient}.
+ * </p>
+ *
+ * <p>
+ * With the {@code slim} profile the auto-configuration is restricted to what the webhook needs and the beans are
+ * initialized lazily by the {@link LazyInitializationPostProcessor}, to start faster and with less memory.
  * </p>
  *
  * @author Max Grabenhorst
@@ -22,8 +32,15 @@ public class Application {
     @Bean
     public Messenger messenger(@Value("${messenger4j.pageAccessToken}") String pageAccessToken,
                                @Value("${messenger4j.appSecret}") final String appSecret,
-                               @Value("${messenger4j.verifyToken}") final String verifyToken) {
-        return Messenger.create(pageAccessToken, appSecret, verifyToken);
+                               @Value("${messenger4j.verifyToken}") final String verifyToken,
+                               final GraphApiHttpClient graphApiHttpClient) {
+        return Messenger.create(pageAccessToken, appSecret, verifyToken, of(graphApiHttpClient));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "messenger4j.startup.lazyInitialization", havingValue = "true")
+    public static LazyInitializationPostProcessor lazyInitializationPostProcessor() {
+        return new LazyInitializationPostProcessor();
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,46 @@
+package com.github.messenger4j.quickstart.boot;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.Ordered;
+
+/**
+ * Marks the beans of the context as lazy, so that only the beans that are used while the application starts and
+ * serves the webhook are created at all.
+ *
+ * <p>
+ * The beans of the webhook are created nevertheless before the application is ready, as the callback handler listens
+ * for the {@code ApplicationReadyEvent} and the meter binders are collected by the meter registry. What is left out
+ * are the beans that nothing asks for, e.g. most of the actuator's. Infrastructure beans, factory beans and beans that
+ * act once all singletons have been created ({@link SmartInitializingSingleton}) stay eager, as they would not be
+ * asked for either but have to run.
+ * </p>
+ */
+public class LazyInitializationPostProcessor implements BeanFactoryPostProcessor, Ordered {
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            final BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+            if (beanDefinition.isLazyInit() || beanDefinition.isAbstract() || !beanDefinition.isSingleton()
+                    || beanDefinition.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE || beanFactory.isFactoryBean(beanName)) {
+                continue;
+            }
+            final Class<?> beanType = beanFactory.getType(beanName);
+            if (beanType == null || SmartInitializingSingleton.class.isAssignableFrom(beanType)) {
+                continue;
+            }
+            beanDefinition.setLazyInit(true);
+        }
+        // the merged definitions that have been cached while the types were resolved are not lazy yet
+        beanFactory.clearMetadataCache();
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
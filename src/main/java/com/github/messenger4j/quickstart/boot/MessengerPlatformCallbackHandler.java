@@ -4,44 +4,36 @@ import static com.github.messenger4j.Messenger.CHALLENGE_REQUEST_PARAM_NAME;
 import static com.github.messenger4j.Messenger.MODE_REQUEST_PARAM_NAME;
 import static com.github.messenger4j.Messenger.SIGNATURE_HEADER_NAME;
 import static com.github.messenger4j.Messenger.VERIFY_TOKEN_REQUEST_PARAM_NAME;
-import static com.github.messenger4j.send.message.richmedia.RichMediaAsset.Type.AUDIO;
-import static com.github.messenger4j.send.message.richmedia.RichMediaAsset.Type.FILE;
-import static com.github.messenger4j.send.message.richmedia.RichMediaAsset.Type.IMAGE;
-import static com.github.messenger4j.send.message.richmedia.RichMediaAsset.Type.VIDEO;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
 
 import com.github.messenger4j.Messenger;
-import com.github.messenger4j.common.WebviewHeightRatio;
 import com.github.messenger4j.exception.MessengerApiException;
 import com.github.messenger4j.exception.MessengerIOException;
 import com.github.messenger4j.exception.MessengerVerificationException;
+import com.github.messenger4j.quickstart.boot.attachment.AttachmentProcessor;
+import com.github.messenger4j.quickstart.boot.cluster.ClusterNode;
+import com.github.messenger4j.quickstart.boot.command.CommandHandler;
+import com.github.messenger4j.quickstart.boot.command.CommandRouter;
+import com.github.messenger4j.quickstart.boot.dedup.EventDeduplicator;
+import com.github.messenger4j.quickstart.boot.dispatch.EventDispatcher;
+import com.github.messenger4j.quickstart.boot.dispatch.EventMetrics;
+import com.github.messenger4j.quickstart.boot.dispatch.EventType;
+import com.github.messenger4j.quickstart.boot.ingest.CallbackReader;
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import com.github.messenger4j.quickstart.boot.journal.EventJournal;
+import com.github.messenger4j.quickstart.boot.logging.EventLog;
+import com.github.messenger4j.quickstart.boot.media.MediaAssetManager;
+import com.github.messenger4j.quickstart.boot.send.OutboundSender;
+import com.github.messenger4j.quickstart.boot.send.SendMetrics;
+import com.github.messenger4j.quickstart.boot.session.SessionStore;
+import com.github.messenger4j.quickstart.boot.template.MessageTemplateRegistry;
+import com.github.messenger4j.quickstart.boot.userprofile.UserProfileCache;
+import com.github.messenger4j.quickstart.boot.watermark.WatermarkStore;
 import com.github.messenger4j.send.MessagePayload;
 import com.github.messenger4j.send.MessagingType;
 import com.github.messenger4j.send.NotificationType;
-import com.github.messenger4j.send.SenderActionPayload;
-import com.github.messenger4j.send.message.RichMediaMessage;
-import com.github.messenger4j.send.message.TemplateMessage;
 import com.github.messenger4j.send.message.TextMessage;
-import com.github.messenger4j.send.message.quickreply.LocationQuickReply;
-import com.github.messenger4j.send.message.quickreply.QuickReply;
-import com.github.messenger4j.send.message.quickreply.TextQuickReply;
-import com.github.messenger4j.send.message.richmedia.UrlRichMediaAsset;
-import com.github.messenger4j.send.message.template.ButtonTemplate;
-import com.github.messenger4j.send.message.template.GenericTemplate;
-import com.github.messenger4j.send.message.template.ListTemplate;
-import com.github.messenger4j.send.message.template.ReceiptTemplate;
-import com.github.messenger4j.send.message.template.button.Button;
-import com.github.messenger4j.send.message.template.button.CallButton;
-import com.github.messenger4j.send.message.template.button.LogInButton;
-import com.github.messenger4j.send.message.template.button.LogOutButton;
-import com.github.messenger4j.send.message.template.button.PostbackButton;
-import com.github.messenger4j.send.message.template.button.UrlButton;
-import com.github.messenger4j.send.message.template.common.Element;
-import com.github.messenger4j.send.message.template.receipt.Address;
-import com.github.messenger4j.send.message.template.receipt.Adjustment;
-import com.github.messenger4j.send.message.template.receipt.Item;
-import com.github.messenger4j.send.message.template.receipt.Summary;
 import com.github.messenger4j.send.recipient.IdRecipient;
 import com.github.messenger4j.send.senderaction.SenderAction;
 import com.github.messenger4j.userprofile.UserProfile;
@@ -55,22 +47,27 @@ import com.github.messenger4j.webhook.event.OptInEvent;
 import com.github.messenger4j.webhook.event.PostbackEvent;
 import com.github.messenger4j.webhook.event.QuickReplyMessageEvent;
 import com.github.messenger4j.webhook.event.TextMessageEvent;
-import com.github.messenger4j.webhook.event.attachment.Attachment;
-import com.github.messenger4j.webhook.event.attachment.LocationAttachment;
-import com.github.messenger4j.webhook.event.attachment.RichMediaAttachment;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -88,15 +85,79 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/callback")
 public class MessengerPlatformCallbackHandler {
 
-    private static final String RESOURCE_URL = "https://raw.githubusercontent.com/fbsamples/messenger-platform-samples/master/node/public";
-
     private static final Logger logger = LoggerFactory.getLogger(MessengerPlatformCallbackHandler.class);
 
+    private static final int REPLAY_BATCH_SIZE = 100;
+    private static final String LAST_QUICK_REPLY = "lastQuickReply";
+
     private final Messenger messenger;
+    private final CallbackReader callbackReader;
+    private final EventDeduplicator eventDeduplicator;
+    private final EventJournal eventJournal;
+    private final EventDispatcher eventDispatcher;
+    private final OutboundSender outboundSender;
+    private final UserProfileCache userProfileCache;
+    private final MessageTemplateRegistry messageTemplates;
+    private final MediaAssetManager mediaAssets;
+    private final AttachmentProcessor attachmentProcessor;
+    private final CommandRouter commandRouter;
+    private final EventMetrics eventMetrics;
+    private final SendMetrics sendMetrics;
+    private final EventLog eventLog;
+    private final WatermarkStore watermarks;
+    private final SessionStore sessions;
+    private final ClusterNode clusterNode;
+    private final boolean asyncProcessing;
+    private volatile boolean journalReplayed;
 
     @Autowired
-    public MessengerPlatformCallbackHandler(final Messenger messenger) {
+    public MessengerPlatformCallbackHandler(final Messenger messenger, final CallbackReader callbackReader,
+                                            final EventDeduplicator eventDeduplicator, final EventJournal eventJournal,
+                                            final EventDispatcher eventDispatcher, final OutboundSender outboundSender,
+                                            final UserProfileCache userProfileCache, final MessageTemplateRegistry messageTemplates,
+                                            final MediaAssetManager mediaAssets, final AttachmentProcessor attachmentProcessor,
+                                            final CommandRouter commandRouter,
+                                            final EventMetrics eventMetrics, final SendMetrics sendMetrics, final EventLog eventLog,
+                                            final WatermarkStore watermarks, final SessionStore sessions, final ClusterNode clusterNode,
+                                            @Value("${messenger4j.dispatcher.async}") final boolean asyncProcessing) {
         this.messenger = messenger;
+        this.callbackReader = callbackReader;
+        this.eventDeduplicator = eventDeduplicator;
+        this.eventJournal = eventJournal;
+        this.eventDispatcher = eventDispatcher;
+        this.outboundSender = outboundSender;
+        this.userProfileCache = userProfileCache;
+        this.messageTemplates = messageTemplates;
+        this.mediaAssets = mediaAssets;
+        this.attachmentProcessor = attachmentProcessor;
+        this.commandRouter = commandRouter;
+        this.eventMetrics = eventMetrics;
+        this.sendMetrics = sendMetrics;
+        this.eventLog = eventLog;
+        this.watermarks = watermarks;
+        this.sessions = sessions;
+        this.clusterNode = clusterNode;
+        this.asyncProcessing = asyncProcessing;
+        this.journalReplayed = eventJournal.unprocessed().isEmpty();
+        registerCommands();
+    }
+
+    private void registerCommands() {
+        this.commandRouter.exact("user", (senderId, messageText) -> sendUserDetails(senderId));
+        this.commandRouter.exact("image", (senderId, messageText) -> sendImageMessage(senderId));
+        this.commandRouter.exact("gif", (senderId, messageText) -> sendGifMessage(senderId));
+        this.commandRouter.exact("audio", (senderId, messageText) -> sendAudioMessage(senderId));
+        this.commandRouter.exact("video", (senderId, messageText) -> sendVideoMessage(senderId));
+        this.commandRouter.exact("file", (senderId, messageText) -> sendFileMessage(senderId));
+        this.commandRouter.exact("button", (senderId, messageText) -> sendButtonMessage(senderId));
+        this.commandRouter.exact("generic", (senderId, messageText) -> sendGenericMessage(senderId));
+        this.commandRouter.exact("list", (senderId, messageText) -> sendListMessageMessage(senderId));
+        this.commandRouter.exact("receipt", (senderId, messageText) -> sendReceiptMessage(senderId));
+        this.commandRouter.exact("quick reply", (senderId, messageText) -> sendQuickReply(senderId));
+        this.commandRouter.exact("read receipt", (senderId, messageText) -> sendReadReceipt(senderId));
+        this.commandRouter.exact("typing on", (senderId, messageText) -> sendTypingOn(senderId));
+        this.commandRouter.exact("typing off", (senderId, messageText) -> sendTypingOff(senderId));
+        this.commandRouter.exact("account linking", (senderId, messageText) -> sendAccountLinking(senderId));
     }
 
     /**
@@ -117,313 +178,352 @@ public class MessengerPlatformCallbackHandler {
     }
 
     /**
-     * Callback endpoint responsible for processing the inbound messages and events.
+     * Callback endpoint responsible for processing the inbound messages and events. <p> The body is read and verified
+     * as a stream by the {@link CallbackReader}. In cluster mode the events of senders owned by other nodes are
+     * forwarded to them by the {@link ClusterNode}. Of the remaining events, those that have been delivered before are
+     * dropped, and the others are journaled before they are processed. The events of a payload are processed in
+     * parallel across senders and in order per sender. In asynchronous mode the payload is acknowledged as soon as its
+     * events have been verified, journaled and queued, otherwise only after all of them have been processed.
      */
     @RequestMapping(method = RequestMethod.POST)
-    public ResponseEntity<Void> handleCallback(@RequestBody final String payload, @RequestHeader(SIGNATURE_HEADER_NAME) final String signature) {
-        logger.debug("Received Messenger Platform callback - payload: {} | signature: {}", payload, signature);
+    public ResponseEntity<Void> handleCallback(final InputStream payload, @RequestHeader(SIGNATURE_HEADER_NAME) final String signature) {
+        logger.debug("Received Messenger Platform callback - signature: {}", signature);
+        final List<ReceivedEvent> events;
         try {
-            this.messenger.onReceiveEvents(payload, of(signature), event -> {
-                if (event.isTextMessageEvent()) {
-                    handleTextMessageEvent(event.asTextMessageEvent());
-                } else if (event.isAttachmentMessageEvent()) {
-                    handleAttachmentMessageEvent(event.asAttachmentMessageEvent());
-                } else if (event.isQuickReplyMessageEvent()) {
-                    handleQuickReplyMessageEvent(event.asQuickReplyMessageEvent());
-                } else if (event.isPostbackEvent()) {
-                    handlePostbackEvent(event.asPostbackEvent());
-                } else if (event.isAccountLinkingEvent()) {
-                    handleAccountLinkingEvent(event.asAccountLinkingEvent());
-                } else if (event.isOptInEvent()) {
-                    handleOptInEvent(event.asOptInEvent());
-                } else if (event.isMessageEchoEvent()) {
-                    handleMessageEchoEvent(event.asMessageEchoEvent());
-                } else if (event.isMessageDeliveredEvent()) {
-                    handleMessageDeliveredEvent(event.asMessageDeliveredEvent());
-                } else if (event.isMessageReadEvent()) {
-                    handleMessageReadEvent(event.asMessageReadEvent());
-                } else {
-                    handleFallbackEvent(event);
-                }
-            });
-            logger.debug("Processed callback payload successfully");
-            return ResponseEntity.status(HttpStatus.OK).build();
+            events = this.clusterNode.forward(this.callbackReader.read(payload, signature));
         } catch (MessengerVerificationException e) {
             logger.warn("Processing of callback payload failed: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (IOException e) {
+            logger.warn("Callback payload could not be read: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RejectedExecutionException e) {
+            logger.warn("Events could not be forwarded, rejecting callback payload: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }
+        return ResponseEntity.status(accept(events)).build();
     }
 
-    private void handleTextMessageEvent(TextMessageEvent event) {
-        logger.debug("Received TextMessageEvent: {}", event);
-
-        final String messageId = event.messageId();
-        final String messageText = event.text();
-        final String senderId = event.senderId();
-        final Instant timestamp = event.timestamp();
+    /**
+     * Starts receiving the events that other nodes of the cluster forward to this one. They are accepted without being
+     * forwarded again, and acknowledged when a callback with the same events would have been.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void joinCluster() throws IOException {
+        this.clusterNode.start(this::acceptForwarded);
+    }
 
-        logger.info("Received message '{}' with text '{}' from user '{}' at '{}'", messageId, messageText, senderId, timestamp);
+    private boolean acceptForwarded(List<String> eventPayloads) {
+        final List<ReceivedEvent> events = new ArrayList<>(eventPayloads.size());
+        for (String eventPayload : eventPayloads) {
+            try {
+                events.addAll(this.callbackReader.parse(eventPayload));
+            } catch (MessengerVerificationException | RuntimeException e) {
+                logger.warn("Forwarded event could not be parsed, skipping it: {}", e.getMessage());
+            }
+        }
+        return accept(events) == HttpStatus.OK;
+    }
 
+    /**
+     * Drops the events that have been delivered before, then journals and dispatches the others. Until the journal
+     * has been replayed, all events are rejected, so that no event overtakes older journaled events of its sender.
+     */
+    private HttpStatus accept(List<ReceivedEvent> receivedEvents) {
+        if (!this.journalReplayed) {
+            logger.warn("Journal has not been replayed yet, rejecting {} events", receivedEvents.size());
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        final List<ReceivedEvent> events = this.eventDeduplicator.firstDeliveries(receivedEvents);
+        final List<ReceivedEvent> journaledEvents;
         try {
-            switch (messageText.toLowerCase()) {
-                case "user":
-                    sendUserDetails(senderId);
-                    break;
-
-                case "image":
-                    sendImageMessage(senderId);
-                    break;
-
-                case "gif":
-                    sendGifMessage(senderId);
-                    break;
-
-                case "audio":
-                    sendAudioMessage(senderId);
-                    break;
-
-                case "video":
-                    sendVideoMessage(senderId);
-                    break;
-
-                case "file":
-                    sendFileMessage(senderId);
-                    break;
+            journaledEvents = this.eventJournal.append(events);
+        } catch (IOException e) {
+            this.eventDeduplicator.forget(events);
+            logger.error("Events could not be journaled, rejecting callback payload", e);
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
 
-                case "button":
-                    sendButtonMessage(senderId);
-                    break;
+        try {
+            final CompletableFuture<Void> completion = this.eventDispatcher.dispatch(journaledEvents, this::processEvent);
+            if (this.asyncProcessing) {
+                logger.debug("Queued {} events of callback payload", events.size());
+            } else {
+                completion.join();
+                logger.debug("Processed {} events of callback payload successfully", events.size());
+            }
+            return HttpStatus.OK;
+        } catch (CompletionException e) {
+            // discarded at shutdown; journaled events are replayed after the next start
+            logger.warn("Events have not been processed before shutdown, rejecting callback payload");
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        } catch (RejectedExecutionException e) {
+            this.eventDeduplicator.forget(events);
+            this.eventJournal.discard(journaledEvents);
+            logger.warn("Event queue is full, rejecting callback payload: {}", e.getMessage());
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+    }
 
-                case "generic":
-                    sendGenericMessage(senderId);
-                    break;
+    /**
+     * Processes the events that had been accepted but not processed before the last shutdown or crash. The server
+     * already accepts callbacks at that point, so their events are rejected until the replay has finished.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayJournal() {
+        final SortedMap<Long, String> unprocessed = this.eventJournal.unprocessed();
+        if (unprocessed.isEmpty()) {
+            return;
+        }
+        try {
+            replayUnprocessed(unprocessed);
+        } finally {
+            this.journalReplayed = true;
+        }
+    }
 
-                case "list":
-                    sendListMessageMessage(senderId);
-                    break;
+    private void replayUnprocessed(SortedMap<Long, String> unprocessed) {
+        logger.info("Replaying {} unprocessed events from the journal", unprocessed.size());
+        final int batchSize = Math.min(REPLAY_BATCH_SIZE, this.eventDispatcher.capacity());
+        final List<ReceivedEvent> batch = new ArrayList<>(batchSize);
+        for (Map.Entry<Long, String> eventPayload : unprocessed.entrySet()) {
+            try {
+                for (ReceivedEvent event : this.callbackReader.parse(eventPayload.getValue())) {
+                    batch.add(event.withJournalSequence(eventPayload.getKey()));
+                }
+            } catch (MessengerVerificationException | RuntimeException e) {
+                logger.warn("Journaled event {} could not be parsed, skipping it: {}", eventPayload.getKey(), e.getMessage());
+                this.eventJournal.deadLetter(eventPayload.getKey(), eventPayload.getValue());
+            }
+            if (batch.size() >= batchSize) {
+                replay(batch);
+            }
+        }
+        replay(batch);
+    }
 
-                case "receipt":
-                    sendReceiptMessage(senderId);
-                    break;
+    private void replay(List<ReceivedEvent> batch) {
+        final List<ReceivedEvent> events = this.eventDeduplicator.firstDeliveries(batch);
+        if (events.size() < batch.size()) {
+            // accepted again by a redelivery that has arrived since the start, which has been journaled on its own
+            final List<ReceivedEvent> redelivered = new ArrayList<>(batch);
+            redelivered.removeAll(events);
+            this.eventJournal.discard(redelivered);
+        }
+        while (true) {
+            try {
+                this.eventDispatcher.dispatch(events, this::processEvent).join();
+                break;
+            } catch (CompletionException e) {
+                // discarded at shutdown, the events stay unprocessed in the journal
+                return;
+            } catch (RejectedExecutionException e) {
+                // no room for the batch yet, try again shortly
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        batch.clear();
+    }
 
-                case "quick reply":
-                    sendQuickReply(senderId);
-                    break;
+    /**
+     * Handles the event and marks it as processed in the journal once the replies that have been queued for its sender
+     * have been sent. An event whose replies have not been sent before a shutdown or crash stays unprocessed and is
+     * replayed after the next start; an event whose handler has failed is moved to the dead letters of the journal, as
+     * it would only fail again.
+     */
+    private void processEvent(ReceivedEvent receivedEvent) {
+        final Event event = receivedEvent.event();
+        final EventType eventType = EventType.of(event);
+        final long startNanos = this.eventMetrics.started();
+        try {
+            handleEvent(eventType, event);
+        } catch (RuntimeException e) {
+            this.eventMetrics.failed(eventType);
+            this.eventJournal.deadLetter(receivedEvent.journalSequence(), receivedEvent.payload());
+            throw e;
+        } finally {
+            this.eventMetrics.finished(eventType, startNanos);
+        }
+        final long journalSequence = receivedEvent.journalSequence();
+        if (journalSequence != ReceivedEvent.NOT_JOURNALED) {
+            this.outboundSender.whenSent(event.senderId()).thenRun(() -> this.eventJournal.markProcessed(journalSequence));
+        }
+    }
 
-                case "read receipt":
-                    sendReadReceipt(senderId);
-                    break;
+    private void handleEvent(EventType eventType, Event event) {
+        switch (eventType) {
+            case TEXT:
+                handleTextMessageEvent(event.asTextMessageEvent());
+                break;
+            case ATTACHMENT:
+                handleAttachmentMessageEvent(event.asAttachmentMessageEvent());
+                break;
+            case QUICK_REPLY:
+                handleQuickReplyMessageEvent(event.asQuickReplyMessageEvent());
+                break;
+            case POSTBACK:
+                handlePostbackEvent(event.asPostbackEvent());
+                break;
+            case ACCOUNT_LINKING:
+                handleAccountLinkingEvent(event.asAccountLinkingEvent());
+                break;
+            case OPT_IN:
+                handleOptInEvent(event.asOptInEvent());
+                break;
+            case ECHO:
+                handleMessageEchoEvent(event.asMessageEchoEvent());
+                break;
+            case DELIVERED:
+                handleMessageDeliveredEvent(event.asMessageDeliveredEvent());
+                break;
+            case READ:
+                handleMessageReadEvent(event.asMessageReadEvent());
+                break;
+            default:
+                handleFallbackEvent(event);
+        }
+    }
 
-                case "typing on":
-                    sendTypingOn(senderId);
-                    break;
+    private void handleTextMessageEvent(TextMessageEvent event) {
+        logger.debug("Handling TextMessageEvent");
 
-                case "typing off":
-                    sendTypingOff(senderId);
-                    break;
+        final String messageId = event.messageId();
+        final String messageText = event.text();
+        final String senderId = event.senderId();
+        final Instant timestamp = event.timestamp();
 
-                case "account linking":
-                    sendAccountLinking(senderId);
-                    break;
+        if (this.eventLog.isLogged(EventType.TEXT)) {
+            this.eventLog.log("event=text mid={} sender={} text={} timestamp={}", messageId, senderId, this.eventLog.content(messageText), timestamp);
+        }
 
-                default:
-                    sendTextMessage(senderId, messageText);
+        try {
+            final Optional<CommandHandler> commandHandler = this.commandRouter.route(messageText);
+            if (commandHandler.isPresent()) {
+                commandHandler.get().handle(senderId, messageText);
+            } else {
+                sendTextMessage(senderId, messageText);
             }
-        } catch (MessengerApiException | MessengerIOException | MalformedURLException e) {
+        } catch (MessengerApiException | MessengerIOException e) {
             handleSendException(e);
         }
     }
 
     private void sendUserDetails(String recipientId) throws MessengerApiException, MessengerIOException {
-        final UserProfile userProfile = this.messenger.queryUserProfile(recipientId);
-        sendTextMessage(recipientId, String.format("Your name is %s and you are %s", userProfile.firstName(), userProfile.gender()));
-        logger.info("User Profile Picture: {}", userProfile.profilePicture());
+        final UserProfile userProfile = this.userProfileCache.get(recipientId);
+        final String text = String.format("Your name is %s and you are %s", userProfile.firstName(), userProfile.gender());
+        final Optional<String> lastQuickReply = this.sessions.get(recipientId).get(LAST_QUICK_REPLY);
+        sendTextMessage(recipientId, lastQuickReply.map(payload -> text + ", your last quick reply was " + payload).orElse(text));
+        logger.debug("User Profile Picture: {}", userProfile.profilePicture());
     }
 
-    private void sendImageMessage(String recipientId) throws MessengerApiException, MessengerIOException, MalformedURLException {
-        final UrlRichMediaAsset richMediaAsset = UrlRichMediaAsset.create(IMAGE, new URL(RESOURCE_URL + "/assets/rift.png"));
-        sendRichMediaMessage(recipientId, richMediaAsset);
+    private void sendImageMessage(String recipientId) {
+        this.mediaAssets.sendImage(recipientId);
     }
 
-    private void sendRichMediaMessage(String recipientId, UrlRichMediaAsset richMediaAsset) throws MessengerApiException, MessengerIOException {
-        final RichMediaMessage richMediaMessage = RichMediaMessage.create(richMediaAsset);
-        final MessagePayload messagePayload = MessagePayload.create(recipientId, MessagingType.RESPONSE, richMediaMessage);
-        this.messenger.send(messagePayload);
+    private void sendGifMessage(String recipientId) {
+        this.mediaAssets.sendGif(recipientId);
     }
 
-    private void sendGifMessage(String recipientId) throws MessengerApiException, MessengerIOException, MalformedURLException {
-        final UrlRichMediaAsset richMediaAsset = UrlRichMediaAsset.create(IMAGE, new URL("https://media.giphy.com/media/11sBLVxNs7v6WA/giphy.gif"));
-        sendRichMediaMessage(recipientId, richMediaAsset);
+    private void sendAudioMessage(String recipientId) {
+        this.mediaAssets.sendAudio(recipientId);
     }
 
-    private void sendAudioMessage(String recipientId) throws MessengerApiException, MessengerIOException, MalformedURLException {
-        final UrlRichMediaAsset richMediaAsset = UrlRichMediaAsset.create(AUDIO, new URL(RESOURCE_URL + "/assets/sample.mp3"));
-        sendRichMediaMessage(recipientId, richMediaAsset);
+    private void sendVideoMessage(String recipientId) {
+        this.mediaAssets.sendVideo(recipientId);
     }
 
-    private void sendVideoMessage(String recipientId) throws MessengerApiException, MessengerIOException, MalformedURLException {
-        final UrlRichMediaAsset richMediaAsset = UrlRichMediaAsset.create(VIDEO, new URL(RESOURCE_URL + "/assets/allofus480.mov"));
-        sendRichMediaMessage(recipientId, richMediaAsset);
+    private void sendFileMessage(String recipientId) {
+        this.mediaAssets.sendFile(recipientId);
     }
 
-    private void sendFileMessage(String recipientId) throws MessengerApiException, MessengerIOException, MalformedURLException {
-        final UrlRichMediaAsset richMediaAsset = UrlRichMediaAsset.create(FILE, new URL(RESOURCE_URL + "/assets/test.txt"));
-        sendRichMediaMessage(recipientId, richMediaAsset);
-    }
-
-    private void sendButtonMessage(String recipientId) throws MessengerApiException, MessengerIOException, MalformedURLException {
-        final List<Button> buttons = Arrays.asList(
-                UrlButton.create("Open Web URL", new URL("https://www.oculus.com/en-us/rift/"), of(WebviewHeightRatio.COMPACT), of(false), empty(), empty()),
-                PostbackButton.create("Trigger Postback", "DEVELOPER_DEFINED_PAYLOAD"), CallButton.create("Call Phone Number", "+16505551234")
-        );
-
-        final ButtonTemplate buttonTemplate = ButtonTemplate.create("Tap a button", buttons);
-        final TemplateMessage templateMessage = TemplateMessage.create(buttonTemplate);
-        final MessagePayload messagePayload = MessagePayload.create(recipientId, MessagingType.RESPONSE, templateMessage);
-        this.messenger.send(messagePayload);
+    private void sendButtonMessage(String recipientId) {
+        this.outboundSender.send(recipientId, this.messageTemplates.button());
     }
 
-    private void sendGenericMessage(String recipientId) throws MessengerApiException, MessengerIOException, MalformedURLException {
-        List<Button> riftButtons = new ArrayList<>();
-        riftButtons.add(UrlButton.create("Open Web URL", new URL("https://www.oculus.com/en-us/rift/")));
-        riftButtons.add(PostbackButton.create("Call Postback", "Payload for first bubble"));
-
-        List<Button> touchButtons = new ArrayList<>();
-        touchButtons.add(UrlButton.create("Open Web URL", new URL("https://www.oculus.com/en-us/touch/")));
-        touchButtons.add(PostbackButton.create("Call Postback", "Payload for second bubble"));
-
-        final List<Element> elements = new ArrayList<>();
-
-        elements.add(
-                Element.create("rift", of("Next-generation virtual reality"), of(new URL("https://www.oculus.com/en-us/rift/")), empty(), of(riftButtons)));
-        elements.add(Element.create("touch", of("Your Hands, Now in VR"), of(new URL("https://www.oculus.com/en-us/touch/")), empty(), of(touchButtons)));
-
-        final GenericTemplate genericTemplate = GenericTemplate.create(elements);
-        final TemplateMessage templateMessage = TemplateMessage.create(genericTemplate);
-        final MessagePayload messagePayload = MessagePayload.create(recipientId, MessagingType.RESPONSE, templateMessage);
-        this.messenger.send(messagePayload);
+    private void sendGenericMessage(String recipientId) {
+        this.outboundSender.send(recipientId, this.messageTemplates.generic());
     }
 
-    private void sendListMessageMessage(String recipientId) throws MessengerApiException, MessengerIOException, MalformedURLException {
-        List<Button> riftButtons = new ArrayList<>();
-        riftButtons.add(UrlButton.create("Open Web URL", new URL("https://www.oculus.com/en-us/rift/")));
-
-        List<Button> touchButtons = new ArrayList<>();
-        touchButtons.add(UrlButton.create("Open Web URL", new URL("https://www.oculus.com/en-us/touch/")));
-
-        final List<Element> elements = new ArrayList<>();
-
-        elements.add(
-                Element.create("rift", of("Next-generation virtual reality"), of(new URL("https://www.oculus.com/en-us/rift/")), empty(), of(riftButtons)));
-        elements.add(Element.create("touch", of("Your Hands, Now in VR"), of(new URL("https://www.oculus.com/en-us/touch/")), empty(), of(touchButtons)));
-
-        final ListTemplate listTemplate = ListTemplate.create(elements);
-        final TemplateMessage templateMessage = TemplateMessage.create(listTemplate);
-        final MessagePayload messagePayload = MessagePayload.create(recipientId, MessagingType.RESPONSE, templateMessage);
-        this.messenger.send(messagePayload);
+    private void sendListMessageMessage(String recipientId) {
+        this.outboundSender.send(recipientId, this.messageTemplates.list());
     }
 
-    private void sendReceiptMessage(String recipientId) throws MessengerApiException, MessengerIOException, MalformedURLException {
+    private void sendReceiptMessage(String recipientId) {
         final String uniqueReceiptId = "order-" + Math.floor(Math.random() * 1000);
-
-        final List<Item> items = new ArrayList<>();
-
-        items.add(Item.create("Oculus Rift", 599.00f, of("Includes: headset, sensor, remote"), of(1), of("USD"),
-                of(new URL(RESOURCE_URL + "/assets/riftsq.png"))));
-        items.add(Item.create("Samsung Gear VR", 99.99f, of("Frost White"), of(1), of("USD"), of(new URL(RESOURCE_URL + "/assets/gearvrsq.png"))));
-
-        final ReceiptTemplate receiptTemplate = ReceiptTemplate
-                .create("Peter Chang", uniqueReceiptId, "Visa 1234", "USD", Summary.create(626.66f, of(698.99f), of(57.67f), of(20.00f)),
-                        of(Address.create("1 Hacker Way", "Menlo Park", "94025", "CA", "US")), of(items),
-                        of(Arrays.asList(Adjustment.create("New Customer Discount", -50f), Adjustment.create("$100 Off Coupon", -100f))),
-                        of("The Boring Company"), of(new URL("https://www.boringcompany.com/")), of(true), of(Instant.ofEpochMilli(1428444852L)));
-
-        final TemplateMessage templateMessage = TemplateMessage.create(receiptTemplate);
-        final MessagePayload messagePayload = MessagePayload.create(recipientId, MessagingType.RESPONSE, templateMessage);
-        this.messenger.send(messagePayload);
+        final MessagePayload messagePayload = MessagePayload.create(recipientId, MessagingType.RESPONSE, this.messageTemplates.receipt(uniqueReceiptId));
+        this.outboundSender.send(recipientId, messagePayload);
     }
 
-    private void sendQuickReply(String recipientId) throws MessengerApiException, MessengerIOException {
-        List<QuickReply> quickReplies = new ArrayList<>();
-
-        quickReplies.add(TextQuickReply.create("Action", "DEVELOPER_DEFINED_PAYLOAD_FOR_PICKING_ACTION"));
-        quickReplies.add(TextQuickReply.create("Comedy", "DEVELOPER_DEFINED_PAYLOAD_FOR_PICKING_COMEDY"));
-        quickReplies.add(TextQuickReply.create("Drama", "DEVELOPER_DEFINED_PAYLOAD_FOR_PICKING_DRAMA"));
-        quickReplies.add(LocationQuickReply.create());
-
-        TextMessage message = TextMessage.create("What's your favorite movie genre?", of(quickReplies), empty());
-        messenger.send(MessagePayload.create(recipientId, MessagingType.RESPONSE, message));
+    private void sendQuickReply(String recipientId) {
+        this.outboundSender.send(recipientId, this.messageTemplates.quickReply());
     }
 
-    private void sendReadReceipt(String recipientId) throws MessengerApiException, MessengerIOException {
-        this.messenger.send(SenderActionPayload.create(recipientId, SenderAction.MARK_SEEN));
+    private void sendReadReceipt(String recipientId) {
+        this.outboundSender.send(recipientId, SenderAction.MARK_SEEN);
     }
 
-    private void sendTypingOn(String recipientId) throws MessengerApiException, MessengerIOException {
-        this.messenger.send(SenderActionPayload.create(recipientId, SenderAction.TYPING_ON));
+    private void sendTypingOn(String recipientId) {
+        this.outboundSender.send(recipientId, SenderAction.TYPING_ON);
     }
 
-    private void sendTypingOff(String recipientId) throws MessengerApiException, MessengerIOException {
-        this.messenger.send(SenderActionPayload.create(recipientId, SenderAction.TYPING_OFF));
+    private void sendTypingOff(String recipientId) {
+        this.outboundSender.send(recipientId, SenderAction.TYPING_OFF);
     }
 
-    private void sendAccountLinking(String recipientId) throws MessengerApiException, MessengerIOException, MalformedURLException {
-        // Mandatory https
-        final LogInButton buttonIn = LogInButton.create(new URL("https://<YOUR_REST_CALLBACK_URL>"));
-        final LogOutButton buttonOut = LogOutButton.create();
-
-        final List<Button> buttons = Arrays.asList(buttonIn, buttonOut);
-        final ButtonTemplate buttonTemplate = ButtonTemplate.create("Log in to see an account linking callback", buttons);
-
-        final TemplateMessage templateMessage = TemplateMessage.create(buttonTemplate);
-        final MessagePayload messagePayload = MessagePayload.create(recipientId, MessagingType.RESPONSE, templateMessage);
-        this.messenger.send(messagePayload);
+    private void sendAccountLinking(String recipientId) {
+        this.outboundSender.send(recipientId, this.messageTemplates.accountLinking());
     }
 
     private void handleAttachmentMessageEvent(AttachmentMessageEvent event) {
-        logger.debug("Handling QuickReplyMessageEvent");
+        logger.debug("Handling AttachmentMessageEvent");
         final String senderId = event.senderId();
         logger.debug("senderId: {}", senderId);
-        for (Attachment attachment : event.attachments()) {
-            if (attachment.isRichMediaAttachment()) {
-                final RichMediaAttachment richMediaAttachment = attachment.asRichMediaAttachment();
-                final RichMediaAttachment.Type type = richMediaAttachment.type();
-                final URL url = richMediaAttachment.url();
-                logger.debug("Received rich media attachment of type '{}' with url: {}", type, url);
-                final String text = String.format("Media %s received (url: %s)", type.name(), url);
-                sendTextMessage(senderId, text);
-            } else if (attachment.isLocationAttachment()) {
-                final LocationAttachment locationAttachment = attachment.asLocationAttachment();
-                final double longitude = locationAttachment.longitude();
-                final double latitude = locationAttachment.latitude();
-                logger.debug("Received location information (long: {}, lat: {})", longitude, latitude);
-                final String text = String.format("Location received (long: %s, lat: %s)", String.valueOf(longitude), String.valueOf(latitude));
-                sendTextMessage(senderId, text);
-            }
+        if (this.eventLog.isLogged(EventType.ATTACHMENT)) {
+            this.eventLog.log("event=attachment mid={} sender={} attachments={} timestamp={}", event.messageId(), senderId, event.attachments().size(),
+                    event.timestamp());
         }
+        // the reply keeps its place before the later replies to the sender, without holding up the event worker
+        this.outboundSender.send(senderId, this.attachmentProcessor.acknowledge(event.attachments())
+                .thenApply(texts -> texts.stream().map(text -> textMessagePayload(senderId, text)).collect(Collectors.toList())));
     }
 
     private void handleQuickReplyMessageEvent(QuickReplyMessageEvent event) {
         logger.debug("Handling QuickReplyMessageEvent");
         final String payload = event.payload();
-        logger.debug("payload: {}", payload);
         final String senderId = event.senderId();
         logger.debug("senderId: {}", senderId);
         final String messageId = event.messageId();
         logger.debug("messageId: {}", messageId);
-        logger.info("Received quick reply for message '{}' with payload '{}'", messageId, payload);
+        if (this.eventLog.isLogged(EventType.QUICK_REPLY)) {
+            this.eventLog.log("event=quick_reply mid={} sender={} payload={} timestamp={}", messageId, senderId, this.eventLog.content(payload),
+                    event.timestamp());
+        }
+        try {
+            this.sessions.update(senderId, session -> session.with(LAST_QUICK_REPLY, payload));
+        } catch (IllegalArgumentException e) {
+            // payloads may be longer than a session slot holds, so an older one must not be reported as the last one
+            logger.warn("Quick reply payload of sender '{}' does not fit into the session: {}", senderId, e.getMessage());
+            this.sessions.update(senderId, session -> session.without(LAST_QUICK_REPLY));
+        }
         sendTextMessage(senderId, "Quick reply tapped");
     }
 
     private void handlePostbackEvent(PostbackEvent event) {
         logger.debug("Handling PostbackEvent");
-        final String payload = event.payload().orElse("empty payload");
-        logger.debug("payload: {}", payload);
+        final String payload = event.payload().orElse(null);
         final String senderId = event.senderId();
         logger.debug("senderId: {}", senderId);
         final Instant timestamp = event.timestamp();
         logger.debug("timestamp: {}", timestamp);
-        logger.info("Received postback for user '{}' and page '{}' with payload '{}' at '{}'", senderId, senderId, payload, timestamp);
+        if (this.eventLog.isLogged(EventType.POSTBACK)) {
+            this.eventLog.log("event=postback sender={} page={} payload={} timestamp={}", senderId, event.recipientId(), this.eventLog.content(payload),
+                    timestamp);
+        }
         sendTextMessage(senderId, "Postback event tapped");
     }
 
@@ -433,9 +533,11 @@ public class MessengerPlatformCallbackHandler {
         logger.debug("senderId: {}", senderId);
         final AccountLinkingEvent.Status accountLinkingStatus = event.status();
         logger.debug("accountLinkingStatus: {}", accountLinkingStatus);
-        final String authorizationCode = event.authorizationCode().orElse("Empty authorization code!!!"); //You can throw an Exception
-        logger.debug("authorizationCode: {}", authorizationCode);
-        logger.info("Received account linking event for user '{}' with status '{}' and auth code '{}'", senderId, accountLinkingStatus, authorizationCode);
+        final String authorizationCode = event.authorizationCode().orElse(null); //You can throw an Exception
+        if (this.eventLog.isLogged(EventType.ACCOUNT_LINKING)) {
+            this.eventLog.log("event=account_linking sender={} status={} authorization_code={} timestamp={}", senderId, accountLinkingStatus,
+                    this.eventLog.content(authorizationCode), event.timestamp());
+        }
         sendTextMessage(senderId, "AccountLinking event tapped");
     }
 
@@ -445,13 +547,14 @@ public class MessengerPlatformCallbackHandler {
         logger.debug("senderId: {}", senderId);
         final String recipientId = event.recipientId();
         logger.debug("recipientId: {}", recipientId);
-        final String passThroughParam = event.refPayload().orElse("empty payload");
-        logger.debug("passThroughParam: {}", passThroughParam);
+        final String passThroughParam = event.refPayload().orElse(null);
         final Instant timestamp = event.timestamp();
         logger.debug("timestamp: {}", timestamp);
 
-        logger.info("Received authentication for user '{}' and page '{}' with pass through param '{}' at '{}'", senderId, recipientId, passThroughParam,
-                timestamp);
+        if (this.eventLog.isLogged(EventType.OPT_IN)) {
+            this.eventLog.log("event=opt_in sender={} page={} ref={} timestamp={}", senderId, recipientId, this.eventLog.content(passThroughParam),
+                    timestamp);
+        }
         sendTextMessage(senderId, "Authentication successful");
     }
 
@@ -466,7 +569,9 @@ public class MessengerPlatformCallbackHandler {
         final Instant timestamp = event.timestamp();
         logger.debug("timestamp: {}", timestamp);
 
-        logger.info("Received echo for message '{}' that has been sent to recipient '{}' by sender '{}' at '{}'", messageId, recipientId, senderId, timestamp);
+        if (this.eventLog.isLogged(EventType.ECHO)) {
+            this.eventLog.log("event=echo mid={} sender={} recipient={} timestamp={}", messageId, senderId, recipientId, timestamp);
+        }
         sendTextMessage(senderId, "MessageEchoEvent tapped");
     }
 
@@ -474,15 +579,19 @@ public class MessengerPlatformCallbackHandler {
         logger.debug("Handling MessageDeliveredEvent");
         final String senderId = event.senderId();
         logger.debug("senderId: {}", senderId);
-        final List<String> messageIds = event.messageIds().orElse(Collections.emptyList());
         final Instant watermark = event.watermark();
         logger.debug("watermark: {}", watermark);
+        if (!this.watermarks.delivered(senderId, watermark)) {
+            logger.debug("Dropping superseded delivery watermark");
+            return;
+        }
 
-        messageIds.forEach(messageId -> {
-            logger.info("Received delivery confirmation for message '{}'", messageId);
-        });
+        final List<String> messageIds = event.messageIds().orElse(Collections.emptyList());
+        logger.debug("messageIds: {}", messageIds);
 
-        logger.info("All messages before '{}' were delivered to user '{}'", watermark, senderId);
+        if (this.eventLog.isLogged(EventType.DELIVERED)) {
+            this.eventLog.log("event=delivered sender={} messages={} watermark={}", senderId, messageIds.size(), watermark);
+        }
     }
 
     private void handleMessageReadEvent(MessageReadEvent event) {
@@ -491,8 +600,14 @@ public class MessengerPlatformCallbackHandler {
         logger.debug("senderId: {}", senderId);
         final Instant watermark = event.watermark();
         logger.debug("watermark: {}", watermark);
+        if (!this.watermarks.read(senderId, watermark)) {
+            logger.debug("Dropping superseded read watermark");
+            return;
+        }
 
-        logger.info("All messages before '{}' were read by user '{}'", watermark, senderId);
+        if (this.eventLog.isLogged(EventType.READ)) {
+            this.eventLog.log("event=read sender={} watermark={}", senderId, watermark);
+        }
     }
 
     private void handleFallbackEvent(Event event) {
@@ -500,25 +615,26 @@ public class MessengerPlatformCallbackHandler {
         final String senderId = event.senderId();
         logger.debug("senderId: {}", senderId);
 
-        logger.info("Received unsupported message from user '{}'", senderId);
+        if (this.eventLog.isLogged(EventType.FALLBACK)) {
+            this.eventLog.log("event=fallback sender={} timestamp={}", senderId, event.timestamp());
+        }
     }
 
     private void sendTextMessage(String recipientId, String text) {
-        try {
-            final IdRecipient recipient = IdRecipient.create(recipientId);
-            final NotificationType notificationType = NotificationType.REGULAR;
-            final String metadata = "DEVELOPER_DEFINED_METADATA";
-
-            final TextMessage textMessage = TextMessage.create(text, empty(), of(metadata));
-            final MessagePayload messagePayload = MessagePayload.create(recipient, MessagingType.RESPONSE, textMessage,
-                    of(notificationType), empty());
-            this.messenger.send(messagePayload);
-        } catch (MessengerApiException | MessengerIOException e) {
-            handleSendException(e);
-        }
+        this.outboundSender.send(recipientId, textMessagePayload(recipientId, text));
+    }
+
+    private static MessagePayload textMessagePayload(String recipientId, String text) {
+        final IdRecipient recipient = IdRecipient.create(recipientId);
+        final NotificationType notificationType = NotificationType.REGULAR;
+        final String metadata = "DEVELOPER_DEFINED_METADATA";
+
+        final TextMessage textMessage = TextMessage.create(text, empty(), of(metadata));
+        return MessagePayload.create(recipient, MessagingType.RESPONSE, textMessage, of(notificationType), empty());
     }
 
     private void handleSendException(Exception e) {
+        this.sendMetrics.error(e);
         logger.error("Message could not be sent. An unexpected error occurred.", e);
     }
 }
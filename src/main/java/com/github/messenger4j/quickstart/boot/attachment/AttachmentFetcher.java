@@ -0,0 +1,243 @@
+package com.github.messenger4j.quickstart.boot.attachment;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.messenger4j.quickstart.boot.dispatch.WorkerThreads;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Downloads the content of the attachments that users send, hashes it and keeps it in a content-addressed cache.
+ *
+ * <p>
+ * Downloads run on a pool with a fixed number of threads and a bounded queue, so a burst of attachments neither
+ * starves the event workers nor opens an unbounded number of connections; a download that does not fit into the queue
+ * is rejected right away. Concurrent and repeated fetches of the same URL share a single download, as long as its
+ * result is remembered by URL. Failed downloads are not remembered, so they are tried again the next time.
+ * </p>
+ *
+ * <p>
+ * The content is stored under its SHA-256 digest, e.g. {@code attachment-cache/3f/3fa9...}, so the same photo that is
+ * sent by many users, or under many URLs, is stored once. Files of the cache are never removed by the application.
+ * </p>
+ */
+@Component
+public class AttachmentFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentFetcher.class);
+
+    private final OkHttpClient okHttpClient;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, CompletableFuture<FetchedAttachment>> fetched;
+    private final Path cacheDirectory;
+    private final long maxBytes;
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param cacheDirectory the directory to store the content in, or empty to only hash it
+     */
+    @Autowired
+    public AttachmentFetcher(@Value("${messenger4j.attachments.fetchConcurrency}") final int concurrency,
+                             @Value("${messenger4j.attachments.fetchQueueCapacity}") final int queueCapacity,
+                             @Value("${messenger4j.attachments.fetchTimeoutSeconds}") final int timeoutSeconds,
+                             @Value("${messenger4j.attachments.maxBytes}") final long maxBytes,
+                             @Value("${messenger4j.attachments.cacheDirectory}") final String cacheDirectory,
+                             @Value("${messenger4j.attachments.maximumSize}") final long maximumSize) {
+        this.okHttpClient = new OkHttpClient.Builder()
+                .connectTimeout(timeoutSeconds, TimeUnit.SECONDS)
+                .readTimeout(timeoutSeconds, TimeUnit.SECONDS)
+                .build();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                WorkerThreads.threadFactory("attachment-fetcher-", false));
+        this.executor.allowCoreThreadTimeOut(true);
+        this.fetched = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        this.cacheDirectory = cacheDirectory.isEmpty() ? null : Paths.get(cacheDirectory);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Downloads the content of the URL on the pool, unless it has been downloaded or is being downloaded already.
+     *
+     * @return a future that completes with the content, or completes exceptionally if the content could not be
+     * downloaded or the pool is full
+     */
+    public CompletableFuture<FetchedAttachment> fetch(URL url) {
+        this.fetches.incrementAndGet();
+        final String key = url.toString();
+        final CompletableFuture<FetchedAttachment> future;
+        try {
+            future = this.fetched.get(key, k -> CompletableFuture.supplyAsync(() -> download(url), this.executor));
+        } catch (RejectedExecutionException e) {
+            this.rejected.incrementAndGet();
+            final CompletableFuture<FetchedAttachment> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+        future.whenComplete((fetchedAttachment, e) -> {
+            if (e != null) {
+                this.fetched.asMap().remove(key, future);
+            }
+        });
+        return future;
+    }
+
+    private FetchedAttachment download(URL url) {
+        this.downloads.incrementAndGet();
+        final Request request = new Request.Builder().url(url.toString()).get().build();
+        Path temporaryFile = null;
+        try (Response response = this.okHttpClient.newCall(request).execute()) {
+            if (response.code() != 200) {
+                throw new IOException("Attachment responded with status " + response.code());
+            }
+            final ResponseBody body = response.body();
+            if (body.contentLength() > this.maxBytes) {
+                throw new IOException("Attachment has " + body.contentLength() + " bytes, more than " + this.maxBytes);
+            }
+            if (this.cacheDirectory != null) {
+                Files.createDirectories(this.cacheDirectory);
+                temporaryFile = Files.createTempFile(this.cacheDirectory, "fetch", ".tmp");
+            }
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final long size;
+            try (InputStream in = body.byteStream();
+                 OutputStream out = temporaryFile == null ? null : Files.newOutputStream(temporaryFile)) {
+                size = copy(in, out, digest);
+            }
+            this.downloadedBytes.addAndGet(size);
+            final String sha256 = hex(digest.digest());
+            final Path file = temporaryFile == null ? null : store(temporaryFile, sha256);
+            temporaryFile = null;
+            logger.debug("Fetched attachment of {} bytes with SHA-256 {} from {}", size, sha256, url);
+            return new FetchedAttachment(sha256, size, file);
+        } catch (IOException e) {
+            this.failures.incrementAndGet();
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (temporaryFile != null) {
+                deleteQuietly(temporaryFile);
+            }
+        }
+    }
+
+    private long copy(InputStream in, OutputStream out, MessageDigest digest) throws IOException {
+        final byte[] buffer = new byte[8192];
+        long size = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            size += read;
+            if (size > this.maxBytes) {
+                throw new IOException("Attachment has more than " + this.maxBytes + " bytes");
+            }
+            digest.update(buffer, 0, read);
+            if (out != null) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Moves the downloaded content to its place in the cache, unless the same content is stored there already.
+     */
+    private Path store(Path temporaryFile, String sha256) throws IOException {
+        final Path file = this.cacheDirectory.resolve(sha256.substring(0, 2)).resolve(sha256);
+        if (Files.exists(file)) {
+            deleteQuietly(temporaryFile);
+            return file;
+        }
+        Files.createDirectories(file.getParent());
+        try {
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // stored by a concurrent download of the same content under another URL
+            deleteQuietly(temporaryFile);
+        }
+        return file;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Temporary attachment file '{}' could not be deleted: {}", file, e.getMessage());
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Number of attachments that have been asked for, whether they had to be downloaded or not.
+     */
+    public long fetches() {
+        return this.fetches.get();
+    }
+
+    public long downloads() {
+        return this.downloads.get();
+    }
+
+    public long downloadedBytes() {
+        return this.downloadedBytes.get();
+    }
+
+    public long failures() {
+        return this.failures.get();
+    }
+
+    /**
+     * Number of attachments that have not been downloaded, as the queue of the pool was full.
+     */
+    public long rejected() {
+        return this.rejected.get();
+    }
+
+    public int queued() {
+        return this.executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        this.executor.shutdownNow();
+        this.executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.messenger4j.quickstart.boot.attachment;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the downloads of the {@link AttachmentFetcher} through the meter registry.
+ */
+@Component
+public class AttachmentFetcherMetrics implements MeterBinder {
+
+    private final AttachmentFetcher attachmentFetcher;
+
+    @Autowired
+    public AttachmentFetcherMetrics(final AttachmentFetcher attachmentFetcher) {
+        this.attachmentFetcher = attachmentFetcher;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("messenger4j.attachments.queued", this.attachmentFetcher, AttachmentFetcher::queued).register(registry);
+        FunctionCounter.builder("messenger4j.attachments.fetches", this.attachmentFetcher, AttachmentFetcher::fetches).register(registry);
+        FunctionCounter.builder("messenger4j.attachments.downloads", this.attachmentFetcher, AttachmentFetcher::downloads).register(registry);
+        FunctionCounter.builder("messenger4j.attachments.downloadedBytes", this.attachmentFetcher, AttachmentFetcher::downloadedBytes)
+                .register(registry);
+        FunctionCounter.builder("messenger4j.attachments.failures", this.attachmentFetcher, AttachmentFetcher::failures).register(registry);
+        FunctionCounter.builder("messenger4j.attachments.rejected", this.attachmentFetcher, AttachmentFetcher::rejected).register(registry);
+    }
+}
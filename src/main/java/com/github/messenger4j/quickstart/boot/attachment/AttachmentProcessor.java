@@ -0,0 +1,163 @@
+package com.github.messenger4j.quickstart.boot.attachment;
+
+import com.github.messenger4j.quickstart.boot.dispatch.WorkerThreads;
+import com.github.messenger4j.webhook.event.attachment.Attachment;
+import com.github.messenger4j.webhook.event.attachment.LocationAttachment;
+import com.github.messenger4j.webhook.event.attachment.RichMediaAttachment;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Acknowledges the attachments of a message with a single reply, instead of one reply per attachment.
+ *
+ * <p>
+ * As the replies to a user are sent one after the other, a reply per attachment would cost a message with 10 photos 10
+ * Send API round trips before the user's next message could be answered. The acknowledgements of all attachments are
+ * joined into one text instead, which is only split where it would exceed the length limit of a text message.
+ * </p>
+ *
+ * <p>
+ * If fetching is enabled, the content of the rich media attachments is downloaded and hashed by the
+ * {@link AttachmentFetcher} first. All attachments of a message are fetched at the same time, so the reply waits for
+ * the slowest of them rather than for all of them in turn, and for no longer than the fetch timeout. An attachment that
+ * could not be fetched in time is acknowledged without its digest. Nothing blocks while the attachments are fetched:
+ * the texts are handed out as a future, which the event handler queues for the sender, so that the event worker can
+ * go on with the events of other senders.
+ * </p>
+ */
+@Component
+public class AttachmentProcessor {
+
+    /**
+     * The maximum length of the text of a message, as accepted by the Send API.
+     */
+    static final int MAX_TEXT_LENGTH = 2000;
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentProcessor.class);
+
+    private final AttachmentFetcher attachmentFetcher;
+    private final boolean fetch;
+    private final long timeoutNanos;
+    private final ScheduledExecutorService timer;
+
+    @Autowired
+    public AttachmentProcessor(final AttachmentFetcher attachmentFetcher,
+                               @Value("${messenger4j.attachments.fetch}") final boolean fetch,
+                               @Value("${messenger4j.attachments.fetchTimeoutSeconds}") final int timeoutSeconds) {
+        this.attachmentFetcher = attachmentFetcher;
+        this.fetch = fetch;
+        this.timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        this.timer = fetch ? Executors.newSingleThreadScheduledExecutor(WorkerThreads.threadFactory("attachment-timer-", false)) : null;
+    }
+
+    /**
+     * @return a future of the texts that acknowledge the attachments, usually just one, or none if there are no rich
+     * media or location attachments. It completes once all attachments have been fetched, or the fetch timeout has
+     * elapsed, and right away if nothing is fetched.
+     */
+    public CompletableFuture<List<String>> acknowledge(List<Attachment> attachments) {
+        final List<CompletableFuture<FetchedAttachment>> fetches = new ArrayList<>(attachments.size());
+        for (Attachment attachment : attachments) {
+            if (this.fetch && attachment.isRichMediaAttachment()) {
+                fetches.add(this.attachmentFetcher.fetch(attachment.asRichMediaAttachment().url()));
+            }
+        }
+        if (fetches.isEmpty()) {
+            return CompletableFuture.completedFuture(lines(attachments, fetches));
+        }
+        final CompletableFuture<Void> fetched = new CompletableFuture<>();
+        CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, failure) -> fetched.complete(null));
+        final ScheduledFuture<?> timeout = this.timer.schedule(() -> fetched.complete(null), this.timeoutNanos, TimeUnit.NANOSECONDS);
+        return fetched.thenApply(ignored -> {
+            timeout.cancel(false);
+            return lines(attachments, fetches);
+        });
+    }
+
+    /**
+     * @param fetches the fetches of the rich media attachments, in their order, or none if nothing is fetched
+     */
+    private static List<String> lines(List<Attachment> attachments, List<CompletableFuture<FetchedAttachment>> fetches) {
+        final Iterator<CompletableFuture<FetchedAttachment>> nextFetch = fetches.iterator();
+        final List<String> lines = new ArrayList<>(attachments.size());
+        for (Attachment attachment : attachments) {
+            if (attachment.isRichMediaAttachment()) {
+                final RichMediaAttachment richMediaAttachment = attachment.asRichMediaAttachment();
+                final RichMediaAttachment.Type type = richMediaAttachment.type();
+                final URL url = richMediaAttachment.url();
+                logger.debug("Received rich media attachment of type '{}' with url: {}", type, url);
+                final FetchedAttachment fetchedAttachment = nextFetch.hasNext() ? fetched(nextFetch.next(), url) : null;
+                lines.add(fetchedAttachment == null
+                        ? String.format("Media %s received (url: %s)", type.name(), url)
+                        : String.format("Media %s received (url: %s, %d bytes, sha256: %s)", type.name(), url, fetchedAttachment.size(),
+                        fetchedAttachment.sha256()));
+            } else if (attachment.isLocationAttachment()) {
+                final LocationAttachment locationAttachment = attachment.asLocationAttachment();
+                final double longitude = locationAttachment.longitude();
+                final double latitude = locationAttachment.latitude();
+                logger.debug("Received location information (long: {}, lat: {})", longitude, latitude);
+                lines.add(String.format("Location received (long: %s, lat: %s)", String.valueOf(longitude), String.valueOf(latitude)));
+            }
+        }
+        return join(lines, MAX_TEXT_LENGTH);
+    }
+
+    private static FetchedAttachment fetched(CompletableFuture<FetchedAttachment> fetch, URL url) {
+        if (!fetch.isDone()) {
+            logger.warn("Attachment has not been fetched from {} in time", url);
+            return null;
+        }
+        try {
+            return fetch.join();
+        } catch (CompletionException | CancellationException e) {
+            logger.warn("Attachment could not be fetched from {}: {}", url, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Joins the lines into as few texts as possible that are at most {@code maxLength} long. A line that is longer on
+     * its own is cut.
+     */
+    static List<String> join(List<String> lines, int maxLength) {
+        final List<String> texts = new ArrayList<>(1);
+        final StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            final String cut = line.length() > maxLength ? line.substring(0, maxLength) : line;
+            if (text.length() > 0 && text.length() + 1 + cut.length() > maxLength) {
+                texts.add(text.toString());
+                text.setLength(0);
+            }
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(cut);
+        }
+        if (text.length() > 0) {
+            texts.add(text.toString());
+        }
+        return texts;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (this.timer != null) {
+            this.timer.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.messenger4j.quickstart.boot.attachment;
+
+import static java.util.Optional.ofNullable;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * The content of an attachment that has been downloaded by the {@link AttachmentFetcher}.
+ */
+public final class FetchedAttachment {
+
+    private final String sha256;
+    private final long size;
+    private final Path file;
+
+    FetchedAttachment(String sha256, long size, Path file) {
+        this.sha256 = sha256;
+        this.size = size;
+        this.file = file;
+    }
+
+    /**
+     * Hex encoded SHA-256 digest of the content.
+     */
+    public String sha256() {
+        return this.sha256;
+    }
+
+    /**
+     * Size of the content in bytes.
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * The file in the content-addressed cache that holds the content, unless the content is not cached.
+     */
+    public Optional<Path> file() {
+        return ofNullable(this.file);
+    }
+}
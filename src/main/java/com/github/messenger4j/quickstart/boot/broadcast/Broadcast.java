@@ -0,0 +1,320 @@
+package com.github.messenger4j.quickstart.boot.broadcast;
+
+import com.github.messenger4j.exception.MessengerApiException;
+import com.github.messenger4j.exception.MessengerIOException;
+import com.github.messenger4j.quickstart.boot.send.OutboundSender;
+import com.github.messenger4j.quickstart.boot.send.TokenBucket;
+import com.github.messenger4j.quickstart.boot.template.PrecompiledMessage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A message that is being sent to every recipient of a list, started by the {@link BroadcastEngine}.
+ *
+ * <p>
+ * The recipients are pulled from their iterator one at a time by a fixed number of workers, so only as many of them
+ * are held in memory as are being sent to. The position of the broadcast is the number of leading recipients that
+ * have been dealt with, whether the message could be sent to them or not; it only moves past a recipient once all
+ * recipients before it are done, too. A broadcast that is resumed from its checkpoint starts at that position, so the
+ * recipients that were in flight when it has been interrupted receive the message again.
+ * </p>
+ */
+public final class Broadcast {
+
+    private static final Logger logger = LoggerFactory.getLogger(Broadcast.class);
+
+    private final String id;
+    private final PrecompiledMessage message;
+    private final OutboundSender outboundSender;
+    private final TokenBucket rateLimit;
+    private final Iterator<String> recipientIds;
+    private final Closeable recipientSource;
+    private final Path checkpointFile;
+    private final AtomicLong sentTotal;
+    private final AtomicLong failedTotal;
+    private final Runnable onFinish;
+    private final CompletableFuture<Broadcast> completion = new CompletableFuture<>();
+
+    // guarded by recipientIds
+    private long nextIndex;
+    private boolean exhausted;
+
+    // guarded by this
+    private long position;
+    private long positionSent;
+    private long positionFailed;
+    private final TreeMap<Long, Boolean> doneAhead = new TreeMap<>();
+    private long progressLoggedAt;
+    private long progressLoggedCount;
+
+    private final AtomicLong sent;
+    private final AtomicLong failed;
+    private final long resumedCount;
+    private final long startedAt = System.nanoTime();
+    private volatile long finishedAt;
+    private volatile boolean done;
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile RuntimeException failure;
+
+    Broadcast(String id, PrecompiledMessage message, OutboundSender outboundSender, TokenBucket rateLimit,
+              Iterator<String> recipientIds, Closeable recipientSource, Path checkpointFile, BroadcastCheckpoint checkpoint,
+              AtomicLong sentTotal, AtomicLong failedTotal, Runnable onFinish) {
+        this.id = id;
+        this.message = message;
+        this.outboundSender = outboundSender;
+        this.rateLimit = rateLimit;
+        this.recipientIds = recipientIds;
+        this.recipientSource = recipientSource;
+        this.checkpointFile = checkpointFile;
+        this.sentTotal = sentTotal;
+        this.failedTotal = failedTotal;
+        this.onFinish = onFinish;
+        this.exhausted = checkpoint.complete;
+        this.nextIndex = checkpoint.position;
+        this.position = checkpoint.position;
+        this.positionSent = checkpoint.sent;
+        this.positionFailed = checkpoint.failed;
+        this.sent = new AtomicLong(checkpoint.sent);
+        this.failed = new AtomicLong(checkpoint.failed);
+        this.resumedCount = checkpoint.sent + checkpoint.failed;
+        this.progressLoggedAt = this.startedAt;
+        this.progressLoggedCount = this.resumedCount;
+    }
+
+    /**
+     * Skips the recipients up to the position of the checkpoint and starts the workers. A broadcast whose checkpoint
+     * is complete finishes right away.
+     */
+    void start(int workers, ThreadFactory threadFactory) {
+        this.runningWorkers.set(workers);
+        threadFactory.newThread(() -> {
+            try {
+                if (!this.exhausted) {
+                    skip();
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+            for (int i = 1; i < workers; i++) {
+                threadFactory.newThread(this::work).start();
+            }
+            work();
+        }).start();
+    }
+
+    private void skip() {
+        for (long skipped = 0; skipped < this.position && !this.cancelled; skipped++) {
+            if (!this.recipientIds.hasNext()) {
+                throw new IllegalStateException("Broadcast '" + this.id + "' has fewer recipients than its checkpoint");
+            }
+            this.recipientIds.next();
+        }
+    }
+
+    private void work() {
+        try {
+            while (!this.cancelled) {
+                long delayNanos;
+                while ((delayNanos = this.rateLimit.tryAcquire(System.nanoTime())) > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delayNanos);
+                }
+                final Recipient recipient = next();
+                if (recipient == null) {
+                    return;
+                }
+                done(recipient.index, send(recipient.id));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            fail(e);
+        } finally {
+            if (this.runningWorkers.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+    }
+
+    private Recipient next() {
+        synchronized (this.recipientIds) {
+            if (this.exhausted || this.cancelled) {
+                return null;
+            }
+            if (!this.recipientIds.hasNext()) {
+                this.exhausted = true;
+                return null;
+            }
+            return new Recipient(this.nextIndex++, this.recipientIds.next().trim());
+        }
+    }
+
+    /**
+     * @return whether the message has been sent to the recipient
+     * @throws InterruptedException if the worker has been interrupted before the recipient could be dealt with
+     */
+    private boolean send(String recipientId) throws InterruptedException {
+        try {
+            this.outboundSender.sendAndWait(recipientId, this.message);
+            this.sent.incrementAndGet();
+            this.sentTotal.incrementAndGet();
+            return true;
+        } catch (MessengerApiException | MessengerIOException | IOException | RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            this.failed.incrementAndGet();
+            this.failedTotal.incrementAndGet();
+            logger.debug("Broadcast '{}' could not be sent to recipient '{}': {}", this.id, recipientId, e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized void done(long index, boolean sent) {
+        this.doneAhead.put(index, sent);
+        Map.Entry<Long, Boolean> first;
+        while ((first = this.doneAhead.firstEntry()) != null && first.getKey() == this.position) {
+            this.doneAhead.pollFirstEntry();
+            this.position++;
+            if (first.getValue()) {
+                this.positionSent++;
+            } else {
+                this.positionFailed++;
+            }
+        }
+    }
+
+    private void fail(RuntimeException e) {
+        this.failure = e;
+        this.cancelled = true;
+    }
+
+    private void finish() {
+        this.finishedAt = System.nanoTime();
+        this.done = true;
+        try {
+            this.recipientSource.close();
+        } catch (IOException e) {
+            logger.warn("Recipients of broadcast '{}' could not be closed: {}", this.id, e.getMessage());
+        }
+        checkpoint();
+        if (this.failure != null) {
+            logger.error("Broadcast '{}' has failed at position {}", this.id, position(), this.failure);
+        } else if (this.exhausted) {
+            logger.info("Broadcast '{}' is complete: {} sent, {} failed, {} sends/s", this.id, sent(), failed(),
+                    String.format("%.1f", sendsPerSecond()));
+        } else {
+            logger.info("Broadcast '{}' has been stopped at position {}, it resumes from there when started again", this.id,
+                    position());
+        }
+        this.onFinish.run();
+        if (this.failure != null) {
+            this.completion.completeExceptionally(this.failure);
+        } else {
+            this.completion.complete(this);
+        }
+    }
+
+    /**
+     * Persists the position of the broadcast, if it is checkpointed.
+     */
+    synchronized void checkpoint() {
+        if (this.checkpointFile == null) {
+            return;
+        }
+        try {
+            new BroadcastCheckpoint(this.position, this.positionSent, this.positionFailed, isDone() && this.exhausted && this.failure == null)
+                    .save(this.checkpointFile);
+        } catch (IOException e) {
+            logger.warn("Checkpoint of broadcast '{}' could not be saved: {}", this.id, e.getMessage());
+        }
+    }
+
+    /**
+     * Logs the sends per second since the previous report.
+     */
+    synchronized void logProgress() {
+        final long now = System.nanoTime();
+        final long count = sent() + failed();
+        final double sendsPerSecond = (count - this.progressLoggedCount) / Math.max(1e-9, (now - this.progressLoggedAt) / 1e9);
+        this.progressLoggedAt = now;
+        this.progressLoggedCount = count;
+        logger.info("Broadcast '{}' at position {}: {} sent, {} failed, {} sends/s", this.id, this.position, sent(), failed(),
+                String.format("%.1f", sendsPerSecond));
+    }
+
+    public String id() {
+        return this.id;
+    }
+
+    /**
+     * Number of leading recipients that have been dealt with, including those of a previous run.
+     */
+    public synchronized long position() {
+        return this.position;
+    }
+
+    /**
+     * Number of recipients that have been sent the message, including those of a previous run.
+     */
+    public long sent() {
+        return this.sent.get();
+    }
+
+    /**
+     * Number of recipients that the message could not be sent to, including those of a previous run.
+     */
+    public long failed() {
+        return this.failed.get();
+    }
+
+    /**
+     * Recipients dealt with per second, since the broadcast has been started or resumed.
+     */
+    public double sendsPerSecond() {
+        final long until = isDone() ? this.finishedAt : System.nanoTime();
+        return (sent() + failed() - this.resumedCount) / Math.max(1e-9, (until - this.startedAt) / 1e9);
+    }
+
+    public boolean isDone() {
+        return this.done;
+    }
+
+    /**
+     * Completes when the broadcast has been sent to all recipients or has been stopped, or completes exceptionally
+     * when its recipients could not be read.
+     */
+    public CompletableFuture<Broadcast> completion() {
+        return this.completion;
+    }
+
+    /**
+     * Stops the broadcast once the messages in flight have been sent. The broadcast can be resumed from its
+     * checkpoint by starting it again.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    private static final class Recipient {
+
+        final long index;
+        final String id;
+
+        Recipient(long index, String id) {
+            this.index = index;
+            this.id = id;
+        }
+    }
+}
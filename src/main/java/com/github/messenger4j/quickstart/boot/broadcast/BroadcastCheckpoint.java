@@ -0,0 +1,69 @@
+package com.github.messenger4j.quickstart.boot.broadcast;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Progress of a broadcast as persisted to a properties file: the number of leading recipients that have been dealt
+ * with, how many of them have been sent the message and how many have failed, and whether the broadcast is complete.
+ */
+final class BroadcastCheckpoint {
+
+    static final BroadcastCheckpoint NONE = new BroadcastCheckpoint(0, 0, 0, false);
+
+    final long position;
+    final long sent;
+    final long failed;
+    final boolean complete;
+
+    BroadcastCheckpoint(long position, long sent, long failed, boolean complete) {
+        this.position = position;
+        this.sent = sent;
+        this.failed = failed;
+        this.complete = complete;
+    }
+
+    /**
+     * @param file the checkpoint file, or {@code null} if broadcasts are not checkpointed
+     * @return the checkpoint in the file, or {@link #NONE} if there is none
+     */
+    static BroadcastCheckpoint load(Path file) throws IOException {
+        if (file == null || !Files.exists(file)) {
+            return NONE;
+        }
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        try {
+            return new BroadcastCheckpoint(Long.parseLong(properties.getProperty("position", "0")),
+                    Long.parseLong(properties.getProperty("sent", "0")), Long.parseLong(properties.getProperty("failed", "0")),
+                    Boolean.parseBoolean(properties.getProperty("complete")));
+        } catch (NumberFormatException e) {
+            throw new IOException("Broadcast checkpoint " + file + " is malformed", e);
+        }
+    }
+
+    /**
+     * Replaces the checkpoint file atomically, so that an interrupted write leaves the previous checkpoint in place.
+     */
+    void save(Path file) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("position", Long.toString(this.position));
+        properties.setProperty("sent", Long.toString(this.sent));
+        properties.setProperty("failed", Long.toString(this.failed));
+        properties.setProperty("complete", Boolean.toString(this.complete));
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporaryFile)) {
+            properties.store(out, "Broadcast checkpoint");
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
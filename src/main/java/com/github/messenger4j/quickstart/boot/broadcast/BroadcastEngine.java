@@ -0,0 +1,212 @@
+package com.github.messenger4j.quickstart.boot.broadcast;
+
+import com.github.messenger4j.quickstart.boot.dispatch.WorkerThreads;
+import com.github.messenger4j.quickstart.boot.send.OutboundSender;
+import com.github.messenger4j.quickstart.boot.send.TokenBucket;
+import com.github.messenger4j.quickstart.boot.template.MessageTemplateRegistry;
+import com.github.messenger4j.quickstart.boot.template.PrecompiledMessage;
+import com.github.messenger4j.send.MessagingType;
+import com.github.messenger4j.send.message.Message;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends a message to a list of recipients that may be far too long to be held in memory, e.g. an update to every user
+ * of the page.
+ *
+ * <p>
+ * The message is serialized once and the recipients are streamed from their file or iterator. Each broadcast is sent
+ * by a fixed number of workers through {@link OutboundSender#sendAndWait}, so the calls are retried and held back
+ * within the rate limits of the page like the replies. All broadcasts share a rate limit of their own that is meant to
+ * be set below the rate of the page, so that the replies to incoming messages are not starved by a broadcast.
+ * </p>
+ *
+ * <p>
+ * The position of a broadcast is checkpointed to a file named after the broadcast, so a broadcast that has been
+ * interrupted, e.g. by a restart, resumes where it has stopped when it is started again with the same ID and
+ * recipients. Delivery is at least once: the recipients that were in flight or done after the last checkpoint receive
+ * the message again. A broadcast whose checkpoint is complete is not sent again.
+ * </p>
+ */
+@Component
+public class BroadcastEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(BroadcastEngine.class);
+    private static final Pattern BROADCAST_ID = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private final OutboundSender outboundSender;
+    private final MessageTemplateRegistry messageTemplates;
+    private final int concurrency;
+    private final TokenBucket rateLimit;
+    private final Path checkpointDirectory;
+    private final long checkpointNanos;
+    private final boolean virtualThreads;
+    private final ScheduledExecutorService checkpointExecutor;
+    private final ConcurrentHashMap<String, Broadcast> active = new ConcurrentHashMap<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * @param checkpointDirectory the directory to checkpoint the broadcasts to, or empty to not checkpoint them
+     */
+    @Autowired
+    public BroadcastEngine(final OutboundSender outboundSender, final MessageTemplateRegistry messageTemplates,
+                           @Value("${messenger4j.broadcast.concurrency}") final int concurrency,
+                           @Value("${messenger4j.broadcast.ratePerSecond}") final double ratePerSecond,
+                           @Value("${messenger4j.broadcast.checkpointDirectory}") final String checkpointDirectory,
+                           @Value("${messenger4j.broadcast.checkpointSeconds}") final int checkpointSeconds,
+                           @Value("${messenger4j.dispatcher.virtualThreads}") final boolean virtualThreads) {
+        this.outboundSender = outboundSender;
+        this.messageTemplates = messageTemplates;
+        this.concurrency = concurrency;
+        this.rateLimit = new TokenBucket(ratePerSecond, Math.max(1, concurrency), System.nanoTime());
+        this.checkpointDirectory = checkpointDirectory.isEmpty() ? null : Paths.get(checkpointDirectory);
+        this.checkpointNanos = TimeUnit.SECONDS.toNanos(checkpointSeconds);
+        this.virtualThreads = virtualThreads;
+        this.checkpointExecutor = Executors.newSingleThreadScheduledExecutor(WorkerThreads.threadFactory("broadcast-checkpoint-", false));
+    }
+
+    /**
+     * Sends the message to the recipients listed in the file, one PSID per line. Blank lines and lines starting with
+     * {@code #} are skipped.
+     */
+    public Broadcast start(String broadcastId, Message message, MessagingType messagingType, Path recipientsFile) throws IOException {
+        return start(broadcastId, this.messageTemplates.precompile(message, messagingType), recipientsFile);
+    }
+
+    public Broadcast start(String broadcastId, Message message, MessagingType messagingType, Iterator<String> recipientIds)
+            throws IOException {
+        return start(broadcastId, this.messageTemplates.precompile(message, messagingType), recipientIds);
+    }
+
+    /**
+     * Sends a message that has been precompiled already, e.g. by the media asset manager, to the recipients listed in
+     * the file.
+     */
+    public Broadcast start(String broadcastId, PrecompiledMessage precompiledMessage, Path recipientsFile) throws IOException {
+        final BufferedReader reader = Files.newBufferedReader(recipientsFile, StandardCharsets.UTF_8);
+        final Iterator<String> recipientIds = reader.lines()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .iterator();
+        try {
+            return start(broadcastId, precompiledMessage, recipientIds, reader::close);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends a message that has been precompiled already to the recipients of the iterator.
+     */
+    public Broadcast start(String broadcastId, PrecompiledMessage message, Iterator<String> recipientIds) throws IOException {
+        return start(broadcastId, message, recipientIds, () -> {
+        });
+    }
+
+    private Broadcast start(String broadcastId, PrecompiledMessage message, Iterator<String> recipientIds,
+                            Closeable recipientSource) throws IOException {
+        if (!BROADCAST_ID.matcher(broadcastId).matches()) {
+            throw new IllegalArgumentException("Broadcast ID '" + broadcastId + "' must consist of letters, digits, '.', '_' and '-'");
+        }
+        final Path checkpointFile = this.checkpointDirectory == null ? null : this.checkpointDirectory.resolve(broadcastId + ".properties");
+        final BroadcastCheckpoint checkpoint = BroadcastCheckpoint.load(checkpointFile);
+        final AtomicReference<ScheduledFuture<?>> checkpointTask = new AtomicReference<>();
+        final AtomicReference<Broadcast> registered = new AtomicReference<>();
+        final Broadcast broadcast = new Broadcast(broadcastId, message, this.outboundSender, this.rateLimit, recipientIds,
+                recipientSource, checkpointFile, checkpoint, this.sent, this.failed, () -> {
+            final ScheduledFuture<?> task = checkpointTask.get();
+            if (task != null) {
+                task.cancel(false);
+            }
+            this.active.remove(broadcastId, registered.get());
+        });
+        registered.set(broadcast);
+        if (this.active.putIfAbsent(broadcastId, broadcast) != null) {
+            throw new IllegalStateException("Broadcast '" + broadcastId + "' is running already");
+        }
+        if (checkpoint.complete) {
+            logger.info("Broadcast '{}' is complete already, it is not sent again", broadcastId);
+            broadcast.start(1, WorkerThreads.threadFactory("broadcast-" + broadcastId + "-", false));
+            return broadcast;
+        }
+        if (checkpoint.position > 0) {
+            logger.info("Broadcast '{}' resumes at position {}", broadcastId, checkpoint.position);
+        }
+        checkpointTask.set(this.checkpointExecutor.scheduleAtFixedRate(() -> {
+            broadcast.checkpoint();
+            broadcast.logProgress();
+        }, this.checkpointNanos, this.checkpointNanos, TimeUnit.NANOSECONDS));
+        broadcast.start(this.concurrency, WorkerThreads.threadFactory("broadcast-" + broadcastId + "-", this.virtualThreads));
+        return broadcast;
+    }
+
+    /**
+     * Broadcasts that are being sent.
+     */
+    public Collection<Broadcast> active() {
+        return this.active.values();
+    }
+
+    /**
+     * Number of recipients that have been sent a broadcast since startup.
+     */
+    public long sent() {
+        return this.sent.get();
+    }
+
+    /**
+     * Number of recipients that a broadcast could not be sent to since startup.
+     */
+    public long failed() {
+        return this.failed.get();
+    }
+
+    public int activeCount() {
+        return this.active.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Broadcast broadcast : this.active.values()) {
+            broadcast.cancel();
+        }
+        for (Broadcast broadcast : this.active.values()) {
+            final CompletableFuture<Broadcast> completion = broadcast.completion();
+            try {
+                completion.get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                // has been logged by the broadcast
+            } catch (TimeoutException e) {
+                logger.warn("Broadcast '{}' has not stopped before shutdown, it resumes at position {}", broadcast.id(),
+                        broadcast.position());
+            }
+        }
+        this.checkpointExecutor.shutdownNow();
+    }
+}
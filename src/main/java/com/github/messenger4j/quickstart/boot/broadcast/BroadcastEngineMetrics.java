@@ -0,0 +1,30 @@
+package com.github.messenger4j.quickstart.boot.broadcast;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the number of running broadcasts of the {@link BroadcastEngine} and the recipients they have been sent to
+ * through the meter registry.
+ */
+@Component
+public class BroadcastEngineMetrics implements MeterBinder {
+
+    private final BroadcastEngine broadcastEngine;
+
+    @Autowired
+    public BroadcastEngineMetrics(final BroadcastEngine broadcastEngine) {
+        this.broadcastEngine = broadcastEngine;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("messenger4j.broadcast.active", this.broadcastEngine, BroadcastEngine::activeCount).register(registry);
+        FunctionCounter.builder("messenger4j.broadcast.sent", this.broadcastEngine, BroadcastEngine::sent).register(registry);
+        FunctionCounter.builder("messenger4j.broadcast.failed", this.broadcastEngine, BroadcastEngine::failed).register(registry);
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.messenger4j.quickstart.boot.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A node of the cluster: its ID, which places it on the {@link ConsistentHashRing}, and the address its peers forward
+ * events to.
+ */
+public final class ClusterMember {
+
+    private final String id;
+    private final String host;
+    private final int port;
+
+    public ClusterMember(String id, String host, int port) {
+        this.id = id;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Parses members given as {@code id=host:port}, separated by commas or line breaks. Blank entries and lines starting
+     * with {@code #} are skipped.
+     *
+     * @throws IllegalArgumentException if an entry is malformed or an ID is given twice
+     */
+    public static List<ClusterMember> parse(String members) {
+        final List<ClusterMember> parsed = new ArrayList<>();
+        for (String line : members.split("\\R")) {
+            if (line.trim().startsWith("#")) {
+                continue;
+            }
+            for (String entry : line.split(",")) {
+                final String member = entry.trim();
+                if (member.isEmpty()) {
+                    continue;
+                }
+                final int equals = member.indexOf('=');
+                final int colon = member.lastIndexOf(':');
+                if (equals <= 0 || colon < equals + 2 || colon == member.length() - 1) {
+                    throw new IllegalArgumentException("Cluster member '" + member + "' is not of the form id=host:port");
+                }
+                final String id = member.substring(0, equals).trim();
+                for (ClusterMember other : parsed) {
+                    if (other.id.equals(id)) {
+                        throw new IllegalArgumentException("Cluster member '" + id + "' is given twice");
+                    }
+                }
+                try {
+                    parsed.add(new ClusterMember(id, member.substring(equals + 1, colon).trim(), Integer.parseInt(member.substring(colon + 1).trim())));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Cluster member '" + member + "' has an invalid port", e);
+                }
+            }
+        }
+        return parsed;
+    }
+
+    public String id() {
+        return this.id;
+    }
+
+    public String host() {
+        return this.host;
+    }
+
+    public int port() {
+        return this.port;
+    }
+}
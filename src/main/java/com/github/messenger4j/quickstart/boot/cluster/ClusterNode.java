@@ -0,0 +1,359 @@
+package com.github.messenger4j.quickstart.boot.cluster;
+
+import com.github.messenger4j.quickstart.boot.dispatch.WorkerThreads;
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This node's part in a cluster of instances behind a load balancer, in which every sender belongs to one node.
+ *
+ * <p>
+ * Events can arrive at any node. The node places the sender of each event on the {@link ConsistentHashRing} of the
+ * members and forwards the events of the senders it does not own to their owners, so that the events of a sender are
+ * processed in order and by the node that holds the sender's in-memory state. Forwarded events are accepted as they
+ * are by the receiving node, even if its view of the membership differs, so that an event is never forwarded twice.
+ * If the owner cannot be reached, the events are processed locally, trading the affinity for availability; if the
+ * owner rejects them because it is overloaded, the whole callback is rejected, so that it is delivered again later.
+ * </p>
+ *
+ * <p>
+ * The members are given either statically or in a file that is checked for changes periodically, as
+ * {@code id=host:port} entries; the cluster is disabled unless this node has an ID. A change of the membership moves
+ * the senders of the arcs that change hands, and the share of the senders that have moved is reported as the cost of
+ * the rebalance, since their sessions and watermarks stay behind on their previous owner.
+ * </p>
+ */
+@Component
+public class ClusterNode {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterNode.class);
+
+    static final String FORWARD_TIMER = "messenger4j.cluster.forward";
+    static final String FORWARD_FAILURE_COUNTER = "messenger4j.cluster.forward.failures";
+
+    private static final int MAX_IDLE_CONNECTIONS_PER_PEER = 16;
+
+    private final String nodeId;
+    private final String appSecret;
+    private final Path membersFile;
+    private final long membersRefreshSeconds;
+    private final int virtualNodes;
+    private final int connectTimeoutMillis;
+    private final int forwardTimeoutMillis;
+    private final int idleTimeoutMillis;
+    private final int maxConnections;
+    private final MeterRegistry registry;
+    private final Clock clock;
+
+    private volatile Membership membership;
+    private volatile double lastMovedFraction;
+    private volatile long rebalances;
+    private String membersFileContent;
+    private ClusterServer server;
+    private ScheduledExecutorService membershipRefresh;
+
+    /**
+     * @throws IllegalArgumentException if this node is not one of the members
+     */
+    @Autowired
+    public ClusterNode(@Value("${messenger4j.cluster.nodeId}") final String nodeId,
+                       @Value("${messenger4j.cluster.members}") final String members,
+                       @Value("${messenger4j.cluster.membersFile}") final String membersFile,
+                       @Value("${messenger4j.cluster.membersRefreshSeconds}") final long membersRefreshSeconds,
+                       @Value("${messenger4j.cluster.virtualNodes}") final int virtualNodes,
+                       @Value("${messenger4j.cluster.connectTimeoutMillis}") final int connectTimeoutMillis,
+                       @Value("${messenger4j.cluster.forwardTimeoutMillis}") final int forwardTimeoutMillis,
+                       @Value("${messenger4j.cluster.idleTimeoutMillis}") final int idleTimeoutMillis,
+                       @Value("${messenger4j.cluster.maxConnections}") final int maxConnections,
+                       @Value("${messenger4j.appSecret}") final String appSecret,
+                       final MeterRegistry registry) throws IOException {
+        this.nodeId = nodeId.trim();
+        this.appSecret = appSecret;
+        this.membersFile = membersFile.isEmpty() ? null : Paths.get(membersFile);
+        this.membersRefreshSeconds = membersRefreshSeconds;
+        this.virtualNodes = virtualNodes;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.forwardTimeoutMillis = forwardTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxConnections = maxConnections;
+        this.registry = registry;
+        this.clock = registry.config().clock();
+        if (!isEnabled()) {
+            return;
+        }
+        final List<ClusterMember> initialMembers;
+        if (this.membersFile == null) {
+            initialMembers = ClusterMember.parse(members);
+        } else {
+            this.membersFileContent = new String(Files.readAllBytes(this.membersFile), StandardCharsets.UTF_8);
+            initialMembers = ClusterMember.parse(this.membersFileContent);
+        }
+        if (localMember(initialMembers) == null) {
+            throw new IllegalArgumentException("Cluster node '" + this.nodeId + "' is not one of the members");
+        }
+        changeMembership(initialMembers);
+    }
+
+    public boolean isEnabled() {
+        return !this.nodeId.isEmpty();
+    }
+
+    /**
+     * Starts receiving the events that peers forward to this node and watching the members file.
+     *
+     * @param sink handles the single-event payloads of the events that have been forwarded to this node and tells
+     *             whether it has accepted them
+     */
+    public synchronized void start(Predicate<List<String>> sink) throws IOException {
+        if (!isEnabled() || this.server != null) {
+            return;
+        }
+        final ClusterMember localMember = localMember(this.membership.ring.members());
+        this.server = new ClusterServer(localMember.host(), localMember.port(), this.appSecret, this.idleTimeoutMillis,
+                this.maxConnections, sink);
+        if (this.membersFile != null) {
+            this.membershipRefresh = Executors.newSingleThreadScheduledExecutor(WorkerThreads.threadFactory("cluster-membership-", false));
+            this.membershipRefresh.scheduleWithFixedDelay(this::refreshMembership,
+                    this.membersRefreshSeconds, this.membersRefreshSeconds, TimeUnit.SECONDS);
+        }
+        logger.info("Cluster node {} is listening on port {} with {} members", this.nodeId, this.server.port(), members());
+    }
+
+    /**
+     * Forwards the events of the senders owned by other members to their owners.
+     *
+     * @return the events to be processed by this node: those of its own senders, and those that could not be forwarded
+     * because their owner cannot be reached
+     * @throws RejectedExecutionException if an owner has rejected the events forwarded to it
+     */
+    public List<ReceivedEvent> forward(List<ReceivedEvent> events) {
+        if (!isEnabled() || events.isEmpty()) {
+            return events;
+        }
+        final Membership membership = this.membership;
+        final List<ReceivedEvent> local = new ArrayList<>(events.size());
+        Map<Peer, List<ReceivedEvent>> foreign = null;
+        for (ReceivedEvent event : events) {
+            final Peer peer = membership.peers.get(membership.ring.owner(event.senderId()).id());
+            if (peer == null) {
+                local.add(event);
+            } else {
+                if (foreign == null) {
+                    foreign = new LinkedHashMap<>();
+                }
+                foreign.computeIfAbsent(peer, p -> new ArrayList<>()).add(event);
+            }
+        }
+        if (foreign == null) {
+            return events;
+        }
+        for (Map.Entry<Peer, List<ReceivedEvent>> peerEvents : foreign.entrySet()) {
+            final List<String> payloads = new ArrayList<>(peerEvents.getValue().size());
+            for (ReceivedEvent event : peerEvents.getValue()) {
+                payloads.add(event.payload());
+            }
+            if (!forward(peerEvents.getKey(), payloads)) {
+                local.addAll(peerEvents.getValue());
+            }
+        }
+        return local;
+    }
+
+    /**
+     * @return {@code false} if the peer cannot be reached
+     * @throws RejectedExecutionException if the peer has rejected the events
+     */
+    boolean forward(String peerId, List<String> payloads) {
+        return forward(this.membership.peers.get(peerId), payloads);
+    }
+
+    private boolean forward(Peer peer, List<String> payloads) {
+        final String peerId = peer.client.peer().id();
+        final long startNanos = this.clock.monotonicTime();
+        final boolean accepted;
+        try {
+            accepted = peer.client.forward(payloads);
+        } catch (IOException e) {
+            peer.failures.increment();
+            logger.warn("Events could not be forwarded to cluster member {}, processing {} of them locally: {}", peerId, payloads.size(), e.getMessage());
+            return false;
+        }
+        peer.latency.record(this.clock.monotonicTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (!accepted) {
+            throw new RejectedExecutionException("Cluster member " + peerId + " has rejected " + payloads.size() + " events");
+        }
+        return true;
+    }
+
+    /**
+     * Reloads the members file if it has changed since it has been loaded. A file that cannot be read or parsed, or
+     * that has no members, leaves the membership as it is.
+     */
+    synchronized void refreshMembership() {
+        final String content;
+        final List<ClusterMember> members;
+        try {
+            content = new String(Files.readAllBytes(this.membersFile), StandardCharsets.UTF_8);
+            if (content.equals(this.membersFileContent)) {
+                return;
+            }
+            members = ClusterMember.parse(content);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Cluster members file {} could not be loaded, keeping the current members: {}", this.membersFile, e.getMessage());
+            return;
+        }
+        this.membersFileContent = content;
+        if (members.isEmpty()) {
+            logger.warn("Cluster members file {} has no members, keeping the current members", this.membersFile);
+            return;
+        }
+        final ClusterMember localMember = localMember(members);
+        final ClusterMember currentLocalMember = localMember(this.membership.ring.members());
+        if (localMember == null) {
+            logger.warn("Cluster node {} is no longer a member and forwards all events to the other members", this.nodeId);
+        } else if (currentLocalMember != null && localMember.port() != currentLocalMember.port()) {
+            logger.warn("Cluster node {} keeps listening on port {} until it is restarted", this.nodeId, currentLocalMember.port());
+        }
+        changeMembership(members);
+    }
+
+    private synchronized void changeMembership(List<ClusterMember> members) {
+        final ConsistentHashRing changed = new ConsistentHashRing(members, this.virtualNodes);
+        final Membership previous = this.membership;
+        final Map<String, Peer> previousPeers = previous == null ? Collections.emptyMap() : previous.peers;
+        final Map<String, Peer> changedPeers = new HashMap<>();
+        for (ClusterMember member : members) {
+            if (member.id().equals(this.nodeId)) {
+                continue;
+            }
+            final Peer peer = previousPeers.get(member.id());
+            if (peer != null && peer.client.peer().host().equals(member.host()) && peer.client.peer().port() == member.port()) {
+                changedPeers.put(member.id(), peer);
+            } else {
+                changedPeers.put(member.id(), new Peer(member));
+            }
+        }
+        this.membership = new Membership(changed, changedPeers);
+        for (Peer peer : previousPeers.values()) {
+            if (changedPeers.get(peer.client.peer().id()) != peer) {
+                peer.client.close();
+            }
+        }
+        if (previous != null) {
+            this.lastMovedFraction = previous.ring.movedFraction(changed);
+            this.rebalances++;
+            logger.info("Cluster membership has changed to {} members, {}% of the senders have moved to another node",
+                    members.size(), String.format("%.1f", this.lastMovedFraction * 100));
+        }
+    }
+
+    private ClusterMember localMember(List<ClusterMember> members) {
+        for (ClusterMember member : members) {
+            if (member.id().equals(this.nodeId)) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The current ring, or {@code null} if the cluster is disabled.
+     */
+    public ConsistentHashRing ring() {
+        final Membership membership = this.membership;
+        return membership == null ? null : membership.ring;
+    }
+
+    public int members() {
+        final Membership membership = this.membership;
+        return membership == null ? 0 : membership.ring.members().size();
+    }
+
+    /**
+     * The share of the senders that have moved to another node in the last change of the membership.
+     */
+    public double lastMovedFraction() {
+        return this.lastMovedFraction;
+    }
+
+    /**
+     * Number of changes of the membership since the start.
+     */
+    public long rebalances() {
+        return this.rebalances;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (this.membershipRefresh != null) {
+            this.membershipRefresh.shutdownNow();
+        }
+        if (this.server != null) {
+            this.server.close();
+        }
+        if (this.membership != null) {
+            for (Peer peer : this.membership.peers.values()) {
+                peer.client.close();
+            }
+        }
+    }
+
+    /**
+     * The ring and the peers of a membership, which are replaced together, so that the owner of a sender always has a
+     * peer.
+     */
+    private static final class Membership {
+
+        private final ConsistentHashRing ring;
+        private final Map<String, Peer> peers;
+
+        private Membership(ConsistentHashRing ring, Map<String, Peer> peers) {
+            this.ring = ring;
+            this.peers = peers;
+        }
+    }
+
+    private final class Peer {
+
+        private final PeerClient client;
+        private final Timer latency;
+        private final Counter failures;
+
+        private Peer(ClusterMember member) {
+            this.client = new PeerClient(member, appSecret, connectTimeoutMillis, forwardTimeoutMillis, MAX_IDLE_CONNECTIONS_PER_PEER);
+            this.latency = Timer.builder(FORWARD_TIMER)
+                    .description("Round trips of events forwarded to the owning node")
+                    .tags("peer", member.id())
+                    .register(registry);
+            this.failures = Counter.builder(FORWARD_FAILURE_COUNTER)
+                    .description("Forwards that failed because the owning node could not be reached")
+                    .tags("peer", member.id())
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.messenger4j.quickstart.boot.cluster;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the number of members of the {@link ClusterNode} and the cost of the last change of the membership through
+ * the meter registry. The latency of forwarding is recorded by the node itself, per peer.
+ */
+@Component
+public class ClusterNodeMetrics implements MeterBinder {
+
+    private final ClusterNode clusterNode;
+
+    @Autowired
+    public ClusterNodeMetrics(final ClusterNode clusterNode) {
+        this.clusterNode = clusterNode;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("messenger4j.cluster.members", this.clusterNode, ClusterNode::members).register(registry);
+        Gauge.builder("messenger4j.cluster.rebalance.moved", this.clusterNode, ClusterNode::lastMovedFraction).register(registry);
+        FunctionCounter.builder("messenger4j.cluster.rebalances", this.clusterNode, ClusterNode::rebalances).register(registry);
+    }
+}
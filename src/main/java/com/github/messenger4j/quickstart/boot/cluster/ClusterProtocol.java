@@ -0,0 +1,150 @@
+package com.github.messenger4j.quickstart.boot.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * The binary protocol in which nodes forward events to the owners of their senders.
+ *
+ * <p>
+ * A connection carries a sequence of exchanges. The forwarding node writes a frame: the length of the body, the body
+ * and its HMAC-SHA256 under the app secret. The body holds the protocol version, the number of events and, for each
+ * event, the length and the UTF-8 bytes of its single-event payload, all numbers in big-endian order. Forwarded events
+ * are not verified against the signature of the Messenger Platform again, the HMAC makes sure they come from a node
+ * that knows the app secret. The owning node answers with a single byte: {@link #ACCEPTED} once it has journaled and,
+ * unless it processes asynchronously, processed the events, or {@link #REJECTED} if it could not accept them.
+ * </p>
+ */
+final class ClusterProtocol {
+
+    static final byte VERSION = 1;
+    static final byte ACCEPTED = 0;
+    static final byte REJECTED = 1;
+
+    /**
+     * A frame carries the events of one callback that belong to one node, so it is about as large as the callback at
+     * most, and the callbacks of the Messenger Platform stay far below this. A callback whose events do not fit is
+     * processed by the node that has received it.
+     */
+    static final int MAX_FRAME_SIZE = 1024 * 1024;
+
+    /**
+     * The body of a frame is read into a buffer of this size that doubles whenever it is full, so that a connection that
+     * announces a large frame takes no more than twice the memory of what it has actually sent before its HMAC is
+     * checked.
+     */
+    private static final int INITIAL_READ_SIZE = 64 * 1024;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int HMAC_SIZE = 32;
+
+    private ClusterProtocol() {
+    }
+
+    /**
+     * A MAC for the frames of one connection; MACs are not thread-safe.
+     */
+    static Mac mac(String appSecret) {
+        try {
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(appSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC for the cluster protocol is not available", e);
+        }
+    }
+
+    static void writeEvents(DataOutputStream out, Mac mac, List<String> payloads) throws IOException {
+        final byte[][] encoded = new byte[payloads.size()][];
+        long length = 1 + 4;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = payloads.get(i).getBytes(StandardCharsets.UTF_8);
+            length += 4 + encoded[i].length;
+        }
+        if (length > MAX_FRAME_SIZE) {
+            throw new ProtocolException("Frame of " + length + " bytes exceeds the maximum of " + MAX_FRAME_SIZE + " bytes");
+        }
+        final ByteBuffer body = ByteBuffer.allocate((int) length);
+        body.put(VERSION).putInt(encoded.length);
+        for (byte[] payload : encoded) {
+            body.putInt(payload.length).put(payload);
+        }
+        out.writeInt(body.capacity());
+        out.write(body.array());
+        out.write(mac.doFinal(body.array()));
+        out.flush();
+    }
+
+    /**
+     * @return the payloads of the next frame, or {@code null} if the connection has been closed between two frames
+     * @throws ProtocolException if the frame is malformed, of another protocol version or has not been sent by a node
+     *                           that knows the app secret
+     */
+    static List<String> readEvents(DataInputStream in, Mac mac) throws IOException {
+        final int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 1 + 4 || length > MAX_FRAME_SIZE) {
+            throw new ProtocolException("Invalid frame length " + length);
+        }
+        final byte[] body = readBody(in, length);
+        final byte[] hmac = new byte[HMAC_SIZE];
+        in.readFully(hmac);
+        if (!MessageDigest.isEqual(mac.doFinal(body), hmac)) {
+            throw new ProtocolException("Frame has an invalid HMAC");
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(body);
+        final byte version = buffer.get();
+        if (version != VERSION) {
+            throw new ProtocolException("Unsupported protocol version " + version);
+        }
+        try {
+            final int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / 4) {
+                throw new ProtocolException("Invalid number of events " + count);
+            }
+            final List<String> payloads = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final int payloadLength = buffer.getInt();
+                if (payloadLength < 0 || payloadLength > buffer.remaining()) {
+                    throw new ProtocolException("Invalid event length " + payloadLength);
+                }
+                payloads.add(new String(body, buffer.position(), payloadLength, StandardCharsets.UTF_8));
+                buffer.position(buffer.position() + payloadLength);
+            }
+            if (buffer.hasRemaining()) {
+                throw new ProtocolException("Frame has " + buffer.remaining() + " trailing bytes");
+            }
+            return payloads;
+        } catch (BufferUnderflowException e) {
+            throw new ProtocolException("Frame is truncated");
+        }
+    }
+
+    private static byte[] readBody(DataInputStream in, int length) throws IOException {
+        byte[] body = new byte[Math.min(length, INITIAL_READ_SIZE)];
+        in.readFully(body);
+        while (body.length < length) {
+            final int read = body.length;
+            body = Arrays.copyOf(body, Math.min(length, read * 2));
+            in.readFully(body, read, body.length - read);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.messenger4j.quickstart.boot.cluster;
+
+import com.github.messenger4j.quickstart.boot.dispatch.WorkerThreads;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Predicate;
+import javax.crypto.Mac;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives the events that peers forward to this node and hands them to the sink, which tells whether they have been
+ * accepted.
+ *
+ * <p>
+ * Each connection is served by a thread of its own, which blocks while the sink handles a frame; peers open as many
+ * connections as they have concurrent exchanges with this node. Connections beyond {@code maxConnections} are closed
+ * right away, which the peer takes for this node being unreachable, and a connection that stays silent for
+ * {@code idleTimeoutMillis}, between frames or within one, is closed, so that neither a flood of connections nor
+ * stalled ones tie up threads without bound. Peers retry an exchange on a pooled connection that has been closed as
+ * idle on a new one.
+ * </p>
+ */
+final class ClusterServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterServer.class);
+
+    private final ServerSocket serverSocket;
+    private final String appSecret;
+    private final Predicate<List<String>> sink;
+    private final ThreadFactory connectionThreads = WorkerThreads.threadFactory("cluster-peer-", false);
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final int idleTimeoutMillis;
+    private final Semaphore connectionSlots;
+
+    /**
+     * Binds to the host and port that the peers forward events to and starts accepting connections.
+     */
+    ClusterServer(String host, int port, String appSecret, int idleTimeoutMillis, int maxConnections,
+                  Predicate<List<String>> sink) throws IOException {
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.setReuseAddress(true);
+        this.serverSocket.bind(new InetSocketAddress(host, port));
+        this.appSecret = appSecret;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.connectionSlots = new Semaphore(maxConnections);
+        this.sink = sink;
+        WorkerThreads.threadFactory("cluster-acceptor-", false).newThread(this::accept).start();
+    }
+
+    int port() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!this.serverSocket.isClosed()) {
+            try {
+                final Socket socket = this.serverSocket.accept();
+                if (!this.connectionSlots.tryAcquire()) {
+                    logger.warn("Connection of peer {} has been refused, all {} connections are in use",
+                            socket.getRemoteSocketAddress(), this.connections.size());
+                    socket.close();
+                    continue;
+                }
+                this.connections.add(socket);
+                this.connectionThreads.newThread(() -> serve(socket)).start();
+            } catch (IOException e) {
+                if (!this.serverSocket.isClosed()) {
+                    logger.warn("Connection of a peer could not be accepted: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(this.idleTimeoutMillis);
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            final Mac mac = ClusterProtocol.mac(this.appSecret);
+            List<String> payloads;
+            while ((payloads = ClusterProtocol.readEvents(in, mac)) != null) {
+                out.writeByte(accepted(payloads) ? ClusterProtocol.ACCEPTED : ClusterProtocol.REJECTED);
+                out.flush();
+            }
+        } catch (SocketTimeoutException e) {
+            logger.debug("Connection of peer {} has been idle for {} ms", socket.getRemoteSocketAddress(), this.idleTimeoutMillis);
+        } catch (IOException e) {
+            if (!this.serverSocket.isClosed()) {
+                logger.warn("Connection of peer {} failed: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            }
+        } finally {
+            this.connections.remove(socket);
+            this.connectionSlots.release();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing left to clean up
+            }
+        }
+    }
+
+    private boolean accepted(List<String> payloads) {
+        try {
+            return this.sink.test(payloads);
+        } catch (RuntimeException e) {
+            logger.error("Forwarded events could not be accepted", e);
+            return false;
+        }
+    }
+
+    void close() {
+        try {
+            this.serverSocket.close();
+        } catch (IOException e) {
+            // nothing left to clean up
+        }
+        for (Socket connection : this.connections) {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // nothing left to clean up
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.messenger4j.quickstart.boot.cluster;
+
+import com.github.messenger4j.quickstart.boot.key.UserKeys;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Assigns every sender to one {@link ClusterMember}, so that all events of a sender are handled by the same node.
+ *
+ * <p>
+ * Each member is placed on a ring of 64-bit hashes at {@code virtualNodes} points derived from its ID, and a sender
+ * belongs to the member of the first point at or after the hash of its ID. The points of a member only depend on its
+ * ID, so when a member joins or leaves only the senders of the arcs it takes over or gives up move to another node,
+ * about {@code 1/n} of them. The more points, the more evenly the senders are spread: with 128 points per member the
+ * share of a member is up to about 20% off its fair share, with the default of 512 points up to about 10%. Rings are
+ * immutable; a change of the membership builds a new one.
+ * </p>
+ */
+public final class ConsistentHashRing {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    // decorrelates the ring from the tables that hash the same user keys, so that each node still spreads its share
+    // of the senders over all of their stripes and buckets
+    private static final long RING_SEED = 0x2545f4914f6cdd1dL;
+    private static final double RING_SIZE = 0x1p64;
+
+    private final List<ClusterMember> members;
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * @throws IllegalArgumentException if there are no members
+     */
+    public ConsistentHashRing(List<ClusterMember> members, int virtualNodes) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one member");
+        }
+        this.members = Collections.unmodifiableList(new ArrayList<>(members));
+        final long[][] placed = new long[members.size() * virtualNodes][];
+        for (int member = 0; member < members.size(); member++) {
+            final long memberKey = UserKeys.of(members.get(member).id());
+            for (int i = 0; i < virtualNodes; i++) {
+                placed[member * virtualNodes + i] = new long[]{UserKeys.mix(memberKey + i * GOLDEN_GAMMA), member};
+            }
+        }
+        // ties between the points of different members are broken by the position of the member, identically on all nodes
+        Arrays.sort(placed, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[placed.length];
+        this.owners = new int[placed.length];
+        for (int i = 0; i < placed.length; i++) {
+            this.points[i] = placed[i][0];
+            this.owners[i] = (int) placed[i][1];
+        }
+    }
+
+    public List<ClusterMember> members() {
+        return this.members;
+    }
+
+    public ClusterMember owner(String senderId) {
+        return this.members.get(this.owners[pointAtOrAfter(hash(senderId))]);
+    }
+
+    static long hash(String senderId) {
+        return UserKeys.mix(UserKeys.of(senderId) ^ RING_SEED);
+    }
+
+    private int pointAtOrAfter(long hash) {
+        int index = Arrays.binarySearch(this.points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            // the first of equal points owns the hash
+            while (index > 0 && this.points[index - 1] == hash) {
+                index--;
+            }
+        }
+        return index == this.points.length ? 0 : index;
+    }
+
+    private String ownerIdAtOrAfter(long hash) {
+        return this.members.get(this.owners[pointAtOrAfter(hash)]).id();
+    }
+
+    /**
+     * The share of all senders that belong to a member with a different ID on the other ring, which is the share of
+     * the conversations whose in-memory state is left behind on the old node when the cluster changes from this ring to
+     * the other one.
+     */
+    public double movedFraction(ConsistentHashRing other) {
+        final long[] boundaries = new long[this.points.length + other.points.length];
+        System.arraycopy(this.points, 0, boundaries, 0, this.points.length);
+        System.arraycopy(other.points, 0, boundaries, this.points.length, other.points.length);
+        Arrays.sort(boundaries);
+        int distinct = 0;
+        for (long boundary : boundaries) {
+            if (distinct == 0 || boundary != boundaries[distinct - 1]) {
+                boundaries[distinct++] = boundary;
+            }
+        }
+        // no point of either ring lies inside the arc between two consecutive boundaries, so all hashes of the arc
+        // (previous, boundary] have the owner of the boundary on both rings
+        double moved = 0;
+        long previous = boundaries[distinct - 1];
+        for (int i = 0; i < distinct; i++) {
+            final long boundary = boundaries[i];
+            if (!ownerIdAtOrAfter(boundary).equals(other.ownerIdAtOrAfter(boundary))) {
+                moved += distinct == 1 ? RING_SIZE : unsigned(boundary - previous);
+            }
+            previous = boundary;
+        }
+        return moved / RING_SIZE;
+    }
+
+    private static double unsigned(long value) {
+        return value >= 0 ? value : value + RING_SIZE;
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.messenger4j.quickstart.boot.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import javax.crypto.Mac;
+
+/**
+ * Forwards events to one peer over persistent connections.
+ *
+ * <p>
+ * Every exchange takes a connection of its own, so that callbacks forwarding to the same peer do not wait for each
+ * other; connections are returned to a pool afterwards, which keeps up to {@code maxIdleConnections} of them. An idle
+ * connection may have been closed by the peer in the meantime, for example because it has been restarted, so an
+ * exchange that fails on a pooled connection, other than by timing out, is retried once on a new one. The peer drops
+ * events it has seen before, so the retry cannot have them processed twice.
+ * </p>
+ */
+final class PeerClient {
+
+    private final ClusterMember peer;
+    private final String appSecret;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int maxIdleConnections;
+    private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    PeerClient(ClusterMember peer, String appSecret, int connectTimeoutMillis, int readTimeoutMillis, int maxIdleConnections) {
+        this.peer = peer;
+        this.appSecret = appSecret;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    ClusterMember peer() {
+        return this.peer;
+    }
+
+    /**
+     * @return {@code true} if the peer has accepted the events, {@code false} if it has rejected them
+     * @throws IOException if the peer cannot be reached or does not answer in time
+     */
+    boolean forward(List<String> payloads) throws IOException {
+        Connection connection = this.idle.pollFirst();
+        if (connection != null) {
+            try {
+                return exchange(connection, payloads);
+            } catch (SocketTimeoutException e) {
+                throw e;
+            } catch (IOException e) {
+                // the pooled connection has gone stale, the retry tells whether the peer is down
+            }
+        }
+        connection = connect();
+        return exchange(connection, payloads);
+    }
+
+    private boolean exchange(Connection connection, List<String> payloads) throws IOException {
+        final byte answer;
+        try {
+            ClusterProtocol.writeEvents(connection.out, connection.mac, payloads);
+            answer = connection.in.readByte();
+        } catch (EOFException e) {
+            connection.close();
+            throw new EOFException("Connection has been closed by " + this.peer.id());
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+        release(connection);
+        if (answer != ClusterProtocol.ACCEPTED && answer != ClusterProtocol.REJECTED) {
+            throw new ProtocolException("Unexpected answer " + answer + " of " + this.peer.id());
+        }
+        return answer == ClusterProtocol.ACCEPTED;
+    }
+
+    private Connection connect() throws IOException {
+        if (this.closed) {
+            throw new EOFException("Connection to " + this.peer.id() + " has been closed");
+        }
+        final Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.setSoTimeout(this.readTimeoutMillis);
+            socket.connect(new InetSocketAddress(this.peer.host(), this.peer.port()), this.connectTimeoutMillis);
+            return new Connection(socket, ClusterProtocol.mac(this.appSecret));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private void release(Connection connection) {
+        if (this.closed || this.idle.size() >= this.maxIdleConnections) {
+            connection.close();
+            return;
+        }
+        this.idle.offerFirst(connection);
+        if (this.closed) {
+            connection.close();
+        }
+    }
+
+    void close() {
+        this.closed = true;
+        Connection connection;
+        while ((connection = this.idle.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    private static final class Connection implements Closeable {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final Mac mac;
+
+        private Connection(Socket socket, Mac mac) throws IOException {
+            this.socket = socket;
+            this.mac = mac;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        @Override
+        public void close() {
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                // nothing left to clean up
+            }
+        }
+    }
+}
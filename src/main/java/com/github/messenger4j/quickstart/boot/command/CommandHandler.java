@@ -0,0 +1,16 @@
+package com.github.messenger4j.quickstart.boot.command;
+
+import com.github.messenger4j.exception.MessengerApiException;
+import com.github.messenger4j.exception.MessengerIOException;
+
+/**
+ * Replies to a text message that has been routed to it by the {@link CommandRouter}.
+ */
+@FunctionalInterface
+public interface CommandHandler {
+
+    /**
+     * @param messageText the whole text of the message, e.g. including the arguments of a prefix command
+     */
+    void handle(String senderId, String messageText) throws MessengerApiException, MessengerIOException;
+}
@@ -0,0 +1,246 @@
+package com.github.messenger4j.quickstart.boot.command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.stereotype.Component;
+
+/**
+ * Routes the text of an incoming message to the {@link CommandHandler} of the command it matches.
+ *
+ * <p>
+ * Commands are matched case-insensitively and come in three kinds:
+ * <ul>
+ * <li>an <em>exact</em> command matches the whole text, e.g. {@code generic} matches {@code Generic};</li>
+ * <li>a <em>prefix</em> command matches the start of the text up to a word boundary, e.g. {@code weather} matches
+ * {@code weather in Berlin};</li>
+ * <li>a <em>keyword</em> command matches a whole word, or words, anywhere in the text, e.g. {@code help} matches
+ * {@code Can you help me?}.</li>
+ * </ul>
+ * An exact command takes precedence over a prefix command, and the longest prefix over a keyword; of the keywords, the
+ * one that starts first in the text wins.
+ * </p>
+ *
+ * <p>
+ * The commands are kept in a trie over case-folded code points, which is walked without allocating, i.e. routing a
+ * message neither copies nor lowercases its text, and the cost does not grow with the number of commands. Beans
+ * register their commands at startup by injecting the router; every registration publishes a new trie, so messages
+ * that are routed in the meantime see either the old or the new one.
+ * </p>
+ */
+@Component
+public class CommandRouter {
+
+    private final List<Command> commands = new ArrayList<>();
+    private volatile Node root = new Node();
+
+    /**
+     * Registers a command that matches the whole text of a message.
+     *
+     * @throws IllegalArgumentException if the command is empty or has already been registered with the same kind
+     */
+    public void exact(String command, CommandHandler handler) {
+        register(new Command(command, Kind.EXACT, handler));
+    }
+
+    /**
+     * Registers a command that matches the start of a message, followed by the end of the text or a non-alphanumeric
+     * character.
+     *
+     * @throws IllegalArgumentException if the command is empty or has already been registered with the same kind
+     */
+    public void prefix(String command, CommandHandler handler) {
+        register(new Command(command, Kind.PREFIX, handler));
+    }
+
+    /**
+     * Registers a command that matches anywhere in a message, as long as it is neither preceded nor followed by an
+     * alphanumeric character.
+     *
+     * @throws IllegalArgumentException if the command is empty or has already been registered with the same kind
+     */
+    public void keyword(String command, CommandHandler handler) {
+        register(new Command(command, Kind.KEYWORD, handler));
+    }
+
+    private synchronized void register(Command command) {
+        if (command.folded.length == 0) {
+            throw new IllegalArgumentException("Command must not be empty");
+        }
+        for (Command registered : this.commands) {
+            if (registered.kind == command.kind && Arrays.equals(registered.folded, command.folded)) {
+                throw new IllegalArgumentException(String.format("%s command '%s' is already registered", command.kind, command.text));
+            }
+        }
+        this.commands.add(command);
+        final Node root = new Node();
+        for (Command registered : this.commands) {
+            root.insert(registered);
+        }
+        this.root = root;
+    }
+
+    /**
+     * @return the handler of the command that the text matches, or {@link Optional#empty()} if it matches none
+     */
+    public Optional<CommandHandler> route(String text) {
+        final Node root = this.root;
+        final int length = text.length();
+        Optional<CommandHandler> longestPrefix = Optional.empty();
+        Node node = root;
+        int index = 0;
+        while (index < length) {
+            final int codePoint = text.codePointAt(index);
+            if (node.prefix.isPresent() && isBoundary(codePoint)) {
+                longestPrefix = node.prefix;
+            }
+            node = node.child(fold(codePoint));
+            if (node == null) {
+                break;
+            }
+            index += Character.charCount(codePoint);
+        }
+        if (node != null && index == length) {
+            if (node.exact.isPresent()) {
+                return node.exact;
+            }
+            if (node.prefix.isPresent()) {
+                return node.prefix;
+            }
+        }
+        if (longestPrefix.isPresent() || !root.keywords) {
+            return longestPrefix;
+        }
+        return keyword(root, text);
+    }
+
+    private static Optional<CommandHandler> keyword(Node root, String text) {
+        final int length = text.length();
+        for (int start = 0; start < length; ) {
+            final int codePoint = text.codePointAt(start);
+            if (start == 0 || isBoundary(text.codePointBefore(start))) {
+                final Optional<CommandHandler> keyword = longestKeyword(root, text, start);
+                if (keyword.isPresent()) {
+                    return keyword;
+                }
+            }
+            start += Character.charCount(codePoint);
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<CommandHandler> longestKeyword(Node root, String text, int start) {
+        final int length = text.length();
+        Optional<CommandHandler> longest = Optional.empty();
+        Node node = root;
+        int index = start;
+        while (index < length) {
+            final int codePoint = text.codePointAt(index);
+            if (node.keyword.isPresent() && isBoundary(codePoint)) {
+                longest = node.keyword;
+            }
+            node = node.child(fold(codePoint));
+            if (node == null || !node.keywords) {
+                return longest;
+            }
+            index += Character.charCount(codePoint);
+        }
+        return node.keyword.isPresent() ? node.keyword : longest;
+    }
+
+    private static boolean isBoundary(int codePoint) {
+        return !Character.isLetterOrDigit(codePoint);
+    }
+
+    private static int fold(int codePoint) {
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
+    }
+
+    private enum Kind {
+        EXACT, PREFIX, KEYWORD
+    }
+
+    private static final class Command {
+
+        final String text;
+        final int[] folded;
+        final Kind kind;
+        final Optional<CommandHandler> handler;
+
+        Command(String text, Kind kind, CommandHandler handler) {
+            this.text = text;
+            this.folded = text.codePoints().map(CommandRouter::fold).toArray();
+            this.kind = kind;
+            this.handler = Optional.of(handler);
+        }
+    }
+
+    /**
+     * Node of the trie. The children are kept in arrays sorted by code point, as most nodes have only one or two.
+     * Instances are not modified once they have been published.
+     */
+    private static final class Node {
+
+        private static final int[] NO_CODE_POINTS = new int[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        int[] codePoints = NO_CODE_POINTS;
+        Node[] children = NO_CHILDREN;
+        Optional<CommandHandler> exact = Optional.empty();
+        Optional<CommandHandler> prefix = Optional.empty();
+        Optional<CommandHandler> keyword = Optional.empty();
+        /**
+         * Whether a keyword command ends in this node or below it, so that the keyword search can stop early.
+         */
+        boolean keywords;
+
+        Node child(int codePoint) {
+            final int index = Arrays.binarySearch(this.codePoints, codePoint);
+            return index >= 0 ? this.children[index] : null;
+        }
+
+        void insert(Command command) {
+            Node node = this;
+            for (int codePoint : command.folded) {
+                node.keywords |= command.kind == Kind.KEYWORD;
+                node = node.childOrCreate(codePoint);
+            }
+            node.keywords |= command.kind == Kind.KEYWORD;
+            switch (command.kind) {
+                case EXACT:
+                    node.exact = command.handler;
+                    break;
+                case PREFIX:
+                    node.prefix = command.handler;
+                    break;
+                default:
+                    node.keyword = command.handler;
+            }
+        }
+
+        private Node childOrCreate(int codePoint) {
+            final int index = Arrays.binarySearch(this.codePoints, codePoint);
+            if (index >= 0) {
+                return this.children[index];
+            }
+            final int insertionPoint = -index - 1;
+            final Node child = new Node();
+            this.codePoints = insertAt(this.codePoints, insertionPoint, codePoint);
+            final Node[] children = new Node[this.children.length + 1];
+            System.arraycopy(this.children, 0, children, 0, insertionPoint);
+            children[insertionPoint] = child;
+            System.arraycopy(this.children, insertionPoint, children, insertionPoint + 1, this.children.length - insertionPoint);
+            this.children = children;
+            return child;
+        }
+
+        private static int[] insertAt(int[] array, int index, int value) {
+            final int[] result = new int[array.length + 1];
+            System.arraycopy(array, 0, result, 0, index);
+            result[index] = value;
+            System.arraycopy(array, index, result, index + 1, array.length - index);
+            return result;
+        }
+    }
+}
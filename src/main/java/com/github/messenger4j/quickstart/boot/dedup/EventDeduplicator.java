@@ -0,0 +1,148 @@
+package com.github.messenger4j.quickstart.boot.dedup;
+
+import com.github.messenger4j.quickstart.boot.dispatch.EventType;
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import com.github.messenger4j.quickstart.boot.key.UserKeys;
+import com.github.messenger4j.webhook.Event;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops events that the Messenger Platform delivers again, e.g. because a callback has not been acknowledged in time.
+ *
+ * <p>
+ * Message events are identified by their message ID, all other events by their sender, timestamp and type. Only a
+ * 64-bit hash of the identity is kept, in two generations of primitive hash sets: the current generation takes all new
+ * events and is retired to the previous generation after the configured window, or as soon as it is full. An event is
+ * therefore recognized as a duplicate for at least one window (unless more than {@code maximumSize} events arrive
+ * within it), and the memory used is fixed at startup and independent of the traffic. A window of {@code 0} disables
+ * the de-duplication.
+ * </p>
+ */
+@Component
+public class EventDeduplicator {
+
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private LongHashSet current;
+    private LongHashSet previous;
+    private long generationStart;
+
+    private final AtomicLong duplicates = new AtomicLong();
+
+    @Autowired
+    public EventDeduplicator(@Value("${messenger4j.dedup.windowSeconds}") final long windowSeconds,
+                             @Value("${messenger4j.dedup.maximumSize}") final int maximumSize) {
+        this(TimeUnit.SECONDS.toMillis(windowSeconds), maximumSize, System::currentTimeMillis);
+    }
+
+    EventDeduplicator(long windowMillis, int maximumSize, LongSupplier clock) {
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+        this.current = new LongHashSet(maximumSize);
+        this.previous = new LongHashSet(maximumSize);
+        this.generationStart = clock.getAsLong();
+    }
+
+    /**
+     * Records the events and returns those that have not been seen before, in their original order.
+     */
+    public List<ReceivedEvent> firstDeliveries(List<ReceivedEvent> events) {
+        if (this.windowMillis <= 0) {
+            return events;
+        }
+        final List<ReceivedEvent> firstDeliveries = new ArrayList<>(events.size());
+        for (ReceivedEvent event : events) {
+            if (firstSeen(key(event.event()))) {
+                firstDeliveries.add(event);
+            }
+        }
+        return firstDeliveries;
+    }
+
+    /**
+     * Forgets recorded events that could not be processed, so that they are accepted when they are delivered again.
+     */
+    public void forget(List<ReceivedEvent> events) {
+        if (this.windowMillis <= 0) {
+            return;
+        }
+        for (ReceivedEvent event : events) {
+            forget(key(event.event()));
+        }
+    }
+
+    synchronized boolean firstSeen(long key) {
+        rotateIfDue();
+        if (this.previous.contains(key) || !this.current.add(key)) {
+            this.duplicates.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    synchronized void forget(long key) {
+        this.current.remove(key);
+        this.previous.remove(key);
+    }
+
+    private void rotateIfDue() {
+        final long now = this.clock.getAsLong();
+        final long elapsed = now - this.generationStart;
+        if (elapsed < this.windowMillis && !this.current.isFull()) {
+            return;
+        }
+        final LongHashSet retired = this.previous;
+        retired.clear();
+        this.previous = this.current;
+        this.current = retired;
+        if (elapsed >= 2 * this.windowMillis) {
+            this.previous.clear();
+        }
+        this.generationStart = now;
+    }
+
+    /**
+     * Number of events that have been dropped as duplicates.
+     */
+    public long duplicates() {
+        return this.duplicates.get();
+    }
+
+    /**
+     * Number of event identities that are currently remembered.
+     */
+    public synchronized int size() {
+        return this.current.size() + this.previous.size();
+    }
+
+    static long key(Event event) {
+        final String messageId;
+        if (event.isTextMessageEvent()) {
+            messageId = event.asTextMessageEvent().messageId();
+        } else if (event.isAttachmentMessageEvent()) {
+            messageId = event.asAttachmentMessageEvent().messageId();
+        } else if (event.isQuickReplyMessageEvent()) {
+            messageId = event.asQuickReplyMessageEvent().messageId();
+        } else if (event.isMessageEchoEvent()) {
+            messageId = event.asMessageEchoEvent().messageId();
+        } else {
+            messageId = null;
+        }
+        if (messageId != null) {
+            return nonZero(UserKeys.mix(UserKeys.hash(messageId)));
+        }
+        final long timestampAndType = event.timestamp().toEpochMilli() | (long) EventType.of(event).ordinal() << 56;
+        return nonZero(UserKeys.mix(UserKeys.of(event.senderId()) ^ UserKeys.mix(timestampAndType)));
+    }
+
+    private static long nonZero(long key) {
+        return key == 0L ? 1L : key;
+    }
+}
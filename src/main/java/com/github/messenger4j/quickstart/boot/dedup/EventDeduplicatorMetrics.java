@@ -0,0 +1,28 @@
+package com.github.messenger4j.quickstart.boot.dedup;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the number of dropped duplicates of the {@link EventDeduplicator} through the meter registry.
+ */
+@Component
+public class EventDeduplicatorMetrics implements MeterBinder {
+
+    private final EventDeduplicator eventDeduplicator;
+
+    @Autowired
+    public EventDeduplicatorMetrics(final EventDeduplicator eventDeduplicator) {
+        this.eventDeduplicator = eventDeduplicator;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("messenger4j.dedup.duplicates", this.eventDeduplicator, EventDeduplicator::duplicates).register(registry);
+        Gauge.builder("messenger4j.dedup.size", this.eventDeduplicator, EventDeduplicator::size).register(registry);
+    }
+}
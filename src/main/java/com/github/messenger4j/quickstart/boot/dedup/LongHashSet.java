@@ -0,0 +1,100 @@
+package com.github.messenger4j.quickstart.boot.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity set of non-zero {@code long} keys, stored with linear probing in a single {@code long[]}.
+ *
+ * <p>
+ * The keys are expected to be well mixed hashes already. Removal shifts the following keys back instead of leaving
+ * tombstones, so the table never degrades. Not thread-safe.
+ * </p>
+ */
+final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private final long[] keys;
+    private final int mask;
+    private final int maximumSize;
+    private int size;
+
+    /**
+     * @param maximumSize the number of keys the set can hold; the table is kept at most half full
+     */
+    LongHashSet(int maximumSize) {
+        final int capacity = Integer.highestOneBit(Math.max(2, maximumSize) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.mask = capacity - 1;
+        this.maximumSize = maximumSize;
+    }
+
+    boolean contains(long key) {
+        for (int i = index(key); ; i = (i + 1) & this.mask) {
+            final long k = this.keys[i];
+            if (k == key) {
+                return true;
+            }
+            if (k == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if the key has already been contained
+     * @throws IllegalStateException if the set is full
+     */
+    boolean add(long key) {
+        int i = index(key);
+        for (long k = this.keys[i]; k != EMPTY; i = (i + 1) & this.mask, k = this.keys[i]) {
+            if (k == key) {
+                return false;
+            }
+        }
+        if (this.size >= this.maximumSize) {
+            throw new IllegalStateException("Set is full");
+        }
+        this.keys[i] = key;
+        this.size++;
+        return true;
+    }
+
+    boolean remove(long key) {
+        int gap = index(key);
+        for (long k = this.keys[gap]; k != key; gap = (gap + 1) & this.mask, k = this.keys[gap]) {
+            if (k == EMPTY) {
+                return false;
+            }
+        }
+        for (int i = (gap + 1) & this.mask; this.keys[i] != EMPTY; i = (i + 1) & this.mask) {
+            final long k = this.keys[i];
+            if (((i - index(k)) & this.mask) >= ((i - gap) & this.mask)) {
+                this.keys[gap] = k;
+                gap = i;
+            }
+        }
+        this.keys[gap] = EMPTY;
+        this.size--;
+        return true;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isFull() {
+        return this.size >= this.maximumSize;
+    }
+
+    void clear() {
+        if (this.size > 0) {
+            Arrays.fill(this.keys, EMPTY);
+            this.size = 0;
+        }
+    }
+
+    private int index(long key) {
+        return (int) key & this.mask;
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.messenger4j.quickstart.boot.dispatch;
+
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded hand-off between the callback endpoint and the event handlers.
+ *
+ * <p>
+ * Events are partitioned by their sender and processed on a {@link SenderOrderedExecutor}: events of different senders
+ * are handled in parallel, events of the same sender strictly in the order in which they have been received. The
+ * number of queued and running events never exceeds the configured capacity; a batch that does not fit as a whole is
+ * rejected and has to be redelivered by the Messenger Platform.
+ * </p>
+ */
+@Component
+public class EventDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventDispatcher.class);
+
+    private final int capacity;
+    private final Semaphore permits;
+    private final SenderOrderedExecutor executor;
+
+    private final AtomicLong acceptedEvents = new AtomicLong();
+    private final AtomicLong rejectedEvents = new AtomicLong();
+    private final AtomicLong rejectedBatches = new AtomicLong();
+    private final AtomicLong processedEvents = new AtomicLong();
+    private final AtomicLong failedEvents = new AtomicLong();
+
+    @Autowired
+    public EventDispatcher(@Value("${messenger4j.dispatcher.workers}") final int workers,
+                           @Value("${messenger4j.dispatcher.queueCapacity}") final int queueCapacity,
+                           @Value("${messenger4j.dispatcher.virtualThreads}") final boolean virtualThreads) {
+        this.capacity = queueCapacity;
+        this.permits = new Semaphore(queueCapacity);
+        this.executor = new SenderOrderedExecutor(workers, WorkerThreads.threadFactory("event-worker-", virtualThreads));
+    }
+
+    /**
+     * Schedules all events of a callback payload for processing.
+     *
+     * @return a future that completes once every event of the batch has been handled, exceptionally if some of them
+     *         have been discarded at shutdown
+     * @throws RejectedExecutionException if there is no room left for the whole batch, in which case none of the
+     *                                    events has been scheduled
+     */
+    public CompletableFuture<Void> dispatch(List<ReceivedEvent> events, Consumer<ReceivedEvent> eventHandler) {
+        if (!this.permits.tryAcquire(events.size())) {
+            this.rejectedBatches.incrementAndGet();
+            this.rejectedEvents.addAndGet(events.size());
+            throw new RejectedExecutionException("Event queue cannot take " + events.size() + " more events");
+        }
+        this.acceptedEvents.addAndGet(events.size());
+        final CompletableFuture<?>[] completions = new CompletableFuture<?>[events.size()];
+        for (int i = 0; i < completions.length; i++) {
+            final ReceivedEvent event = events.get(i);
+            completions[i] = this.executor.submit(event.senderId(), () -> process(event, eventHandler))
+                    .whenComplete((ignored, discarded) -> this.permits.release());
+        }
+        return CompletableFuture.allOf(completions);
+    }
+
+    private void process(ReceivedEvent event, Consumer<ReceivedEvent> eventHandler) {
+        try {
+            eventHandler.accept(event);
+        } catch (RuntimeException e) {
+            this.failedEvents.incrementAndGet();
+            logger.error("Processing of event from sender '{}' failed", event.senderId(), e);
+        } finally {
+            this.processedEvents.incrementAndGet();
+        }
+    }
+
+    /**
+     * Number of events that are waiting for a worker.
+     */
+    public int queueDepth() {
+        return this.executor.queuedTasks();
+    }
+
+    /**
+     * Number of events that are either waiting for a worker or being processed.
+     */
+    public int inFlight() {
+        return this.capacity - this.permits.availablePermits();
+    }
+
+    public int capacity() {
+        return this.capacity;
+    }
+
+    public long acceptedEvents() {
+        return this.acceptedEvents.get();
+    }
+
+    public long rejectedEvents() {
+        return this.rejectedEvents.get();
+    }
+
+    public long rejectedBatches() {
+        return this.rejectedBatches.get();
+    }
+
+    public long processedEvents() {
+        return this.processedEvents.get();
+    }
+
+    public long failedEvents() {
+        return this.failedEvents.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        this.executor.shutdown();
+        final int discarded = this.executor.awaitTermination(10, TimeUnit.SECONDS);
+        if (discarded > 0) {
+            logger.warn("{} queued events have not been processed before shutdown", discarded);
+        }
+    }
+}
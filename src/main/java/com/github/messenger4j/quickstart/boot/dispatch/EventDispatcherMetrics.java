@@ -0,0 +1,34 @@
+package com.github.messenger4j.quickstart.boot.dispatch;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes queue depth and back-pressure figures of the {@link EventDispatcher} through the meter registry.
+ */
+@Component
+public class EventDispatcherMetrics implements MeterBinder {
+
+    private final EventDispatcher eventDispatcher;
+
+    @Autowired
+    public EventDispatcherMetrics(final EventDispatcher eventDispatcher) {
+        this.eventDispatcher = eventDispatcher;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("messenger4j.dispatcher.queue.depth", this.eventDispatcher, EventDispatcher::queueDepth).register(registry);
+        Gauge.builder("messenger4j.dispatcher.queue.inFlight", this.eventDispatcher, EventDispatcher::inFlight).register(registry);
+        Gauge.builder("messenger4j.dispatcher.queue.capacity", this.eventDispatcher, EventDispatcher::capacity).register(registry);
+        FunctionCounter.builder("messenger4j.dispatcher.events.accepted", this.eventDispatcher, EventDispatcher::acceptedEvents).register(registry);
+        FunctionCounter.builder("messenger4j.dispatcher.events.rejected", this.eventDispatcher, EventDispatcher::rejectedEvents).register(registry);
+        FunctionCounter.builder("messenger4j.dispatcher.batches.rejected", this.eventDispatcher, EventDispatcher::rejectedBatches).register(registry);
+        FunctionCounter.builder("messenger4j.dispatcher.events.processed", this.eventDispatcher, EventDispatcher::processedEvents).register(registry);
+        FunctionCounter.builder("messenger4j.dispatcher.events.failed", this.eventDispatcher, EventDispatcher::failedEvents).register(registry);
+    }
+}
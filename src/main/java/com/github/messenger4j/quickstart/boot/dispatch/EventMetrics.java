@@ -0,0 +1,67 @@
+package com.github.messenger4j.quickstart.boot.dispatch;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Processing time and failures of the event handlers by {@link EventType}, and the number of events being handled.
+ *
+ * <p>
+ * The meters are registered up front, so that timing an event costs two clock reads and no lookup in the registry.
+ * </p>
+ */
+@Component
+public class EventMetrics {
+
+    static final String EVENT_TIMER = "messenger4j.events";
+    static final String FAILURE_COUNTER = "messenger4j.events.failures";
+
+    private final Clock clock;
+    private final Map<EventType, Timer> timers = new EnumMap<>(EventType.class);
+    private final Map<EventType, Counter> failures = new EnumMap<>(EventType.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Autowired
+    public EventMetrics(final MeterRegistry registry) {
+        this.clock = registry.config().clock();
+        for (EventType eventType : EventType.values()) {
+            this.timers.put(eventType, Timer.builder(EVENT_TIMER)
+                    .description("Events handled")
+                    .tags("type", eventType.tag())
+                    .register(registry));
+            this.failures.put(eventType, Counter.builder(FAILURE_COUNTER)
+                    .description("Events whose handler failed")
+                    .tags("type", eventType.tag())
+                    .register(registry));
+        }
+        Gauge.builder("messenger4j.events.inFlight", this.inFlight, AtomicInteger::get)
+                .description("Events being handled")
+                .register(registry);
+    }
+
+    /**
+     * @return the start time to pass to {@link #finished}
+     */
+    public long started() {
+        this.inFlight.incrementAndGet();
+        return this.clock.monotonicTime();
+    }
+
+    public void finished(EventType eventType, long startNanos) {
+        this.timers.get(eventType).record(this.clock.monotonicTime() - startNanos, TimeUnit.NANOSECONDS);
+        this.inFlight.decrementAndGet();
+    }
+
+    public void failed(EventType eventType) {
+        this.failures.get(eventType).increment();
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.messenger4j.quickstart.boot.dispatch;
+
+import com.github.messenger4j.webhook.Event;
+
+/**
+ * Type of a webhook event as far as the event handlers distinguish them, as tagged on the event metrics.
+ */
+public enum EventType {
+
+    TEXT("text"),
+    ATTACHMENT("attachment"),
+    QUICK_REPLY("quick_reply"),
+    POSTBACK("postback"),
+    ACCOUNT_LINKING("account_linking"),
+    OPT_IN("opt_in"),
+    ECHO("echo"),
+    DELIVERED("delivered"),
+    READ("read"),
+    FALLBACK("fallback");
+
+    private final String tag;
+
+    EventType(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return this.tag;
+    }
+
+    public static EventType of(Event event) {
+        if (event.isTextMessageEvent()) {
+            return TEXT;
+        } else if (event.isAttachmentMessageEvent()) {
+            return ATTACHMENT;
+        } else if (event.isQuickReplyMessageEvent()) {
+            return QUICK_REPLY;
+        } else if (event.isPostbackEvent()) {
+            return POSTBACK;
+        } else if (event.isAccountLinkingEvent()) {
+            return ACCOUNT_LINKING;
+        } else if (event.isOptInEvent()) {
+            return OPT_IN;
+        } else if (event.isMessageEchoEvent()) {
+            return ECHO;
+        } else if (event.isMessageDeliveredEvent()) {
+            return DELIVERED;
+        } else if (event.isMessageReadEvent()) {
+            return READ;
+        } else {
+            return FALLBACK;
+        }
+    }
+}
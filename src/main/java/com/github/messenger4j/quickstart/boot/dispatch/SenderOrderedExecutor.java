@@ -0,0 +1,119 @@
+package com.github.messenger4j.quickstart.boot.dispatch;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes tasks in parallel across senders while preserving the submission order of the tasks of each sender.
+ *
+ * <p>
+ * The executor consists of a fixed number of stripes, each backed by a single thread. A sender is always mapped to the
+ * same stripe, so its tasks run one after another in the order they have been submitted, while tasks of senders on
+ * different stripes run concurrently. Backed by virtual threads, stripes are cheap enough to have one for almost every
+ * active sender, so a sender blocked on a slow send hardly ever holds up other senders.
+ * </p>
+ */
+public class SenderOrderedExecutor {
+
+    private final ThreadPoolExecutor[] stripes;
+
+    public SenderOrderedExecutor(int stripeCount, ThreadFactory threadFactory) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("stripeCount must be positive");
+        }
+        this.stripes = new ThreadPoolExecutor[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        }
+    }
+
+    /**
+     * Schedules the task after all previously submitted tasks of the same sender.
+     *
+     * @return a future that completes once the task has run, exceptionally if the task threw or if it has been
+     *         discarded because the executor has been shut down before the task could start
+     */
+    public CompletableFuture<Void> submit(String senderId, Runnable task) {
+        final Task submitted = new Task(task);
+        try {
+            this.stripes[stripeIndex(senderId)].execute(submitted);
+        } catch (RejectedExecutionException e) {
+            submitted.discard();
+        }
+        return submitted.completion;
+    }
+
+    int stripeIndex(String senderId) {
+        final int hash = senderId.hashCode();
+        return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % this.stripes.length;
+    }
+
+    public int stripeCount() {
+        return this.stripes.length;
+    }
+
+    /**
+     * Number of tasks that are waiting for their stripe.
+     */
+    public int queuedTasks() {
+        int queued = 0;
+        for (ThreadPoolExecutor stripe : this.stripes) {
+            queued += stripe.getQueue().size();
+        }
+        return queued;
+    }
+
+    public void shutdown() {
+        for (ThreadPoolExecutor stripe : this.stripes) {
+            stripe.shutdown();
+        }
+    }
+
+    /**
+     * Waits for the queued tasks to finish. Tasks that have not been started when the timeout elapses are discarded,
+     * and their futures complete exceptionally, so that no caller keeps waiting for them.
+     *
+     * @return the number of tasks that have been discarded
+     */
+    public int awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int discarded = 0;
+        for (ThreadPoolExecutor stripe : this.stripes) {
+            if (!stripe.awaitTermination(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                for (Runnable task : stripe.shutdownNow()) {
+                    ((Task) task).discard();
+                    discarded++;
+                }
+            }
+        }
+        return discarded;
+    }
+
+    private static final class Task implements Runnable {
+
+        private final Runnable action;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        Task(Runnable action) {
+            this.action = action;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.action.run();
+                this.completion.complete(null);
+            } catch (Throwable t) {
+                this.completion.completeExceptionally(t);
+            }
+        }
+
+        void discard() {
+            this.completion.completeExceptionally(new RejectedExecutionException("Executor has been shut down"));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.messenger4j.quickstart.boot.dispatch;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the thread factories for the worker threads that process events and send messages.
+ *
+ * <p>
+ * Virtual threads are requested through reflection, so the application keeps running on Java 8. If the JVM does not
+ * support virtual threads (prior to Java 21), platform threads are used instead.
+ * </p>
+ */
+public final class WorkerThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerThreads.class);
+
+    private WorkerThreads() {
+    }
+
+    public static ThreadFactory threadFactory(String threadNamePrefix, boolean virtualThreads) {
+        if (virtualThreads) {
+            final ThreadFactory virtualThreadFactory = virtualThreadFactory(threadNamePrefix);
+            if (virtualThreadFactory != null) {
+                return virtualThreadFactory;
+            }
+            logger.warn("Virtual threads are not supported by this JVM (Java {}), falling back to platform threads",
+                    System.getProperty("java.version"));
+        }
+        return platformThreadFactory(threadNamePrefix);
+    }
+
+    public static boolean virtualThreadsSupported() {
+        return virtualThreadFactory("probe-") != null;
+    }
+
+    private static ThreadFactory platformThreadFactory(String threadNamePrefix) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ThreadFactory virtualThreadFactory(String threadNamePrefix) {
+        try {
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            final Method name = builderType.getMethod("name", String.class, long.class);
+            final Method factory = builderType.getMethod("factory");
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) factory.invoke(name.invoke(builder, threadNamePrefix, 1L));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
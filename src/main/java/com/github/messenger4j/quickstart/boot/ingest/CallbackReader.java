@@ -0,0 +1,177 @@
+package com.github.messenger4j.quickstart.boot.ingest;
+
+import static java.util.Optional.empty;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.messenger4j.Messenger;
+import com.github.messenger4j.exception.MessengerVerificationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the events of a callback payload straight from the request body.
+ *
+ * <p>
+ * The body is read exactly once. While it is read, the {@code X-Hub-Signature} HMAC is updated and the payload is
+ * split into its messaging events by a streaming parser, so parsing already starts while the body is still arriving and
+ * the payload is never held in memory as a whole. Every messaging event is copied into a single-event payload, which is
+ * only handed to {@link Messenger#onReceiveEvents} once the signature of the whole body has been verified.
+ * </p>
+ */
+@Component
+public class CallbackReader {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA1";
+    private static final String SIGNATURE_PREFIX = "sha1=";
+    private static final int BUFFER_SIZE = 4096;
+
+    private final Messenger messenger;
+    private final JsonFactory jsonFactory;
+    private final ThreadLocal<Mac> macs;
+    private final ThreadLocal<byte[]> drainBuffers = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    @Autowired
+    public CallbackReader(final Messenger messenger, @Value("${messenger4j.appSecret}") final String appSecret) {
+        this.messenger = messenger;
+        this.jsonFactory = new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        final SecretKeySpec appSecretKey = new SecretKeySpec(appSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(appSecretKey);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC for the callback signature is not available", e);
+            }
+        });
+    }
+
+    /**
+     * @throws MessengerVerificationException if the signature does not match the body
+     * @throws IOException                    if the body cannot be read or is not a valid callback payload
+     */
+    public List<ReceivedEvent> read(InputStream body, String signature) throws IOException, MessengerVerificationException {
+        final List<String> eventPayloads = split(body, signature);
+        final List<ReceivedEvent> events = new ArrayList<>(eventPayloads.size());
+        for (String eventPayload : eventPayloads) {
+            events.addAll(parse(eventPayload));
+        }
+        return events;
+    }
+
+    /**
+     * Parses a single-event payload that has been verified before, e.g. one that is replayed from the journal.
+     */
+    public List<ReceivedEvent> parse(String eventPayload) throws MessengerVerificationException {
+        final List<ReceivedEvent> events = new ArrayList<>(1);
+        this.messenger.onReceiveEvents(eventPayload, empty(), event -> events.add(new ReceivedEvent(eventPayload, event)));
+        return events;
+    }
+
+    /**
+     * Splits the body into single-event payloads and verifies its signature.
+     */
+    List<String> split(InputStream body, String signature) throws IOException, MessengerVerificationException {
+        final Mac mac = this.macs.get();
+        mac.reset();
+        final MacInputStream in = new MacInputStream(body, mac);
+        final List<String> eventPayloads = new ArrayList<>();
+        try (JsonParser parser = this.jsonFactory.createParser(in)) {
+            readPayload(parser, eventPayloads);
+        } catch (JsonProcessingException e) {
+            in.drain(this.drainBuffers.get());
+            verify(mac, signature);
+            throw e;
+        }
+        in.drain(this.drainBuffers.get());
+        verify(mac, signature);
+        return eventPayloads;
+    }
+
+    private void readPayload(JsonParser parser, List<String> eventPayloads) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Callback payload is not a JSON object");
+        }
+        String object = "page";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if ("object".equals(fieldName) && value == JsonToken.VALUE_STRING) {
+                object = parser.getText();
+            } else if ("entry".equals(fieldName) && value == JsonToken.START_ARRAY) {
+                readEntries(parser, object, eventPayloads);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readEntries(JsonParser parser, String object, List<String> eventPayloads) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if (("messaging".equals(fieldName) || "standby".equals(fieldName)) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        eventPayloads.add(eventPayload(parser, object, fieldName));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private String eventPayload(JsonParser parser, String object, String eventsFieldName) throws IOException {
+        final StringWriter eventPayload = new StringWriter(256);
+        try (JsonGenerator generator = this.jsonFactory.createGenerator(eventPayload)) {
+            generator.writeStartObject();
+            generator.writeStringField("object", object);
+            generator.writeArrayFieldStart("entry");
+            generator.writeStartObject();
+            generator.writeArrayFieldStart(eventsFieldName);
+            generator.copyCurrentStructure(parser);
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        return eventPayload.toString();
+    }
+
+    private static void verify(Mac mac, String signature) throws MessengerVerificationException {
+        final byte[] digest = mac.doFinal();
+        final byte[] expected = new byte[SIGNATURE_PREFIX.length() + digest.length * 2];
+        for (int i = 0; i < SIGNATURE_PREFIX.length(); i++) {
+            expected[i] = (byte) SIGNATURE_PREFIX.charAt(i);
+        }
+        for (int i = 0; i < digest.length; i++) {
+            expected[SIGNATURE_PREFIX.length() + 2 * i] = (byte) Character.forDigit((digest[i] >> 4) & 0xF, 16);
+            expected[SIGNATURE_PREFIX.length() + 2 * i + 1] = (byte) Character.forDigit(digest[i] & 0xF, 16);
+        }
+        if (signature == null || !MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII))) {
+            throw new MessengerVerificationException("Signature verification failed. Provided signature does not match calculated signature.");
+        }
+    }
+}
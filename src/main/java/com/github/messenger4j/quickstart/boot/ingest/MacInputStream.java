@@ -0,0 +1,74 @@
+package com.github.messenger4j.quickstart.boot.ingest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.crypto.Mac;
+
+/**
+ * Updates a {@link Mac} with every byte that is read from the underlying stream.
+ */
+final class MacInputStream extends FilterInputStream {
+
+    private final Mac mac;
+
+    MacInputStream(InputStream in, Mac mac) {
+        super(in);
+        this.mac = mac;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if (b >= 0) {
+            this.mac.update((byte) b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int read = super.read(b, off, len);
+        if (read > 0) {
+            this.mac.update(b, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        final byte[] buffer = new byte[(int) Math.min(n, 4096)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Reads the rest of the stream, so that the MAC covers the whole of it.
+     */
+    void drain(byte[] buffer) throws IOException {
+        while (read(buffer, 0, buffer.length) >= 0) {
+            // the bytes are only needed for the MAC
+        }
+    }
+}
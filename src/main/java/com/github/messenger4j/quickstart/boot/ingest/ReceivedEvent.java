@@ -0,0 +1,52 @@
+package com.github.messenger4j.quickstart.boot.ingest;
+
+import com.github.messenger4j.webhook.Event;
+
+/**
+ * A verified event together with the single-event payload it has been parsed from.
+ *
+ * <p>
+ * The payload is what gets journaled, so that the event can be parsed again after a restart.
+ * </p>
+ */
+public final class ReceivedEvent {
+
+    /**
+     * Journal sequence of an event that has not been journaled.
+     */
+    public static final long NOT_JOURNALED = -1L;
+
+    private final String payload;
+    private final Event event;
+    private final long journalSequence;
+
+    public ReceivedEvent(String payload, Event event) {
+        this(payload, event, NOT_JOURNALED);
+    }
+
+    private ReceivedEvent(String payload, Event event, long journalSequence) {
+        this.payload = payload;
+        this.event = event;
+        this.journalSequence = journalSequence;
+    }
+
+    public String payload() {
+        return this.payload;
+    }
+
+    public Event event() {
+        return this.event;
+    }
+
+    public String senderId() {
+        return this.event.senderId();
+    }
+
+    public long journalSequence() {
+        return this.journalSequence;
+    }
+
+    public ReceivedEvent withJournalSequence(long journalSequence) {
+        return new ReceivedEvent(this.payload, this.event, journalSequence);
+    }
+}
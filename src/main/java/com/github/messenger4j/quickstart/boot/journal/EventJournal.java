@@ -0,0 +1,473 @@
+package com.github.messenger4j.quickstart.boot.journal;
+
+import com.github.messenger4j.quickstart.boot.dispatch.WorkerThreads;
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only journal of the accepted events, so that events which have not been processed when the JVM dies are
+ * replayed after the restart.
+ *
+ * <p>
+ * The journal consists of numbered, memory-mapped segment files of a fixed size. An event record holds the single-event
+ * payload; once the event has been processed, a marker record with its sequence number is appended. Every record is
+ * protected by a CRC32, so a record that has been torn by a crash ends the segment on replay. When a segment is full
+ * the journal rolls over to a new one, and segments are deleted, oldest first, as soon as all their events have been
+ * processed. The few events that are still unprocessed in an old segment are copied to the active segment, so that an
+ * event which is never processed does not keep all later segments from being deleted.
+ * </p>
+ *
+ * <p>
+ * An event whose handler has failed would fail again on every replay. It is appended to the dead letter file
+ * {@value #DEAD_LETTER_FILE} in the journal directory instead, and marked as processed.
+ * </p>
+ *
+ * <p>
+ * With {@code fsync} enabled, {@link #append} returns only once the events are on disk. The disk writes are done by a
+ * single flusher thread that always forces everything appended so far, so concurrent callbacks share one fsync (group
+ * commit). Without {@code fsync} the events survive a crash of the JVM, but not of the operating system. Processed
+ * markers are never waited for: losing one only means that the event is replayed once more.
+ * </p>
+ */
+@Component
+public class EventJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventJournal.class);
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String DEAD_LETTER_FILE = "dead-letters.jsonl";
+    private static final byte EVENT_RECORD = 1;
+    private static final byte PROCESSED_RECORD = 2;
+    private static final int RECORD_OVERHEAD = 4 + 1 + 8 + 4;
+    private static final byte[] NO_PAYLOAD = new byte[0];
+    /**
+     * Segments closer to the active one are left alone, their events are most likely still waiting to be processed.
+     */
+    private static final int COPY_FORWARD_DISTANCE = 2;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final CRC32 crc = new CRC32();
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Map<Long, Segment> liveEvents = new HashMap<>();
+    private final SortedMap<Long, String> unprocessed;
+    private final Thread flusher;
+
+    private Segment active;
+    private long nextSegmentIndex;
+    private long nextSequence;
+    private long appendedSequence;
+    private boolean compacting;
+
+    private final Object flushMonitor = new Object();
+    private long requestedSequence;
+    private long durableSequence;
+    private IOException flushFailure;
+    private volatile boolean closed;
+
+    @Autowired
+    public EventJournal(@Value("${messenger4j.journal.directory}") final String directory,
+                        @Value("${messenger4j.journal.segmentSize}") final int segmentSize,
+                        @Value("${messenger4j.journal.fsync}") final boolean fsync) throws IOException {
+        this.directory = directory.isEmpty() ? null : Paths.get(directory);
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        if (this.directory == null) {
+            this.unprocessed = Collections.emptySortedMap();
+            this.flusher = null;
+            return;
+        }
+        Files.createDirectories(this.directory);
+        this.unprocessed = Collections.unmodifiableSortedMap(recover());
+        synchronized (this) {
+            this.active = createSegment(segmentSize);
+            this.appendedSequence = this.nextSequence - 1;
+        }
+        this.durableSequence = this.nextSequence - 1;
+        compact();
+        this.flusher = WorkerThreads.threadFactory("journal-flusher-", false).newThread(this::flushLoop);
+        if (fsync) {
+            this.flusher.start();
+        }
+    }
+
+    public boolean enabled() {
+        return this.directory != null;
+    }
+
+    /**
+     * Payloads of the events that had not been processed before the last shutdown, by their sequence number.
+     */
+    public SortedMap<Long, String> unprocessed() {
+        return this.unprocessed;
+    }
+
+    /**
+     * Journals the events and, with {@code fsync} enabled, waits until they are on disk.
+     *
+     * @return the events with their journal sequence numbers, to be passed to {@link #markProcessed} later on
+     */
+    public List<ReceivedEvent> append(List<ReceivedEvent> events) throws IOException {
+        if (!enabled() || events.isEmpty()) {
+            return events;
+        }
+        final List<ReceivedEvent> journaledEvents = new ArrayList<>(events.size());
+        final long lastSequence;
+        synchronized (this) {
+            for (ReceivedEvent event : events) {
+                final long sequence = this.nextSequence;
+                live(sequence, write(EVENT_RECORD, sequence, event.payload().getBytes(StandardCharsets.UTF_8)));
+                this.nextSequence++;
+                journaledEvents.add(event.withJournalSequence(sequence));
+            }
+            lastSequence = this.nextSequence - 1;
+            this.appendedSequence = lastSequence;
+        }
+        if (this.fsync) {
+            awaitDurable(lastSequence);
+        }
+        return journaledEvents;
+    }
+
+    public void markProcessed(long sequence) {
+        if (!enabled() || sequence == ReceivedEvent.NOT_JOURNALED) {
+            return;
+        }
+        synchronized (this) {
+            final Segment segment = this.liveEvents.remove(sequence);
+            if (segment == null) {
+                return;
+            }
+            try {
+                write(PROCESSED_RECORD, sequence, NO_PAYLOAD);
+            } catch (IOException e) {
+                logger.warn("Event {} could not be marked as processed, it will be replayed after a restart: {}", sequence, e.getMessage());
+            }
+            if (--segment.unprocessed == 0) {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * Appends the payload of an event that could not be processed to the dead letter file and marks the event as
+     * processed, so that it is not replayed over and over again.
+     */
+    public void deadLetter(long sequence, String payload) {
+        if (!enabled() || sequence == ReceivedEvent.NOT_JOURNALED) {
+            return;
+        }
+        synchronized (this) {
+            if (!this.liveEvents.containsKey(sequence)) {
+                return;
+            }
+            try {
+                Files.write(this.directory.resolve(DEAD_LETTER_FILE), (payload + "\n").getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                logger.error("Event {} could not be written to the dead letters, dropping it: {}", sequence, payload, e);
+            }
+            markProcessed(sequence);
+        }
+    }
+
+    /**
+     * Marks journaled events as processed that will not be processed, e.g. because they have been rejected.
+     */
+    public void discard(List<ReceivedEvent> events) {
+        for (ReceivedEvent event : events) {
+            markProcessed(event.journalSequence());
+        }
+    }
+
+    /**
+     * Number of segment files that are currently kept.
+     */
+    public int segmentCount() {
+        return this.segments.size();
+    }
+
+    private Segment write(byte type, long sequence, byte[] payload) throws IOException {
+        if (this.closed) {
+            throw new IOException("Journal has been closed");
+        }
+        final int recordSize = RECORD_OVERHEAD + payload.length;
+        while (this.active.buffer.remaining() < recordSize) {
+            this.active.buffer.force();
+            this.active = createSegment(Math.max(this.segmentSize, recordSize));
+            // events copied forward by the compaction may fill the new segment as well
+            compact();
+        }
+        final MappedByteBuffer buffer = this.active.buffer;
+        // the length is stored incremented, so that the zeros after the last record cannot be taken for a record
+        buffer.putInt(payload.length + 1).put(type).putLong(sequence).put(payload).putInt(checksum(type, sequence, payload));
+        return this.active;
+    }
+
+    private int checksum(byte type, long sequence, byte[] payload) {
+        this.crc.reset();
+        this.crc.update(type);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            this.crc.update((int) (sequence >>> shift));
+        }
+        this.crc.update(payload, 0, payload.length);
+        return (int) this.crc.getValue();
+    }
+
+    private void live(long sequence, Segment segment) {
+        segment.events++;
+        segment.unprocessed++;
+        this.liveEvents.put(sequence, segment);
+    }
+
+    /**
+     * Creates the segment that the following records are written to.
+     */
+    private Segment createSegment(int size) throws IOException {
+        final long index = this.nextSegmentIndex++;
+        final Path file = this.directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+        final Segment segment;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.setLength(size);
+            segment = new Segment(index, file, randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+        this.segments.put(index, segment);
+        return segment;
+    }
+
+    /**
+     * Reads all segments that are left over from the last run and collects the events that have not been processed.
+     */
+    private SortedMap<Long, String> recover() throws IOException {
+        final TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                final String name = file.getFileName().toString();
+                files.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        final TreeMap<Long, String> unprocessed = new TreeMap<>();
+        for (Map.Entry<Long, Path> file : files.entrySet()) {
+            final Segment segment = new Segment(file.getKey(), file.getValue(), null);
+            this.segments.put(file.getKey(), segment);
+            readRecords(file.getValue(), (type, sequence, payload) -> {
+                if (type == EVENT_RECORD) {
+                    unprocessed.put(sequence, new String(payload, StandardCharsets.UTF_8));
+                    // an event that has been copied forward belongs to the latest segment it has been copied to
+                    segment.events++;
+                    this.liveEvents.put(sequence, segment);
+                    this.nextSequence = Math.max(this.nextSequence, sequence + 1);
+                } else if (type == PROCESSED_RECORD) {
+                    unprocessed.remove(sequence);
+                    this.liveEvents.remove(sequence);
+                }
+            });
+            this.nextSegmentIndex = file.getKey() + 1;
+        }
+        for (Segment segment : this.liveEvents.values()) {
+            segment.unprocessed++;
+        }
+        if (!unprocessed.isEmpty()) {
+            logger.info("Recovered {} unprocessed events from the journal", unprocessed.size());
+        }
+        return unprocessed;
+    }
+
+    /**
+     * Reads the intact records of the segment file, up to the end of the file or the first torn record.
+     */
+    private void readRecords(Path file, RecordConsumer consumer) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        while (buffer.remaining() >= RECORD_OVERHEAD) {
+            final int length = buffer.getInt(buffer.position()) - 1;
+            if (length < 0 || length > buffer.remaining() - RECORD_OVERHEAD) {
+                break;
+            }
+            buffer.getInt();
+            final byte type = buffer.get();
+            final long sequence = buffer.getLong();
+            final byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (buffer.getInt() != checksum(type, sequence, payload)) {
+                logger.warn("Journal segment '{}' ends with a torn record", file);
+                break;
+            }
+            consumer.accept(type, sequence, payload);
+        }
+    }
+
+    /**
+     * Deletes the oldest segments, as long as all their events have been processed. A segment that is at least
+     * {@link #COPY_FORWARD_DISTANCE} segments older than the active one and whose events are at most a quarter
+     * unprocessed has its unprocessed events copied to the active segment first.
+     */
+    private synchronized void compact() {
+        if (this.compacting) {
+            return;
+        }
+        this.compacting = true;
+        try {
+            final Iterator<Segment> segments = this.segments.values().iterator();
+            while (segments.hasNext()) {
+                final Segment segment = segments.next();
+                if (segment == this.active) {
+                    return;
+                }
+                if (segment.unprocessed > 0) {
+                    if (segment.index > this.active.index - COPY_FORWARD_DISTANCE || segment.unprocessed * 4 > segment.events) {
+                        return;
+                    }
+                    copyForward(segment);
+                }
+                segments.remove();
+                try {
+                    Files.deleteIfExists(segment.file);
+                } catch (IOException e) {
+                    logger.warn("Journal segment '{}' could not be deleted: {}", segment.file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Unprocessed events could not be copied to the active journal segment: {}", e.getMessage());
+        } finally {
+            this.compacting = false;
+        }
+    }
+
+    private void copyForward(Segment segment) throws IOException {
+        readRecords(segment.file, (type, sequence, payload) -> {
+            if (type == EVENT_RECORD && this.liveEvents.get(sequence) == segment) {
+                live(sequence, write(EVENT_RECORD, sequence, payload));
+                segment.unprocessed--;
+            }
+        });
+    }
+
+    private void awaitDurable(long sequence) throws IOException {
+        synchronized (this.flushMonitor) {
+            if (sequence > this.requestedSequence) {
+                this.requestedSequence = sequence;
+                this.flushMonitor.notifyAll();
+            }
+            while (this.durableSequence < sequence) {
+                if (this.flushFailure != null) {
+                    throw new IOException("Journal could not be flushed", this.flushFailure);
+                }
+                if (this.closed) {
+                    throw new IOException("Journal has been closed");
+                }
+                try {
+                    this.flushMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the journal to be flushed");
+                }
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (this.flushMonitor) {
+                while (this.requestedSequence <= this.durableSequence && !this.closed) {
+                    try {
+                        this.flushMonitor.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (this.closed) {
+                    return;
+                }
+            }
+            final Segment segment;
+            final long flushedSequence;
+            synchronized (this) {
+                segment = this.active;
+                flushedSequence = this.appendedSequence;
+            }
+            try {
+                // earlier segments have been forced when the journal rolled over
+                segment.buffer.force();
+            } catch (RuntimeException e) {
+                logger.error("Journal could not be flushed", e);
+                synchronized (this.flushMonitor) {
+                    this.flushFailure = new IOException(e);
+                    this.flushMonitor.notifyAll();
+                }
+                return;
+            }
+            synchronized (this.flushMonitor) {
+                this.durableSequence = Math.max(this.durableSequence, flushedSequence);
+                this.flushMonitor.notifyAll();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled()) {
+            return;
+        }
+        synchronized (this) {
+            this.closed = true;
+            this.active.buffer.force();
+        }
+        synchronized (this.flushMonitor) {
+            this.flushMonitor.notifyAll();
+        }
+    }
+
+    private interface RecordConsumer {
+
+        void accept(byte type, long sequence, byte[] payload) throws IOException;
+    }
+
+    /**
+     * A segment file. Only the active segment is mapped for writing; the others are just waiting to be deleted. The
+     * counts are guarded by the journal.
+     */
+    private static final class Segment {
+
+        final long index;
+        final Path file;
+        final MappedByteBuffer buffer;
+        int events;
+        int unprocessed;
+
+        Segment(long index, Path file, MappedByteBuffer buffer) {
+            this.index = index;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+}
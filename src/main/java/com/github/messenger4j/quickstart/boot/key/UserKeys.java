@@ -0,0 +1,61 @@
+package com.github.messenger4j.quickstart.boot.key;
+
+/**
+ * Primitive keys of users for the tables that are keyed by page-scoped user ID.
+ *
+ * <p>
+ * Page-scoped IDs are numeric and are kept as the {@code long} they stand for; other IDs are replaced by a 64-bit hash
+ * of them with the sign bit set, so the two never collide. A key is never {@code 0}, which marks a free slot.
+ * </p>
+ */
+public final class UserKeys {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private UserKeys() {
+    }
+
+    public static long of(String userId) {
+        final int length = userId.length();
+        if (length > 0 && length <= 18) {
+            long id = 0L;
+            int i = 0;
+            for (; i < length; i++) {
+                final char c = userId.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                id = id * 10 + (c - '0');
+            }
+            if (i == length && id != 0L) {
+                return id;
+            }
+        }
+        return mix(hash(userId)) | Long.MIN_VALUE;
+    }
+
+    /**
+     * FNV-1a over the UTF-16 code units of a value; to be {@link #mix(long) mixed} before it is used as a key.
+     */
+    public static long hash(CharSequence value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreads the entropy of a key over all bits.
+     */
+    public static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.messenger4j.quickstart.boot.logging;
+
+import com.github.messenger4j.quickstart.boot.dispatch.EventType;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Log of the received events, one line of {@code key=value} pairs per event.
+ *
+ * <p>
+ * High-volume event types, such as echoes, deliveries and reads, can be sampled: only one in {@code sampleRate} of
+ * their events is logged, chosen at random. With redaction turned on, message texts, payloads and authorization codes
+ * are replaced by their length; the page-scoped IDs are kept, so that an event can still be traced.
+ * </p>
+ *
+ * <p>
+ * Callers check {@link #isLogged} before they format anything, so an event that is not logged costs no allocation. The
+ * {@code log} methods take up to four arguments one by one, so that a line of one or two arguments allocates no array
+ * for them at all. The lines are written by the {@code EventLog} logger, whose level can be set on its own.
+ * </p>
+ */
+@Component
+public class EventLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventLog.class);
+
+    private final boolean redact;
+    private final boolean[] sampled = new boolean[EventType.values().length];
+    private final int sampleRate;
+
+    @Autowired
+    public EventLog(@Value("${messenger4j.logging.redact}") final boolean redact,
+                    @Value("${messenger4j.logging.sampledEvents}") final String[] sampledEvents,
+                    @Value("${messenger4j.logging.sampleRate}") final int sampleRate) {
+        this.redact = redact;
+        this.sampleRate = sampleRate;
+        for (String sampledEvent : sampledEvents) {
+            final String tag = sampledEvent.trim();
+            if (tag.isEmpty()) {
+                continue;
+            }
+            final EventType eventType = Arrays.stream(EventType.values()).filter(type -> type.tag().equals(tag)).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown event type to sample: " + tag));
+            this.sampled[eventType.ordinal()] = true;
+        }
+    }
+
+    /**
+     * Whether an event of the type is to be logged: if the log is enabled and, for a sampled type, if the event has been
+     * picked.
+     */
+    public boolean isLogged(EventType eventType) {
+        if (!logger.isInfoEnabled()) {
+            return false;
+        }
+        return !this.sampled[eventType.ordinal()] || this.sampleRate <= 1 || ThreadLocalRandom.current().nextInt(this.sampleRate) == 0;
+    }
+
+    public void log(String format, Object argument) {
+        logger.info(format, argument);
+    }
+
+    public void log(String format, Object argument1, Object argument2) {
+        logger.info(format, argument1, argument2);
+    }
+
+    public void log(String format, Object argument1, Object argument2, Object argument3) {
+        logger.info(format, argument1, argument2, argument3);
+    }
+
+    public void log(String format, Object argument1, Object argument2, Object argument3, Object argument4) {
+        logger.info(format, argument1, argument2, argument3, argument4);
+    }
+
+    public void log(String format, Object... arguments) {
+        logger.info(format, arguments);
+    }
+
+    /**
+     * User-provided content, or its length if redaction is turned on.
+     */
+    public String content(String content) {
+        if (content == null || !this.redact) {
+            return content;
+        }
+        return "<redacted:" + content.length() + ">";
+    }
+}
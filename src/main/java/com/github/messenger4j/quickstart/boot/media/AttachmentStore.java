@@ -0,0 +1,93 @@
+package com.github.messenger4j.quickstart.boot.media;
+
+import static java.util.Optional.ofNullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Reusable attachment IDs by page and asset URL, kept in memory and optionally persisted to a properties file.
+ *
+ * <p>
+ * An attachment ID is only valid for the page that has uploaded the asset, so the IDs are stored under a hash of the
+ * page access token next to the URL. The IDs of another page, e.g. after the token has been replaced by one of a
+ * different page, are not handed out, and the token itself is not written to the file.
+ * </p>
+ */
+public class AttachmentStore {
+
+    private final Properties attachmentIds = new Properties();
+    private final Path file;
+    private final String pageKey;
+
+    /**
+     * @param file the properties file to persist the attachment IDs to, or {@code null} to keep them in memory only
+     */
+    public AttachmentStore(Path file, String pageAccessToken) throws IOException {
+        this.file = file;
+        this.pageKey = pageKey(pageAccessToken);
+        if (file != null && Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                this.attachmentIds.load(in);
+            }
+        }
+    }
+
+    public Optional<String> attachmentId(String url) {
+        return ofNullable(this.attachmentIds.getProperty(key(url)));
+    }
+
+    public synchronized void put(String url, String attachmentId) throws IOException {
+        this.attachmentIds.setProperty(key(url), attachmentId);
+        store();
+    }
+
+    /**
+     * Forgets the attachment ID of the asset, e.g. because the Send API has not accepted it.
+     */
+    public synchronized void remove(String url) throws IOException {
+        if (this.attachmentIds.remove(key(url)) != null) {
+            store();
+        }
+    }
+
+    private void store() throws IOException {
+        if (this.file == null) {
+            return;
+        }
+        final Path directory = this.file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path temporaryFile = Files.createTempFile(directory, this.file.getFileName().toString(), ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporaryFile)) {
+            this.attachmentIds.store(out, "Reusable attachment IDs by page and asset URL");
+        }
+        Files.move(temporaryFile, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private String key(String url) {
+        return this.pageKey + ' ' + url;
+    }
+
+    private static String pageKey(String pageAccessToken) {
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(pageAccessToken.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final StringBuilder pageKey = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            pageKey.append(String.format("%02x", digest[i]));
+        }
+        return pageKey.toString();
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.messenger4j.quickstart.boot.media;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.messenger4j.quickstart.boot.send.OutboundSender;
+import com.github.messenger4j.send.message.richmedia.RichMediaAsset;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Uploads rich media assets through the Attachment Upload API, so that they can be sent by their reusable attachment
+ * ID.
+ *
+ * <p>
+ * The uploads are made by the {@link OutboundSender}, so that they count against the rate limits of the page like the
+ * messages do, and are retried when they are throttled.
+ * </p>
+ */
+public class AttachmentUploader {
+
+    private static final String ATTACHMENT_UPLOAD_URL = "https://graph.facebook.com/v2.11/me/message_attachments?access_token=";
+
+    private final OutboundSender outboundSender;
+    private final String uploadUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public AttachmentUploader(OutboundSender outboundSender, String pageAccessToken) {
+        this.outboundSender = outboundSender;
+        this.uploadUrl = ATTACHMENT_UPLOAD_URL + pageAccessToken;
+    }
+
+    /**
+     * Lets the Messenger Platform fetch the asset from its URL once.
+     *
+     * @return the reusable attachment ID of the asset
+     * @throws InterruptedException if the thread has been interrupted while the upload waits for the rate limits
+     */
+    public String upload(RichMediaAsset.Type type, String url) throws InterruptedException, IOException {
+        final ObjectNode request = this.objectMapper.createObjectNode();
+        final ObjectNode attachment = request.putObject("message").putObject("attachment");
+        attachment.put("type", type.name().toLowerCase(Locale.ENGLISH));
+        attachment.putObject("payload").put("is_reusable", true).put("url", url);
+
+        final String responseBody = this.outboundSender.uploadAndWait(this.uploadUrl, this.objectMapper.writeValueAsString(request));
+        final JsonNode attachmentId = this.objectMapper.readTree(responseBody).path("attachment_id");
+        if (!attachmentId.isTextual() && !attachmentId.isNumber()) {
+            throw new IOException("Attachment Upload API response does not contain an attachment ID: " + responseBody);
+        }
+        return attachmentId.asText();
+    }
+}
@@ -0,0 +1,187 @@
+package com.github.messenger4j.quickstart.boot.media;
+
+import static com.github.messenger4j.quickstart.boot.template.MessageTemplateRegistry.RESOURCE_URL;
+import static com.github.messenger4j.send.message.richmedia.RichMediaAsset.Type.AUDIO;
+import static com.github.messenger4j.send.message.richmedia.RichMediaAsset.Type.FILE;
+import static com.github.messenger4j.send.message.richmedia.RichMediaAsset.Type.IMAGE;
+import static com.github.messenger4j.send.message.richmedia.RichMediaAsset.Type.VIDEO;
+
+import com.github.messenger4j.quickstart.boot.dispatch.WorkerThreads;
+import com.github.messenger4j.quickstart.boot.send.OutboundSender;
+import com.github.messenger4j.quickstart.boot.template.MessageTemplateRegistry;
+import com.github.messenger4j.quickstart.boot.template.PrecompiledMessage;
+import com.github.messenger4j.send.message.RichMediaMessage;
+import com.github.messenger4j.send.message.richmedia.ReusableRichMediaAsset;
+import com.github.messenger4j.send.message.richmedia.RichMediaAsset;
+import com.github.messenger4j.send.message.richmedia.UrlRichMediaAsset;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends the media messages of the showcase and, if uploads are enabled, makes sure every asset is fetched by the
+ * Messenger Platform only once.
+ *
+ * <p>
+ * The first time an asset is sent, it is uploaded in the background through the Attachment Upload API. Until the
+ * upload has finished the asset is sent by its URL; afterwards by its reusable attachment ID, which is also persisted
+ * in the {@link AttachmentStore} so that it survives restarts. Uploads are off unless {@code messenger4j.media.upload}
+ * is set, and so is the use of the stored IDs.
+ * </p>
+ *
+ * <p>
+ * If the Send API rejects a message with an attachment ID, e.g. because the ID has expired, the ID is forgotten and the
+ * message is sent again by the URL of the asset. The asset is uploaded again the next time it is sent.
+ * </p>
+ */
+@Component
+public class MediaAssetManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaAssetManager.class);
+
+    private static final long UPLOAD_RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final MessageTemplateRegistry messageTemplates;
+    private final OutboundSender outboundSender;
+    private final AttachmentStore attachmentStore;
+    private final AttachmentUploader attachmentUploader;
+    private final ExecutorService uploadExecutor;
+    private final boolean uploadEnabled;
+
+    private final MediaAsset image;
+    private final MediaAsset gif;
+    private final MediaAsset audio;
+    private final MediaAsset video;
+    private final MediaAsset file;
+
+    @Autowired
+    public MediaAssetManager(final MessageTemplateRegistry messageTemplates, final OutboundSender outboundSender,
+                             @Value("${messenger4j.pageAccessToken}") final String pageAccessToken,
+                             @Value("${messenger4j.media.upload}") final boolean uploadEnabled,
+                             @Value("${messenger4j.media.attachmentStore}") final String attachmentStore) throws IOException {
+        this.messageTemplates = messageTemplates;
+        this.outboundSender = outboundSender;
+        this.attachmentStore = new AttachmentStore(attachmentStore.isEmpty() ? null : Paths.get(attachmentStore), pageAccessToken);
+        this.attachmentUploader = new AttachmentUploader(outboundSender, pageAccessToken);
+        this.uploadExecutor = Executors.newSingleThreadExecutor(WorkerThreads.threadFactory("attachment-upload-", false));
+        this.uploadEnabled = uploadEnabled;
+
+        this.image = new MediaAsset(IMAGE, RESOURCE_URL + "/assets/rift.png");
+        this.gif = new MediaAsset(IMAGE, "https://media.giphy.com/media/11sBLVxNs7v6WA/giphy.gif");
+        this.audio = new MediaAsset(AUDIO, RESOURCE_URL + "/assets/sample.mp3");
+        this.video = new MediaAsset(VIDEO, RESOURCE_URL + "/assets/allofus480.mov");
+        this.file = new MediaAsset(FILE, RESOURCE_URL + "/assets/test.txt");
+    }
+
+    public void sendImage(String recipientId) {
+        this.image.send(recipientId);
+    }
+
+    public void sendGif(String recipientId) {
+        this.gif.send(recipientId);
+    }
+
+    public void sendAudio(String recipientId) {
+        this.audio.send(recipientId);
+    }
+
+    public void sendVideo(String recipientId) {
+        this.video.send(recipientId);
+    }
+
+    public void sendFile(String recipientId) {
+        this.file.send(recipientId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.uploadExecutor.shutdownNow();
+    }
+
+    private final class MediaAsset {
+
+        private final RichMediaAsset.Type type;
+        private final String url;
+        private final PrecompiledMessage urlMessage;
+        private final AtomicBoolean uploading = new AtomicBoolean();
+        private volatile PrecompiledMessage reusableMessage;
+        private volatile long nextUploadAttempt;
+
+        MediaAsset(RichMediaAsset.Type type, String url) throws MalformedURLException {
+            this.type = type;
+            this.url = url;
+            this.urlMessage = messageTemplates.precompile(RichMediaMessage.create(UrlRichMediaAsset.create(type, new URL(url))));
+            final Optional<String> attachmentId = uploadEnabled ? attachmentStore.attachmentId(url) : Optional.empty();
+            this.reusableMessage = attachmentId.map(this::reusableMessage).orElse(null);
+        }
+
+        void send(String recipientId) {
+            final PrecompiledMessage reusableMessage = this.reusableMessage;
+            if (reusableMessage == null) {
+                if (uploadEnabled) {
+                    scheduleUpload();
+                }
+                outboundSender.send(recipientId, this.urlMessage);
+                return;
+            }
+            outboundSender.send(recipientId, reusableMessage, () -> rejected(reusableMessage));
+        }
+
+        /**
+         * Forgets the attachment ID of the rejected message, unless it has been replaced already, and falls back to
+         * the URL.
+         */
+        private PrecompiledMessage rejected(PrecompiledMessage reusableMessage) {
+            synchronized (this) {
+                if (this.reusableMessage != reusableMessage) {
+                    return this.urlMessage;
+                }
+                this.reusableMessage = null;
+            }
+            logger.warn("Reusable attachment of media asset '{}' has been rejected, sending it by URL", this.url);
+            try {
+                attachmentStore.remove(this.url);
+            } catch (IOException e) {
+                logger.warn("Attachment ID of media asset '{}' could not be removed: {}", this.url, e.getMessage());
+            }
+            return this.urlMessage;
+        }
+
+        private void scheduleUpload() {
+            if (System.currentTimeMillis() < this.nextUploadAttempt || !this.uploading.compareAndSet(false, true)) {
+                return;
+            }
+            uploadExecutor.execute(() -> {
+                try {
+                    final String attachmentId = attachmentUploader.upload(this.type, this.url);
+                    attachmentStore.put(this.url, attachmentId);
+                    this.reusableMessage = reusableMessage(attachmentId);
+                    logger.info("Uploaded media asset '{}' as reusable attachment '{}'", this.url, attachmentId);
+                } catch (IOException | RuntimeException e) {
+                    this.nextUploadAttempt = System.currentTimeMillis() + UPLOAD_RETRY_DELAY_MILLIS;
+                    logger.warn("Upload of media asset '{}' failed, sending it by URL: {}", this.url, e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    this.uploading.set(false);
+                }
+            });
+        }
+
+        private PrecompiledMessage reusableMessage(String attachmentId) {
+            return messageTemplates.precompile(RichMediaMessage.create(ReusableRichMediaAsset.create(this.type, attachmentId)));
+        }
+    }
+}
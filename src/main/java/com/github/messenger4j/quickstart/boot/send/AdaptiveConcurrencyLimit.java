@@ -0,0 +1,64 @@
+package com.github.messenger4j.quickstart.boot.send;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of concurrent Send API calls with additive increase, multiplicative decrease (AIMD).
+ *
+ * <p>
+ * Every successful call raises the limit by {@code 1 / limit}, i.e. by about one per round of calls; a throttled call
+ * halves it. Throttling errors of calls that have been in flight at the same time are counted as one, so the limit is
+ * halved at most once per {@link #DECREASE_INTERVAL_NANOS}.
+ * </p>
+ */
+final class AdaptiveConcurrencyLimit {
+
+    static final long DECREASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int minimum;
+    private final int maximum;
+    private final LongSupplier nanoClock;
+    private double limit;
+    private int inFlight;
+    private long decreasedAt;
+
+    AdaptiveConcurrencyLimit(int minimum, int maximum, LongSupplier nanoClock) {
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.nanoClock = nanoClock;
+        this.limit = maximum;
+        this.decreasedAt = nanoClock.getAsLong() - DECREASE_INTERVAL_NANOS;
+    }
+
+    synchronized void acquire() throws InterruptedException {
+        while (this.inFlight >= (int) this.limit) {
+            wait();
+        }
+        this.inFlight++;
+    }
+
+    synchronized void release() {
+        this.inFlight--;
+        notifyAll();
+    }
+
+    synchronized void increase() {
+        if (this.limit < this.maximum) {
+            this.limit = Math.min(this.maximum, this.limit + 1 / this.limit);
+            notifyAll();
+        }
+    }
+
+    synchronized void decrease() {
+        final long now = this.nanoClock.getAsLong();
+        if (now - this.decreasedAt >= DECREASE_INTERVAL_NANOS) {
+            this.limit = Math.max(this.minimum, this.limit / 2);
+            this.decreasedAt = now;
+        }
+    }
+
+    synchronized int limit() {
+        return (int) this.limit;
+    }
+}
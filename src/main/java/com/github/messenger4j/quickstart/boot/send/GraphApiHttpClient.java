@@ -0,0 +1,79 @@
+package com.github.messenger4j.quickstart.boot.send;
+
+import com.github.messenger4j.spi.MessengerHttpClient;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * HTTP transport for all Graph API calls of the {@code Messenger}.
+ *
+ * <p>
+ * Keeps a pool of keep-alive connections sized for the number of concurrent outbound senders, so that consecutive
+ * calls reuse warm connections (multiplexed over HTTP/2 where the JVM supports ALPN) instead of paying for a new TLS
+ * handshake. The rate limit usage reported in the response headers is passed on to the {@link GraphApiUsage}. The Graph
+ * API base URL can be pointed at a local stub for testing.
+ * </p>
+ */
+@Component
+public class GraphApiHttpClient implements MessengerHttpClient {
+
+    static final String FACEBOOK_GRAPH_API_URL = "https://graph.facebook.com";
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private final OkHttpClient okHttpClient;
+    private final String graphApiUrl;
+    private final GraphApiUsage usage;
+
+    @Autowired
+    public GraphApiHttpClient(final GraphApiUsage usage, @Value("${messenger4j.graphApiUrl}") final String graphApiUrl,
+                              @Value("${messenger4j.outbound.maxIdleConnections}") final int maxIdleConnections,
+                              @Value("${messenger4j.outbound.keepAliveSeconds}") final long keepAliveSeconds) {
+        this.usage = usage;
+        this.graphApiUrl = graphApiUrl.endsWith("/") ? graphApiUrl.substring(0, graphApiUrl.length() - 1) : graphApiUrl;
+        this.okHttpClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public HttpResponse execute(HttpMethod httpMethod, String url, String jsonBody) throws IOException {
+        final Request.Builder request = new Request.Builder().url(rewrite(url));
+        switch (httpMethod) {
+            case GET:
+                request.get();
+                break;
+            case POST:
+                request.post(RequestBody.create(JSON, jsonBody));
+                break;
+            case DELETE:
+                request.delete(RequestBody.create(JSON, jsonBody));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported HTTP method: " + httpMethod);
+        }
+        try (Response response = this.okHttpClient.newCall(request.build()).execute()) {
+            this.usage.update(response.header(GraphApiUsage.USAGE_HEADERS[0]), response.header(GraphApiUsage.USAGE_HEADERS[1]),
+                    response.header(GraphApiUsage.USAGE_HEADERS[2]));
+            return new HttpResponse(response.code(), response.body().string());
+        }
+    }
+
+    String rewrite(String url) {
+        if (url.startsWith(FACEBOOK_GRAPH_API_URL)) {
+            return this.graphApiUrl + url.substring(FACEBOOK_GRAPH_API_URL.length());
+        }
+        return url;
+    }
+}
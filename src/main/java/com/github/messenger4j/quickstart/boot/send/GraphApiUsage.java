@@ -0,0 +1,103 @@
+package com.github.messenger4j.quickstart.boot.send;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latest rate limit usage reported by the Graph API in the {@code X-App-Usage}, {@code X-Page-Usage} and
+ * {@code X-Business-Use-Case-Usage} response headers.
+ *
+ * <p>
+ * The usage is the highest of the reported {@code call_count}, {@code total_time} and {@code total_cputime}
+ * percentages. An {@code estimated_time_to_regain_access} tells how long the page is blocked.
+ * </p>
+ */
+@Component
+public class GraphApiUsage {
+
+    static final String[] USAGE_HEADERS = {"X-App-Usage", "X-Page-Usage", "X-Business-Use-Case-Usage"};
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphApiUsage.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LongSupplier nanoClock;
+    private volatile int percent;
+    private volatile long blockedUntilNanos;
+
+    public GraphApiUsage() {
+        this(System::nanoTime);
+    }
+
+    GraphApiUsage(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.blockedUntilNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Records the usage headers of a single response; {@code null} values stand for missing headers.
+     */
+    public void update(String... headerValues) {
+        int percent = 0;
+        long regainAccessMinutes = 0;
+        boolean reported = false;
+        for (String headerValue : headerValues) {
+            if (headerValue == null || headerValue.isEmpty()) {
+                continue;
+            }
+            try {
+                final JsonNode usage = this.objectMapper.readTree(headerValue);
+                percent = Math.max(percent, maximum(usage, "call_count", "total_time", "total_cputime"));
+                regainAccessMinutes = Math.max(regainAccessMinutes, maximum(usage, "estimated_time_to_regain_access"));
+                reported = true;
+            } catch (IOException e) {
+                logger.debug("Graph API usage header '{}' could not be parsed: {}", headerValue, e.getMessage());
+            }
+        }
+        if (reported) {
+            this.percent = percent;
+            if (regainAccessMinutes > 0) {
+                this.blockedUntilNanos = this.nanoClock.getAsLong() + TimeUnit.MINUTES.toNanos(regainAccessMinutes);
+                logger.warn("Graph API blocks the page for {} minutes", regainAccessMinutes);
+            }
+        }
+    }
+
+    /**
+     * Highest usage of the rate limits in percent, as of the latest response that reported it.
+     */
+    public int percent() {
+        return this.percent;
+    }
+
+    public long blockedUntilNanos() {
+        return this.blockedUntilNanos;
+    }
+
+    /**
+     * Searches the whole header, as the business use case usage is nested by business and type.
+     */
+    private static int maximum(JsonNode node, String... fieldNames) {
+        int maximum = 0;
+        if (node.isObject()) {
+            for (String fieldName : fieldNames) {
+                maximum = Math.max(maximum, node.path(fieldName).asInt(0));
+            }
+            for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+                maximum = Math.max(maximum, maximum(fields.next().getValue(), fieldNames));
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                maximum = Math.max(maximum, maximum(element, fieldNames));
+            }
+        }
+        return maximum;
+    }
+}
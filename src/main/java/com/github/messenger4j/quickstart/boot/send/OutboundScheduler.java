@@ -0,0 +1,217 @@
+package com.github.messenger4j.quickstart.boot.send;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.messenger4j.exception.MessengerApiException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides when the {@link OutboundSender} may call the Send API, so that the page stays below the Graph API rate
+ * limits instead of running into them.
+ *
+ * <p>
+ * A call needs a token of the page's bucket and of the recipient's bucket, and a slot of the
+ * {@link AdaptiveConcurrencyLimit}. Throttling errors and a high usage reported by the Graph API halve the concurrency;
+ * throttled and temporarily failed calls are retried with exponential backoff and full jitter. While the page is
+ * throttled or blocked, its bucket is paused for the backoff.
+ * </p>
+ */
+@Component
+public class OutboundScheduler {
+
+    /**
+     * Graph API error codes for exceeded rate limits: application, user, page, API-specific, and Messenger limits.
+     */
+    static final Set<Integer> THROTTLING_ERROR_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(4, 17, 32, 613, 80006)));
+
+    /**
+     * Graph API error codes for temporary failures, after which the request can be sent again as it is.
+     */
+    static final Set<Integer> TRANSIENT_ERROR_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(1, 2, 1200)));
+
+    /**
+     * Graph API error code for an invalid parameter, which the Send API also answers to an attachment ID that is not
+     * valid for the page.
+     */
+    static final int INVALID_PARAMETER_ERROR_CODE = 100;
+
+    static final long NO_RETRY = -1L;
+
+    private final GraphApiUsage usage;
+    private final LongSupplier nanoClock;
+    private final TokenBucket pageBucket;
+    private final Cache<String, TokenBucket> recipientBuckets;
+    private final double recipientRatePerSecond;
+    private final int recipientBurst;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final int maxRetries;
+    private final long retryBaseNanos;
+    private final long retryMaxNanos;
+    private final int usageThreshold;
+
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong delayed = new AtomicLong();
+
+    @Autowired
+    public OutboundScheduler(final GraphApiUsage usage,
+                             @Value("${messenger4j.outbound.concurrency}") final int concurrency,
+                             @Value("${messenger4j.outbound.pageRatePerSecond}") final double pageRatePerSecond,
+                             @Value("${messenger4j.outbound.pageBurst}") final int pageBurst,
+                             @Value("${messenger4j.outbound.recipientRatePerSecond}") final double recipientRatePerSecond,
+                             @Value("${messenger4j.outbound.recipientBurst}") final int recipientBurst,
+                             @Value("${messenger4j.outbound.maxRetries}") final int maxRetries,
+                             @Value("${messenger4j.outbound.retryBaseMillis}") final long retryBaseMillis,
+                             @Value("${messenger4j.outbound.retryMaxMillis}") final long retryMaxMillis,
+                             @Value("${messenger4j.outbound.usageThreshold}") final int usageThreshold) {
+        this(usage, concurrency, pageRatePerSecond, pageBurst, recipientRatePerSecond, recipientBurst, maxRetries, retryBaseMillis, retryMaxMillis,
+                usageThreshold, System::nanoTime);
+    }
+
+    OutboundScheduler(GraphApiUsage usage, int concurrency, double pageRatePerSecond, int pageBurst, double recipientRatePerSecond,
+                      int recipientBurst, int maxRetries, long retryBaseMillis, long retryMaxMillis, int usageThreshold, LongSupplier nanoClock) {
+        this.usage = usage;
+        this.nanoClock = nanoClock;
+        this.pageBucket = new TokenBucket(pageRatePerSecond, pageBurst, nanoClock.getAsLong());
+        this.recipientBuckets = Caffeine.newBuilder().expireAfterAccess(1, TimeUnit.MINUTES).build();
+        this.recipientRatePerSecond = recipientRatePerSecond;
+        this.recipientBurst = recipientBurst;
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(1, concurrency, nanoClock);
+        this.maxRetries = maxRetries;
+        this.retryBaseNanos = TimeUnit.MILLISECONDS.toNanos(retryBaseMillis);
+        this.retryMaxNanos = TimeUnit.MILLISECONDS.toNanos(retryMaxMillis);
+        this.usageThreshold = usageThreshold;
+    }
+
+    /**
+     * Takes the tokens for a call to the recipient.
+     *
+     * @return {@code 0} if the call may be made now, otherwise the nanoseconds to wait before asking again
+     */
+    long admit(String recipientId) {
+        final long now = this.nanoClock.getAsLong();
+        observeUsage(now);
+        final TokenBucket recipientBucket = this.recipientBuckets.get(recipientId,
+                id -> new TokenBucket(this.recipientRatePerSecond, this.recipientBurst, now));
+        final long recipientDelay = recipientBucket.tryAcquire(now);
+        if (recipientDelay > 0) {
+            this.delayed.incrementAndGet();
+            return recipientDelay;
+        }
+        final long pageDelay = this.pageBucket.tryAcquire(now);
+        if (pageDelay > 0) {
+            recipientBucket.refund();
+            this.delayed.incrementAndGet();
+            return pageDelay;
+        }
+        return 0;
+    }
+
+    /**
+     * Takes the page's token for a call that has no recipient, e.g. an upload through the Attachment Upload API.
+     *
+     * @return {@code 0} if the call may be made now, otherwise the nanoseconds to wait before asking again
+     */
+    long admitPage() {
+        final long now = this.nanoClock.getAsLong();
+        observeUsage(now);
+        final long pageDelay = this.pageBucket.tryAcquire(now);
+        if (pageDelay > 0) {
+            this.delayed.incrementAndGet();
+        }
+        return pageDelay;
+    }
+
+    private void observeUsage(long now) {
+        final long blockedUntil = this.usage.blockedUntilNanos();
+        if (blockedUntil - now > 0) {
+            this.pageBucket.pauseUntil(blockedUntil);
+        }
+        if (this.usage.percent() >= this.usageThreshold) {
+            this.concurrencyLimit.decrease();
+        }
+    }
+
+    void acquireSlot() throws InterruptedException {
+        this.concurrencyLimit.acquire();
+    }
+
+    void releaseSlot() {
+        this.concurrencyLimit.release();
+    }
+
+    void onSuccess() {
+        this.concurrencyLimit.increase();
+    }
+
+    /**
+     * Classifies a failed call.
+     *
+     * @param attempt the number of retries that have been made already
+     * @return the nanoseconds after which the call is to be retried, or {@link #NO_RETRY}
+     */
+    long onFailure(Exception e, int attempt) {
+        final Optional<Integer> errorCode = errorCode(e);
+        final boolean throttling = errorCode.filter(THROTTLING_ERROR_CODES::contains).isPresent() || statusCode(e) == 429;
+        final boolean transientFailure = errorCode.filter(TRANSIENT_ERROR_CODES::contains).isPresent() || statusCode(e) == 503;
+        if (throttling) {
+            this.throttled.incrementAndGet();
+            this.concurrencyLimit.decrease();
+        }
+        if (!(throttling || transientFailure) || attempt >= this.maxRetries) {
+            return NO_RETRY;
+        }
+        final long backoff = this.retryBaseNanos << Math.min(attempt, 30);
+        final long delay = Math.max(this.retryBaseNanos, ThreadLocalRandom.current().nextLong(Math.min(this.retryMaxNanos, backoff) + 1));
+        if (throttling) {
+            this.pageBucket.pauseUntil(this.nanoClock.getAsLong() + delay);
+        }
+        return delay;
+    }
+
+    static boolean isInvalidParameter(Exception e) {
+        return errorCode(e).filter(errorCode -> errorCode == INVALID_PARAMETER_ERROR_CODE).isPresent();
+    }
+
+    private static Optional<Integer> errorCode(Exception e) {
+        if (e instanceof MessengerApiException) {
+            return ((MessengerApiException) e).code();
+        }
+        if (e instanceof SendApiException) {
+            return ((SendApiException) e).errorCode();
+        }
+        return Optional.empty();
+    }
+
+    private static int statusCode(Exception e) {
+        return e instanceof SendApiException ? ((SendApiException) e).statusCode() : 0;
+    }
+
+    /**
+     * Number of calls that have been throttled by the Graph API.
+     */
+    public long throttled() {
+        return this.throttled.get();
+    }
+
+    /**
+     * Number of times a call has been held back to stay within the rate limits.
+     */
+    public long delayed() {
+        return this.delayed.get();
+    }
+
+    public int concurrencyLimit() {
+        return this.concurrencyLimit.limit();
+    }
+}
@@ -0,0 +1,567 @@
+package com.github.messenger4j.quickstart.boot.send;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.messenger4j.Messenger;
+import com.github.messenger4j.exception.MessengerApiException;
+import com.github.messenger4j.exception.MessengerIOException;
+import com.github.messenger4j.quickstart.boot.dispatch.WorkerThreads;
+import com.github.messenger4j.quickstart.boot.template.PrecompiledMessage;
+import com.github.messenger4j.send.MessagePayload;
+import com.github.messenger4j.send.SenderActionPayload;
+import com.github.messenger4j.send.senderaction.SenderAction;
+import com.github.messenger4j.spi.MessengerHttpClient;
+import com.github.messenger4j.spi.MessengerHttpClient.HttpMethod;
+import com.github.messenger4j.spi.MessengerHttpClient.HttpResponse;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Outbound pipeline stage between the event handlers and {@link Messenger#send}.
+ *
+ * <p>
+ * Payloads are queued in a mailbox per recipient and handed to the Send API by a pool of sender threads. At most one
+ * sender works on a mailbox at a time, so every recipient receives its payloads in the order they have been queued,
+ * while payloads for different recipients are sent concurrently over the pooled connections of the
+ * {@link GraphApiHttpClient}. Precompiled messages are posted through the same transport without being serialized again.
+ * </p>
+ *
+ * <p>
+ * The {@link OutboundScheduler} paces the calls to stay within the Graph API rate limits. A mailbox whose recipient or
+ * page is out of tokens, or whose payload has to be retried, is put aside for the delay and resumed afterwards, so the
+ * sender threads are never blocked by a backoff and the order per recipient is kept.
+ * </p>
+ *
+ * <p>
+ * Sender actions that have not been sent yet are coalesced: a repeated action is dropped, and a typing indicator that
+ * is directly followed by another one (e.g. {@code TYPING_ON} by {@code TYPING_OFF}) is superseded by it.
+ * </p>
+ *
+ * <p>
+ * A reply that is still being prepared, e.g. the acknowledgement of attachments that are being fetched, can be queued
+ * as a future of its payloads. It holds its place in the mailbox: the payloads queued after it wait until it has
+ * completed, while the sender thread goes on with other mailboxes rather than waiting for it.
+ * </p>
+ *
+ * <p>
+ * {@link #whenSent} tells when the payloads that have been queued for a recipient so far are done, so that an event
+ * is only considered processed once its replies have left the application.
+ * </p>
+ */
+@Component
+public class OutboundSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundSender.class);
+
+    private final Messenger messenger;
+    private final MessengerHttpClient httpClient;
+    private final OutboundScheduler scheduler;
+    private final SendMetrics metrics;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor;
+    private final ScheduledExecutorService delayExecutor;
+    private final int queueCapacity;
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+
+    @Autowired
+    public OutboundSender(final Messenger messenger, final MessengerHttpClient httpClient, final OutboundScheduler scheduler,
+                          final SendMetrics metrics,
+                          @Value("${messenger4j.outbound.concurrency}") final int concurrency,
+                          @Value("${messenger4j.outbound.queueCapacity}") final int queueCapacity,
+                          @Value("${messenger4j.dispatcher.virtualThreads}") final boolean virtualThreads) {
+        this.messenger = messenger;
+        this.httpClient = httpClient;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.queueCapacity = queueCapacity;
+        this.executor = Executors.newFixedThreadPool(concurrency, WorkerThreads.threadFactory("outbound-sender-", virtualThreads));
+        this.delayExecutor = Executors.newSingleThreadScheduledExecutor(WorkerThreads.threadFactory("outbound-delay-", false));
+    }
+
+    public void send(String recipientId, MessagePayload messagePayload) {
+        enqueue(recipientId, new Outbound(messagePayload, null, null, 0));
+    }
+
+    /**
+     * Sends the precompiled Send API request of the message, so that the message is not serialized again.
+     */
+    public void send(String recipientId, PrecompiledMessage precompiledMessage) {
+        enqueue(recipientId, new Outbound(null, null, precompiledMessage, 0));
+    }
+
+    /**
+     * Sends the precompiled message like {@link #send(String, PrecompiledMessage)}. If the Send API rejects it with an
+     * invalid parameter error, e.g. because it refers to an attachment ID that is not valid for the page, the message
+     * that {@code onRejected} supplies is sent in its place.
+     */
+    public void send(String recipientId, PrecompiledMessage precompiledMessage, Supplier<PrecompiledMessage> onRejected) {
+        enqueue(recipientId, new Outbound(null, null, precompiledMessage, 0, null, null, onRejected));
+    }
+
+    public void send(String recipientId, SenderAction senderAction) {
+        enqueue(recipientId, new Outbound(null, senderAction, null, 0));
+    }
+
+    /**
+     * Queues the payloads that the future completes with, in the place of the mailbox they have at the time of this
+     * call. The payloads queued for the recipient afterwards are sent after them. If the future fails, nothing is sent
+     * in its place.
+     */
+    public void send(String recipientId, CompletableFuture<List<MessagePayload>> deferredPayloads) {
+        enqueue(recipientId, Outbound.deferred(deferredPayloads));
+    }
+
+    /**
+     * @return a future that completes once every payload that has been queued for the recipient so far has been sent,
+     * or has been given up after its retries. It does not complete if the sender is shut down before.
+     */
+    public CompletableFuture<Void> whenSent(String recipientId) {
+        final Mailbox mailbox = this.mailboxes.get(recipientId);
+        if (mailbox == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        synchronized (mailbox) {
+            if (mailbox.retired) {
+                // drained completely, so nothing queued before is left
+                return CompletableFuture.completedFuture(null);
+            }
+            final CompletableFuture<Void> barrier = new CompletableFuture<>();
+            mailbox.queue.addLast(Outbound.barrier(barrier));
+            if (!mailbox.scheduled) {
+                mailbox.scheduled = true;
+                try {
+                    this.executor.execute(() -> drain(mailbox));
+                } catch (RejectedExecutionException e) {
+                    // shut down, the payloads are not sent anymore
+                }
+            }
+            return barrier;
+        }
+    }
+
+    /**
+     * Sends the precompiled message to the recipient on the calling thread and returns once the Send API has accepted
+     * it, for callers that pace themselves, e.g. a broadcast. The call is rate limited and retried like a queued
+     * payload, but bypasses the mailboxes, so it is not ordered with the payloads that are queued for the recipient.
+     *
+     * @throws InterruptedException if the thread has been interrupted while waiting for a token, a slot, or a retry
+     */
+    public void sendAndWait(String recipientId, PrecompiledMessage precompiledMessage)
+            throws InterruptedException, MessengerApiException, MessengerIOException, IOException {
+        final Outbound outbound = new Outbound(null, null, precompiledMessage, 0);
+        for (int attempt = 0; ; attempt++) {
+            long delayNanos;
+            while ((delayNanos = this.scheduler.admit(recipientId)) > 0) {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            }
+            this.scheduler.acquireSlot();
+            final long retryDelayNanos;
+            final long startNanos = this.metrics.started();
+            try {
+                sendPrecompiled(recipientId, precompiledMessage);
+                this.metrics.finished(outbound.payloadType(), startNanos, true);
+                this.scheduler.onSuccess();
+                this.sent.incrementAndGet();
+                return;
+            } catch (MessengerApiException | MessengerIOException | IOException | RuntimeException e) {
+                this.metrics.finished(outbound.payloadType(), startNanos, false);
+                this.metrics.error(e);
+                retryDelayNanos = this.scheduler.onFailure(e, attempt);
+                if (retryDelayNanos == OutboundScheduler.NO_RETRY) {
+                    this.failed.incrementAndGet();
+                    throw e;
+                }
+                this.retried.incrementAndGet();
+            } finally {
+                this.scheduler.releaseSlot();
+            }
+            TimeUnit.NANOSECONDS.sleep(retryDelayNanos);
+        }
+    }
+
+    /**
+     * Posts the request to the Attachment Upload API on the calling thread and returns the body of the response once
+     * the upload has been accepted. The upload takes a token of the page, but none of a recipient, and a slot, and is
+     * retried like a queued payload, so that uploads and messages share the rate limits of the page.
+     *
+     * @throws InterruptedException if the thread has been interrupted while waiting for a token, a slot, or a retry
+     */
+    public String uploadAndWait(String url, String jsonBody) throws InterruptedException, IOException {
+        for (int attempt = 0; ; attempt++) {
+            long delayNanos;
+            while ((delayNanos = this.scheduler.admitPage()) > 0) {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            }
+            this.scheduler.acquireSlot();
+            final long retryDelayNanos;
+            final long startNanos = this.metrics.started();
+            try {
+                final String responseBody = post(url, jsonBody);
+                this.metrics.finished(PayloadType.ATTACHMENT_UPLOAD, startNanos, true);
+                this.scheduler.onSuccess();
+                return responseBody;
+            } catch (IOException | RuntimeException e) {
+                this.metrics.finished(PayloadType.ATTACHMENT_UPLOAD, startNanos, false);
+                this.metrics.error(e);
+                retryDelayNanos = this.scheduler.onFailure(e, attempt);
+                if (retryDelayNanos == OutboundScheduler.NO_RETRY) {
+                    throw e;
+                }
+            } finally {
+                this.scheduler.releaseSlot();
+            }
+            TimeUnit.NANOSECONDS.sleep(retryDelayNanos);
+        }
+    }
+
+    private void enqueue(String recipientId, Outbound outbound) {
+        if (this.pending.incrementAndGet() > this.queueCapacity) {
+            this.pending.decrementAndGet();
+            this.rejected.incrementAndGet();
+            logger.error("Outbound queue is full, dropping payload for recipient '{}'", recipientId);
+            return;
+        }
+        while (true) {
+            final Mailbox mailbox = this.mailboxes.computeIfAbsent(recipientId, Mailbox::new);
+            synchronized (mailbox) {
+                if (mailbox.retired) {
+                    continue;
+                }
+                final int dropped = mailbox.offer(outbound);
+                if (dropped > 0) {
+                    this.pending.addAndGet(-dropped);
+                    this.coalesced.addAndGet(dropped);
+                }
+                if (!mailbox.scheduled && !mailbox.queue.isEmpty()) {
+                    mailbox.scheduled = true;
+                    this.executor.execute(() -> drain(mailbox));
+                }
+                return;
+            }
+        }
+    }
+
+    private void drain(Mailbox mailbox) {
+        while (true) {
+            final Outbound outbound;
+            synchronized (mailbox) {
+                outbound = mailbox.queue.pollFirst();
+                if (outbound == null) {
+                    mailbox.scheduled = false;
+                    mailbox.retired = true;
+                    this.mailboxes.remove(mailbox.recipientId, mailbox);
+                    return;
+                }
+            }
+            if (outbound.barrier != null) {
+                outbound.barrier.complete(null);
+                continue;
+            }
+            if (outbound.deferred != null) {
+                if (!outbound.deferred.isDone()) {
+                    resumeWhenDone(mailbox, outbound);
+                    return;
+                }
+                expand(mailbox, outbound.deferred);
+                continue;
+            }
+            final long delayNanos = this.scheduler.admit(mailbox.recipientId);
+            if (delayNanos > 0) {
+                resumeLater(mailbox, outbound, delayNanos);
+                return;
+            }
+            try {
+                this.scheduler.acquireSlot();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                resumeLater(mailbox, outbound, 0);
+                return;
+            }
+            final long startNanos = this.metrics.started();
+            try {
+                send(mailbox.recipientId, outbound);
+                this.metrics.finished(outbound.payloadType(), startNanos, true);
+                this.scheduler.onSuccess();
+                this.pending.decrementAndGet();
+                this.sent.incrementAndGet();
+            } catch (MessengerApiException | MessengerIOException | IOException | RuntimeException e) {
+                this.metrics.finished(outbound.payloadType(), startNanos, false);
+                this.metrics.error(e);
+                final long retryDelayNanos = this.scheduler.onFailure(e, outbound.attempt);
+                if (retryDelayNanos != OutboundScheduler.NO_RETRY) {
+                    this.retried.incrementAndGet();
+                    logger.warn("Message to recipient '{}' could not be sent, retrying in {} ms: {}", mailbox.recipientId,
+                            TimeUnit.NANOSECONDS.toMillis(retryDelayNanos), e.getMessage());
+                    resumeLater(mailbox, outbound.retry(), retryDelayNanos);
+                    return;
+                }
+                if (outbound.onRejected != null && OutboundScheduler.isInvalidParameter(e)) {
+                    logger.warn("Message to recipient '{}' has been rejected, sending its replacement: {}", mailbox.recipientId,
+                            e.getMessage());
+                    synchronized (mailbox) {
+                        mailbox.queue.addFirst(new Outbound(null, null, outbound.onRejected.get(), 0));
+                    }
+                    continue;
+                }
+                this.pending.decrementAndGet();
+                this.failed.incrementAndGet();
+                logger.error("Message could not be sent. An unexpected error occurred.", e);
+            } finally {
+                this.scheduler.releaseSlot();
+            }
+        }
+    }
+
+    /**
+     * Puts the payload back to the head of its mailbox and resumes the mailbox after the delay. The mailbox stays
+     * scheduled in the meantime, so no other sender thread takes it over.
+     */
+    private void resumeLater(Mailbox mailbox, Outbound outbound, long delayNanos) {
+        synchronized (mailbox) {
+            mailbox.queue.addFirst(outbound);
+        }
+        try {
+            this.delayExecutor.schedule(() -> this.executor.execute(() -> drain(mailbox)), delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Outbound sender has been shut down, message to recipient '{}' is not sent", mailbox.recipientId);
+        }
+    }
+
+    /**
+     * Puts the deferred payloads back to the head of their mailbox and resumes the mailbox once they are done. As with
+     * {@link #resumeLater}, the mailbox stays scheduled in the meantime.
+     */
+    private void resumeWhenDone(Mailbox mailbox, Outbound outbound) {
+        synchronized (mailbox) {
+            mailbox.queue.addFirst(outbound);
+        }
+        outbound.deferred.whenComplete((payloads, failure) -> {
+            try {
+                this.executor.execute(() -> drain(mailbox));
+            } catch (RejectedExecutionException e) {
+                logger.warn("Outbound sender has been shut down, message to recipient '{}' is not sent", mailbox.recipientId);
+            }
+        });
+    }
+
+    /**
+     * Replaces the completed deferred payloads at the head of their mailbox by the payloads themselves.
+     */
+    private void expand(Mailbox mailbox, CompletableFuture<List<MessagePayload>> deferred) {
+        List<MessagePayload> payloads;
+        try {
+            payloads = deferred.join();
+        } catch (CompletionException | CancellationException e) {
+            logger.error("Message to recipient '{}' could not be prepared", mailbox.recipientId, e);
+            payloads = Collections.emptyList();
+        }
+        this.pending.addAndGet(payloads.size() - 1);
+        synchronized (mailbox) {
+            for (ListIterator<MessagePayload> payload = payloads.listIterator(payloads.size()); payload.hasPrevious(); ) {
+                mailbox.queue.addFirst(new Outbound(payload.previous(), null, null, 0));
+            }
+        }
+    }
+
+    private void send(String recipientId, Outbound outbound) throws MessengerApiException, MessengerIOException, IOException {
+        if (outbound.senderAction != null) {
+            this.messenger.send(SenderActionPayload.create(recipientId, outbound.senderAction));
+        } else if (outbound.precompiledMessage != null) {
+            sendPrecompiled(recipientId, outbound.precompiledMessage);
+        } else {
+            this.messenger.send(outbound.messagePayload);
+        }
+    }
+
+    private void sendPrecompiled(String recipientId, PrecompiledMessage precompiledMessage)
+            throws MessengerApiException, MessengerIOException, IOException {
+        final Optional<String> jsonBody = precompiledMessage.json(recipientId);
+        if (!jsonBody.isPresent()) {
+            this.messenger.send(precompiledMessage.payload(recipientId));
+            return;
+        }
+        post(precompiledMessage.url(), jsonBody.get());
+    }
+
+    private String post(String url, String jsonBody) throws IOException {
+        final HttpResponse response;
+        try {
+            response = this.httpClient.execute(HttpMethod.POST, url, jsonBody);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        if (response.statusCode() != 200) {
+            throw new SendApiException(response.statusCode(), errorCode(response.body()), response.body());
+        }
+        return response.body();
+    }
+
+    private Integer errorCode(String responseBody) {
+        try {
+            final JsonNode code = this.objectMapper.readTree(responseBody).path("error").path("code");
+            return code.isInt() ? code.intValue() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Number of payloads that are queued and not sent yet.
+     */
+    public int pending() {
+        return this.pending.get();
+    }
+
+    public long sent() {
+        return this.sent.get();
+    }
+
+    public long failed() {
+        return this.failed.get();
+    }
+
+    public long coalesced() {
+        return this.coalesced.get();
+    }
+
+    public long rejected() {
+        return this.rejected.get();
+    }
+
+    public long retried() {
+        return this.retried.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        this.delayExecutor.shutdownNow();
+        this.executor.shutdown();
+        if (!this.executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            this.executor.shutdownNow();
+            logger.warn("{} outbound payloads have not been sent before shutdown", this.pending.get());
+        }
+    }
+
+    static final class Outbound {
+
+        final MessagePayload messagePayload;
+        final SenderAction senderAction;
+        final PrecompiledMessage precompiledMessage;
+        final int attempt;
+        final CompletableFuture<Void> barrier;
+        final CompletableFuture<List<MessagePayload>> deferred;
+        final Supplier<PrecompiledMessage> onRejected;
+
+        Outbound(MessagePayload messagePayload, SenderAction senderAction, PrecompiledMessage precompiledMessage, int attempt) {
+            this(messagePayload, senderAction, precompiledMessage, attempt, null, null, null);
+        }
+
+        private Outbound(MessagePayload messagePayload, SenderAction senderAction, PrecompiledMessage precompiledMessage, int attempt,
+                         CompletableFuture<Void> barrier, CompletableFuture<List<MessagePayload>> deferred,
+                         Supplier<PrecompiledMessage> onRejected) {
+            this.messagePayload = messagePayload;
+            this.senderAction = senderAction;
+            this.precompiledMessage = precompiledMessage;
+            this.attempt = attempt;
+            this.barrier = barrier;
+            this.deferred = deferred;
+            this.onRejected = onRejected;
+        }
+
+        /**
+         * A marker that completes the future once the payloads before it are done, without sending anything.
+         */
+        static Outbound barrier(CompletableFuture<Void> barrier) {
+            return new Outbound(null, null, null, 0, barrier, null, null);
+        }
+
+        /**
+         * A placeholder for payloads that are not known yet, which is replaced by them once the future is done.
+         */
+        static Outbound deferred(CompletableFuture<List<MessagePayload>> deferred) {
+            return new Outbound(null, null, null, 0, null, deferred, null);
+        }
+
+        PayloadType payloadType() {
+            if (this.senderAction != null) {
+                return PayloadType.SENDER_ACTION;
+            }
+            return PayloadType.of(this.precompiledMessage != null ? this.precompiledMessage.message() : this.messagePayload.message());
+        }
+
+        Outbound retry() {
+            return new Outbound(this.messagePayload, this.senderAction, this.precompiledMessage, this.attempt + 1, null, null,
+                    this.onRejected);
+        }
+    }
+
+    /**
+     * Payloads of a single recipient. Guarded by its own monitor.
+     */
+    static final class Mailbox {
+
+        final String recipientId;
+        final Deque<Outbound> queue = new ArrayDeque<>();
+        boolean scheduled;
+        boolean retired;
+
+        Mailbox(String recipientId) {
+            this.recipientId = recipientId;
+        }
+
+        /**
+         * @return the number of payloads that have been dropped by coalescing
+         */
+        int offer(Outbound outbound) {
+            final Outbound last = this.queue.peekLast();
+            if (outbound.senderAction != null && last != null && last.senderAction != null) {
+                if (last.senderAction == outbound.senderAction) {
+                    return 1;
+                }
+                if (isTyping(last.senderAction) && isTyping(outbound.senderAction)) {
+                    this.queue.pollLast();
+                    this.queue.addLast(outbound);
+                    return 1;
+                }
+            }
+            this.queue.addLast(outbound);
+            return 0;
+        }
+
+        private static boolean isTyping(SenderAction senderAction) {
+            return senderAction == SenderAction.TYPING_ON || senderAction == SenderAction.TYPING_OFF;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.messenger4j.quickstart.boot.send;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the queue and delivery figures of the {@link OutboundSender}, and the rate limiting figures of the
+ * {@link OutboundScheduler}, through the meter registry.
+ */
+@Component
+public class OutboundSenderMetrics implements MeterBinder {
+
+    private final OutboundSender outboundSender;
+    private final OutboundScheduler scheduler;
+    private final GraphApiUsage usage;
+
+    @Autowired
+    public OutboundSenderMetrics(final OutboundSender outboundSender, final OutboundScheduler scheduler, final GraphApiUsage usage) {
+        this.outboundSender = outboundSender;
+        this.scheduler = scheduler;
+        this.usage = usage;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("messenger4j.outbound.pending", this.outboundSender, OutboundSender::pending).register(registry);
+        FunctionCounter.builder("messenger4j.outbound.sent", this.outboundSender, OutboundSender::sent).register(registry);
+        FunctionCounter.builder("messenger4j.outbound.failed", this.outboundSender, OutboundSender::failed).register(registry);
+        FunctionCounter.builder("messenger4j.outbound.coalesced", this.outboundSender, OutboundSender::coalesced).register(registry);
+        FunctionCounter.builder("messenger4j.outbound.rejected", this.outboundSender, OutboundSender::rejected).register(registry);
+        FunctionCounter.builder("messenger4j.outbound.retried", this.outboundSender, OutboundSender::retried).register(registry);
+        FunctionCounter.builder("messenger4j.outbound.throttled", this.scheduler, OutboundScheduler::throttled).register(registry);
+        FunctionCounter.builder("messenger4j.outbound.delayed", this.scheduler, OutboundScheduler::delayed).register(registry);
+        Gauge.builder("messenger4j.outbound.concurrencyLimit", this.scheduler, OutboundScheduler::concurrencyLimit).register(registry);
+        Gauge.builder("messenger4j.outbound.graphApiUsage", this.usage, GraphApiUsage::percent).register(registry);
+    }
+}
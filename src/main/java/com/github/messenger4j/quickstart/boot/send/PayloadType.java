@@ -0,0 +1,39 @@
+package com.github.messenger4j.quickstart.boot.send;
+
+import com.github.messenger4j.send.message.Message;
+import com.github.messenger4j.send.message.RichMediaMessage;
+import com.github.messenger4j.send.message.TemplateMessage;
+import com.github.messenger4j.send.message.TextMessage;
+
+/**
+ * Kind of payload sent through the Send API, or uploaded through the Attachment Upload API, as tagged on the send
+ * metrics.
+ */
+public enum PayloadType {
+
+    TEXT("text"), MEDIA("media"), TEMPLATE("template"), SENDER_ACTION("sender_action"), ATTACHMENT_UPLOAD("attachment_upload"),
+    OTHER("other");
+
+    private final String tag;
+
+    PayloadType(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return this.tag;
+    }
+
+    static PayloadType of(Message message) {
+        if (message instanceof TextMessage) {
+            return TEXT;
+        }
+        if (message instanceof RichMediaMessage) {
+            return MEDIA;
+        }
+        if (message instanceof TemplateMessage) {
+            return TEMPLATE;
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.messenger4j.quickstart.boot.send;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Error response of the Send API to a request that has been posted without the {@code Messenger}.
+ */
+final class SendApiException extends IOException {
+
+    private final int statusCode;
+    private final Integer errorCode;
+
+    SendApiException(int statusCode, Integer errorCode, String body) {
+        super("Send API responded with status " + statusCode + ": " + body);
+        this.statusCode = statusCode;
+        this.errorCode = errorCode;
+    }
+
+    int statusCode() {
+        return this.statusCode;
+    }
+
+    Optional<Integer> errorCode() {
+        return Optional.ofNullable(this.errorCode);
+    }
+}
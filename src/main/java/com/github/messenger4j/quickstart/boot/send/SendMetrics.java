@@ -0,0 +1,96 @@
+package com.github.messenger4j.quickstart.boot.send;
+
+import com.github.messenger4j.exception.MessengerApiException;
+import com.github.messenger4j.exception.MessengerIOException;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency histograms of the Send API calls by payload type and outcome, the number of calls in flight, and the Graph
+ * API errors by error code.
+ *
+ * <p>
+ * The timers are registered up front, so that recording a call costs two clock reads and no lookup in the registry.
+ * Errors are counted under the Graph API error code, {@code io} for transport failures whose outcome is unknown, or
+ * {@code unknown}.
+ * </p>
+ */
+@Component
+public class SendMetrics {
+
+    static final String SEND_TIMER = "messenger4j.send";
+    static final String ERROR_COUNTER = "messenger4j.graphApi.errors";
+
+    private final MeterRegistry registry;
+    private final Clock clock;
+    private final Map<PayloadType, Timer> succeeded = new EnumMap<>(PayloadType.class);
+    private final Map<PayloadType, Timer> failed = new EnumMap<>(PayloadType.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Autowired
+    public SendMetrics(final MeterRegistry registry) {
+        this.registry = registry;
+        this.clock = registry.config().clock();
+        for (PayloadType payloadType : PayloadType.values()) {
+            this.succeeded.put(payloadType, timer(registry, payloadType, "success"));
+            this.failed.put(payloadType, timer(registry, payloadType, "failure"));
+        }
+        Gauge.builder("messenger4j.send.inFlight", this.inFlight, AtomicInteger::get)
+                .description("Send API calls in flight")
+                .register(registry);
+    }
+
+    private static Timer timer(MeterRegistry registry, PayloadType payloadType, String outcome) {
+        return Timer.builder(SEND_TIMER)
+                .description("Send API calls")
+                .tags("payload", payloadType.tag(), "outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+
+    /**
+     * @return the start time to pass to {@link #finished}
+     */
+    public long started() {
+        this.inFlight.incrementAndGet();
+        return this.clock.monotonicTime();
+    }
+
+    public void finished(PayloadType payloadType, long startNanos, boolean success) {
+        final long durationNanos = this.clock.monotonicTime() - startNanos;
+        (success ? this.succeeded : this.failed).get(payloadType).record(durationNanos, TimeUnit.NANOSECONDS);
+        this.inFlight.decrementAndGet();
+    }
+
+    /**
+     * Counts an error of a Graph API call.
+     */
+    public void error(Exception e) {
+        this.registry.counter(ERROR_COUNTER, "code", errorCode(e)).increment();
+    }
+
+    static String errorCode(Exception e) {
+        if (e instanceof MessengerApiException) {
+            return ((MessengerApiException) e).code().map(String::valueOf).orElse("unknown");
+        }
+        if (e instanceof SendApiException) {
+            return ((SendApiException) e).errorCode().map(String::valueOf).orElse("unknown");
+        }
+        if (e instanceof MessengerIOException || e instanceof IOException) {
+            return "io";
+        }
+        return "unknown";
+    }
+}
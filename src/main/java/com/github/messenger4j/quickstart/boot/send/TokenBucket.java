@@ -0,0 +1,53 @@
+package com.github.messenger4j.quickstart.boot.send;
+
+/**
+ * Token bucket that refills continuously at a fixed rate up to its burst size. Can be paused, e.g. while the Graph API
+ * asks to back off.
+ */
+public final class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double burst;
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+
+    public TokenBucket(double tokensPerSecond, int burst, long nowNanos) {
+        this.tokensPerNano = tokensPerSecond / 1e9;
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = nowNanos;
+        this.pausedUntil = nowNanos;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return {@code 0} if a token has been taken, otherwise the nanoseconds until the next one will be available
+     */
+    public synchronized long tryAcquire(long nowNanos) {
+        if (nowNanos - this.pausedUntil < 0) {
+            return this.pausedUntil - nowNanos;
+        }
+        this.tokens = Math.min(this.burst, this.tokens + (nowNanos - this.refilledAt) * this.tokensPerNano);
+        this.refilledAt = nowNanos;
+        if (this.tokens >= 1) {
+            this.tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - this.tokens) / this.tokensPerNano));
+    }
+
+    /**
+     * Returns a token that has been taken but not used.
+     */
+    synchronized void refund() {
+        this.tokens = Math.min(this.burst, this.tokens + 1);
+    }
+
+    synchronized void pauseUntil(long nanos) {
+        if (nanos - this.pausedUntil > 0) {
+            this.pausedUntil = nanos;
+        }
+    }
+}
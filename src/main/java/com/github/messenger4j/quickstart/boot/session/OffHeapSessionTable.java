@@ -0,0 +1,197 @@
+package com.github.messenger4j.quickstart.boot.session;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-capacity table of sessions in a direct or memory-mapped {@link ByteBuffer}, outside of the Java heap.
+ *
+ * <p>
+ * The table is set-associative: a key maps to two buckets of {@link #WAYS} slots of {@code slotSize} bytes, each slot
+ * holding the key ({@code 0} if the slot is free), the time of the last access, the version and the length of the
+ * encoded session, followed by the encoded session itself. A new key goes to the bucket with more free slots, which
+ * lets the table fill up almost completely before sessions have to be evicted. A session that has not been accessed
+ * within the time to live is expired and its slot is reused; when both buckets have no free or expired slot left, the
+ * session that has been idle the longest is evicted. Not thread-safe.
+ * </p>
+ */
+final class OffHeapSessionTable {
+
+    static final int WAYS = 8;
+    static final int HEADER_SIZE = 28;
+
+    private static final int KEY = 0;
+    private static final int LAST_ACCESS = 8;
+    private static final int VERSION = 16;
+    private static final int LENGTH = 24;
+
+    private final ByteBuffer buffer;
+    private final ByteBuffer view;
+    private final int slotSize;
+    private final int buckets;
+    private final long ttlMillis;
+
+    private int size;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param buffer a zeroed buffer of {@code buckets * WAYS * slotSize} bytes
+     */
+    OffHeapSessionTable(ByteBuffer buffer, int buckets, int slotSize, long ttlMillis) {
+        this.buffer = buffer;
+        this.view = buffer.duplicate();
+        this.slotSize = slotSize;
+        this.buckets = buckets;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return the slot of the key, or {@code -1} if the key has no session that is alive at the given time
+     */
+    int find(long key, long hash, long now) {
+        final int slot = find(key, firstBucket(hash));
+        if (slot >= 0) {
+            return isExpired(slot * this.slotSize, now) ? -1 : slot;
+        }
+        final int secondSlot = find(key, secondBucket(hash));
+        return secondSlot < 0 || isExpired(secondSlot * this.slotSize, now) ? -1 : secondSlot;
+    }
+
+    private int find(long key, int bucket) {
+        for (int slot = bucket; slot < bucket + WAYS; slot++) {
+            if (this.buffer.getLong(slot * this.slotSize + KEY) == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Takes a slot for the key: its own expired one, a free one of the bucket with more free slots, or the slot of the
+     * session that has been idle the longest, which is an expired one if there is any.
+     */
+    int claim(long key, long hash, long now) {
+        final int firstBucket = firstBucket(hash);
+        final int secondBucket = secondBucket(hash);
+        int victim = find(key, firstBucket);
+        if (victim < 0) {
+            victim = find(key, secondBucket);
+        }
+        if (victim < 0) {
+            victim = freeSlot(firstBucket, secondBucket);
+        }
+        if (victim < 0) {
+            victim = idlestSlot(firstBucket, idlestSlot(secondBucket, -1));
+        }
+        final int offset = victim * this.slotSize;
+        final long victimKey = this.buffer.getLong(offset + KEY);
+        if (victimKey == 0L) {
+            this.size++;
+        } else if (isExpired(offset, now)) {
+            this.expirations++;
+        } else if (victimKey != key) {
+            this.evictions++;
+        }
+        this.buffer.putLong(offset + KEY, key);
+        this.buffer.putLong(offset + VERSION, 0L);
+        this.buffer.putInt(offset + LENGTH, 0);
+        return victim;
+    }
+
+    private int freeSlot(int firstBucket, int secondBucket) {
+        int firstFree = -1;
+        int firstFreeCount = 0;
+        for (int slot = firstBucket + WAYS - 1; slot >= firstBucket; slot--) {
+            if (this.buffer.getLong(slot * this.slotSize + KEY) == 0L) {
+                firstFree = slot;
+                firstFreeCount++;
+            }
+        }
+        int secondFree = -1;
+        int secondFreeCount = 0;
+        for (int slot = secondBucket + WAYS - 1; slot >= secondBucket; slot--) {
+            if (this.buffer.getLong(slot * this.slotSize + KEY) == 0L) {
+                secondFree = slot;
+                secondFreeCount++;
+            }
+        }
+        return secondFreeCount > firstFreeCount ? secondFree : firstFree;
+    }
+
+    private int idlestSlot(int bucket, int idlest) {
+        for (int slot = bucket; slot < bucket + WAYS; slot++) {
+            if (idlest < 0 || lastAccess(slot) < lastAccess(idlest)) {
+                idlest = slot;
+            }
+        }
+        return idlest;
+    }
+
+    private long lastAccess(int slot) {
+        return this.buffer.getLong(slot * this.slotSize + LAST_ACCESS);
+    }
+
+    /**
+     * Maps the low 32 bits of the hash to a bucket, without requiring the number of buckets to be a power of two.
+     */
+    private int firstBucket(long hash) {
+        return (int) (((hash & 0xFFFFFFFFL) * this.buckets) >>> 32) * WAYS;
+    }
+
+    private int secondBucket(long hash) {
+        return (int) ((((hash >>> 26) & 0xFFFFFFFFL) * this.buckets) >>> 32) * WAYS;
+    }
+
+    long version(int slot) {
+        return this.buffer.getLong(slot * this.slotSize + VERSION);
+    }
+
+    Session read(int slot) {
+        final int offset = slot * this.slotSize;
+        this.view.limit(offset + HEADER_SIZE + this.buffer.getInt(offset + LENGTH)).position(offset + HEADER_SIZE);
+        return Session.decode(this.buffer.getLong(offset + VERSION), this.view);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the encoded session does not fit into a slot
+     */
+    void write(int slot, long version, byte[] encoded, long now) {
+        if (encoded.length > this.slotSize - HEADER_SIZE) {
+            throw new IllegalArgumentException("Session of " + encoded.length + " bytes exceeds the slot size of " + this.slotSize + " bytes");
+        }
+        final int offset = slot * this.slotSize;
+        this.view.limit(offset + this.slotSize).position(offset + HEADER_SIZE);
+        this.view.put(encoded);
+        this.buffer.putLong(offset + LAST_ACCESS, now);
+        this.buffer.putLong(offset + VERSION, version);
+        this.buffer.putInt(offset + LENGTH, encoded.length);
+    }
+
+    void touch(int slot, long now) {
+        this.buffer.putLong(slot * this.slotSize + LAST_ACCESS, now);
+    }
+
+    void remove(int slot) {
+        this.buffer.putLong(slot * this.slotSize + KEY, 0L);
+        this.size--;
+    }
+
+    private boolean isExpired(int offset, long now) {
+        return now - this.buffer.getLong(offset + LAST_ACCESS) >= this.ttlMillis;
+    }
+
+    /**
+     * Number of slots in use, including those of expired sessions that have not been reused yet.
+     */
+    int size() {
+        return this.size;
+    }
+
+    long evictions() {
+        return this.evictions;
+    }
+
+    long expirations() {
+        return this.expirations;
+    }
+}
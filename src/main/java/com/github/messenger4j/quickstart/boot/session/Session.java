@@ -0,0 +1,115 @@
+package com.github.messenger4j.quickstart.boot.session;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Conversation state of a user: string attributes and the version under which they have been stored.
+ *
+ * <p>
+ * Sessions are immutable; {@link #with} and {@link #without} return a copy that keeps the version of the original, so
+ * that it can be stored with {@link SessionStore#compareAndSet} as long as nobody else has changed the session in the
+ * meantime.
+ * </p>
+ */
+public final class Session {
+
+    static final Session EMPTY = new Session(0L, Collections.emptyMap());
+
+    private final long version;
+    private final Map<String, String> attributes;
+
+    private Session(long version, Map<String, String> attributes) {
+        this.version = version;
+        this.attributes = attributes;
+    }
+
+    /**
+     * The version under which the session has been stored, {@code 0} if it has not been stored.
+     */
+    public long version() {
+        return this.version;
+    }
+
+    public Optional<String> get(String name) {
+        return Optional.ofNullable(this.attributes.get(name));
+    }
+
+    public Map<String, String> attributes() {
+        return Collections.unmodifiableMap(this.attributes);
+    }
+
+    public boolean isEmpty() {
+        return this.attributes.isEmpty();
+    }
+
+    public Session with(String name, String value) {
+        if (value.equals(this.attributes.get(name))) {
+            return this;
+        }
+        final Map<String, String> attributes = new HashMap<>(this.attributes);
+        attributes.put(name, value);
+        return new Session(this.version, attributes);
+    }
+
+    public Session without(String name) {
+        if (!this.attributes.containsKey(name)) {
+            return this;
+        }
+        final Map<String, String> attributes = new HashMap<>(this.attributes);
+        attributes.remove(name);
+        return new Session(this.version, attributes);
+    }
+
+    Session withVersion(long version) {
+        return new Session(version, this.attributes);
+    }
+
+    /**
+     * The attributes as their number followed by the length-prefixed UTF-8 bytes of each name and value.
+     */
+    byte[] encode() {
+        final byte[][] strings = new byte[2 * this.attributes.size()][];
+        int length = 2;
+        int i = 0;
+        for (Map.Entry<String, String> attribute : this.attributes.entrySet()) {
+            strings[i] = attribute.getKey().getBytes(StandardCharsets.UTF_8);
+            strings[i + 1] = attribute.getValue().getBytes(StandardCharsets.UTF_8);
+            length += 4 + strings[i].length + strings[i + 1].length;
+            i += 2;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putShort((short) this.attributes.size());
+        for (byte[] string : strings) {
+            if (string.length > 0xFFFF) {
+                throw new IllegalArgumentException("Session attribute of " + string.length + " bytes is too large");
+            }
+            buffer.putShort((short) string.length).put(string);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reads the attributes from the position of the buffer onwards.
+     *
+     * @throws java.nio.BufferUnderflowException if the buffer does not hold a complete session
+     */
+    static Session decode(long version, ByteBuffer buffer) {
+        final int size = buffer.getShort() & 0xFFFF;
+        final Map<String, String> attributes = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            attributes.put(string(buffer), string(buffer));
+        }
+        return new Session(version, attributes);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
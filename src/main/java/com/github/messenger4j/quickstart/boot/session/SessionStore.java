@@ -0,0 +1,310 @@
+package com.github.messenger4j.quickstart.boot.session;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.messenger4j.quickstart.boot.key.UserKeys;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Conversation {@link Session}s by sender ID, for flows that span several events.
+ *
+ * <p>
+ * All sessions are kept in a cold tier outside of the Java heap, in direct memory or, if a file is configured, in a
+ * memory-mapped file that the operating system can page out. The cold tier is split into stripes of
+ * {@link OffHeapSessionTable}s, each one guarded by its own lock, and has room for {@code maximumSize} sessions in
+ * slots of {@code slotSize} bytes. The recently used sessions are also kept decoded in a hot tier on the heap, so that
+ * reading them costs neither a lock nor a copy. Sessions expire after they have not been accessed for the time to live;
+ * when there is no room for a session in the cold tier, the one that has been idle the longest among its neighbours is
+ * evicted.
+ * </p>
+ *
+ * <p>
+ * Sessions are changed with {@link #compareAndSet}, or with {@link #update}, which retries until it succeeds. Versions
+ * are unique across all sessions, so a session that is removed and stored again never gets an old version back. The
+ * per-sender dispatch already runs the handlers of a sender one after the other, so a retry is only needed if a
+ * session is also changed outside of the event handlers.
+ * </p>
+ */
+@Component
+public class SessionStore {
+
+    private static final int STRIPE_BITS = 6;
+
+    private final OffHeapSessionTable[] stripes = new OffHeapSessionTable[1 << STRIPE_BITS];
+    private final Cache<String, HotSession> hot;
+    private final int maximumEncodedSize;
+    private final int capacity;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final AtomicLong versions = new AtomicLong();
+
+    @Autowired
+    public SessionStore(@Value("${messenger4j.sessions.maximumSize}") final int maximumSize,
+                        @Value("${messenger4j.sessions.hotSize}") final long hotSize,
+                        @Value("${messenger4j.sessions.ttlSeconds}") final long ttlSeconds,
+                        @Value("${messenger4j.sessions.slotSize}") final int slotSize,
+                        @Value("${messenger4j.sessions.file}") final String file) throws IOException {
+        this(maximumSize, hotSize, TimeUnit.SECONDS.toMillis(ttlSeconds), slotSize, file, System::currentTimeMillis);
+    }
+
+    SessionStore(int maximumSize, long hotSize, long ttlMillis, int slotSize, String file, LongSupplier clock) throws IOException {
+        if (slotSize <= OffHeapSessionTable.HEADER_SIZE || slotSize % 8 != 0) {
+            throw new IllegalArgumentException("Slot size must be a multiple of 8 larger than " + OffHeapSessionTable.HEADER_SIZE);
+        }
+        final int slotsPerBucketRow = this.stripes.length * OffHeapSessionTable.WAYS;
+        // with an eighth of headroom, less than 1% of maximumSize sessions are evicted for want of room in a bucket
+        final long slots = maximumSize + maximumSize / 8L;
+        final int buckets = (int) Math.max(2, (slots + slotsPerBucketRow - 1) / slotsPerBucketRow);
+        final long stripeSize = (long) buckets * OffHeapSessionTable.WAYS * slotSize;
+        if (stripeSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Sessions of " + maximumSize + " x " + slotSize + " bytes exceed the maximum size of the cold tier");
+        }
+        this.maximumEncodedSize = slotSize - OffHeapSessionTable.HEADER_SIZE;
+        this.capacity = buckets * slotsPerBucketRow;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        final ByteBuffer[] buffers = file.isEmpty() ? allocateDirect(stripeSize) : map(Paths.get(file), stripeSize);
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new OffHeapSessionTable(buffers[i], buckets, slotSize, ttlMillis);
+        }
+        this.hot = hotSize <= 0 ? null : Caffeine.newBuilder()
+                .maximumSize(hotSize)
+                .expireAfterAccess(ttlMillis, TimeUnit.MILLISECONDS)
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.getAsLong()))
+                .build();
+    }
+
+    private ByteBuffer[] allocateDirect(long stripeSize) {
+        final ByteBuffer[] buffers = new ByteBuffer[this.stripes.length];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect((int) stripeSize);
+        }
+        return buffers;
+    }
+
+    /**
+     * Maps the stripes to consecutive regions of the file, which is recreated, so that all slots start out free.
+     */
+    private ByteBuffer[] map(Path file, long stripeSize) throws IOException {
+        Files.deleteIfExists(file);
+        final ByteBuffer[] buffers = new ByteBuffer[this.stripes.length];
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.setLength(stripeSize * buffers.length);
+            final FileChannel channel = randomAccessFile.getChannel();
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * stripeSize, stripeSize);
+            }
+        }
+        return buffers;
+    }
+
+    /**
+     * The session of the sender, or an empty one with version {@code 0} if the sender has none.
+     */
+    public Session get(String senderId) {
+        final long now = this.clock.getAsLong();
+        if (this.hot != null) {
+            final HotSession hotSession = this.hot.getIfPresent(senderId);
+            if (hotSession != null) {
+                if (now - hotSession.touched >= this.ttlMillis / 4) {
+                    touch(senderId, hotSession, now);
+                }
+                return hotSession.session;
+            }
+        }
+        final long key = UserKeys.of(senderId);
+        final long hash = UserKeys.mix(key);
+        final OffHeapSessionTable stripe = stripe(hash);
+        synchronized (stripe) {
+            final int slot = stripe.find(key, hash, now);
+            if (slot < 0) {
+                return Session.EMPTY;
+            }
+            stripe.touch(slot, now);
+            final Session session = stripe.read(slot);
+            if (this.hot != null) {
+                this.hot.put(senderId, new HotSession(session, now));
+            }
+            return session;
+        }
+    }
+
+    /**
+     * Extends the life of a session that is read from the hot tier in the cold tier as well, or stores it there again
+     * if it has been evicted from it in the meantime.
+     */
+    private void touch(String senderId, HotSession hotSession, long now) {
+        final long key = UserKeys.of(senderId);
+        final long hash = UserKeys.mix(key);
+        final OffHeapSessionTable stripe = stripe(hash);
+        synchronized (stripe) {
+            final int slot = stripe.find(key, hash, now);
+            if (slot >= 0) {
+                if (stripe.version(slot) == hotSession.session.version()) {
+                    stripe.touch(slot, now);
+                }
+            } else if (!hotSession.session.isEmpty()) {
+                stripe.write(stripe.claim(key, hash, now), hotSession.session.version(), hotSession.session.encode(), now);
+            }
+        }
+        hotSession.touched = now;
+    }
+
+    /**
+     * Stores the updated session if the session of the sender still has the version of the expected one. An empty
+     * session removes the session of the sender.
+     *
+     * @return {@code false} if the session has been changed in the meantime
+     * @throws IllegalArgumentException if the encoded session does not fit into a slot
+     */
+    public boolean compareAndSet(String senderId, Session expected, Session updated) {
+        return store(senderId, expected.version(), updated) != null;
+    }
+
+    /**
+     * Applies the update to the session of the sender until it can be stored without a conflicting change.
+     *
+     * @return the stored session
+     * @throws IllegalArgumentException if the encoded session does not fit into a slot
+     */
+    public Session update(String senderId, UnaryOperator<Session> update) {
+        while (true) {
+            final Session session = get(senderId);
+            final Session updated = update.apply(session);
+            if (updated == session) {
+                return session;
+            }
+            final Session stored = store(senderId, session.version(), updated);
+            if (stored != null) {
+                return stored;
+            }
+        }
+    }
+
+    public void remove(String senderId) {
+        update(senderId, session -> Session.EMPTY);
+    }
+
+    /**
+     * @return the stored session, or {@code null} if the current version is not the expected one
+     */
+    private Session store(String senderId, long expectedVersion, Session updated) {
+        final byte[] encoded = updated.isEmpty() ? null : updated.encode();
+        if (encoded != null && encoded.length > this.maximumEncodedSize) {
+            throw new IllegalArgumentException("Session of " + encoded.length + " bytes exceeds the maximum of " + this.maximumEncodedSize + " bytes");
+        }
+        final long now = this.clock.getAsLong();
+        final long key = UserKeys.of(senderId);
+        final long hash = UserKeys.mix(key);
+        final OffHeapSessionTable stripe = stripe(hash);
+        synchronized (stripe) {
+            int slot = stripe.find(key, hash, now);
+            final long currentVersion = slot < 0 ? 0L : stripe.version(slot);
+            if (currentVersion != expectedVersion) {
+                if (this.hot != null) {
+                    this.hot.invalidate(senderId);
+                }
+                return null;
+            }
+            if (encoded == null) {
+                if (slot >= 0) {
+                    stripe.remove(slot);
+                }
+                if (this.hot != null) {
+                    this.hot.invalidate(senderId);
+                }
+                return Session.EMPTY;
+            }
+            if (slot < 0) {
+                slot = stripe.claim(key, hash, now);
+            }
+            final Session stored = updated.withVersion(this.versions.incrementAndGet());
+            stripe.write(slot, stored.version(), encoded, now);
+            if (this.hot != null) {
+                this.hot.put(senderId, new HotSession(stored, now));
+            }
+            return stored;
+        }
+    }
+
+    private OffHeapSessionTable stripe(long hash) {
+        return this.stripes[(int) (hash >>> (64 - STRIPE_BITS))];
+    }
+
+    /**
+     * Number of sessions in the cold tier, including expired ones whose slots have not been reused yet.
+     */
+    public long size() {
+        long size = 0;
+        for (OffHeapSessionTable stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Number of sessions in the hot tier.
+     */
+    public long hotSize() {
+        return this.hot == null ? 0 : this.hot.estimatedSize();
+    }
+
+    /**
+     * Number of sessions the cold tier can hold.
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Number of sessions that have been evicted before they expired, to make room for others.
+     */
+    public long evictions() {
+        long evictions = 0;
+        for (OffHeapSessionTable stripe : this.stripes) {
+            synchronized (stripe) {
+                evictions += stripe.evictions();
+            }
+        }
+        return evictions;
+    }
+
+    /**
+     * Number of expired sessions whose slots have been reused.
+     */
+    public long expirations() {
+        long expirations = 0;
+        for (OffHeapSessionTable stripe : this.stripes) {
+            synchronized (stripe) {
+                expirations += stripe.expirations();
+            }
+        }
+        return expirations;
+    }
+
+    private static final class HotSession {
+
+        private final Session session;
+        private volatile long touched;
+
+        private HotSession(Session session, long touched) {
+            this.session = session;
+            this.touched = touched;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.messenger4j.quickstart.boot.session;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the sizes of both tiers of the {@link SessionStore} and its evictions and expirations through the meter
+ * registry.
+ */
+@Component
+public class SessionStoreMetrics implements MeterBinder {
+
+    private final SessionStore sessionStore;
+
+    @Autowired
+    public SessionStoreMetrics(final SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("messenger4j.sessions.size", this.sessionStore, SessionStore::size).register(registry);
+        Gauge.builder("messenger4j.sessions.hotSize", this.sessionStore, SessionStore::hotSize).register(registry);
+        FunctionCounter.builder("messenger4j.sessions.evictions", this.sessionStore, SessionStore::evictions).register(registry);
+        FunctionCounter.builder("messenger4j.sessions.expirations", this.sessionStore, SessionStore::expirations).register(registry);
+    }
+}
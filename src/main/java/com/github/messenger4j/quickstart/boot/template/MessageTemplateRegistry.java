@@ -0,0 +1,226 @@
+package com.github.messenger4j.quickstart.boot.template;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import com.github.messenger4j.Messenger;
+import com.github.messenger4j.common.WebviewHeightRatio;
+import com.github.messenger4j.exception.MessengerApiException;
+import com.github.messenger4j.exception.MessengerIOException;
+import com.github.messenger4j.send.MessagePayload;
+import com.github.messenger4j.send.MessagingType;
+import com.github.messenger4j.send.message.Message;
+import com.github.messenger4j.send.message.TemplateMessage;
+import com.github.messenger4j.send.message.TextMessage;
+import com.github.messenger4j.send.message.quickreply.LocationQuickReply;
+import com.github.messenger4j.send.message.quickreply.QuickReply;
+import com.github.messenger4j.send.message.quickreply.TextQuickReply;
+import com.github.messenger4j.send.message.template.ButtonTemplate;
+import com.github.messenger4j.send.message.template.GenericTemplate;
+import com.github.messenger4j.send.message.template.ListTemplate;
+import com.github.messenger4j.send.message.template.ReceiptTemplate;
+import com.github.messenger4j.send.message.template.button.Button;
+import com.github.messenger4j.send.message.template.button.CallButton;
+import com.github.messenger4j.send.message.template.button.LogInButton;
+import com.github.messenger4j.send.message.template.button.LogOutButton;
+import com.github.messenger4j.send.message.template.button.PostbackButton;
+import com.github.messenger4j.send.message.template.button.UrlButton;
+import com.github.messenger4j.send.message.template.common.Element;
+import com.github.messenger4j.send.message.template.receipt.Address;
+import com.github.messenger4j.send.message.template.receipt.Adjustment;
+import com.github.messenger4j.send.message.template.receipt.Item;
+import com.github.messenger4j.send.message.template.receipt.Summary;
+import com.github.messenger4j.spi.MessengerHttpClient;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registry of the static rich messages of the showcase.
+ *
+ * <p>
+ * The messages are built once at startup and serialized by a {@link Messenger} whose transport only captures the Send
+ * API request. Sending one of them afterwards only requires splicing the recipient ID into the captured JSON. The media
+ * messages are provided by the {@code MediaAssetManager}, which precompiles them here as well.
+ * </p>
+ */
+@Component
+public class MessageTemplateRegistry {
+
+    public static final String RESOURCE_URL = "https://raw.githubusercontent.com/fbsamples/messenger-platform-samples/master/node/public";
+
+    private static final String PLACEHOLDER_RECIPIENT_ID = "PRECOMPILED_MESSAGE_RECIPIENT";
+
+    private final SendRequestCapture capture = new SendRequestCapture();
+    private final Messenger messenger;
+
+    private final PrecompiledMessage button;
+    private final PrecompiledMessage generic;
+    private final PrecompiledMessage list;
+    private final PrecompiledMessage quickReply;
+    private final PrecompiledMessage accountLinking;
+
+    private final Summary receiptSummary;
+    private final Address receiptAddress;
+    private final List<Item> receiptItems;
+    private final List<Adjustment> receiptAdjustments;
+    private final URL receiptOrderUrl;
+
+    @Autowired
+    public MessageTemplateRegistry(@Value("${messenger4j.pageAccessToken}") final String pageAccessToken,
+                                   @Value("${messenger4j.appSecret}") final String appSecret,
+                                   @Value("${messenger4j.verifyToken}") final String verifyToken) throws MalformedURLException {
+        this.messenger = Messenger.create(pageAccessToken, appSecret, verifyToken, of(this.capture));
+
+        this.button = precompile(buttonMessage());
+        this.generic = precompile(genericMessage());
+        this.list = precompile(listMessage());
+        this.quickReply = precompile(quickReplyMessage());
+        this.accountLinking = precompile(accountLinkingMessage());
+
+        this.receiptSummary = Summary.create(626.66f, of(698.99f), of(57.67f), of(20.00f));
+        this.receiptAddress = Address.create("1 Hacker Way", "Menlo Park", "94025", "CA", "US");
+        this.receiptItems = Collections.unmodifiableList(Arrays.asList(
+                Item.create("Oculus Rift", 599.00f, of("Includes: headset, sensor, remote"), of(1), of("USD"),
+                        of(new URL(RESOURCE_URL + "/assets/riftsq.png"))),
+                Item.create("Samsung Gear VR", 99.99f, of("Frost White"), of(1), of("USD"), of(new URL(RESOURCE_URL + "/assets/gearvrsq.png")))));
+        this.receiptAdjustments = Collections.unmodifiableList(
+                Arrays.asList(Adjustment.create("New Customer Discount", -50f), Adjustment.create("$100 Off Coupon", -100f)));
+        this.receiptOrderUrl = new URL("https://www.boringcompany.com/");
+    }
+
+    private static Message buttonMessage() throws MalformedURLException {
+        final List<Button> buttons = Arrays.asList(
+                UrlButton.create("Open Web URL", new URL("https://www.oculus.com/en-us/rift/"), of(WebviewHeightRatio.COMPACT), of(false), empty(), empty()),
+                PostbackButton.create("Trigger Postback", "DEVELOPER_DEFINED_PAYLOAD"), CallButton.create("Call Phone Number", "+16505551234")
+        );
+        return TemplateMessage.create(ButtonTemplate.create("Tap a button", buttons));
+    }
+
+    private static Message genericMessage() throws MalformedURLException {
+        List<Button> riftButtons = new ArrayList<>();
+        riftButtons.add(UrlButton.create("Open Web URL", new URL("https://www.oculus.com/en-us/rift/")));
+        riftButtons.add(PostbackButton.create("Call Postback", "Payload for first bubble"));
+
+        List<Button> touchButtons = new ArrayList<>();
+        touchButtons.add(UrlButton.create("Open Web URL", new URL("https://www.oculus.com/en-us/touch/")));
+        touchButtons.add(PostbackButton.create("Call Postback", "Payload for second bubble"));
+
+        final List<Element> elements = new ArrayList<>();
+
+        elements.add(
+                Element.create("rift", of("Next-generation virtual reality"), of(new URL("https://www.oculus.com/en-us/rift/")), empty(), of(riftButtons)));
+        elements.add(Element.create("touch", of("Your Hands, Now in VR"), of(new URL("https://www.oculus.com/en-us/touch/")), empty(), of(touchButtons)));
+
+        return TemplateMessage.create(GenericTemplate.create(elements));
+    }
+
+    private static Message listMessage() throws MalformedURLException {
+        List<Button> riftButtons = new ArrayList<>();
+        riftButtons.add(UrlButton.create("Open Web URL", new URL("https://www.oculus.com/en-us/rift/")));
+
+        List<Button> touchButtons = new ArrayList<>();
+        touchButtons.add(UrlButton.create("Open Web URL", new URL("https://www.oculus.com/en-us/touch/")));
+
+        final List<Element> elements = new ArrayList<>();
+
+        elements.add(
+                Element.create("rift", of("Next-generation virtual reality"), of(new URL("https://www.oculus.com/en-us/rift/")), empty(), of(riftButtons)));
+        elements.add(Element.create("touch", of("Your Hands, Now in VR"), of(new URL("https://www.oculus.com/en-us/touch/")), empty(), of(touchButtons)));
+
+        return TemplateMessage.create(ListTemplate.create(elements));
+    }
+
+    private static Message quickReplyMessage() {
+        List<QuickReply> quickReplies = new ArrayList<>();
+
+        quickReplies.add(TextQuickReply.create("Action", "DEVELOPER_DEFINED_PAYLOAD_FOR_PICKING_ACTION"));
+        quickReplies.add(TextQuickReply.create("Comedy", "DEVELOPER_DEFINED_PAYLOAD_FOR_PICKING_COMEDY"));
+        quickReplies.add(TextQuickReply.create("Drama", "DEVELOPER_DEFINED_PAYLOAD_FOR_PICKING_DRAMA"));
+        quickReplies.add(LocationQuickReply.create());
+
+        return TextMessage.create("What's your favorite movie genre?", of(quickReplies), empty());
+    }
+
+    private static Message accountLinkingMessage() throws MalformedURLException {
+        // Mandatory https
+        final LogInButton buttonIn = LogInButton.create(new URL("https://<YOUR_REST_CALLBACK_URL>"));
+        final LogOutButton buttonOut = LogOutButton.create();
+
+        final List<Button> buttons = Arrays.asList(buttonIn, buttonOut);
+        return TemplateMessage.create(ButtonTemplate.create("Log in to see an account linking callback", buttons));
+    }
+
+    /**
+     * Serializes a message that is sent repeatedly, e.g. a media message that has been uploaded in the meantime.
+     */
+    public PrecompiledMessage precompile(Message message) {
+        return precompile(message, MessagingType.RESPONSE);
+    }
+
+    /**
+     * Serializes a message that is sent repeatedly with another messaging type than a response, e.g. as an update
+     * that is broadcast to many users.
+     */
+    public synchronized PrecompiledMessage precompile(Message message, MessagingType messagingType) {
+        try {
+            this.messenger.send(MessagePayload.create(PLACEHOLDER_RECIPIENT_ID, messagingType, message));
+        } catch (MessengerApiException | MessengerIOException e) {
+            throw new IllegalStateException("Message template could not be serialized", e);
+        }
+        return PrecompiledMessage.create(message, messagingType, this.capture.url, this.capture.jsonBody, PLACEHOLDER_RECIPIENT_ID);
+    }
+
+    public PrecompiledMessage button() {
+        return this.button;
+    }
+
+    public PrecompiledMessage generic() {
+        return this.generic;
+    }
+
+    public PrecompiledMessage list() {
+        return this.list;
+    }
+
+    public PrecompiledMessage quickReply() {
+        return this.quickReply;
+    }
+
+    public PrecompiledMessage accountLinking() {
+        return this.accountLinking;
+    }
+
+    /**
+     * The receipt differs in its order number only, so everything else is shared between all receipts.
+     */
+    public Message receipt(String orderNumber) {
+        final ReceiptTemplate receiptTemplate = ReceiptTemplate
+                .create("Peter Chang", orderNumber, "Visa 1234", "USD", this.receiptSummary, of(this.receiptAddress), of(this.receiptItems),
+                        of(this.receiptAdjustments), of("The Boring Company"), of(this.receiptOrderUrl), of(true), of(Instant.ofEpochMilli(1428444852L)));
+        return TemplateMessage.create(receiptTemplate);
+    }
+
+    /**
+     * Transport that records the last Send API request instead of sending it.
+     */
+    private static final class SendRequestCapture implements MessengerHttpClient {
+
+        private String url;
+        private String jsonBody;
+
+        @Override
+        public HttpResponse execute(HttpMethod httpMethod, String url, String jsonBody) {
+            this.url = url;
+            this.jsonBody = jsonBody;
+            return new HttpResponse(200, "{\"recipient_id\":\"" + PLACEHOLDER_RECIPIENT_ID + "\",\"message_id\":\"mid.precompiled\"}");
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.messenger4j.quickstart.boot.template;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import com.github.messenger4j.send.MessagePayload;
+import com.github.messenger4j.send.MessagingType;
+import com.github.messenger4j.send.message.Message;
+import java.util.Optional;
+
+/**
+ * An immutable message together with the Send API request that delivers it, serialized up front with a gap for the
+ * recipient ID.
+ */
+public final class PrecompiledMessage {
+
+    private final Message message;
+    private final MessagingType messagingType;
+    private final String url;
+    private final String jsonPrefix;
+    private final String jsonSuffix;
+
+    private PrecompiledMessage(Message message, MessagingType messagingType, String url, String jsonPrefix, String jsonSuffix) {
+        this.message = message;
+        this.messagingType = messagingType;
+        this.url = url;
+        this.jsonPrefix = jsonPrefix;
+        this.jsonSuffix = jsonSuffix;
+    }
+
+    /**
+     * @param jsonBody the serialized Send API request for {@code placeholderRecipientId}; if the placeholder does not
+     *                 occur exactly once, the message will be serialized on every send instead
+     */
+    public static PrecompiledMessage create(Message message, String url, String jsonBody, String placeholderRecipientId) {
+        return create(message, MessagingType.RESPONSE, url, jsonBody, placeholderRecipientId);
+    }
+
+    /**
+     * @param jsonBody the serialized Send API request for {@code placeholderRecipientId}; if the placeholder does not
+     *                 occur exactly once, the message will be serialized on every send instead
+     */
+    public static PrecompiledMessage create(Message message, MessagingType messagingType, String url, String jsonBody,
+                                            String placeholderRecipientId) {
+        final int placeholderIndex = jsonBody.indexOf(placeholderRecipientId);
+        if (placeholderIndex < 0 || placeholderIndex != jsonBody.lastIndexOf(placeholderRecipientId)) {
+            return new PrecompiledMessage(message, messagingType, url, null, null);
+        }
+        return new PrecompiledMessage(message, messagingType, url, jsonBody.substring(0, placeholderIndex),
+                jsonBody.substring(placeholderIndex + placeholderRecipientId.length()));
+    }
+
+    public Message message() {
+        return this.message;
+    }
+
+    public MessagePayload payload(String recipientId) {
+        return MessagePayload.create(recipientId, this.messagingType, this.message);
+    }
+
+    /**
+     * The Send API URL the serialized request has to be posted to.
+     */
+    public String url() {
+        return this.url;
+    }
+
+    /**
+     * The serialized Send API request for the given recipient, if the message could be precompiled and the recipient ID
+     * can be spliced in as is.
+     */
+    public Optional<String> json(String recipientId) {
+        if (this.jsonPrefix == null || !isNumeric(recipientId)) {
+            return empty();
+        }
+        return of(new StringBuilder(this.jsonPrefix.length() + recipientId.length() + this.jsonSuffix.length())
+                .append(this.jsonPrefix).append(recipientId).append(this.jsonSuffix).toString());
+    }
+
+    private static boolean isNumeric(String recipientId) {
+        if (recipientId.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < recipientId.length(); i++) {
+            final char c = recipientId.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
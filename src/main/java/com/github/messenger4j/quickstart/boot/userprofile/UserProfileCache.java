@@ -0,0 +1,62 @@
+package com.github.messenger4j.quickstart.boot.userprofile;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.messenger4j.Messenger;
+import com.github.messenger4j.exception.MessengerApiException;
+import com.github.messenger4j.exception.MessengerIOException;
+import com.github.messenger4j.userprofile.UserProfile;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches the {@link UserProfile}s queried from the Graph API by page-scoped user ID.
+ *
+ * <p>
+ * Profiles expire after a configurable time to live, and the cache is bounded in size with W-TinyLFU eviction.
+ * Concurrent lookups of a profile that is not cached yet result in a single Graph API call.
+ * </p>
+ */
+@Component
+public class UserProfileCache {
+
+    private final LoadingCache<String, UserProfile> cache;
+
+    @Autowired
+    public UserProfileCache(final Messenger messenger,
+                            @Value("${messenger4j.userProfileCache.ttlSeconds}") final long ttlSeconds,
+                            @Value("${messenger4j.userProfileCache.maximumSize}") final long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build(messenger::queryUserProfile);
+    }
+
+    public UserProfile get(String userId) throws MessengerApiException, MessengerIOException {
+        try {
+            return this.cache.get(userId);
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof MessengerApiException) {
+                throw (MessengerApiException) cause;
+            }
+            if (cause instanceof MessengerIOException) {
+                throw (MessengerIOException) cause;
+            }
+            throw e;
+        }
+    }
+
+    public long size() {
+        return this.cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return this.cache.stats();
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.messenger4j.quickstart.boot.userprofile;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the hit, miss and eviction counters of the {@link UserProfileCache} through the meter registry.
+ */
+@Component
+public class UserProfileCacheMetrics implements MeterBinder {
+
+    private final UserProfileCache userProfileCache;
+
+    @Autowired
+    public UserProfileCacheMetrics(final UserProfileCache userProfileCache) {
+        this.userProfileCache = userProfileCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("messenger4j.userProfileCache.size", this.userProfileCache, UserProfileCache::size).register(registry);
+        FunctionCounter.builder("messenger4j.userProfileCache.hits", this.userProfileCache, cache -> cache.stats().hitCount()).register(registry);
+        FunctionCounter.builder("messenger4j.userProfileCache.misses", this.userProfileCache, cache -> cache.stats().missCount()).register(registry);
+        FunctionCounter.builder("messenger4j.userProfileCache.evictions", this.userProfileCache, cache -> cache.stats().evictionCount()).register(registry);
+        FunctionCounter.builder("messenger4j.userProfileCache.loadFailures", this.userProfileCache, cache -> cache.stats().loadFailureCount())
+                .register(registry);
+    }
+}
@@ -0,0 +1,229 @@
+package com.github.messenger4j.quickstart.boot.watermark;
+
+import com.github.messenger4j.quickstart.boot.key.UserKeys;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delivery and read watermarks per user: all messages sent to a user before the delivery watermark have been
+ * delivered, and all messages before the read watermark have been read.
+ *
+ * <p>
+ * A later watermark supersedes all earlier ones, so a watermark is only stored if it advances the current one; the
+ * caller can drop an event whose watermark does not. Users are identified by their {@link UserKeys}. The table is split
+ * into stripes, each one a set-associative table of primitive arrays guarded by a {@link StampedLock}: the watermarks
+ * of known users are advanced with a compare-and-set under the shared lock, only adding a user takes the exclusive
+ * lock, and queries are optimistic reads. The table holds {@code maximumSize} users, rounded up to a power of two; when
+ * a bucket is full, the user with the oldest watermarks in it is evicted, so the memory is fixed at startup. The
+ * watermarks of an evicted user are unknown until the next event.
+ * </p>
+ */
+@Component
+public class WatermarkStore {
+
+    private static final int STRIPE_BITS = 6;
+    private static final int WAYS = 8;
+    private static final int DELIVERED = 0;
+    private static final int READ = 1;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+    private final int bucketMask;
+
+    private final LongAdder size = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public WatermarkStore(@Value("${messenger4j.watermarks.maximumSize}") final int maximumSize) {
+        final int slotsPerBucketRow = this.stripes.length * WAYS;
+        final int minimumBuckets = Math.max(1, (maximumSize + slotsPerBucketRow - 1) / slotsPerBucketRow);
+        final int buckets = Integer.highestOneBit(minimumBuckets * 2 - 1);
+        this.bucketMask = buckets - 1;
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe(buckets * WAYS);
+        }
+    }
+
+    /**
+     * Advances the delivery watermark of the user.
+     *
+     * @return {@code false} if the watermark has been superseded already
+     */
+    public boolean delivered(String userId, Instant watermark) {
+        return advance(UserKeys.of(userId), watermark.toEpochMilli(), false);
+    }
+
+    /**
+     * Advances the read watermark of the user, and the delivery watermark with it.
+     *
+     * @return {@code false} if the watermark has been superseded already
+     */
+    public boolean read(String userId, Instant watermark) {
+        return advance(UserKeys.of(userId), watermark.toEpochMilli(), true);
+    }
+
+    /**
+     * Whether the message sent to the user at the given time is known to be delivered.
+     */
+    public boolean isDelivered(String userId, Instant sentAt) {
+        return watermark(UserKeys.of(userId), DELIVERED) >= sentAt.toEpochMilli();
+    }
+
+    /**
+     * Whether the message sent to the user at the given time is known to be read.
+     */
+    public boolean isRead(String userId, Instant sentAt) {
+        return watermark(UserKeys.of(userId), READ) >= sentAt.toEpochMilli();
+    }
+
+    private boolean advance(long key, long watermark, boolean read) {
+        final long hash = UserKeys.mix(key);
+        final Stripe stripe = this.stripes[(int) (hash >>> (64 - STRIPE_BITS))];
+        final int bucket = ((int) hash & this.bucketMask) * WAYS;
+        long stamp = stripe.lock.readLock();
+        try {
+            final int slot = stripe.find(bucket, key);
+            if (slot >= 0) {
+                return advance(stripe, slot, watermark, read);
+            }
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+        stamp = stripe.lock.writeLock();
+        try {
+            int slot = stripe.find(bucket, key);
+            if (slot < 0) {
+                slot = claim(stripe, bucket, key);
+            }
+            return advance(stripe, slot, watermark, read);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean advance(Stripe stripe, int slot, long watermark, boolean read) {
+        final boolean deliveredAdvanced = max(stripe.watermarks, 2 * slot + DELIVERED, watermark);
+        final boolean advanced = read ? max(stripe.watermarks, 2 * slot + READ, watermark) : deliveredAdvanced;
+        if (!advanced) {
+            this.superseded.increment();
+        }
+        return advanced;
+    }
+
+    private static boolean max(AtomicLongArray watermarks, int index, long watermark) {
+        long current;
+        do {
+            current = watermarks.get(index);
+            if (current >= watermark) {
+                return false;
+            }
+        } while (!watermarks.compareAndSet(index, current, watermark));
+        return true;
+    }
+
+    /**
+     * Takes a free slot of the bucket for the user, or the slot of the user with the oldest watermarks. Requires the
+     * exclusive lock of the stripe.
+     */
+    private int claim(Stripe stripe, int bucket, long key) {
+        int victim = bucket;
+        long oldest = Long.MAX_VALUE;
+        for (int slot = bucket; slot < bucket + WAYS; slot++) {
+            if (stripe.keys[slot] == 0L) {
+                victim = slot;
+                this.size.increment();
+                break;
+            }
+            final long latest = Math.max(stripe.watermarks.get(2 * slot + DELIVERED), stripe.watermarks.get(2 * slot + READ));
+            if (latest < oldest) {
+                oldest = latest;
+                victim = slot;
+            }
+        }
+        if (stripe.keys[victim] != 0L) {
+            this.evictions.increment();
+        }
+        stripe.keys[victim] = key;
+        stripe.watermarks.set(2 * victim + DELIVERED, 0L);
+        stripe.watermarks.set(2 * victim + READ, 0L);
+        return victim;
+    }
+
+    private long watermark(long key, int type) {
+        final long hash = UserKeys.mix(key);
+        final Stripe stripe = this.stripes[(int) (hash >>> (64 - STRIPE_BITS))];
+        final int bucket = ((int) hash & this.bucketMask) * WAYS;
+        long stamp = stripe.lock.tryOptimisticRead();
+        int slot = stripe.find(bucket, key);
+        long watermark = slot < 0 ? 0L : stripe.watermarks.get(2 * slot + type);
+        if (!stripe.lock.validate(stamp)) {
+            stamp = stripe.lock.readLock();
+            try {
+                slot = stripe.find(bucket, key);
+                watermark = slot < 0 ? 0L : stripe.watermarks.get(2 * slot + type);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return watermark;
+    }
+
+    /**
+     * Number of users whose watermarks are stored.
+     */
+    public long size() {
+        return this.size.sum();
+    }
+
+    /**
+     * Number of users the table can hold.
+     */
+    public int capacity() {
+        return this.stripes.length * (this.bucketMask + 1) * WAYS;
+    }
+
+    /**
+     * Number of watermarks that have been dropped because a later one had been stored already.
+     */
+    public long superseded() {
+        return this.superseded.sum();
+    }
+
+    /**
+     * Number of users that have been evicted to make room for others.
+     */
+    public long evictions() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Buckets of {@link #WAYS} slots; the key of a slot is {@code 0} if it is free, and its delivery and read
+     * watermarks, in epoch milliseconds, are at {@code 2 * slot} and {@code 2 * slot + 1}. The keys are only written
+     * under the exclusive lock.
+     */
+    private static final class Stripe {
+
+        private final StampedLock lock = new StampedLock();
+        private final long[] keys;
+        private final AtomicLongArray watermarks;
+
+        private Stripe(int slots) {
+            this.keys = new long[slots];
+            this.watermarks = new AtomicLongArray(2 * slots);
+        }
+
+        private int find(int bucket, long key) {
+            for (int slot = bucket; slot < bucket + WAYS; slot++) {
+                if (this.keys[slot] == key) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+    }
+}
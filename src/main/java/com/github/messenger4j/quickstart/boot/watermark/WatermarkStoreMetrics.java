@@ -0,0 +1,29 @@
+package com.github.messenger4j.quickstart.boot.watermark;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the size of the {@link WatermarkStore} and the number of superseded watermarks through the meter registry.
+ */
+@Component
+public class WatermarkStoreMetrics implements MeterBinder {
+
+    private final WatermarkStore watermarkStore;
+
+    @Autowired
+    public WatermarkStoreMetrics(final WatermarkStore watermarkStore) {
+        this.watermarkStore = watermarkStore;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("messenger4j.watermarks.size", this.watermarkStore, WatermarkStore::size).register(registry);
+        FunctionCounter.builder("messenger4j.watermarks.superseded", this.watermarkStore, WatermarkStore::superseded).register(registry);
+        FunctionCounter.builder("messenger4j.watermarks.evictions", this.watermarkStore, WatermarkStore::evictions).register(registry);
+    }
+}
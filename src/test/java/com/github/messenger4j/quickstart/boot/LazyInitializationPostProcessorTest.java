@@ -0,0 +1,94 @@
+package com.github.messenger4j.quickstart.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+public class LazyInitializationPostProcessorTest {
+
+    private static final AtomicInteger created = new AtomicInteger();
+
+    private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+    @Test
+    public void shouldOnlyCreateBeansThatAreAskedFor() {
+        this.beanFactory.registerBeanDefinition("asked", new RootBeanDefinition(Counted.class));
+        this.beanFactory.registerBeanDefinition("unused", new RootBeanDefinition(Counted.class));
+        created.set(0);
+
+        new LazyInitializationPostProcessor().postProcessBeanFactory(this.beanFactory);
+        this.beanFactory.preInstantiateSingletons();
+        assertEquals(0, created.get());
+
+        this.beanFactory.getBean("asked");
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void shouldKeepBeansEagerThatHaveToRun() {
+        final RootBeanDefinition infrastructure = new RootBeanDefinition(Counted.class);
+        infrastructure.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+        this.beanFactory.registerBeanDefinition("infrastructure", infrastructure);
+        this.beanFactory.registerBeanDefinition("initializing", new RootBeanDefinition(Initializing.class));
+        this.beanFactory.registerBeanDefinition("factory", new RootBeanDefinition(CountedFactoryBean.class));
+
+        new LazyInitializationPostProcessor().postProcessBeanFactory(this.beanFactory);
+
+        assertFalse(this.beanFactory.getBeanDefinition("infrastructure").isLazyInit());
+        assertFalse(this.beanFactory.getBeanDefinition("initializing").isLazyInit());
+        assertFalse(this.beanFactory.getBeanDefinition("factory").isLazyInit());
+    }
+
+    @Test
+    public void shouldKeepPrototypesAsTheyAre() {
+        final RootBeanDefinition prototype = new RootBeanDefinition(Counted.class);
+        prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+        this.beanFactory.registerBeanDefinition("prototype", prototype);
+        this.beanFactory.registerBeanDefinition("singleton", new RootBeanDefinition(Counted.class));
+
+        new LazyInitializationPostProcessor().postProcessBeanFactory(this.beanFactory);
+
+        assertFalse(this.beanFactory.getBeanDefinition("prototype").isLazyInit());
+        assertTrue(this.beanFactory.getBeanDefinition("singleton").isLazyInit());
+    }
+
+    public static class Counted {
+
+        public Counted() {
+            created.incrementAndGet();
+        }
+    }
+
+    public static class Initializing implements SmartInitializingSingleton {
+
+        @Override
+        public void afterSingletonsInstantiated() {
+        }
+    }
+
+    public static class CountedFactoryBean implements FactoryBean<Counted> {
+
+        @Override
+        public Counted getObject() {
+            return new Counted();
+        }
+
+        @Override
+        public Class<?> getObjectType() {
+            return Counted.class;
+        }
+
+        @Override
+        public boolean isSingleton() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.github.messenger4j.quickstart.boot;
+
+import static java.util.Optional.of;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.messenger4j.Messenger;
+import com.github.messenger4j.quickstart.boot.attachment.AttachmentFetcher;
+import com.github.messenger4j.quickstart.boot.attachment.AttachmentProcessor;
+import com.github.messenger4j.quickstart.boot.cluster.ClusterNode;
+import com.github.messenger4j.quickstart.boot.command.CommandRouter;
+import com.github.messenger4j.quickstart.boot.dedup.EventDeduplicator;
+import com.github.messenger4j.quickstart.boot.dispatch.EventDispatcher;
+import com.github.messenger4j.quickstart.boot.dispatch.EventMetrics;
+import com.github.messenger4j.quickstart.boot.ingest.CallbackReader;
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import com.github.messenger4j.quickstart.boot.journal.EventJournal;
+import com.github.messenger4j.quickstart.boot.logging.EventLog;
+import com.github.messenger4j.quickstart.boot.media.MediaAssetManager;
+import com.github.messenger4j.quickstart.boot.send.GraphApiUsage;
+import com.github.messenger4j.quickstart.boot.send.OutboundScheduler;
+import com.github.messenger4j.quickstart.boot.send.OutboundSender;
+import com.github.messenger4j.quickstart.boot.send.SendMetrics;
+import com.github.messenger4j.quickstart.boot.session.SessionStore;
+import com.github.messenger4j.quickstart.boot.template.MessageTemplateRegistry;
+import com.github.messenger4j.quickstart.boot.userprofile.UserProfileCache;
+import com.github.messenger4j.quickstart.boot.watermark.WatermarkStore;
+import com.github.messenger4j.spi.MessengerHttpClient;
+import com.github.messenger4j.spi.MessengerHttpClient.HttpMethod;
+import com.github.messenger4j.spi.MessengerHttpClient.HttpResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpStatus;
+
+public class MessengerPlatformCallbackHandlerTest {
+
+    private static final String PAGE_ACCESS_TOKEN = "test-page-access-token";
+    private static final String APP_SECRET = "60efff025951cddde78c8d03de52cc90";
+    private static final String VERIFY_TOKEN = "test-verify-token";
+    private static final String PAGE_ID = "1717527131834678";
+    private static final String USER_ID = "1256217357730577";
+
+    private static final String SEND_RESPONSE = "{\"recipient_id\":\"" + USER_ID + "\",\"message_id\":\"mid.1456970487936:c34767dfe57ee6e339\"}";
+    private static final String USER_PROFILE_RESPONSE = "{\"first_name\":\"Peter\",\"last_name\":\"Chang\","
+            + "\"profile_pic\":\"https://example.com/profile.jpg\",\"locale\":\"en_US\",\"timezone\":-7,\"gender\":\"male\"}";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<String> sentMessages = Collections.synchronizedList(new ArrayList<>());
+
+    private SimpleMeterRegistry meterRegistry;
+    private Messenger messenger;
+    private SendMetrics sendMetrics;
+    private MessageTemplateRegistry messageTemplates;
+    private EventDispatcher eventDispatcher;
+    private OutboundSender outboundSender;
+    private MediaAssetManager mediaAssets;
+    private AttachmentFetcher attachmentFetcher;
+    private MessengerPlatformCallbackHandler callbackHandler;
+
+    @Before
+    public void setUp() throws Exception {
+        final MessengerHttpClient graphApi = (httpMethod, url, jsonBody) -> {
+            if (httpMethod == HttpMethod.GET) {
+                return new HttpResponse(200, USER_PROFILE_RESPONSE);
+            }
+            this.sentMessages.add(jsonBody);
+            return new HttpResponse(200, SEND_RESPONSE);
+        };
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.messenger = Messenger.create(PAGE_ACCESS_TOKEN, APP_SECRET, VERIFY_TOKEN, of(graphApi));
+        final OutboundScheduler scheduler = new OutboundScheduler(new GraphApiUsage(), 8, 1e9, 1_000_000, 1e9, 1_000_000, 0, 100, 100, 100);
+        this.sendMetrics = new SendMetrics(this.meterRegistry);
+        this.messageTemplates = new MessageTemplateRegistry(PAGE_ACCESS_TOKEN, APP_SECRET, VERIFY_TOKEN);
+        this.eventDispatcher = new EventDispatcher(2, 100, false);
+        this.outboundSender = new OutboundSender(this.messenger, graphApi, scheduler, this.sendMetrics, 2, 100, false);
+        this.mediaAssets = new MediaAssetManager(this.messageTemplates, this.outboundSender, PAGE_ACCESS_TOKEN, false, "");
+        this.attachmentFetcher = new AttachmentFetcher(8, 1000, 10, 26_214_400, "", 100_000);
+        this.callbackHandler = callbackHandler(new EventJournal("", 0, false));
+    }
+
+    private MessengerPlatformCallbackHandler callbackHandler(EventJournal eventJournal) throws IOException {
+        return new MessengerPlatformCallbackHandler(this.messenger, new CallbackReader(this.messenger, APP_SECRET),
+                new EventDeduplicator(0, 1), eventJournal, this.eventDispatcher, this.outboundSender,
+                new UserProfileCache(this.messenger, 3600, 100), this.messageTemplates, this.mediaAssets,
+                new AttachmentProcessor(this.attachmentFetcher, false, 10), new CommandRouter(), new EventMetrics(this.meterRegistry),
+                this.sendMetrics, new EventLog(true, new String[]{"echo", "delivered", "read"}, 100), new WatermarkStore(100),
+                new SessionStore(100, 10, 1800, 256, ""),
+                new ClusterNode("", "", "", 5, 512, 1000, 5000, 60000, 256, APP_SECRET, this.meterRegistry), false);
+    }
+
+    @After
+    public void shutdown() throws InterruptedException {
+        this.eventDispatcher.shutdown();
+        this.outboundSender.shutdown();
+        this.mediaAssets.shutdown();
+        this.attachmentFetcher.shutdown();
+    }
+
+    @Test
+    public void shouldReplyToQuickReplyWhosePayloadDoesNotFitIntoTheSession() throws Exception {
+        assertEquals(HttpStatus.OK, post(quickReply(1, "RED")));
+        final StringBuilder longPayload = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longPayload.append((char) ('a' + i % 26));
+        }
+        assertEquals(HttpStatus.OK, post(quickReply(2, longPayload.toString())));
+        assertEquals(HttpStatus.OK, post(text(3, "user")));
+        this.outboundSender.whenSent(USER_ID).get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, this.sentMessages.size());
+        assertTrue(this.sentMessages.get(0).contains("Quick reply tapped"));
+        assertTrue(this.sentMessages.get(1).contains("Quick reply tapped"));
+        assertTrue(this.sentMessages.get(2).contains("Your name is Peter"));
+        assertFalse("an older payload must not be reported as the last one", this.sentMessages.get(2).contains("RED"));
+    }
+
+    @Test
+    public void shouldRejectCallbacksUntilTheJournalHasBeenReplayed() throws Exception {
+        final String directory = this.temporaryFolder.getRoot().getPath();
+        final EventJournal previousRun = new EventJournal(directory, 65536, false);
+        previousRun.append(Collections.singletonList(new ReceivedEvent(text(1, "journaled"), null)));
+        previousRun.close();
+        final MessengerPlatformCallbackHandler callbackHandler = callbackHandler(new EventJournal(directory, 65536, false));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, post(callbackHandler, text(2, "live")));
+        callbackHandler.replayJournal();
+        assertEquals(HttpStatus.OK, post(callbackHandler, text(2, "live")));
+        this.outboundSender.whenSent(USER_ID).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, this.sentMessages.size());
+        assertTrue(this.sentMessages.get(0).contains("journaled"));
+        assertTrue(this.sentMessages.get(1).contains("live"));
+    }
+
+    private HttpStatus post(String payload) throws GeneralSecurityException {
+        return post(this.callbackHandler, payload);
+    }
+
+    private static HttpStatus post(MessengerPlatformCallbackHandler callbackHandler, String payload) throws GeneralSecurityException {
+        return callbackHandler.handleCallback(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)), signature(payload))
+                .getStatusCode();
+    }
+
+    private static String quickReply(int seq, String payload) {
+        return message(seq, "{\"mid\":\"mid.1475942721728:" + seq + "\",\"seq\":" + seq + ",\"text\":\"Red\","
+                + "\"quick_reply\":{\"payload\":\"" + payload + "\"}}");
+    }
+
+    private static String text(int seq, String text) {
+        return message(seq, "{\"mid\":\"mid.1475942721728:" + seq + "\",\"seq\":" + seq + ",\"text\":\"" + text + "\"}");
+    }
+
+    private static String message(int seq, String message) {
+        return "{\"object\":\"page\",\"entry\":[{\"id\":\"" + PAGE_ID + "\",\"time\":1475942721780,\"messaging\":[{\"sender\":{\"id\":\""
+                + USER_ID + "\"},\"recipient\":{\"id\":\"" + PAGE_ID + "\"},\"timestamp\":" + (1475942721741L + seq) + ",\"message\":"
+                + message + "}]}]}";
+    }
+
+    private static String signature(String payload) throws GeneralSecurityException {
+        final Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec(APP_SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+        final StringBuilder signature = new StringBuilder("sha1=");
+        for (byte b : mac.doFinal(payload.getBytes(StandardCharsets.UTF_8))) {
+            signature.append(String.format("%02x", b));
+        }
+        return signature.toString();
+    }
+}
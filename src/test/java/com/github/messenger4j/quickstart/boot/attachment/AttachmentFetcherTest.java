@@ -0,0 +1,194 @@
+package com.github.messenger4j.quickstart.boot.attachment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AttachmentFetcherTest {
+
+    private static final byte[] PHOTO = "not really a photo, but bytes all the same".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final CountDownLatch slowResponses = new CountDownLatch(1);
+    private final List<AttachmentFetcher> fetchers = new ArrayList<>();
+    private HttpServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/", exchange -> {
+            try {
+                if (exchange.getRequestURI().getPath().startsWith("/slow")) {
+                    this.slowResponses.await(10, TimeUnit.SECONDS);
+                }
+                if (exchange.getRequestURI().getPath().startsWith("/missing")) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                // chunked, so the size is only known once the content has been read
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(PHOTO);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.start();
+    }
+
+    @After
+    public void stopServer() throws InterruptedException {
+        this.slowResponses.countDown();
+        for (AttachmentFetcher fetcher : this.fetchers) {
+            fetcher.shutdown();
+        }
+        this.server.stop(0);
+    }
+
+    @Test
+    public void shouldStoreContentByItsDigest() throws Exception {
+        final File cacheDirectory = this.temporaryFolder.newFolder();
+        final AttachmentFetcher fetcher = fetcher(4, 100, PHOTO.length, cacheDirectory.getPath());
+
+        final FetchedAttachment fetchedAttachment = fetcher.fetch(url("/photo.jpg")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(sha256(PHOTO), fetchedAttachment.sha256());
+        assertEquals(PHOTO.length, fetchedAttachment.size());
+        final Path file = cacheDirectory.toPath().resolve(sha256(PHOTO).substring(0, 2)).resolve(sha256(PHOTO));
+        assertEquals(file, fetchedAttachment.file().get());
+        assertArrayEquals(PHOTO, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void shouldDownloadUrlOnce() throws Exception {
+        final AttachmentFetcher fetcher = fetcher(4, 100, PHOTO.length, "");
+        final List<CompletableFuture<FetchedAttachment>> fetches = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            fetches.add(fetcher.fetch(url("/photo.jpg")));
+        }
+
+        for (CompletableFuture<FetchedAttachment> fetch : fetches) {
+            assertEquals(sha256(PHOTO), fetch.get(10, TimeUnit.SECONDS).sha256());
+            assertFalse(fetch.get().file().isPresent());
+        }
+        assertEquals(10, fetcher.fetches());
+        assertEquals(1, fetcher.downloads());
+        assertEquals(PHOTO.length, fetcher.downloadedBytes());
+    }
+
+    @Test
+    public void shouldStoreSameContentOfDifferentUrlsOnce() throws Exception {
+        final File cacheDirectory = this.temporaryFolder.newFolder();
+        final AttachmentFetcher fetcher = fetcher(4, 100, PHOTO.length, cacheDirectory.getPath());
+
+        final FetchedAttachment first = fetcher.fetch(url("/photo.jpg?oh=1")).get(10, TimeUnit.SECONDS);
+        final FetchedAttachment second = fetcher.fetch(url("/photo.jpg?oh=2")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, fetcher.downloads());
+        assertEquals(first.file(), second.file());
+        assertEquals(1, files(cacheDirectory.toPath()).size());
+    }
+
+    @Test
+    public void shouldNotRememberFailedDownloads() throws Exception {
+        final File cacheDirectory = this.temporaryFolder.newFolder();
+        final AttachmentFetcher fetcher = fetcher(4, 100, PHOTO.length - 1, cacheDirectory.getPath());
+
+        assertFetchFails(fetcher, url("/photo.jpg"));
+        assertFetchFails(fetcher, url("/photo.jpg"));
+        assertFetchFails(fetcher, url("/missing.jpg"));
+
+        assertEquals(3, fetcher.downloads());
+        assertEquals(3, fetcher.failures());
+        assertTrue(files(cacheDirectory.toPath()).isEmpty());
+    }
+
+    @Test
+    public void shouldRejectDownloadsBeyondQueueCapacity() throws Exception {
+        final AttachmentFetcher fetcher = fetcher(1, 1, PHOTO.length, "");
+        final CompletableFuture<FetchedAttachment> running = fetcher.fetch(url("/slow/1.jpg"));
+        while (fetcher.downloads() == 0) {
+            Thread.sleep(1);
+        }
+        final CompletableFuture<FetchedAttachment> queued = fetcher.fetch(url("/slow/2.jpg"));
+
+        try {
+            fetcher.fetch(url("/slow/3.jpg")).get(10, TimeUnit.SECONDS);
+            fail("Download should have been rejected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(1, fetcher.rejected());
+
+        this.slowResponses.countDown();
+        assertEquals(sha256(PHOTO), running.get(10, TimeUnit.SECONDS).sha256());
+        assertEquals(sha256(PHOTO), queued.get(10, TimeUnit.SECONDS).sha256());
+    }
+
+    private AttachmentFetcher fetcher(int concurrency, int queueCapacity, long maxBytes, String cacheDirectory) {
+        final AttachmentFetcher fetcher = new AttachmentFetcher(concurrency, queueCapacity, 10, maxBytes, cacheDirectory, 1000);
+        this.fetchers.add(fetcher);
+        return fetcher;
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://localhost:" + this.server.getAddress().getPort() + path);
+    }
+
+    private static void assertFetchFails(AttachmentFetcher fetcher, URL url) throws Exception {
+        try {
+            fetcher.fetch(url).get(10, TimeUnit.SECONDS);
+            fail("Download of " + url + " should have failed");
+        } catch (ExecutionException e) {
+            // expected
+        }
+    }
+
+    private static List<Path> files(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        final StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
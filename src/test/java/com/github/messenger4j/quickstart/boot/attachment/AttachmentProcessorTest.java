@@ -0,0 +1,42 @@
+package com.github.messenger4j.quickstart.boot.attachment;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.nCopies;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.junit.Test;
+
+public class AttachmentProcessorTest {
+
+    @Test
+    public void shouldJoinAcknowledgementsIntoOneText() {
+        final List<String> texts = AttachmentProcessor.join(asList("Media IMAGE received (url: https://example.com/1.jpg)",
+                "Location received (long: 9.7389123, lat: 52.3765533)"), AttachmentProcessor.MAX_TEXT_LENGTH);
+
+        assertEquals(asList("Media IMAGE received (url: https://example.com/1.jpg)\nLocation received (long: 9.7389123, lat: 52.3765533)"), texts);
+    }
+
+    @Test
+    public void shouldSplitTextsAtLineThatWouldExceedMaxLength() {
+        final List<String> texts = AttachmentProcessor.join(nCopies(10, "0123456789"), 32);
+
+        assertEquals(asList("0123456789\n0123456789\n0123456789", "0123456789\n0123456789\n0123456789",
+                "0123456789\n0123456789\n0123456789", "0123456789"), texts);
+    }
+
+    @Test
+    public void shouldCutLineThatExceedsMaxLengthOnItsOwn() {
+        final List<String> texts = AttachmentProcessor.join(asList("short", "0123456789abcdef", "short"), 10);
+
+        assertEquals(asList("short", "0123456789", "short"), texts);
+        assertTrue(texts.stream().allMatch(text -> text.length() <= 10));
+    }
+
+    @Test
+    public void shouldNotReplyWithoutAcknowledgements() {
+        assertTrue(AttachmentProcessor.join(emptyList(), AttachmentProcessor.MAX_TEXT_LENGTH).isEmpty());
+    }
+}
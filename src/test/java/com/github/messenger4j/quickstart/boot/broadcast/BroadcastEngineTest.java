@@ -0,0 +1,175 @@
+package com.github.messenger4j.quickstart.boot.broadcast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.messenger4j.quickstart.boot.send.GraphApiUsage;
+import com.github.messenger4j.quickstart.boot.send.OutboundScheduler;
+import com.github.messenger4j.quickstart.boot.send.OutboundSender;
+import com.github.messenger4j.quickstart.boot.send.SendMetrics;
+import com.github.messenger4j.quickstart.boot.template.PrecompiledMessage;
+import com.github.messenger4j.spi.MessengerHttpClient;
+import com.github.messenger4j.spi.MessengerHttpClient.HttpResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BroadcastEngineTest {
+
+    private static final int RECIPIENTS = 1000;
+    private static final long FIRST_RECIPIENT_ID = 1254477777772919L;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Queue<String> received = new ConcurrentLinkedQueue<>();
+    private final PrecompiledMessage message = PrecompiledMessage.create(null, "https://graph.facebook.com/v2.11/me/messages",
+            "{\"recipient\":{\"id\":\"PLACEHOLDER\"},\"message\":{\"text\":\"Hello\"}}", "PLACEHOLDER");
+    private final List<OutboundSender> senders = new ArrayList<>();
+
+    @After
+    public void shutdown() throws InterruptedException {
+        for (OutboundSender sender : this.senders) {
+            sender.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldSendToEveryRecipientOfFile() throws Exception {
+        final File checkpoints = this.temporaryFolder.newFolder();
+        final BroadcastEngine engine = engine(this::stubSendApi, checkpoints.getPath());
+
+        final Broadcast broadcast = await(engine.start("spring-sale", this.message, recipientsFile(RECIPIENTS)));
+
+        assertEquals(RECIPIENTS, this.received.size());
+        assertEquals(RECIPIENTS, new HashSet<>(this.received).size());
+        assertEquals(RECIPIENTS, broadcast.position());
+        assertEquals(RECIPIENTS, broadcast.sent());
+        assertEquals(RECIPIENTS, engine.sent());
+        assertTrue(broadcast.sendsPerSecond() > 0);
+        assertTrue(engine.active().isEmpty());
+        assertTrue(BroadcastCheckpoint.load(checkpoints.toPath().resolve("spring-sale.properties")).complete);
+    }
+
+    @Test
+    public void shouldResumeFromCheckpoint() throws Exception {
+        final File checkpoints = this.temporaryFolder.newFolder();
+        new BroadcastCheckpoint(600, 590, 10, false).save(checkpoints.toPath().resolve("spring-sale.properties"));
+        final BroadcastEngine engine = engine(this::stubSendApi, checkpoints.getPath());
+
+        final Broadcast broadcast = await(engine.start("spring-sale", this.message, recipientsFile(RECIPIENTS)));
+
+        assertEquals(RECIPIENTS - 600, this.received.size());
+        assertFalse(this.received.contains(recipientId(599)));
+        assertTrue(this.received.contains(recipientId(600)));
+        assertEquals(RECIPIENTS, broadcast.position());
+        assertEquals(RECIPIENTS - 10, broadcast.sent());
+        assertEquals(10, broadcast.failed());
+    }
+
+    @Test
+    public void shouldNotSendCompleteBroadcastAgain() throws Exception {
+        final File checkpoints = this.temporaryFolder.newFolder();
+        final BroadcastEngine engine = engine(this::stubSendApi, checkpoints.getPath());
+        await(engine.start("spring-sale", this.message, recipientsFile(RECIPIENTS)));
+        this.received.clear();
+
+        final Broadcast broadcast = await(engine.start("spring-sale", this.message, recipientsFile(RECIPIENTS)));
+
+        assertTrue(this.received.isEmpty());
+        assertEquals(RECIPIENTS, broadcast.position());
+        assertTrue(BroadcastCheckpoint.load(checkpoints.toPath().resolve("spring-sale.properties")).complete);
+    }
+
+    @Test
+    public void shouldResumeCancelledBroadcastWithoutSkippingRecipients() throws Exception {
+        final File checkpoints = this.temporaryFolder.newFolder();
+        final BroadcastEngine engine = engine((httpMethod, url, jsonBody) -> {
+            Thread.sleep(1);
+            return stubSendApi(httpMethod, url, jsonBody);
+        }, checkpoints.getPath());
+        final Path recipientsFile = recipientsFile(RECIPIENTS);
+
+        final Broadcast cancelled = engine.start("spring-sale", this.message, recipientsFile);
+        while (cancelled.sent() < RECIPIENTS / 4) {
+            Thread.sleep(1);
+        }
+        cancelled.cancel();
+        await(cancelled);
+        assertTrue(cancelled.position() < RECIPIENTS);
+        assertFalse(BroadcastCheckpoint.load(checkpoints.toPath().resolve("spring-sale.properties")).complete);
+
+        final Broadcast resumed = await(engine.start("spring-sale", this.message, recipientsFile));
+
+        assertEquals(RECIPIENTS, resumed.position());
+        assertEquals(RECIPIENTS, new HashSet<>(this.received).size());
+        assertEquals(RECIPIENTS, resumed.sent());
+    }
+
+    @Test
+    public void shouldCountRecipientsThatCannotBeSentTo() throws Exception {
+        final BroadcastEngine engine = engine((httpMethod, url, jsonBody) -> jsonBody.contains(recipientId(7))
+                ? new HttpResponse(400, "{\"error\":{\"message\":\"(#100) No matching user found\",\"code\":100}}")
+                : stubSendApi(httpMethod, url, jsonBody), "");
+
+        final Broadcast broadcast = await(engine.start("spring-sale", this.message, recipientsFile(RECIPIENTS)));
+
+        assertEquals(RECIPIENTS, broadcast.position());
+        assertEquals(RECIPIENTS - 1, broadcast.sent());
+        assertEquals(1, broadcast.failed());
+        assertEquals(1, engine.failed());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectBroadcastIdThatIsNoFileName() throws IOException {
+        engine(this::stubSendApi, "").start("../spring-sale", this.message, recipientsFile(1));
+    }
+
+    private HttpResponse stubSendApi(MessengerHttpClient.HttpMethod httpMethod, String url, String jsonBody) {
+        final int start = jsonBody.indexOf("\"id\":\"") + 6;
+        final String recipientId = jsonBody.substring(start, jsonBody.indexOf('"', start));
+        this.received.add(recipientId);
+        return new HttpResponse(200, "{\"recipient_id\":\"" + recipientId + "\",\"message_id\":\"mid.1\"}");
+    }
+
+    private BroadcastEngine engine(MessengerHttpClient httpClient, String checkpointDirectory) {
+        final OutboundScheduler scheduler = new OutboundScheduler(new GraphApiUsage(), 8, 1e9, 1_000_000, 1e9, 1_000_000, 0, 100, 100, 100);
+        final OutboundSender sender = new OutboundSender(null, httpClient, scheduler, new SendMetrics(new SimpleMeterRegistry()), 8, 100, false);
+        this.senders.add(sender);
+        return new BroadcastEngine(sender, null, 8, 1e9, checkpointDirectory, 1, false);
+    }
+
+    private Path recipientsFile(int recipients) throws IOException {
+        final StringBuilder lines = new StringBuilder("# recipients of the spring sale\n");
+        for (int i = 0; i < recipients; i++) {
+            lines.append(recipientId(i)).append(i % 100 == 0 ? "\n\n" : "\n");
+        }
+        final Path file = this.temporaryFolder.newFile().toPath();
+        Files.write(file, lines.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String recipientId(int i) {
+        return String.valueOf(FIRST_RECIPIENT_ID + i);
+    }
+
+    private static Broadcast await(Broadcast broadcast) throws InterruptedException, ExecutionException, TimeoutException {
+        return broadcast.completion().get(10, TimeUnit.SECONDS);
+    }
+}
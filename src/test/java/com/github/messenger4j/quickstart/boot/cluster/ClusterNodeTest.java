@@ -0,0 +1,146 @@
+package com.github.messenger4j.quickstart.boot.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClusterNodeTest {
+
+    private static final String APP_SECRET = "60efff025951cddde78c8d03de52cc90";
+    private static final List<String> PAYLOADS = Arrays.asList(
+            "{\"object\":\"page\",\"entry\":[{\"messaging\":[{\"sender\":{\"id\":\"1256217357730577\"},\"message\":{\"text\":\"\u00e4\u00f6\u00fc\"}}]}]}",
+            "{\"object\":\"page\",\"entry\":[{\"messaging\":[{\"sender\":{\"id\":\"1256217357730577\"},\"postback\":{\"payload\":\"PAYLOAD\"}}]}]}");
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final List<ClusterNode> nodes = new ArrayList<>();
+    private final String members = "a=localhost:" + freePort() + ",b=localhost:" + freePort();
+
+    @After
+    public void shutdown() {
+        for (ClusterNode node : this.nodes) {
+            node.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldForwardEventsToPeer() throws IOException {
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final ClusterNode a = node("a", this.members, APP_SECRET);
+        node("b", this.members, APP_SECRET).start(payloads -> received.addAll(payloads));
+
+        assertTrue(a.forward("b", PAYLOADS));
+        assertTrue(a.forward("b", PAYLOADS.subList(0, 1)));
+
+        assertEquals(Arrays.asList(PAYLOADS.get(0), PAYLOADS.get(1), PAYLOADS.get(0)), received);
+        assertEquals(2, this.registry.get(ClusterNode.FORWARD_TIMER).tag("peer", "b").timer().count());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void shouldFailIfPeerRejectsEvents() throws IOException {
+        final ClusterNode a = node("a", this.members, APP_SECRET);
+        node("b", this.members, APP_SECRET).start(payloads -> false);
+
+        a.forward("b", PAYLOADS);
+    }
+
+    @Test
+    public void shouldReportUnreachablePeer() throws IOException {
+        final ClusterNode a = node("a", this.members, APP_SECRET);
+
+        assertFalse(a.forward("b", PAYLOADS));
+        assertEquals(1, this.registry.get(ClusterNode.FORWARD_FAILURE_COUNTER).tag("peer", "b").counter().count(), 0);
+    }
+
+    @Test
+    public void shouldNotAcceptEventsFromNodeWithoutAppSecret() throws IOException {
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final ClusterNode a = node("a", this.members, "another-app-secret");
+        node("b", this.members, APP_SECRET).start(payloads -> received.addAll(payloads));
+
+        assertFalse(a.forward("b", PAYLOADS));
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void shouldReportRebalanceWhenMembersFileChanges() throws IOException {
+        final File membersFile = this.temporaryFolder.newFile("members");
+        Files.write(membersFile.toPath(), this.members.replace(',', '\n').getBytes(StandardCharsets.UTF_8));
+        final ClusterNode a = new ClusterNode("a", "", membersFile.getPath(), 1, 512, 1000, 5000, 60000, 256, APP_SECRET, this.registry);
+        this.nodes.add(a);
+
+        a.refreshMembership();
+        assertEquals(0, a.rebalances());
+
+        Files.write(membersFile.toPath(), ("# c has joined\n" + this.members + ",c=localhost:" + freePort()).getBytes(StandardCharsets.UTF_8));
+        a.refreshMembership();
+
+        assertEquals(3, a.members());
+        assertEquals(1, a.rebalances());
+        assertEquals(1.0 / 3, a.lastMovedFraction(), 0.1);
+    }
+
+    @Test
+    public void shouldKeepMembersIfMembersFileIsMalformed() throws IOException {
+        final File membersFile = this.temporaryFolder.newFile("members");
+        Files.write(membersFile.toPath(), this.members.getBytes(StandardCharsets.UTF_8));
+        final ClusterNode a = new ClusterNode("a", "", membersFile.getPath(), 1, 512, 1000, 5000, 60000, 256, APP_SECRET, this.registry);
+        this.nodes.add(a);
+
+        Files.write(membersFile.toPath(), "a=localhost".getBytes(StandardCharsets.UTF_8));
+        a.refreshMembership();
+
+        assertEquals(2, a.members());
+        assertEquals(0, a.rebalances());
+    }
+
+    @Test
+    public void shouldProcessAllEventsLocallyIfDisabled() throws IOException {
+        final ClusterNode node = node("", "", APP_SECRET);
+        final List<ReceivedEvent> events = Collections.singletonList(new ReceivedEvent(PAYLOADS.get(0), null));
+
+        assertSame(events, node.forward(events));
+        assertEquals(0, node.members());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNodeThatIsNoMember() throws IOException {
+        node("c", this.members, APP_SECRET);
+    }
+
+    private ClusterNode node(String nodeId, String members, String appSecret) throws IOException {
+        final ClusterNode node = new ClusterNode(nodeId, members, "", 1, 512, 1000, 5000, 60000, 256, appSecret, this.registry);
+        this.nodes.add(node);
+        return node;
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
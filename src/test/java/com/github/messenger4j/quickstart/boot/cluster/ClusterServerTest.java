@@ -0,0 +1,57 @@
+package com.github.messenger4j.quickstart.boot.cluster;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Test;
+
+public class ClusterServerTest {
+
+    private static final String APP_SECRET = "60efff025951cddde78c8d03de52cc90";
+
+    private ClusterServer server;
+
+    @After
+    public void close() {
+        if (this.server != null) {
+            this.server.close();
+        }
+    }
+
+    @Test
+    public void shouldCloseConnectionsBeyondTheLimit() throws IOException {
+        this.server = new ClusterServer("localhost", 0, APP_SECRET, 60000, 1, payloads -> true);
+
+        try (Socket first = connect(); Socket second = connect()) {
+            assertEquals(-1, second.getInputStream().read());
+
+            final DataOutputStream out = new DataOutputStream(first.getOutputStream());
+            ClusterProtocol.writeEvents(out, ClusterProtocol.mac(APP_SECRET), Collections.singletonList("{}"));
+            assertEquals(ClusterProtocol.ACCEPTED, first.getInputStream().read());
+        }
+    }
+
+    @Test
+    public void shouldCloseIdleConnections() throws IOException {
+        this.server = new ClusterServer("localhost", 0, APP_SECRET, 100, 1, payloads -> true);
+
+        try (Socket idle = connect()) {
+            assertEquals(-1, idle.getInputStream().read());
+        }
+        try (Socket next = connect()) {
+            final DataOutputStream out = new DataOutputStream(next.getOutputStream());
+            ClusterProtocol.writeEvents(out, ClusterProtocol.mac(APP_SECRET), Collections.singletonList("{}"));
+            assertEquals(ClusterProtocol.ACCEPTED, next.getInputStream().read());
+        }
+    }
+
+    private Socket connect() throws IOException {
+        final Socket socket = new Socket("localhost", this.server.port());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.messenger4j.quickstart.boot.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class ConsistentHashRingTest {
+
+    private static final int SENDERS = 100_000;
+    private static final long FIRST_SENDER_ID = 1254459154682919L;
+
+    private final ClusterMember a = new ClusterMember("a", "localhost", 9091);
+    private final ClusterMember b = new ClusterMember("b", "localhost", 9092);
+    private final ClusterMember c = new ClusterMember("c", "localhost", 9093);
+    private final ClusterMember d = new ClusterMember("d", "localhost", 9094);
+
+    @Test
+    public void shouldSpreadSendersEvenlyOverMembers() {
+        final ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList(this.a, this.b, this.c, this.d), 512);
+
+        final Map<String, Integer> senders = new HashMap<>();
+        for (int i = 0; i < SENDERS; i++) {
+            senders.merge(ring.owner(senderId(i)).id(), 1, Integer::sum);
+        }
+
+        assertEquals(4, senders.size());
+        for (int owned : senders.values()) {
+            assertTrue("unbalanced share of " + owned, Math.abs(owned - SENDERS / 4) < SENDERS / 4 / 7);
+        }
+    }
+
+    @Test
+    public void shouldAgreeOnOwnersRegardlessOfOrderOfMembers() {
+        final ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList(this.a, this.b, this.c), 512);
+        final ConsistentHashRing reordered = new ConsistentHashRing(Arrays.asList(this.c, this.a, this.b), 512);
+
+        for (int i = 0; i < SENDERS; i++) {
+            assertEquals(ring.owner(senderId(i)).id(), reordered.owner(senderId(i)).id());
+        }
+        assertEquals(0.0, ring.movedFraction(reordered), 0.0);
+    }
+
+    @Test
+    public void shouldOnlyMoveSendersOfJoiningMember() {
+        final ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList(this.a, this.b, this.c), 512);
+        final ConsistentHashRing joined = new ConsistentHashRing(Arrays.asList(this.a, this.b, this.c, this.d), 512);
+
+        int moved = 0;
+        for (int i = 0; i < SENDERS; i++) {
+            final String owner = joined.owner(senderId(i)).id();
+            if (!ring.owner(senderId(i)).id().equals(owner)) {
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+
+        final double movedFraction = ring.movedFraction(joined);
+        assertEquals(0.25, movedFraction, 0.05);
+        assertEquals(movedFraction, moved / (double) SENDERS, 0.01);
+        assertEquals(movedFraction, joined.movedFraction(ring), 1e-9);
+    }
+
+    @Test
+    public void shouldMoveAllSendersOfLeavingMemberAndNoOthers() {
+        final List<ClusterMember> members = Arrays.asList(this.a, this.b, this.c, this.d);
+        final ConsistentHashRing ring = new ConsistentHashRing(members, 512);
+        final ConsistentHashRing left = new ConsistentHashRing(Arrays.asList(this.a, this.b, this.d), 512);
+
+        int ownedByLeaving = 0;
+        for (int i = 0; i < SENDERS; i++) {
+            if (ring.owner(senderId(i)).id().equals("c")) {
+                ownedByLeaving++;
+            } else {
+                assertEquals(ring.owner(senderId(i)).id(), left.owner(senderId(i)).id());
+            }
+        }
+
+        assertEquals(ownedByLeaving / (double) SENDERS, ring.movedFraction(left), 0.01);
+    }
+
+    @Test
+    public void shouldMoveNothingForSingleMember() {
+        final ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList(this.a), 1);
+
+        assertEquals("a", ring.owner(senderId(0)).id());
+        assertEquals(0.0, ring.movedFraction(new ConsistentHashRing(Arrays.asList(this.a), 1)), 0.0);
+        assertEquals(1.0, ring.movedFraction(new ConsistentHashRing(Arrays.asList(this.b), 1)), 1e-9);
+    }
+
+    private static String senderId(int i) {
+        return String.valueOf(FIRST_SENDER_ID + i);
+    }
+}
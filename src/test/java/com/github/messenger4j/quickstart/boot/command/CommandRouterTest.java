@@ -0,0 +1,111 @@
+package com.github.messenger4j.quickstart.boot.command;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class CommandRouterTest {
+
+    private final CommandRouter router = new CommandRouter();
+
+    private final CommandHandler quickReply = handler();
+    private final CommandHandler quick = handler();
+    private final CommandHandler weather = handler();
+    private final CommandHandler weatherForecast = handler();
+    private final CommandHandler help = handler();
+    private final CommandHandler customerService = handler();
+
+    @Test
+    public void shouldMatchExactCommandIgnoringCase() {
+        this.router.exact("quick reply", this.quickReply);
+
+        assertSame(this.quickReply, this.router.route("Quick Reply").get());
+        assertSame(this.quickReply, this.router.route("QUICK REPLY").get());
+        assertFalse(this.router.route("quick reply please").isPresent());
+        assertFalse(this.router.route("quick").isPresent());
+        assertFalse(this.router.route("").isPresent());
+    }
+
+    @Test
+    public void shouldMatchLongestPrefixUpToWordBoundary() {
+        this.router.prefix("weather", this.weather);
+        this.router.prefix("weather forecast", this.weatherForecast);
+
+        assertSame(this.weather, this.router.route("weather").get());
+        assertSame(this.weather, this.router.route("Weather in Berlin").get());
+        assertSame(this.weather, this.router.route("weather, please").get());
+        assertSame(this.weatherForecast, this.router.route("weather forecast for Berlin").get());
+        assertSame(this.weather, this.router.route("weather forecasts").get());
+        assertFalse(this.router.route("weatherman").isPresent());
+    }
+
+    @Test
+    public void shouldPreferExactOverPrefixOverKeyword() {
+        this.router.exact("quick reply", this.quickReply);
+        this.router.prefix("quick", this.quick);
+        this.router.keyword("help", this.help);
+
+        assertSame(this.quickReply, this.router.route("quick reply").get());
+        assertSame(this.quick, this.router.route("quick reply help").get());
+        assertSame(this.help, this.router.route("please help with a quick reply").get());
+    }
+
+    @Test
+    public void shouldMatchFirstKeywordAsWholeWords() {
+        this.router.keyword("help", this.help);
+        this.router.keyword("customer service", this.customerService);
+
+        assertSame(this.help, this.router.route("Can you HELP me?").get());
+        assertSame(this.customerService, this.router.route("I need customer service, help!").get());
+        assertSame(this.help, this.router.route("help").get());
+        assertFalse(this.router.route("helpful customer services").isPresent());
+    }
+
+    @Test
+    public void shouldFoldCodePointsOutsideTheBasicMultilingualPlane() {
+        this.router.exact("\uD801\uDC28bc", this.help);
+        this.router.exact("stra\u00DFe", this.weather);
+
+        assertSame(this.help, this.router.route("\uD801\uDC00BC").get());
+        assertSame(this.weather, this.router.route("STRA\u00DFE").get());
+    }
+
+    @Test
+    public void shouldRouteAnyNumberOfCommands() {
+        final CommandHandler[] handlers = new CommandHandler[1000];
+        for (int i = 0; i < handlers.length; i++) {
+            handlers[i] = handler();
+            this.router.exact("command " + i, handlers[i]);
+        }
+
+        for (int i = 0; i < handlers.length; i++) {
+            assertSame(handlers[i], this.router.route("Command " + i).get());
+        }
+        assertFalse(this.router.route("command 1000").isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectDuplicateCommand() {
+        this.router.exact("help", this.help);
+        this.router.exact("HELP", this.help);
+    }
+
+    @Test
+    public void shouldAllowSameCommandWithDifferentKinds() {
+        this.router.exact("help", this.help);
+        this.router.keyword("help", this.customerService);
+
+        assertSame(this.help, this.router.route("help").get());
+        assertSame(this.customerService, this.router.route("help me").get());
+        assertFalse(this.router.route("helper").isPresent());
+    }
+
+    private static CommandHandler handler() {
+        return new CommandHandler() {
+            @Override
+            public void handle(String senderId, String messageText) {
+            }
+        };
+    }
+}
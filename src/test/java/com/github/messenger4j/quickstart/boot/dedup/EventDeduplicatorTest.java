@@ -0,0 +1,92 @@
+package com.github.messenger4j.quickstart.boot.dedup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.messenger4j.quickstart.boot.key.UserKeys;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class EventDeduplicatorTest {
+
+    private static final long WINDOW_MILLIS = 60_000;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final EventDeduplicator deduplicator = new EventDeduplicator(WINDOW_MILLIS, 1000, this.clock::get);
+
+    @Test
+    public void shouldDropRedeliveredEvent() {
+        assertTrue(this.deduplicator.firstSeen(key(1)));
+        assertTrue(this.deduplicator.firstSeen(key(2)));
+
+        assertFalse(this.deduplicator.firstSeen(key(1)));
+        assertEquals(1, this.deduplicator.duplicates());
+    }
+
+    @Test
+    public void shouldRememberEventsForAtLeastOneWindow() {
+        this.deduplicator.firstSeen(key(1));
+        this.clock.addAndGet(WINDOW_MILLIS);
+        this.deduplicator.firstSeen(key(2));
+        this.clock.addAndGet(WINDOW_MILLIS - 1);
+
+        assertFalse(this.deduplicator.firstSeen(key(1)));
+        assertFalse(this.deduplicator.firstSeen(key(2)));
+    }
+
+    @Test
+    public void shouldForgetEventsAfterTwoWindows() {
+        this.deduplicator.firstSeen(key(1));
+        this.clock.addAndGet(2 * WINDOW_MILLIS);
+
+        assertTrue(this.deduplicator.firstSeen(key(1)));
+        assertEquals(1, this.deduplicator.size());
+    }
+
+    @Test
+    public void shouldRotateGenerationWhenFull() {
+        for (int i = 0; i < 1500; i++) {
+            assertTrue(this.deduplicator.firstSeen(key(i)));
+        }
+
+        assertFalse(this.deduplicator.firstSeen(key(1499)));
+        assertEquals(1500, this.deduplicator.size());
+    }
+
+    @Test
+    public void shouldAcceptForgottenEventAgain() {
+        this.deduplicator.firstSeen(key(1));
+        this.deduplicator.forget(key(1));
+
+        assertTrue(this.deduplicator.firstSeen(key(1)));
+    }
+
+    @Test
+    public void shouldBehaveLikeHashSetUnderRandomAddsAndRemoves() {
+        final LongHashSet set = new LongHashSet(256);
+        final Set<Long> reference = new HashSet<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // few distinct keys with colliding low bits, so that probe sequences overlap
+            final long key = ((long) random.nextInt(300) << 8) | 1;
+            if (random.nextBoolean() && reference.size() < 256) {
+                assertEquals(reference.add(key), set.add(key));
+            } else {
+                assertEquals(reference.remove(key), set.remove(key));
+            }
+            assertEquals(reference.size(), set.size());
+        }
+        for (int i = 0; i < 300; i++) {
+            final long key = ((long) i << 8) | 1;
+            assertEquals(reference.contains(key), set.contains(key));
+        }
+    }
+
+    private static long key(int i) {
+        return UserKeys.mix(i + 1);
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.messenger4j.quickstart.boot.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.github.messenger4j.Messenger;
+import com.github.messenger4j.quickstart.boot.ingest.CallbackReader;
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class EventDispatcherTest {
+
+    private static final String APP_SECRET = "60efff025951cddde78c8d03de52cc90";
+
+    private static final String PAYLOAD = "{\"object\":\"page\",\"entry\":[{\"messaging\":[{\"sender\":{\"id\":\"1256217357730577\"},"
+            + "\"recipient\":{\"id\":\"1717527131834678\"},\"timestamp\":1475942721741,"
+            + "\"message\":{\"mid\":\"mid.1475942721728:3b9e3646712f9bed52\",\"seq\":123,\"text\":\"34wrr3wr\"}}]}]}";
+
+    private final CallbackReader callbackReader = new CallbackReader(Messenger.create("test-page-access-token", APP_SECRET,
+            "test-verify-token"), APP_SECRET);
+
+    @Test
+    public void shouldReleaseTheCapacityOfEventsDiscardedAtShutdown() throws Exception {
+        final EventDispatcher dispatcher = new EventDispatcher(1, 10, false);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final List<ReceivedEvent> events = new ArrayList<>(this.callbackReader.parse(PAYLOAD));
+        events.addAll(this.callbackReader.parse(PAYLOAD));
+
+        final CompletableFuture<Void> completion = dispatcher.dispatch(events, event -> {
+            started.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await(5, TimeUnit.SECONDS);
+        assertEquals(2, dispatcher.inFlight());
+
+        dispatcher.shutdown();
+
+        assertTrue(completion.isCompletedExceptionally());
+        assertEquals(0, dispatcher.inFlight());
+        assertEquals(1, dispatcher.processedEvents());
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.messenger4j.quickstart.boot.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class SenderOrderedExecutorTest {
+
+    private static final int PRODUCERS = 8;
+    private static final int SENDERS_PER_PRODUCER = 50;
+    private static final int EVENTS_PER_SENDER = 500;
+
+    private final SenderOrderedExecutor executor = new SenderOrderedExecutor(16, WorkerThreads.threadFactory("test-worker-", false));
+
+    @After
+    public void shutdown() throws InterruptedException {
+        this.executor.shutdown();
+        this.executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldPreserveOrderPerSenderUnderConcurrentSubmission() throws Exception {
+        final Map<String, List<Integer>> observed = new ConcurrentHashMap<>();
+        final Set<String> workerThreads = ConcurrentHashMap.newKeySet();
+        final AtomicInteger orderViolations = new AtomicInteger();
+        final List<CompletableFuture<Void>> completions = new ArrayList<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+
+        final List<CompletableFuture<List<CompletableFuture<Void>>>> submissions = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            submissions.add(CompletableFuture.supplyAsync(() -> {
+                awaitQuietly(start);
+                final List<CompletableFuture<Void>> futures = new ArrayList<>();
+                for (int seq = 0; seq < EVENTS_PER_SENDER; seq++) {
+                    for (int s = 0; s < SENDERS_PER_PRODUCER; s++) {
+                        final String senderId = producer + "-" + s;
+                        final int sequenceNumber = seq;
+                        futures.add(this.executor.submit(senderId, () -> {
+                            workerThreads.add(Thread.currentThread().getName());
+                            final List<Integer> sequence = observed.computeIfAbsent(senderId, k -> new ArrayList<>());
+                            if (!sequence.isEmpty() && sequence.get(sequence.size() - 1) != sequenceNumber - 1) {
+                                orderViolations.incrementAndGet();
+                            }
+                            sequence.add(sequenceNumber);
+                        }));
+                    }
+                }
+                return futures;
+            }, producers));
+        }
+        start.countDown();
+        for (CompletableFuture<List<CompletableFuture<Void>>> submission : submissions) {
+            completions.addAll(submission.get(30, TimeUnit.SECONDS));
+        }
+        CompletableFuture.allOf(completions.toArray(new CompletableFuture<?>[0])).get(60, TimeUnit.SECONDS);
+        producers.shutdown();
+
+        assertEquals(0, orderViolations.get());
+        assertEquals(PRODUCERS * SENDERS_PER_PRODUCER, observed.size());
+        for (List<Integer> sequence : observed.values()) {
+            assertEquals(EVENTS_PER_SENDER, sequence.size());
+        }
+        assertTrue("events should have been spread across stripes", workerThreads.size() > 1);
+    }
+
+    @Test
+    public void shouldRunSendersOnDifferentStripesConcurrently() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final AtomicInteger completed = new AtomicInteger();
+
+        final String blockedSender = "sender-0";
+        String otherSender = null;
+        for (int i = 1; otherSender == null; i++) {
+            final String candidate = "sender-" + i;
+            if (this.executor.stripeIndex(candidate) != this.executor.stripeIndex(blockedSender)) {
+                otherSender = candidate;
+            }
+        }
+
+        final CompletableFuture<Void> blocking = this.executor.submit(blockedSender, () -> awaitQuietly(blocked));
+        this.executor.submit(otherSender, completed::incrementAndGet).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, completed.get());
+        blocked.countDown();
+        blocking.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldFailTheFuturesOfTasksDiscardedAtShutdown() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CompletableFuture<Void> running = this.executor.submit("sender-0", () -> {
+            started.countDown();
+            awaitQuietly(blocked);
+        });
+        final CompletableFuture<Void> queued = this.executor.submit("sender-0", () -> { });
+        started.await(5, TimeUnit.SECONDS);
+
+        this.executor.shutdown();
+        assertEquals(1, this.executor.awaitTermination(100, TimeUnit.MILLISECONDS));
+
+        running.get(5, TimeUnit.SECONDS);
+        assertTrue(queued.isCompletedExceptionally());
+        assertTrue(this.executor.submit("sender-0", () -> { }).isCompletedExceptionally());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
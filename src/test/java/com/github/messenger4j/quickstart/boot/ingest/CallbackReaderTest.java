@@ -0,0 +1,88 @@
+package com.github.messenger4j.quickstart.boot.ingest;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.messenger4j.exception.MessengerVerificationException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.List;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Test;
+
+public class CallbackReaderTest {
+
+    private static final String APP_SECRET = "60efff025951cddde78c8d03de52cc90";
+
+    private static final String PAYLOAD = "{\"object\":\"page\",\"entry\":[{\"id\":\"1717527131834678\",\"time\":1475942721780,"
+            + "\"messaging\":[{\"sender\":{\"id\":\"1256217357730577\"},\"recipient\":{\"id\":\"1717527131834678\"},\"timestamp\":1475942721741,"
+            + "\"message\":{\"mid\":\"mid.1475942721728:3b9e3646712f9bed52\",\"seq\":123,\"text\":\"34wrr3wr\"}},"
+            + "{\"sender\":{\"id\":\"1256217357730578\"},\"recipient\":{\"id\":\"1717527131834678\"},\"timestamp\":1475942721742,"
+            + "\"postback\":{\"payload\":\"USER_DEFINED_PAYLOAD\"}}]},"
+            + "{\"id\":\"1717527131834678\",\"time\":1475942721781,\"standby\":[{\"sender\":{\"id\":\"1256217357730579\"},"
+            + "\"recipient\":{\"id\":\"1717527131834678\"},\"timestamp\":1475942721743,\"read\":{\"watermark\":1458668856253}}]}]}";
+
+    private final CallbackReader callbackReader = new CallbackReader(null, APP_SECRET);
+
+    @Test
+    public void shouldSplitPayloadIntoSingleEventPayloads() throws Exception {
+        final List<String> eventPayloads = this.callbackReader.split(trickle(PAYLOAD), signature(PAYLOAD));
+
+        assertEquals(Arrays.asList(
+                "{\"object\":\"page\",\"entry\":[{\"messaging\":[{\"sender\":{\"id\":\"1256217357730577\"},\"recipient\":{\"id\":\"1717527131834678\"},"
+                        + "\"timestamp\":1475942721741,\"message\":{\"mid\":\"mid.1475942721728:3b9e3646712f9bed52\",\"seq\":123,\"text\":\"34wrr3wr\"}}]}]}",
+                "{\"object\":\"page\",\"entry\":[{\"messaging\":[{\"sender\":{\"id\":\"1256217357730578\"},\"recipient\":{\"id\":\"1717527131834678\"},"
+                        + "\"timestamp\":1475942721742,\"postback\":{\"payload\":\"USER_DEFINED_PAYLOAD\"}}]}]}",
+                "{\"object\":\"page\",\"entry\":[{\"standby\":[{\"sender\":{\"id\":\"1256217357730579\"},\"recipient\":{\"id\":\"1717527131834678\"},"
+                        + "\"timestamp\":1475942721743,\"read\":{\"watermark\":1458668856253}}]}]}"),
+                eventPayloads);
+    }
+
+    @Test
+    public void shouldVerifySignatureOverWholeBody() throws Exception {
+        final String payloadWithTrailingWhitespace = PAYLOAD + "\n\n";
+
+        assertEquals(3, this.callbackReader.split(trickle(payloadWithTrailingWhitespace), signature(payloadWithTrailingWhitespace)).size());
+    }
+
+    @Test(expected = MessengerVerificationException.class)
+    public void shouldRejectInvalidSignature() throws Exception {
+        this.callbackReader.split(trickle(PAYLOAD), signature(PAYLOAD.replace("34wrr3wr", "tampered")));
+    }
+
+    @Test(expected = MessengerVerificationException.class)
+    public void shouldRejectMalformedPayloadWithInvalidSignatureAsUnverified() throws Exception {
+        this.callbackReader.split(trickle("{\"object\":"), signature("{}"));
+    }
+
+    @Test(expected = JsonProcessingException.class)
+    public void shouldRejectMalformedPayload() throws Exception {
+        this.callbackReader.split(trickle("{\"object\":"), signature("{\"object\":"));
+    }
+
+    /**
+     * Hands out the body in small chunks, as it arrives over the network.
+     */
+    private static InputStream trickle(String payload) {
+        return new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+    }
+
+    private static String signature(String payload) throws GeneralSecurityException {
+        final Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec(APP_SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+        final StringBuilder signature = new StringBuilder("sha1=");
+        for (byte b : mac.doFinal(payload.getBytes(StandardCharsets.UTF_8))) {
+            signature.append(String.format("%02x", b));
+        }
+        return signature.toString();
+    }
+}
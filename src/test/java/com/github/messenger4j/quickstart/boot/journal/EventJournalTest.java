@@ -0,0 +1,169 @@
+package com.github.messenger4j.quickstart.boot.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.github.messenger4j.quickstart.boot.ingest.ReceivedEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EventJournalTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldReplayEventsThatHaveNotBeenProcessed() throws IOException {
+        final EventJournal journal = journal(true);
+        final List<ReceivedEvent> journaled = journal.append(events("first", "second", "third"));
+        journal.markProcessed(journaled.get(1).journalSequence());
+        journal.close();
+
+        assertEquals(Arrays.asList("first", "third"), new ArrayList<>(journal(true).unprocessed().values()));
+    }
+
+    @Test
+    public void shouldRollOverAndDeleteProcessedSegments() throws IOException {
+        final EventJournal journal = journal(false);
+        final List<ReceivedEvent> journaled = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            journaled.addAll(journal.append(events(payload(i))));
+        }
+        assertTrue(journal.segmentCount() > 5);
+
+        for (ReceivedEvent event : journaled.subList(0, 99)) {
+            journal.markProcessed(event.journalSequence());
+        }
+        journal.close();
+
+        final EventJournal reopened = journal(false);
+        assertEquals(Collections.singletonList(payload(99)), new ArrayList<>(reopened.unprocessed().values()));
+        assertTrue(segmentFiles().length <= 3);
+
+        reopened.markProcessed(reopened.unprocessed().firstKey());
+        assertEquals(1, segmentFiles().length);
+    }
+
+    @Test
+    public void shouldMoveEventsWhoseHandlerFailedToTheDeadLetters() throws IOException {
+        final EventJournal journal = journal(false);
+        final List<ReceivedEvent> journaled = journal.append(events("first", "second"));
+        for (ReceivedEvent event : journaled) {
+            try {
+                handle(event);
+                journal.markProcessed(event.journalSequence());
+            } catch (RuntimeException e) {
+                journal.deadLetter(event.journalSequence(), event.payload());
+            }
+        }
+        journal.close();
+
+        assertTrue(journal(false).unprocessed().isEmpty());
+        assertEquals(Collections.singletonList("first"),
+                Files.readAllLines(this.temporaryFolder.getRoot().toPath().resolve("dead-letters.jsonl"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldCopyUnprocessedEventsForwardSoThatOldSegmentsAreDeleted() throws IOException {
+        final EventJournal journal = journal(false);
+        final List<ReceivedEvent> stuck = journal.append(events("stuck"));
+        for (int i = 0; i < 200; i++) {
+            for (ReceivedEvent event : journal.append(events(payload(i)))) {
+                journal.markProcessed(event.journalSequence());
+            }
+        }
+        assertTrue(segmentFiles().length <= 3);
+        journal.close();
+
+        final EventJournal reopened = journal(false);
+        assertEquals(Collections.singletonList("stuck"), new ArrayList<>(reopened.unprocessed().values()));
+        assertEquals(stuck.get(0).journalSequence(), (long) reopened.unprocessed().firstKey());
+
+        reopened.markProcessed(stuck.get(0).journalSequence());
+        reopened.close();
+        assertTrue(journal(false).unprocessed().isEmpty());
+    }
+
+    @Test
+    public void shouldStopReplayAtTornRecord() throws IOException {
+        final EventJournal journal = journal(false);
+        journal.append(events("first", "second"));
+        journal.close();
+
+        final File segment = segmentFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            // second record: length, type, sequence, then the payload
+            final long payloadOfSecond = (4 + 1 + 8 + "first".length() + 4) + 4 + 1 + 8;
+            file.seek(payloadOfSecond);
+            file.write('S');
+        }
+
+        assertEquals(Collections.singletonList("first"), new ArrayList<>(journal(false).unprocessed().values()));
+    }
+
+    @Test
+    public void shouldCommitConcurrentAppendsWithFsync() throws Exception {
+        final EventJournal journal = journal(true);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<List<ReceivedEvent>>> appends = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final String payload = payload(i);
+            appends.add(executor.submit(() -> {
+                start.await();
+                return journal.append(events(payload));
+            }));
+        }
+        start.countDown();
+        for (Future<List<ReceivedEvent>> append : appends) {
+            append.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        journal.close();
+
+        assertEquals(200, journal(true).unprocessed().size());
+    }
+
+    private static void handle(ReceivedEvent event) {
+        if (event.payload().equals("first")) {
+            throw new IllegalStateException("Handler failed");
+        }
+    }
+
+    private EventJournal journal(boolean fsync) throws IOException {
+        return new EventJournal(this.temporaryFolder.getRoot().getPath(), SEGMENT_SIZE, fsync);
+    }
+
+    private File[] segmentFiles() {
+        return this.temporaryFolder.getRoot().listFiles((directory, name) -> name.endsWith(".journal"));
+    }
+
+    private static String payload(int i) {
+        return "{\"object\":\"page\",\"entry\":[{\"messaging\":[{\"sender\":{\"id\":\"" + i + "\"}}]}]}";
+    }
+
+    private static List<ReceivedEvent> events(String... payloads) {
+        final List<ReceivedEvent> events = new ArrayList<>();
+        for (String payload : payloads) {
+            events.add(new ReceivedEvent(payload, null));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.messenger4j.quickstart.boot.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.github.messenger4j.quickstart.boot.dispatch.EventType;
+import org.junit.Test;
+
+public class EventLogTest {
+
+    private static final int SAMPLE_RATE = 100;
+
+    private final EventLog eventLog = new EventLog(true, new String[]{"echo", " delivered", "read", ""}, SAMPLE_RATE);
+
+    @Test
+    public void shouldLogEveryEventOfTypeThatIsNotSampled() {
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(this.eventLog.isLogged(EventType.TEXT));
+            assertTrue(this.eventLog.isLogged(EventType.POSTBACK));
+        }
+    }
+
+    @Test
+    public void shouldLogOneInSampleRateEventsOfSampledType() {
+        final int events = 100_000;
+        int logged = 0;
+        for (int i = 0; i < events; i++) {
+            if (this.eventLog.isLogged(EventType.DELIVERED)) {
+                logged++;
+            }
+        }
+
+        final int expected = events / SAMPLE_RATE;
+        assertTrue("logged " + logged, logged > expected / 2 && logged < expected * 2);
+    }
+
+    @Test
+    public void shouldLogEveryEventIfSampleRateIsOne() {
+        final EventLog eventLog = new EventLog(true, new String[]{"echo"}, 1);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(eventLog.isLogged(EventType.ECHO));
+        }
+    }
+
+    @Test
+    public void shouldRedactContentToItsLength() {
+        assertEquals("<redacted:11>", this.eventLog.content("hello world"));
+        assertNull(this.eventLog.content(null));
+    }
+
+    @Test
+    public void shouldKeepContentIfRedactionIsTurnedOff() {
+        final EventLog eventLog = new EventLog(false, new String[0], SAMPLE_RATE);
+
+        assertEquals("hello world", eventLog.content("hello world"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownEventType() {
+        new EventLog(true, new String[]{"typing"}, SAMPLE_RATE);
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.messenger4j.quickstart.boot.media;
+
+import static com.github.messenger4j.send.message.richmedia.RichMediaAsset.Type.IMAGE;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.github.messenger4j.quickstart.boot.send.GraphApiUsage;
+import com.github.messenger4j.quickstart.boot.send.OutboundScheduler;
+import com.github.messenger4j.quickstart.boot.send.OutboundSender;
+import com.github.messenger4j.quickstart.boot.send.SendMetrics;
+import com.github.messenger4j.spi.MessengerHttpClient;
+import com.github.messenger4j.spi.MessengerHttpClient.HttpMethod;
+import com.github.messenger4j.spi.MessengerHttpClient.HttpResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AttachmentUploaderTest {
+
+    private static final String ASSET_URL = "https://example.com/assets/rift.png";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private OutboundSender outboundSender;
+
+    @After
+    public void shutdown() throws InterruptedException {
+        if (this.outboundSender != null) {
+            this.outboundSender.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldUploadAssetAsReusableAttachment() throws Exception {
+        final StringBuilder request = new StringBuilder();
+        final AttachmentUploader uploader = uploader((httpMethod, url, jsonBody) -> {
+            request.append(httpMethod).append(' ').append(url).append(' ').append(jsonBody);
+            return new HttpResponse(200, "{\"attachment_id\":\"1857777774821032\"}");
+        });
+
+        assertEquals("1857777774821032", uploader.upload(IMAGE, ASSET_URL));
+        assertEquals(HttpMethod.POST + " https://graph.facebook.com/v2.11/me/message_attachments?access_token=token "
+                + "{\"message\":{\"attachment\":{\"type\":\"image\",\"payload\":{\"is_reusable\":true,\"url\":\"" + ASSET_URL + "\"}}}}",
+                request.toString());
+    }
+
+    @Test
+    public void shouldRetryThrottledUpload() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final AttachmentUploader uploader = uploader((httpMethod, url, jsonBody) -> attempts.getAndIncrement() == 0
+                ? new HttpResponse(400, "{\"error\":{\"message\":\"(#613) Calls to this api have exceeded the rate limit.\",\"code\":613}}")
+                : new HttpResponse(200, "{\"attachment_id\":\"1857777774821032\"}"));
+
+        assertEquals("1857777774821032", uploader.upload(IMAGE, ASSET_URL));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailIfUploadIsRejected() throws Exception {
+        final AttachmentUploader uploader = uploader(
+                (httpMethod, url, jsonBody) -> new HttpResponse(400, "{\"error\":{\"message\":\"Invalid URL\"}}"));
+
+        uploader.upload(IMAGE, ASSET_URL);
+    }
+
+    @Test
+    public void shouldKeepAttachmentIdsAcrossRestarts() throws IOException {
+        final Path file = this.temporaryFolder.getRoot().toPath().resolve("attachments.properties");
+        final AttachmentStore store = new AttachmentStore(file, "token");
+        assertEquals(empty(), store.attachmentId(ASSET_URL));
+
+        store.put(ASSET_URL, "1857777774821032");
+
+        assertEquals(of("1857777774821032"), new AttachmentStore(file, "token").attachmentId(ASSET_URL));
+    }
+
+    @Test
+    public void shouldKeepAttachmentIdsPerPage() throws IOException {
+        final Path file = this.temporaryFolder.getRoot().toPath().resolve("attachments.properties");
+        new AttachmentStore(file, "token").put(ASSET_URL, "1857777774821032");
+
+        final AttachmentStore store = new AttachmentStore(file, "token-of-another-page");
+        assertEquals(empty(), store.attachmentId(ASSET_URL));
+        store.put(ASSET_URL, "1857777774821033");
+
+        assertEquals(of("1857777774821032"), new AttachmentStore(file, "token").attachmentId(ASSET_URL));
+        assertFalse("the page access token must not be stored", new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1).contains("token"));
+    }
+
+    @Test
+    public void shouldForgetRemovedAttachmentIds() throws IOException {
+        final Path file = this.temporaryFolder.getRoot().toPath().resolve("attachments.properties");
+        final AttachmentStore store = new AttachmentStore(file, "token");
+        store.put(ASSET_URL, "1857777774821032");
+
+        store.remove(ASSET_URL);
+
+        assertEquals(empty(), store.attachmentId(ASSET_URL));
+        assertEquals(empty(), new AttachmentStore(file, "token").attachmentId(ASSET_URL));
+    }
+
+    private AttachmentUploader uploader(MessengerHttpClient httpClient) {
+        final OutboundScheduler scheduler = new OutboundScheduler(new GraphApiUsage(), 8, 1e9, 1_000_000, 1e9, 1_000_000, 3, 1, 1, 100);
+        this.outboundSender = new OutboundSender(null, httpClient, scheduler, new SendMetrics(new SimpleMeterRegistry()), 1, 100, false);
+        return new AttachmentUploader(this.outboundSender, "token");
+    }
+}
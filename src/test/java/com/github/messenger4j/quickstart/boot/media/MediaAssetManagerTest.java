@@ -0,0 +1,102 @@
+package com.github.messenger4j.quickstart.boot.media;
+
+import static com.github.messenger4j.quickstart.boot.template.MessageTemplateRegistry.RESOURCE_URL;
+import static java.util.Optional.empty;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.messenger4j.quickstart.boot.send.GraphApiUsage;
+import com.github.messenger4j.quickstart.boot.send.OutboundScheduler;
+import com.github.messenger4j.quickstart.boot.send.OutboundSender;
+import com.github.messenger4j.quickstart.boot.send.SendMetrics;
+import com.github.messenger4j.quickstart.boot.template.MessageTemplateRegistry;
+import com.github.messenger4j.spi.MessengerHttpClient.HttpResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MediaAssetManagerTest {
+
+    private static final String PAGE_ACCESS_TOKEN = "test-page-access-token";
+    private static final String RECIPIENT_ID = "1254477777772919";
+    private static final String IMAGE_URL = RESOURCE_URL + "/assets/rift.png";
+    private static final String EXPIRED_ATTACHMENT_ID = "1857777774821032";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<String> uploads = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> sentMessages = Collections.synchronizedList(new ArrayList<>());
+
+    private Path attachmentStore;
+    private MessageTemplateRegistry messageTemplates;
+    private OutboundSender outboundSender;
+    private MediaAssetManager mediaAssets;
+
+    @Before
+    public void setUp() throws Exception {
+        this.attachmentStore = this.temporaryFolder.getRoot().toPath().resolve("media-attachments.properties");
+        new AttachmentStore(this.attachmentStore, PAGE_ACCESS_TOKEN).put(IMAGE_URL, EXPIRED_ATTACHMENT_ID);
+        this.messageTemplates = new MessageTemplateRegistry(PAGE_ACCESS_TOKEN, "60efff025951cddde78c8d03de52cc90", "test-verify-token");
+        final OutboundScheduler scheduler = new OutboundScheduler(new GraphApiUsage(), 8, 1e9, 1_000_000, 1e9, 1_000_000, 0, 100, 100, 100);
+        this.outboundSender = new OutboundSender(null, (httpMethod, url, jsonBody) -> {
+            if (url.contains("/message_attachments")) {
+                this.uploads.add(jsonBody);
+                return new HttpResponse(200, "{\"attachment_id\":\"1857777774821099\"}");
+            }
+            if (jsonBody.contains(EXPIRED_ATTACHMENT_ID)) {
+                return new HttpResponse(400, "{\"error\":{\"message\":\"(#100) Invalid attachment_id\",\"code\":100}}");
+            }
+            this.sentMessages.add(jsonBody);
+            return new HttpResponse(200, "{\"recipient_id\":\"" + RECIPIENT_ID + "\",\"message_id\":\"mid.1\"}");
+        }, scheduler, new SendMetrics(new SimpleMeterRegistry()), 2, 100, false);
+    }
+
+    @After
+    public void shutdown() throws InterruptedException {
+        if (this.mediaAssets != null) {
+            this.mediaAssets.shutdown();
+        }
+        this.outboundSender.shutdown();
+    }
+
+    @Test
+    public void shouldSendAssetByUrlWhenItsAttachmentIdIsRejected() throws Exception {
+        this.mediaAssets = mediaAssets(true);
+
+        this.mediaAssets.sendImage(RECIPIENT_ID);
+        this.outboundSender.whenSent(RECIPIENT_ID).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, this.sentMessages.size());
+        assertTrue(this.sentMessages.get(0).contains(IMAGE_URL));
+        assertEquals(0, this.outboundSender.failed());
+        assertEquals(empty(), new AttachmentStore(this.attachmentStore, PAGE_ACCESS_TOKEN).attachmentId(IMAGE_URL));
+    }
+
+    @Test
+    public void shouldNotUseStoredAttachmentIdsWhenUploadsAreDisabled() throws Exception {
+        this.mediaAssets = mediaAssets(false);
+
+        this.mediaAssets.sendImage(RECIPIENT_ID);
+        this.outboundSender.whenSent(RECIPIENT_ID).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, this.sentMessages.size());
+        assertTrue(this.sentMessages.get(0).contains(IMAGE_URL));
+        assertFalse(this.sentMessages.get(0).contains("attachment_id"));
+        assertTrue(this.uploads.isEmpty());
+    }
+
+    private MediaAssetManager mediaAssets(boolean uploadEnabled) throws Exception {
+        return new MediaAssetManager(this.messageTemplates, this.outboundSender, PAGE_ACCESS_TOKEN, uploadEnabled,
+                this.attachmentStore.toString());
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.messenger4j.quickstart.boot.send;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.github.messenger4j.quickstart.boot.template.PrecompiledMessage;
+import com.github.messenger4j.spi.MessengerHttpClient.HttpResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class OutboundSchedulerTest {
+
+    private static final String RECIPIENT_ID = "1254477777772919";
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final GraphApiUsage usage = new GraphApiUsage(this.clock::get);
+
+    @Test
+    public void shouldPaceRecipientAfterBurst() {
+        final OutboundScheduler scheduler = scheduler(100, 100, 2, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, scheduler.admit(RECIPIENT_ID));
+        }
+        assertEquals(SECOND / 2, scheduler.admit(RECIPIENT_ID));
+        assertEquals(0, scheduler.admit("1254477777772920"));
+
+        this.clock.addAndGet(SECOND / 2);
+        assertEquals(0, scheduler.admit(RECIPIENT_ID));
+    }
+
+    @Test
+    public void shouldPacePageAcrossRecipients() {
+        final OutboundScheduler scheduler = scheduler(10, 2, 100, 100);
+
+        assertEquals(0, scheduler.admit("1"));
+        assertEquals(0, scheduler.admit("2"));
+        assertEquals(SECOND / 10, scheduler.admit("3"));
+    }
+
+    @Test
+    public void shouldHalveConcurrencyAndBackOffWhenThrottled() {
+        final OutboundScheduler scheduler = scheduler(100, 100, 100, 100);
+        this.clock.addAndGet(SECOND);
+
+        final long delay = scheduler.onFailure(throttling(), 0);
+
+        assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(100) && delay <= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(8, scheduler.concurrencyLimit());
+        assertEquals(1, scheduler.throttled());
+        assertTrue(scheduler.admit(RECIPIENT_ID) > 0);
+    }
+
+    @Test
+    public void shouldDecreaseConcurrencyOnlyOncePerInterval() {
+        final OutboundScheduler scheduler = scheduler(100, 100, 100, 100);
+
+        scheduler.onFailure(throttling(), 0);
+        scheduler.onFailure(throttling(), 0);
+        assertEquals(8, scheduler.concurrencyLimit());
+
+        this.clock.addAndGet(AdaptiveConcurrencyLimit.DECREASE_INTERVAL_NANOS);
+        scheduler.onFailure(throttling(), 0);
+        assertEquals(4, scheduler.concurrencyLimit());
+
+        for (int i = 0; i < 28; i++) {
+            scheduler.onSuccess();
+        }
+        assertEquals(8, scheduler.concurrencyLimit());
+    }
+
+    @Test
+    public void shouldRetryWithGrowingJitteredBackoffUntilMaxRetries() {
+        final OutboundScheduler scheduler = scheduler(100, 100, 100, 100);
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            final long delay = scheduler.onFailure(new SendApiException(503, null, ""), attempt);
+            assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(100));
+            assertTrue(delay <= TimeUnit.MILLISECONDS.toNanos(100L << attempt));
+        }
+        assertEquals(OutboundScheduler.NO_RETRY, scheduler.onFailure(new SendApiException(503, null, ""), 3));
+    }
+
+    @Test
+    public void shouldNotRetryPermanentErrors() {
+        final OutboundScheduler scheduler = scheduler(100, 100, 100, 100);
+
+        assertEquals(OutboundScheduler.NO_RETRY, scheduler.onFailure(new SendApiException(400, 100, ""), 0));
+        assertEquals(OutboundScheduler.NO_RETRY, scheduler.onFailure(new IOException("Read timed out"), 0));
+    }
+
+    @Test
+    public void shouldReduceConcurrencyWhenUsageIsHigh() {
+        final OutboundScheduler scheduler = scheduler(100, 100, 100, 100);
+
+        this.usage.update("{\"call_count\":95,\"total_time\":10,\"total_cputime\":10}", null, null);
+        scheduler.admit(RECIPIENT_ID);
+
+        assertEquals(95, this.usage.percent());
+        assertEquals(8, scheduler.concurrencyLimit());
+    }
+
+    @Test
+    public void shouldRetryThrottledMessageAgainstStubGraphApi() throws InterruptedException {
+        final AtomicInteger requests = new AtomicInteger();
+        final OutboundScheduler scheduler = new OutboundScheduler(this.usage, 4, 100, 100, 100, 100, 3, 1, 10, 90, System::nanoTime);
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        final OutboundSender sender = new OutboundSender(null, (httpMethod, url, jsonBody) -> requests.incrementAndGet() <= 2
+                ? new HttpResponse(400, "{\"error\":{\"message\":\"(#613) Calls to this api have exceeded the rate limit.\",\"code\":613}}")
+                : new HttpResponse(200, "{\"recipient_id\":\"" + RECIPIENT_ID + "\",\"message_id\":\"mid.1\"}"), scheduler,
+                new SendMetrics(registry), 4, 100, false);
+        final PrecompiledMessage message = PrecompiledMessage.create(null, "https://graph.facebook.com/v2.11/me/messages",
+                "{\"recipient\":{\"id\":\"PLACEHOLDER\"}}", "PLACEHOLDER");
+
+        sender.send(RECIPIENT_ID, message);
+        final long deadline = System.nanoTime() + 5 * SECOND;
+        while (sender.sent() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        sender.shutdown();
+
+        assertEquals(1, sender.sent());
+        assertEquals(2, sender.retried());
+        assertEquals(0, sender.failed());
+        assertEquals(2, scheduler.throttled());
+        assertEquals(2, registry.get(SendMetrics.ERROR_COUNTER).tag("code", "613").counter().count(), 0);
+        assertEquals(2, registry.get(SendMetrics.SEND_TIMER).tags("payload", "other", "outcome", "failure").timer().count());
+        assertEquals(1, registry.get(SendMetrics.SEND_TIMER).tags("payload", "other", "outcome", "success").timer().count());
+    }
+
+    private OutboundScheduler scheduler(double pageRate, int pageBurst, double recipientRate, int recipientBurst) {
+        return new OutboundScheduler(this.usage, 16, pageRate, pageBurst, recipientRate, recipientBurst, 3, 100, 100_000, 90, this.clock::get);
+    }
+
+    private static SendApiException throttling() {
+        return new SendApiException(400, 613, "{\"error\":{\"code\":613}}");
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.messenger4j.quickstart.boot.send;
+
+import static com.github.messenger4j.send.senderaction.SenderAction.MARK_SEEN;
+import static com.github.messenger4j.send.senderaction.SenderAction.TYPING_OFF;
+import static com.github.messenger4j.send.senderaction.SenderAction.TYPING_ON;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.messenger4j.quickstart.boot.send.OutboundSender.Mailbox;
+import com.github.messenger4j.quickstart.boot.send.OutboundSender.Outbound;
+import com.github.messenger4j.quickstart.boot.template.PrecompiledMessage;
+import com.github.messenger4j.send.MessagePayload;
+import com.github.messenger4j.send.senderaction.SenderAction;
+import com.github.messenger4j.spi.MessengerHttpClient;
+import com.github.messenger4j.spi.MessengerHttpClient.HttpResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class OutboundSenderMailboxTest {
+
+    private final Mailbox mailbox = new Mailbox("1254477777772919");
+
+    @Test
+    public void shouldDropRepeatedSenderAction() {
+        assertEquals(0, offer(MARK_SEEN));
+        assertEquals(1, offer(MARK_SEEN));
+
+        assertEquals(actions(MARK_SEEN), queued());
+    }
+
+    @Test
+    public void shouldSupersedePendingTypingIndicator() {
+        assertEquals(0, offer(MARK_SEEN));
+        assertEquals(0, offer(TYPING_ON));
+        assertEquals(1, offer(TYPING_OFF));
+
+        assertEquals(actions(MARK_SEEN, TYPING_OFF), queued());
+    }
+
+    @Test
+    public void shouldNotCoalesceAcrossMessages() {
+        offer(TYPING_ON);
+        this.mailbox.offer(new Outbound(null, null, null, 0));
+        assertEquals(0, offer(TYPING_ON));
+
+        assertEquals(3, this.mailbox.queue.size());
+    }
+
+    @Test
+    public void shouldCompleteWhenSentOnceQueuedPayloadsAreSent() throws Exception {
+        final CountDownLatch sendApi = new CountDownLatch(1);
+        final OutboundSender sender = sender((httpMethod, url, jsonBody) -> {
+            sendApi.await(10, TimeUnit.SECONDS);
+            return new HttpResponse(200, "{\"recipient_id\":\"1254477777772919\",\"message_id\":\"mid.1\"}");
+        });
+        try {
+            sender.send("1254477777772919", message());
+            sender.send("1254477777772919", message());
+            final CompletableFuture<Void> whenSent = sender.whenSent("1254477777772919");
+
+            assertTrue(sender.whenSent("1717527131834678").isDone());
+            Thread.sleep(50);
+            assertFalse(whenSent.isDone());
+
+            sendApi.countDown();
+            whenSent.get(10, TimeUnit.SECONDS);
+            assertEquals(2, sender.sent());
+            assertEquals(0, sender.pending());
+        } finally {
+            sender.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldCompleteWhenSentOncePayloadsHaveBeenGivenUp() throws Exception {
+        final OutboundSender sender = sender((httpMethod, url, jsonBody) -> new HttpResponse(400,
+                "{\"error\":{\"message\":\"(#100) No matching user found\",\"code\":100}}"));
+        try {
+            sender.send("1254477777772919", message());
+
+            sender.whenSent("1254477777772919").get(10, TimeUnit.SECONDS);
+            assertEquals(1, sender.failed());
+        } finally {
+            sender.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldSendLaterPayloadsAfterDeferredPayloadsWithoutHoldingTheSenderThreads() throws Exception {
+        final OutboundSender sender = sender((httpMethod, url, jsonBody) ->
+                new HttpResponse(200, "{\"recipient_id\":\"1254477777772919\",\"message_id\":\"mid.1\"}"));
+        try {
+            final CompletableFuture<List<MessagePayload>> deferred = new CompletableFuture<>();
+            final CompletableFuture<List<MessagePayload>> failed = new CompletableFuture<>();
+            sender.send("1254477777772919", deferred);
+            sender.send("1254477777772919", message());
+            sender.send("1254477777772919", failed);
+            sender.send("1254477777772919", message());
+            final CompletableFuture<Void> whenSent = sender.whenSent("1254477777772919");
+            sender.send("1717527131834678", message());
+
+            sender.whenSent("1717527131834678").get(10, TimeUnit.SECONDS);
+            assertEquals(1, sender.sent());
+            assertFalse(whenSent.isDone());
+
+            deferred.complete(Collections.emptyList());
+            failed.completeExceptionally(new IllegalStateException("not fetched"));
+            whenSent.get(10, TimeUnit.SECONDS);
+            assertEquals(3, sender.sent());
+            assertEquals(0, sender.pending());
+        } finally {
+            sender.shutdown();
+        }
+    }
+
+    private static OutboundSender sender(MessengerHttpClient httpClient) {
+        final OutboundScheduler scheduler = new OutboundScheduler(new GraphApiUsage(), 8, 1e9, 1_000_000, 1e9, 1_000_000, 0, 100, 100, 100);
+        return new OutboundSender(null, httpClient, scheduler, new SendMetrics(new SimpleMeterRegistry()), 2, 100, false);
+    }
+
+    private static PrecompiledMessage message() {
+        return PrecompiledMessage.create(null, "https://graph.facebook.com/v2.11/me/messages",
+                "{\"recipient\":{\"id\":\"PLACEHOLDER\"},\"message\":{\"text\":\"Hello\"}}", "PLACEHOLDER");
+    }
+
+    private int offer(SenderAction senderAction) {
+        return this.mailbox.offer(new Outbound(null, senderAction, null, 0));
+    }
+
+    private List<SenderAction> queued() {
+        final List<SenderAction> queued = new ArrayList<>();
+        this.mailbox.queue.forEach(outbound -> queued.add(outbound.senderAction));
+        return queued;
+    }
+
+    private static List<SenderAction> actions(SenderAction... senderActions) {
+        final List<SenderAction> actions = new ArrayList<>();
+        for (SenderAction senderAction : senderActions) {
+            actions.add(senderAction);
+        }
+        return actions;
+    }
+}
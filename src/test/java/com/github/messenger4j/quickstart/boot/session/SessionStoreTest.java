@@ -0,0 +1,127 @@
+package com.github.messenger4j.quickstart.boot.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SessionStoreTest {
+
+    private static final long TTL_MILLIS = 60_000;
+    private static final String USER = "1254459154682919";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    @Test
+    public void shouldReturnEmptySessionOfUnknownSender() throws IOException {
+        final SessionStore store = store(100);
+
+        final Session session = store.get(USER);
+
+        assertTrue(session.isEmpty());
+        assertEquals(0L, session.version());
+    }
+
+    @Test
+    public void shouldStoreSessionIfUnchangedInTheMeantime() throws IOException {
+        final SessionStore store = store(100);
+        final Session session = store.get(USER);
+
+        assertTrue(store.compareAndSet(USER, session, session.with("step", "1")));
+        assertFalse(store.compareAndSet(USER, session, session.with("step", "2")));
+
+        final Session stored = store.get(USER);
+        assertEquals(Optional.of("1"), stored.get("step"));
+        assertTrue(store.compareAndSet(USER, stored, stored.with("step", "2").with("genre", "comedy")));
+        assertEquals(Optional.of("2"), store.get(USER).get("step"));
+        assertEquals(Optional.of("comedy"), store.get(USER).get("genre"));
+    }
+
+    @Test
+    public void shouldReadSessionsFromColdTier() throws IOException {
+        final SessionStore store = store(0);
+
+        store.update(USER, session -> session.with("step", "1").with("text", "\u00e4\u00f6\u00fc"));
+
+        assertEquals(Optional.of("1"), store.get(USER).get("step"));
+        assertEquals(Optional.of("\u00e4\u00f6\u00fc"), store.get(USER).get("text"));
+        assertEquals(0, store.hotSize());
+    }
+
+    @Test
+    public void shouldRemoveSession() throws IOException {
+        final SessionStore store = store(100);
+        store.update(USER, session -> session.with("step", "1"));
+        final Session stored = store.get(USER);
+
+        store.remove(USER);
+
+        assertTrue(store.get(USER).isEmpty());
+        assertEquals(0, store.size());
+        assertFalse("a removed session must not be replaced with a stale one", store.compareAndSet(USER, stored, stored.with("step", "2")));
+    }
+
+    @Test
+    public void shouldExpireIdleSessions() throws IOException {
+        final SessionStore store = store(0);
+        store.update(USER, session -> session.with("step", "1"));
+
+        this.clock.addAndGet(TTL_MILLIS - 1);
+        assertFalse(store.get(USER).isEmpty());
+        this.clock.addAndGet(TTL_MILLIS - 1);
+        assertFalse("reading a session must extend its life", store.get(USER).isEmpty());
+        this.clock.addAndGet(TTL_MILLIS);
+
+        assertTrue(store.get(USER).isEmpty());
+    }
+
+    @Test
+    public void shouldEvictIdlestSessionsWhenFull() throws IOException {
+        final SessionStore store = store(0);
+        final int users = store.capacity() * 2;
+        for (int i = 1; i <= users; i++) {
+            this.clock.incrementAndGet();
+            store.update(String.valueOf(i), session -> session.with("step", "1"));
+        }
+
+        assertTrue(store.size() <= store.capacity());
+        assertEquals(users - store.size(), store.evictions());
+        assertFalse(store.get(String.valueOf(users)).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectSessionLargerThanSlot() throws IOException {
+        final SessionStore store = store(100);
+        final StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            value.append('x');
+        }
+
+        store.update(USER, session -> session.with("text", value.toString()));
+    }
+
+    @Test
+    public void shouldKeepColdTierInMemoryMappedFile() throws IOException {
+        final File file = new File(this.temporaryFolder.getRoot(), "sessions");
+        final SessionStore store = new SessionStore(1000, 0, TTL_MILLIS, 256, file.getPath(), this.clock::get);
+
+        store.update(USER, session -> session.with("step", "1"));
+
+        assertEquals(Optional.of("1"), store.get(USER).get("step"));
+        assertEquals(store.capacity() * 256L, file.length());
+    }
+
+    private SessionStore store(long hotSize) throws IOException {
+        return new SessionStore(1000, hotSize, TTL_MILLIS, 256, "", this.clock::get);
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.messenger4j.quickstart.boot.template;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PrecompiledMessageTest {
+
+    private static final String URL = "https://graph.facebook.com/v2.11/me/messages?access_token=token";
+    private static final String PLACEHOLDER = "PLACEHOLDER";
+
+    @Test
+    public void shouldSpliceRecipientIdIntoPrecompiledRequest() {
+        final PrecompiledMessage message = PrecompiledMessage.create(null, URL,
+                "{\"recipient\":{\"id\":\"PLACEHOLDER\"},\"message\":{\"text\":\"Hi\"}}", PLACEHOLDER);
+
+        assertEquals(of("{\"recipient\":{\"id\":\"1254477777772919\"},\"message\":{\"text\":\"Hi\"}}"), message.json("1254477777772919"));
+        assertEquals(URL, message.url());
+    }
+
+    @Test
+    public void shouldNotSpliceNonNumericRecipientId() {
+        final PrecompiledMessage message = PrecompiledMessage.create(null, URL, "{\"recipient\":{\"id\":\"PLACEHOLDER\"}}", PLACEHOLDER);
+
+        assertEquals(empty(), message.json("\"},\"message\":{"));
+    }
+
+    @Test
+    public void shouldNotPrecompileIfPlaceholderIsAmbiguous() {
+        final PrecompiledMessage message = PrecompiledMessage.create(null, URL,
+                "{\"recipient\":{\"id\":\"PLACEHOLDER\"},\"message\":{\"text\":\"PLACEHOLDER\"}}", PLACEHOLDER);
+
+        assertEquals(empty(), message.json("1254477777772919"));
+    }
+}
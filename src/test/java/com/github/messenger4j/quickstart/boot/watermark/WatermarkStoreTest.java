@@ -0,0 +1,109 @@
+package com.github.messenger4j.quickstart.boot.watermark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.github.messenger4j.quickstart.boot.key.UserKeys;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.Test;
+
+public class WatermarkStoreTest {
+
+    private static final String USER = "1254459154682919";
+
+    private final WatermarkStore store = new WatermarkStore(1000);
+
+    @Test
+    public void shouldDropSupersededWatermarks() {
+        assertTrue(this.store.delivered(USER, Instant.ofEpochMilli(2000)));
+
+        assertFalse(this.store.delivered(USER, Instant.ofEpochMilli(2000)));
+        assertFalse(this.store.delivered(USER, Instant.ofEpochMilli(1000)));
+        assertTrue(this.store.delivered(USER, Instant.ofEpochMilli(3000)));
+        assertEquals(2, this.store.superseded());
+    }
+
+    @Test
+    public void shouldTellWhetherMessageHasBeenRead() {
+        assertFalse(this.store.isRead(USER, Instant.ofEpochMilli(1000)));
+
+        this.store.read(USER, Instant.ofEpochMilli(2000));
+
+        assertTrue(this.store.isRead(USER, Instant.ofEpochMilli(1000)));
+        assertTrue(this.store.isRead(USER, Instant.ofEpochMilli(2000)));
+        assertFalse(this.store.isRead(USER, Instant.ofEpochMilli(2001)));
+        assertFalse(this.store.isRead("1254459154682920", Instant.ofEpochMilli(1000)));
+    }
+
+    @Test
+    public void shouldAdvanceDeliveryWatermarkWithReadWatermark() {
+        this.store.read(USER, Instant.ofEpochMilli(2000));
+
+        assertTrue(this.store.isDelivered(USER, Instant.ofEpochMilli(2000)));
+        assertFalse(this.store.delivered(USER, Instant.ofEpochMilli(1500)));
+        assertFalse(this.store.isRead(USER, Instant.ofEpochMilli(2500)));
+        assertTrue(this.store.delivered(USER, Instant.ofEpochMilli(2500)));
+        assertFalse(this.store.isRead(USER, Instant.ofEpochMilli(2500)));
+    }
+
+    @Test
+    public void shouldKeyNonNumericIdsByHash() {
+        assertTrue(UserKeys.of("abc") < 0);
+        assertNotEquals(UserKeys.of("abc"), UserKeys.of("abd"));
+        assertNotEquals(0L, UserKeys.of("0"));
+        assertEquals(1254459154682919L, UserKeys.of(USER));
+
+        this.store.read("abc", Instant.ofEpochMilli(2000));
+
+        assertTrue(this.store.isRead("abc", Instant.ofEpochMilli(2000)));
+        assertFalse(this.store.isRead("abd", Instant.ofEpochMilli(2000)));
+    }
+
+    @Test
+    public void shouldEvictUsersWithOldestWatermarksWhenFull() {
+        final int users = this.store.capacity() * 4;
+        for (int i = 1; i <= users; i++) {
+            this.store.read(String.valueOf(i), Instant.ofEpochMilli(i));
+        }
+
+        assertTrue(this.store.size() <= this.store.capacity());
+        assertEquals(users - this.store.size(), this.store.evictions());
+        assertTrue(this.store.isRead(String.valueOf(users), Instant.ofEpochMilli(users)));
+    }
+
+    @Test
+    public void shouldKeepLatestWatermarkOfConcurrentUpdates() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Long>> maxima = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                maxima.add(executor.submit(() -> {
+                    long max = 0;
+                    for (int i = 0; i < 100_000; i++) {
+                        final long watermark = ThreadLocalRandom.current().nextLong(1, 1_000_000_000L);
+                        this.store.delivered(USER, Instant.ofEpochMilli(watermark));
+                        max = Math.max(max, watermark);
+                    }
+                    return max;
+                }));
+            }
+            long max = 0;
+            for (Future<Long> maximum : maxima) {
+                max = Math.max(max, maximum.get());
+            }
+
+            assertTrue(this.store.isDelivered(USER, Instant.ofEpochMilli(max)));
+            assertFalse(this.store.isDelivered(USER, Instant.ofEpochMilli(max + 1)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}